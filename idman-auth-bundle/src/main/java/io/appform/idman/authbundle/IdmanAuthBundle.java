@@ -16,23 +16,45 @@ package io.appform.idman.authbundle;
 
 import io.appform.idman.authcomponents.IdmanAuthDynamicFeature;
 import io.appform.idman.authcomponents.resource.IdmanAuthHandler;
+import io.appform.idman.client.RevocationSubscriber;
 import io.appform.idman.client.http.IdManHttpClientConfig;
 import io.appform.idman.client.http.IdmanHttpClient;
+import io.appform.idman.client.http.IdmanJwtVerifyingClient;
 import io.dropwizard.Configuration;
 import io.dropwizard.ConfiguredBundle;
+import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Environment;
-import lombok.val;
 
 /**
  *
  */
 public abstract class IdmanAuthBundle<T extends Configuration> implements ConfiguredBundle<T> {
+    private static final long REVOCATION_RETRY_DELAY_MS = 5_000;
+
     @Override
     public void run(T configuration, Environment environment) throws Exception {
-        val config = clientConfig(configuration);
-        val client = new IdmanHttpClient(config, environment.getObjectMapper());
+        final IdManHttpClientConfig config = clientConfig(configuration);
+        final IdmanHttpClient client = config.isVerifyTokensLocally()
+                     ? new IdmanJwtVerifyingClient(config, environment.getObjectMapper(), environment.metrics())
+                     : new IdmanHttpClient(config, environment.getObjectMapper(), environment.metrics());
         environment.jersey().register(new IdmanAuthDynamicFeature(environment, config, client));
         environment.jersey().register(new IdmanAuthHandler(client, config));
+        if (config.isSubscribeToRevocations()) {
+            final RevocationSubscriber subscriber = new RevocationSubscriber(client,
+                                                                             client::revocationsAfter,
+                                                                             REVOCATION_RETRY_DELAY_MS);
+            environment.lifecycle().manage(new Managed() {
+                @Override
+                public void start() {
+                    subscriber.start();
+                }
+
+                @Override
+                public void stop() {
+                    subscriber.stop();
+                }
+            });
+        }
     }
 
     public abstract IdManHttpClientConfig clientConfig(T config);
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.client.http;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Latency and response status meters for one server api. Metrics are named IdmanHttpClient.[api],
+ * IdmanHttpClient.[api].status.[code] and IdmanHttpClient.[api].error for calls that failed with
+ * an exception.
+ */
+class ApiMetrics {
+    private final MetricRegistry metrics;
+    private final String name;
+    private final Timer timer;
+    private final Meter errors;
+
+    ApiMetrics(MetricRegistry metrics, String api) {
+        this.metrics = metrics;
+        this.name = MetricRegistry.name(IdmanHttpClient.class, api);
+        this.timer = metrics.timer(name);
+        this.errors = metrics.meter(MetricRegistry.name(name, "error"));
+    }
+
+    Timer.Context time() {
+        return timer.time();
+    }
+
+    void status(int statusCode) {
+        metrics.meter(MetricRegistry.name(name, "status", Integer.toString(statusCode))).mark();
+    }
+
+    void error() {
+        errors.mark();
+    }
+}
@@ -45,4 +45,49 @@ public class IdManHttpClientConfig extends IdmanClientConfig {
 
     @NotEmpty
     private String authSecret;
+
+    /**
+     * Maximum number of tokens sent to the server in one call by {@link IdmanHttpClient#validateTokens}.
+     * Must not exceed the server side limit.
+     */
+    @Min(1)
+    @Max(1_000)
+    private int validationBatchSize = 100;
+
+    /**
+     * Verify asymmetrically signed tokens locally against keys published by the server. Static tokens, and tokens
+     * without embedded user information, are still validated on the server. Needs {@code subscribeToRevocations}, as
+     * logouts are only seen through the revocation feed. Tokens are validated on the server while the feed is not
+     * in sync.
+     */
+    private boolean verifyTokensLocally = false;
+
+    /**
+     * Expected issuer for locally verified tokens. Issuer is not checked if not set.
+     */
+    private String tokenIssuer;
+
+    @Min(60)
+    @Max(86_400)
+    private int jwksCacheDurationSeconds = 900;
+
+    /**
+     * Follow the server side session revocation feed and evict revoked sessions from the validation cache
+     */
+    private boolean subscribeToRevocations = false;
+
+    /**
+     * How long a revocation feed poll waits on the server for new revocations
+     */
+    @Min(0)
+    @Max(60_000)
+    private int revocationPollWaitMs = 20_000;
+
+    /**
+     * Tokens are verified locally only if the revocation feed was in sync within this time. Has to be longer than
+     * {@code revocationPollWaitMs} plus {@code requestTimeoutMs}.
+     */
+    @Min(1_000)
+    @Max(600_000)
+    private long revocationMaxStalenessMs = 45_000;
 }
@@ -14,19 +14,30 @@
 
 package io.appform.idman.client.http;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import io.appform.idman.client.IdManClient;
+import io.appform.idman.model.SessionRevocations;
 import io.appform.idman.model.TokenInfo;
+import io.appform.idman.model.TokenValidationResult;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
@@ -34,23 +45,45 @@ import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 
 import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.Optional;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 /**
- *
+ * Calls the idman server over http. Latency and response status of every server call are published to the provided
+ * {@link MetricRegistry}.
  */
 @Slf4j
 public class IdmanHttpClient extends IdManClient {
     private final CloseableHttpClient httpClient;
+    private final HttpClient asyncHttpClient;
     private final IdManHttpClientConfig clientConfig;
     private final ObjectMapper mapper;
+    private final ApiMetrics tokenApiMetrics;
+    private final ApiMetrics revokeApiMetrics;
+    private final ApiMetrics batchCheckApiMetrics;
+    private final ApiMetrics revocationsApiMetrics;
 
 
     public IdmanHttpClient(final IdManHttpClientConfig clientConfig, ObjectMapper mapper) {
+        this(clientConfig, mapper, new MetricRegistry());
+    }
+
+    public IdmanHttpClient(final IdManHttpClientConfig clientConfig, ObjectMapper mapper, MetricRegistry metrics) {
+        super(clientConfig);
         this.clientConfig = clientConfig;
         this.mapper = mapper;
+        this.tokenApiMetrics = new ApiMetrics(metrics, "token");
+        this.revokeApiMetrics = new ApiMetrics(metrics, "revoke");
+        this.batchCheckApiMetrics = new ApiMetrics(metrics, "batchCheck");
+        this.revocationsApiMetrics = new ApiMetrics(metrics, "revocations");
         val connectionManager = new PoolingHttpClientConnectionManager();
         connectionManager.setMaxTotal(clientConfig.getMaxClientConnections());
         httpClient = HttpClients.custom()
@@ -61,7 +94,18 @@ public class IdmanHttpClient extends IdManClient {
                                                  .setSocketTimeout(clientConfig.getRequestTimeoutMs())
                                                  .build())
                 .build();
-
+        //Response handling for async calls runs on a pool sized like the blocking connection pool
+        val asyncClientBuilder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newFixedThreadPool(clientConfig.getMaxClientConnections(), runnable -> {
+                    val thread = new Thread(runnable, "idman-http-client");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+        if (clientConfig.getConnectionTimeoutMs() > 0) {
+            asyncClientBuilder.connectTimeout(Duration.ofMillis(clientConfig.getConnectionTimeoutMs()));
+        }
+        asyncHttpClient = asyncClientBuilder.build();
     }
 
     @Override
@@ -76,51 +120,152 @@ public class IdmanHttpClient extends IdManClient {
         return oauthTokenApiCall(token, "refresh_token", "refresh_token");
     }
 
+    @Override
+    public CompletableFuture<Optional<TokenInfo>> accessTokenAsync(String serviceId, String tokenId) {
+        return oauthTokenApiCallAsync(tokenId, "authorization_code", "code");
+    }
+
+    @Override
+    protected CompletableFuture<Optional<TokenInfo>> validateTokenImplAsync(String serviceId, String token) {
+        return oauthTokenApiCallAsync(token, "refresh_token", "refresh_token");
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteTokenAsync(String serviceId, String jwt) {
+        val url = revokeApiUrl();
+        final Timer.Context timer = revokeApiMetrics.time();
+        return asyncHttpClient.sendAsync(formPost(url, revokeApiParams(jwt)), HttpResponse.BodyHandlers.discarding())
+                .thenApply(response -> {
+                    log.debug("Status received from {} is {}", url, response.statusCode());
+                    revokeApiMetrics.status(response.statusCode());
+                    return response.statusCode() == HttpStatus.SC_OK;
+                })
+                .exceptionally(e -> {
+                    log.error("Error calling token delete api: " + url, e);
+                    revokeApiMetrics.error();
+                    return false;
+                })
+                .whenComplete((result, e) -> timer.stop());
+    }
+
     @Override
     @SneakyThrows
     public boolean deleteToken(String serviceId, String jwt) {
-        val url = String.format("%s/apis/oauth2/revoke", clientConfig.getAuthEndpoint());
+        val url = revokeApiUrl();
         log.debug("Token API URL: {}", url);
-        val params = ImmutableList.<NameValuePair>builder()
-                .add(new BasicNameValuePair("client_id", clientConfig.getServiceId()))
-                .add(new BasicNameValuePair("client_secret", clientConfig.getAuthSecret()))
-                .add(new BasicNameValuePair("token", jwt))
-                .build();
         val post = new HttpPost(url);
-        post.setEntity(new UrlEncodedFormEntity(params));
+        post.setEntity(new UrlEncodedFormEntity(revokeApiParams(jwt)));
         log.debug("Headers: {}", Arrays.toString(post.getAllHeaders()));
         log.debug("Entity: {}", post.getEntity());
         log.debug("Method: {}", post.getMethod());
-        try (CloseableHttpResponse response = httpClient.execute(post)) {
+        try (final Timer.Context ignored = revokeApiMetrics.time();
+             CloseableHttpResponse response = httpClient.execute(post)) {
             val statusCode = response.getStatusLine().getStatusCode();
             log.debug("Status received from {} is {}", url, statusCode);
+            revokeApiMetrics.status(statusCode);
             return statusCode == HttpStatus.SC_OK;
         }
         catch (Exception e) {
             log.error("Error calling token delete api: " + url, e);
+            revokeApiMetrics.error();
         }
         return false;
     }
 
+    /**
+     * Validates a batch of tokens for the configured service on the server, in chunks of
+     * {@code validationBatchSize}. Results are not cached.
+     * Tokens in chunks that could not be validated because of server or network errors are reported as invalid.
+     *
+     * @return One result per token, in the order the tokens were provided
+     */
+    public List<TokenValidationResult> validateTokens(Collection<String> tokens) {
+        val results = new ArrayList<TokenValidationResult>(tokens.size());
+        for (List<String> batch : Iterables.partition(tokens, clientConfig.getValidationBatchSize())) {
+            results.addAll(batchValidationApiCall(batch));
+        }
+        return results;
+    }
+
+    private List<TokenValidationResult> batchValidationApiCall(List<String> tokens) {
+        val url = String.format("%s/apis/auth/check/v2/%s", clientConfig.getAuthEndpoint(), clientConfig.getServiceId());
+        log.debug("Batch validation API URL: {}", url);
+        val post = new HttpPost(url);
+        post.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + clientConfig.getAuthSecret());
+        try {
+            post.setEntity(new ByteArrayEntity(mapper.writeValueAsBytes(tokens), ContentType.APPLICATION_JSON));
+            try (final Timer.Context ignored = batchCheckApiMetrics.time();
+                 CloseableHttpResponse response = httpClient.execute(post)) {
+                val statusCode = response.getStatusLine().getStatusCode();
+                batchCheckApiMetrics.status(statusCode);
+                if (statusCode == HttpStatus.SC_OK) {
+                    return mapper.readValue(EntityUtils.toByteArray(response.getEntity()),
+                                            new TypeReference<List<TokenValidationResult>>() {});
+                }
+                log.error("Error returned by batch check api: {}", statusCode);
+            }
+        }
+        catch (Exception e) {
+            log.error("Error calling batch check api: " + url, e);
+            batchCheckApiMetrics.error();
+        }
+        return tokens.stream()
+                .map(token -> new TokenValidationResult(token, false, null))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Long polls the server for sessions of the configured service revoked after the given sequence. Can be used as
+     * a {@link io.appform.idman.client.RevocationSubscriber.RevocationSource}.
+     *
+     * @return Empty if the server could not be reached or refused the call
+     */
+    public Optional<SessionRevocations> revocationsAfter(long sequence) {
+        val url = String.format("%s/apis/auth/revocations/v1/%s?after=%d&waitMs=%d",
+                                clientConfig.getAuthEndpoint(),
+                                clientConfig.getServiceId(),
+                                sequence,
+                                clientConfig.getRevocationPollWaitMs());
+        val get = new HttpGet(url);
+        get.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + clientConfig.getAuthSecret());
+        get.setConfig(RequestConfig.copy(RequestConfig.DEFAULT)
+                              .setConnectionRequestTimeout(clientConfig.getConnectionTimeoutMs())
+                              .setConnectTimeout(clientConfig.getConnectionTimeoutMs())
+                              .setSocketTimeout(clientConfig.getRevocationPollWaitMs()
+                                                        + clientConfig.getRequestTimeoutMs())
+                              .build());
+        try (final Timer.Context ignored = revocationsApiMetrics.time();
+             CloseableHttpResponse response = httpClient.execute(get)) {
+            val statusCode = response.getStatusLine().getStatusCode();
+            revocationsApiMetrics.status(statusCode);
+            if (statusCode == HttpStatus.SC_OK) {
+                return Optional.of(mapper.readValue(EntityUtils.toByteArray(response.getEntity()),
+                                                    SessionRevocations.class));
+            }
+            log.error("Error returned by revocations api: {}", statusCode);
+        }
+        catch (Exception e) {
+            log.error("Error calling revocations api: " + url, e);
+            revocationsApiMetrics.error();
+        }
+        return Optional.empty();
+    }
+
     private Optional<TokenInfo> oauthTokenApiCall(
             String code,
             String grantType,
             String paramName) throws UnsupportedEncodingException {
-        val url = String.format("%s/apis/oauth2/token", clientConfig.getAuthEndpoint());
+        val url = tokenApiUrl();
         log.debug("Token API URL: {}", url);
-        val params = ImmutableList.<NameValuePair>builder()
-                .add(new BasicNameValuePair(paramName, code))
-                .add(new BasicNameValuePair("client_id", clientConfig.getServiceId()))
-                .add(new BasicNameValuePair("client_secret", clientConfig.getAuthSecret()))
-                .add(new BasicNameValuePair("grant_type", grantType))
-                .build();
         val post = new HttpPost(url);
-        post.setEntity(new UrlEncodedFormEntity(params));
+        post.setEntity(new UrlEncodedFormEntity(tokenApiParams(code, grantType, paramName)));
         log.debug("Headers: {}", Arrays.toString(post.getAllHeaders()));
         log.debug("Entity: {}", post.getEntity());
         log.debug("Method: {}", post.getMethod());
-        try (CloseableHttpResponse response = httpClient.execute(post)) {
+        try (final Timer.Context ignored = tokenApiMetrics.time();
+             CloseableHttpResponse response = httpClient.execute(post)) {
             val statusCode = response.getStatusLine().getStatusCode();
+            tokenApiMetrics.status(statusCode);
             if (statusCode == HttpStatus.SC_OK) {
                 val s = new String(EntityUtils.toByteArray(response.getEntity()), StandardCharsets.UTF_8);
                 log.debug("Server response: {}", s);
@@ -130,7 +275,72 @@ public class IdmanHttpClient extends IdManClient {
         }
         catch (Exception e) {
             log.error("Error calling auth api: " + url, e);
+            tokenApiMetrics.error();
         }
         return Optional.empty();
     }
+
+    private CompletableFuture<Optional<TokenInfo>> oauthTokenApiCallAsync(
+            String code,
+            String grantType,
+            String paramName) {
+        val url = tokenApiUrl();
+        final Timer.Context timer = tokenApiMetrics.time();
+        return asyncHttpClient.sendAsync(formPost(url, tokenApiParams(code, grantType, paramName)),
+                                         HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    tokenApiMetrics.status(response.statusCode());
+                    if (response.statusCode() == HttpStatus.SC_OK) {
+                        return Optional.of(readTokenInfo(response.body()));
+                    }
+                    log.error("Error returned by check api: {}", response.statusCode());
+                    return Optional.<TokenInfo>empty();
+                })
+                .exceptionally(e -> {
+                    log.error("Error calling auth api: " + url, e);
+                    tokenApiMetrics.error();
+                    return Optional.empty();
+                })
+                .whenComplete((result, e) -> timer.stop());
+    }
+
+    @SneakyThrows
+    private TokenInfo readTokenInfo(byte[] body) {
+        return mapper.readValue(body, TokenInfo.class);
+    }
+
+    private HttpRequest formPost(String url, List<NameValuePair> params) {
+        val request = HttpRequest.newBuilder(URI.create(url))
+                .header(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_FORM_URLENCODED.getMimeType())
+                .POST(HttpRequest.BodyPublishers.ofString(URLEncodedUtils.format(params, StandardCharsets.UTF_8)));
+        if (clientConfig.getRequestTimeoutMs() > 0) {
+            request.timeout(Duration.ofMillis(clientConfig.getRequestTimeoutMs()));
+        }
+        return request.build();
+    }
+
+    private String tokenApiUrl() {
+        return String.format("%s/apis/oauth2/token", clientConfig.getAuthEndpoint());
+    }
+
+    private String revokeApiUrl() {
+        return String.format("%s/apis/oauth2/revoke", clientConfig.getAuthEndpoint());
+    }
+
+    private List<NameValuePair> tokenApiParams(String code, String grantType, String paramName) {
+        return ImmutableList.<NameValuePair>builder()
+                .add(new BasicNameValuePair(paramName, code))
+                .add(new BasicNameValuePair("client_id", clientConfig.getServiceId()))
+                .add(new BasicNameValuePair("client_secret", clientConfig.getAuthSecret()))
+                .add(new BasicNameValuePair("grant_type", grantType))
+                .build();
+    }
+
+    private List<NameValuePair> revokeApiParams(String jwt) {
+        return ImmutableList.<NameValuePair>builder()
+                .add(new BasicNameValuePair("client_id", clientConfig.getServiceId()))
+                .add(new BasicNameValuePair("client_secret", clientConfig.getAuthSecret()))
+                .add(new BasicNameValuePair("token", jwt))
+                .build();
+    }
 }
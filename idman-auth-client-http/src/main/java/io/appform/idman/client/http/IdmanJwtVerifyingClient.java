@@ -0,0 +1,202 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.client.http;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.base.Strings;
+import io.appform.idman.model.*;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.jose4j.http.Get;
+import org.jose4j.jwa.AlgorithmConstraints;
+import org.jose4j.jwk.HttpsJwks;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.jwt.ReservedClaimNames;
+import org.jose4j.jwt.consumer.InvalidJwtException;
+import org.jose4j.jwt.consumer.JwtConsumer;
+import org.jose4j.jwt.consumer.JwtConsumerBuilder;
+import org.jose4j.jwt.consumer.JwtContext;
+import org.jose4j.jwt.consumer.Validator;
+import org.jose4j.keys.resolvers.HttpsJwksVerificationKeyResolver;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Verifies RS256/ES256 signed tokens locally using keys published by the server on /apis/oauth2/jwks.
+ * Falls back to server side validation for HMAC signed tokens, static tokens and tokens that do not carry
+ * user information. Tokens in the compact profile, without issuer and issue time and with shortened ids, are
+ * accepted as well. All other tokens need an issue time, and the issuer when {@code tokenIssuer} is set.
+ * Logouts, deleted users and role changes are only seen through the revocation feed, on which the server revokes the
+ * affected sessions. Tokens are therefore verified locally only when subscribed to it and the feed has been in sync
+ * within {@code revocationMaxStalenessMs}. Tokens of revoked sessions are rejected by
+ * {@link io.appform.idman.client.IdManClient}.
+ */
+@Slf4j
+public class IdmanJwtVerifyingClient extends IdmanHttpClient {
+    private static final Set<String> LOCALLY_VERIFIABLE_ALGORITHMS
+            = Set.of(AlgorithmIdentifiers.RSA_USING_SHA256, AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256);
+
+    private final JwtConsumer structureReader;
+    private final LoadingCache<String, JwtConsumer> jwtConsumers;
+    private final boolean subscribedToRevocations;
+    private final long revocationMaxStalenessMs;
+
+    public IdmanJwtVerifyingClient(IdManHttpClientConfig clientConfig, ObjectMapper mapper) {
+        this(clientConfig, mapper, new MetricRegistry());
+    }
+
+    public IdmanJwtVerifyingClient(IdManHttpClientConfig clientConfig, ObjectMapper mapper, MetricRegistry metrics) {
+        super(clientConfig, mapper, metrics);
+        if (!clientConfig.isSubscribeToRevocations()) {
+            log.warn("Not subscribed to session revocations, all tokens will be validated on the server");
+        }
+        this.subscribedToRevocations = clientConfig.isSubscribeToRevocations();
+        this.revocationMaxStalenessMs = clientConfig.getRevocationMaxStalenessMs();
+        val httpGet = new Get();
+        httpGet.setConnectTimeout(clientConfig.getConnectionTimeoutMs());
+        httpGet.setReadTimeout(clientConfig.getRequestTimeoutMs());
+        val jwks = new HttpsJwks(String.format("%s/apis/oauth2/jwks", clientConfig.getAuthEndpoint()));
+        jwks.setDefaultCacheDuration(clientConfig.getJwksCacheDurationSeconds());
+        jwks.setSimpleHttpGet(httpGet);
+        val keyResolver = new HttpsJwksVerificationKeyResolver(jwks);
+        this.structureReader = new JwtConsumerBuilder()
+                .setSkipAllValidators()
+                .setDisableRequireSignature()
+                .setSkipSignatureVerification()
+                .build();
+        this.jwtConsumers = Caffeine.newBuilder()
+                .maximumSize(1_000)
+                .build(serviceId -> {
+                    val builder = new JwtConsumerBuilder()
+                            .setRequireSubject()
+                            .setRequireJwtId()
+                            .setAllowedClockSkewInSeconds(30)
+                            .setExpectedAudience(serviceId)
+                            .setVerificationKeyResolver(keyResolver)
+                            .setJwsAlgorithmConstraints(new AlgorithmConstraints(
+                                    AlgorithmConstraints.ConstraintType.WHITELIST,
+                                    LOCALLY_VERIFIABLE_ALGORITHMS.toArray(new String[0])));
+                    val issuer = clientConfig.getTokenIssuer();
+                    if (!Strings.isNullOrEmpty(issuer)) {
+                        builder.setExpectedIssuer(false, issuer);
+                    }
+                    builder.registerValidator((Validator) jwtContext -> validateProfileClaims(jwtContext, issuer));
+                    return builder.build();
+                });
+    }
+
+    @Override
+    protected Optional<TokenInfo> validateTokenImpl(String serviceId, String token) {
+        val context = readStructure(serviceId, token);
+        if (null == context) {
+            return Optional.empty();
+        }
+        if (!isLocallyVerifiable(context)) {
+            return super.validateTokenImpl(serviceId, token);
+        }
+        return verifyLocally(serviceId, token, context);
+    }
+
+    @Override
+    protected CompletableFuture<Optional<TokenInfo>> validateTokenImplAsync(String serviceId, String token) {
+        val context = readStructure(serviceId, token);
+        if (null == context) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        if (!isLocallyVerifiable(context)) {
+            return super.validateTokenImplAsync(serviceId, token);
+        }
+        return CompletableFuture.completedFuture(verifyLocally(serviceId, token, context));
+    }
+
+    private JwtContext readStructure(String serviceId, String token) {
+        try {
+            return structureReader.process(token);
+        }
+        catch (InvalidJwtException e) {
+            log.warn("Malformed token received for service {}: {}", serviceId, e.getMessage());
+            return null;
+        }
+    }
+
+    private Optional<TokenInfo> verifyLocally(String serviceId, String token, JwtContext context) {
+        try {
+            jwtConsumers.get(serviceId).processContext(context);
+            val claims = context.getJwtClaims();
+            return Optional.of(tokenInfo(serviceId, token, claims));
+        }
+        catch (InvalidJwtException | MalformedClaimException | IllegalArgumentException e) {
+            log.warn("Token verification failed for service {}: {}", serviceId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private boolean isLocallyVerifiable(JwtContext context) {
+        if (!subscribedToRevocations || revocationsStaleForMs() > revocationMaxStalenessMs) {
+            log.debug("Revocation feed is not in sync, validating token on server");
+            return false;
+        }
+        val joseObjects = context.getJoseObjects();
+        if (joseObjects.size() != 1
+                || !LOCALLY_VERIFIABLE_ALGORITHMS.contains(joseObjects.get(0).getAlgorithmHeaderValue())) {
+            return false;
+        }
+        val claims = context.getJwtClaims();
+        return claims.hasClaim(ReservedClaimNames.EXPIRATION_TIME)
+                && claims.hasClaim(TokenClaims.ROLE)
+                && claims.hasClaim(TokenClaims.USER_NAME)
+                && claims.hasClaim(TokenClaims.USER_TYPE)
+                && claims.hasClaim(TokenClaims.AUTH_MODE);
+    }
+
+    /**
+     * Only compact profile tokens, recognised by their shortened session id, may leave out the issuer and issue time
+     */
+    private static String validateProfileClaims(JwtContext jwtContext, String issuer) throws MalformedClaimException {
+        val claims = jwtContext.getJwtClaims();
+        if (CompactIds.isCompact(claims.getJwtId())) {
+            return null;
+        }
+        if (!Strings.isNullOrEmpty(issuer) && null == claims.getIssuer()) {
+            return "No Issuer (iss) claim present";
+        }
+        if (null == claims.getIssuedAt()) {
+            return "No Issued At (iat) claim present";
+        }
+        return null;
+    }
+
+    private static TokenInfo tokenInfo(String serviceId, String token, JwtClaims claims)
+            throws MalformedClaimException {
+        val role = claims.getStringClaimValue(TokenClaims.ROLE);
+        val user = new IdmanUser(CompactIds.expand(claims.getJwtId()),
+                                 serviceId,
+                                 new User(CompactIds.expand(claims.getSubject()),
+                                          claims.getStringClaimValue(TokenClaims.USER_NAME),
+                                          UserType.valueOf(claims.getStringClaimValue(TokenClaims.USER_TYPE)),
+                                          AuthMode.valueOf(claims.getStringClaimValue(TokenClaims.AUTH_MODE))),
+                                 role);
+        val expiresIn = Math.max(0, claims.getExpirationTime().getValue() - NumericDate.now().getValue());
+        return new TokenInfo(token, token, expiresIn, "bearer", role, user);
+    }
+}
@@ -1,5 +1,6 @@
 package io.appform.idman.client.http;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 import com.github.tomakehurst.wiremock.WireMockServer;
@@ -13,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 
 import java.util.Collections;
+import java.util.List;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -166,6 +168,178 @@ class IdmanHttpClientTest {
         assertFalse(client.deleteToken("S", "T"));
     }
 
+    @Test
+    @SneakyThrows
+    void testAccessTokenAsyncSuccessCall() {
+        val tokenInfo = new TokenInfo("T", "T", 60, "bearer", TEST_USER.getRole(), TEST_USER);
+        server.stubFor(post(urlEqualTo("/apis/oauth2/token"))
+                               .withRequestBody(containing("grant_type=authorization_code"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_OK)
+                                                   .withBody(MAPPER.writeValueAsString(tokenInfo))));
+
+        val client = new IdmanHttpClient(clientConfig(), MAPPER);
+        assertEquals(tokenInfo, client.accessTokenAsync("S", "T").get().orElse(null));
+    }
+
+    @Test
+    @SneakyThrows
+    void testValidateAsyncSuccessCall() {
+        val tokenInfo = new TokenInfo("T", "T", 60, "bearer", TEST_USER.getRole(), TEST_USER);
+        server.stubFor(post(urlEqualTo("/apis/oauth2/token"))
+                               .withRequestBody(containing("refresh_token=T"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_OK)
+                                                   .withBody(MAPPER.writeValueAsString(tokenInfo))));
+
+        val client = new IdmanHttpClient(clientConfig(), MAPPER);
+        assertEquals(tokenInfo, client.validateTokenAsync("S", "T").get().orElse(null));
+        assertEquals(tokenInfo, client.validateTokenAsync("S", "T").get().orElse(null));
+        assertEquals(tokenInfo, client.validateToken("S", "T").orElse(null));
+        server.verify(1, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testValidateAsyncFailure() {
+        server.stubFor(post(urlEqualTo("/apis/oauth2/token"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_INTERNAL_SERVER_ERROR)));
+
+        val client = new IdmanHttpClient(clientConfig(), MAPPER);
+        assertNull(client.validateTokenAsync("S", "T").get().orElse(null));
+        assertNull(client.validateTokenAsync("S", null).get().orElse(null));
+    }
+
+    @Test
+    @SneakyThrows
+    void testValidateAsyncTimeoutFailCall() {
+        val tokenInfo = new TokenInfo("T", "T", 60, "bearer", TEST_USER.getRole(), TEST_USER);
+        server.stubFor(post(urlEqualTo("/apis/oauth2/token"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_OK)
+                                                   .withBody(MAPPER.writeValueAsString(tokenInfo))
+                                                   .withFixedDelay(2000)));
+
+        val clientConfig = clientConfig();
+        clientConfig.setRequestTimeoutMs(100);
+        val client = new IdmanHttpClient(clientConfig, MAPPER);
+        assertNull(client.validateTokenAsync("S", "T").get().orElse(null));
+    }
+
+    @Test
+    @SneakyThrows
+    void testApiMetrics() {
+        val tokenInfo = new TokenInfo("T", "T", 60, "bearer", TEST_USER.getRole(), TEST_USER);
+        server.stubFor(post(urlEqualTo("/apis/oauth2/token"))
+                               .withRequestBody(containing("refresh_token=T1"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_OK)
+                                                   .withBody(MAPPER.writeValueAsString(tokenInfo))));
+        server.stubFor(post(urlEqualTo("/apis/oauth2/token"))
+                               .withRequestBody(containing("refresh_token=T2"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_INTERNAL_SERVER_ERROR)));
+        server.stubFor(post(urlEqualTo("/apis/oauth2/revoke"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_OK)));
+        val metrics = new MetricRegistry();
+        val client = new IdmanHttpClient(clientConfig(), MAPPER, metrics);
+        assertTrue(client.validateToken("S", "T1").isPresent());
+        assertFalse(client.validateTokenAsync("S", "T2").get().isPresent());
+        assertTrue(client.deleteTokenAsync("S", "T1").get());
+        server.stop();
+        assertFalse(client.deleteToken("S", "T1"));
+
+        assertEquals(2, metrics.timer("io.appform.idman.client.http.IdmanHttpClient.token").getCount());
+        assertEquals(1, metrics.meter("io.appform.idman.client.http.IdmanHttpClient.token.status.200").getCount());
+        assertEquals(1, metrics.meter("io.appform.idman.client.http.IdmanHttpClient.token.status.500").getCount());
+        assertEquals(0, metrics.meter("io.appform.idman.client.http.IdmanHttpClient.token.error").getCount());
+        assertEquals(2, metrics.timer("io.appform.idman.client.http.IdmanHttpClient.revoke").getCount());
+        assertEquals(1, metrics.meter("io.appform.idman.client.http.IdmanHttpClient.revoke.status.200").getCount());
+        assertEquals(1, metrics.meter("io.appform.idman.client.http.IdmanHttpClient.revoke.error").getCount());
+    }
+
+    @Test
+    @SneakyThrows
+    void testDeleteAsyncCall() {
+        server.stubFor(post(urlEqualTo("/apis/oauth2/revoke"))
+                               .withRequestBody(containing("token=T1"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_OK)));
+        server.stubFor(post(urlEqualTo("/apis/oauth2/revoke"))
+                               .withRequestBody(containing("token=T2"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_SERVICE_UNAVAILABLE)));
+        val client = new IdmanHttpClient(clientConfig(), MAPPER);
+        assertTrue(client.deleteTokenAsync("S", "T1").get());
+        assertFalse(client.deleteTokenAsync("S", "T2").get());
+    }
+
+    @Test
+    @SneakyThrows
+    void testValidateTokensSuccessCall() {
+        server.stubFor(post(urlEqualTo("/apis/auth/check/v2/S"))
+                               .withHeader("Authorization", equalTo("Bearer SECRET"))
+                               .withRequestBody(equalToJson(MAPPER.writeValueAsString(List.of("T1", "T2"))))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_OK)
+                                                   .withBody(MAPPER.writeValueAsString(List.of(
+                                                           new TokenValidationResult("T1", true, TEST_USER),
+                                                           new TokenValidationResult("T2", false, null))))));
+        server.stubFor(post(urlEqualTo("/apis/auth/check/v2/S"))
+                               .withHeader("Authorization", equalTo("Bearer SECRET"))
+                               .withRequestBody(equalToJson(MAPPER.writeValueAsString(List.of("T3"))))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_OK)
+                                                   .withBody(MAPPER.writeValueAsString(List.of(
+                                                           new TokenValidationResult("T3", true, TEST_USER))))));
+        val clientConfig = clientConfig();
+        clientConfig.setAuthSecret("SECRET");
+        clientConfig.setValidationBatchSize(2);
+        val client = new IdmanHttpClient(clientConfig, MAPPER);
+        val results = client.validateTokens(List.of("T1", "T2", "T3"));
+        assertEquals(List.of(new TokenValidationResult("T1", true, TEST_USER),
+                             new TokenValidationResult("T2", false, null),
+                             new TokenValidationResult("T3", true, TEST_USER)),
+                     results);
+        server.verify(2, postRequestedFor(urlEqualTo("/apis/auth/check/v2/S")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testValidateTokensFailedCall() {
+        server.stubFor(post(urlEqualTo("/apis/auth/check/v2/S"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_UNAUTHORIZED)));
+        val clientConfig = clientConfig();
+        clientConfig.setAuthSecret("WRONG");
+        val client = new IdmanHttpClient(clientConfig, MAPPER);
+        assertEquals(List.of(new TokenValidationResult("T1", false, null),
+                             new TokenValidationResult("T2", false, null)),
+                     client.validateTokens(List.of("T1", "T2")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testRevocationsAfter() {
+        val revocations = new SessionRevocations(10, List.of("SS1", "SS2"), false);
+        server.stubFor(get(urlEqualTo("/apis/auth/revocations/v1/S?after=5&waitMs=100"))
+                               .withHeader("Authorization", equalTo("Bearer SECRET"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_OK)
+                                                   .withBody(MAPPER.writeValueAsString(revocations))));
+        server.stubFor(get(urlEqualTo("/apis/auth/revocations/v1/S?after=10&waitMs=100"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_UNAUTHORIZED)));
+        val clientConfig = clientConfig();
+        clientConfig.setAuthSecret("SECRET");
+        clientConfig.setRevocationPollWaitMs(100);
+        val client = new IdmanHttpClient(clientConfig, MAPPER);
+        assertEquals(revocations, client.revocationsAfter(5).orElse(null));
+        assertFalse(client.revocationsAfter(10).isPresent());
+    }
+
     private IdManHttpClientConfig clientConfig() {
         val clientConfig = new IdManHttpClientConfig();
         clientConfig.setAuthEndpoint(server.baseUrl());
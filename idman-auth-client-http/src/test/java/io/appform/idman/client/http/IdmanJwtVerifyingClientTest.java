@@ -0,0 +1,292 @@
+package io.appform.idman.client.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.appform.idman.model.*;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.apache.http.HttpStatus;
+import org.jose4j.jwk.EcJwkGenerator;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.PublicJsonWebKey;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.keys.EllipticCurves;
+import org.jose4j.keys.HmacKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+class IdmanJwtVerifyingClientTest {
+    private static final User NORMAL_USER = new User("TU1", "TU", UserType.HUMAN, AuthMode.PASSWORD);
+
+    private static final IdmanUser TEST_USER = new IdmanUser("SS1", "S", NORMAL_USER, "S_USER");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static {
+        MAPPER.registerModule(new ParameterNamesModule());
+    }
+
+    private final WireMockServer server = new WireMockServer();
+    private PublicJsonWebKey signingKey;
+
+    @BeforeEach
+    @SneakyThrows
+    void setup() {
+        server.start();
+        signingKey = EcJwkGenerator.generateJwk(EllipticCurves.P256);
+        signingKey.setKeyId("K1");
+        signingKey.setAlgorithm(AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256);
+        server.stubFor(get(urlEqualTo("/apis/oauth2/jwks"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_OK)
+                                                   .withBody(new JsonWebKeySet(signingKey)
+                                                                     .toJson(JsonWebKey.OutputControlLevel.PUBLIC_ONLY))));
+    }
+
+    @AfterEach
+    void destroy() {
+        server.stop();
+        server.resetAll();
+    }
+
+    @Test
+    void testLocalValidationSuccess() {
+        val client = syncedClient(clientConfig());
+        val token = token("S", 60);
+        val tokenInfo = client.validateToken("S", token).orElse(null);
+        assertNotNull(tokenInfo);
+        assertEquals(TEST_USER, tokenInfo.getUser());
+        assertEquals("S_USER", tokenInfo.getRole());
+        assertTrue(tokenInfo.getExpiry() > 0);
+        server.verify(0, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testLocalValidationAsync() {
+        val client = syncedClient(clientConfig());
+        val tokenInfo = client.validateTokenAsync("S", token("S", 60)).get().orElse(null);
+        assertNotNull(tokenInfo);
+        assertEquals(TEST_USER, tokenInfo.getUser());
+        assertFalse(client.validateTokenAsync("S", "abc").get().isPresent());
+        server.verify(0, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+    }
+
+    @Test
+    void testLocalValidationWrongAudience() {
+        val client = syncedClient(clientConfig());
+        assertFalse(client.validateToken("S2", token("S", 60)).isPresent());
+        server.verify(0, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+    }
+
+    @Test
+    void testLocalValidationExpired() {
+        val client = syncedClient(clientConfig());
+        assertFalse(client.validateToken("S", token("S", -120)).isPresent());
+    }
+
+    @Test
+    @SneakyThrows
+    void testLocalValidationUnknownKey() {
+        val client = syncedClient(clientConfig());
+        signingKey = EcJwkGenerator.generateJwk(EllipticCurves.P256);
+        signingKey.setKeyId("K2");
+        assertFalse(client.validateToken("S", token("S", 60)).isPresent());
+    }
+
+    @Test
+    void testLocalValidationWrongIssuer() {
+        val config = clientConfig();
+        config.setTokenIssuer("someone-else");
+        val client = syncedClient(config);
+        assertFalse(client.validateToken("S", token("S", 60)).isPresent());
+    }
+
+    @Test
+    void testLocalValidationCompactToken() {
+        val sessionId = UUID.randomUUID().toString();
+        val userId = UUID.randomUUID().toString();
+        val claims = claims("S", 60);
+        claims.unsetClaim("iss");
+        claims.unsetClaim("iat");
+        claims.setJwtId(CompactIds.compact(sessionId));
+        claims.setSubject(CompactIds.compact(userId));
+        val config = clientConfig();
+        config.setTokenIssuer("idman");
+        val client = syncedClient(config);
+        val tokenInfo = client.validateToken("S", sign(claims)).orElse(null);
+        assertNotNull(tokenInfo);
+        assertEquals(sessionId, tokenInfo.getUser().getSessionId());
+        assertEquals(userId, tokenInfo.getUser().getUser().getId());
+        assertEquals("S_USER", tokenInfo.getRole());
+        server.verify(0, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+    }
+
+    @Test
+    void testLocalValidationStandardTokenWithoutIssuerOrIssueTime() {
+        val config = clientConfig();
+        config.setTokenIssuer("idman");
+        val client = syncedClient(config);
+        val withoutIssuer = claims("S", 60);
+        withoutIssuer.unsetClaim("iss");
+        assertFalse(client.validateToken("S", sign(withoutIssuer)).isPresent());
+        val withoutIssuedAt = claims("S", 60);
+        withoutIssuedAt.unsetClaim("iat");
+        assertFalse(client.validateToken("S", sign(withoutIssuedAt)).isPresent());
+        server.verify(0, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testHmacTokenValidatedOnServer() {
+        val claims = claims("S", 60);
+        val jws = new JsonWebSignature();
+        jws.setPayload(claims.toJson());
+        jws.setKey(new HmacKey("0123456789012345678901234567890123456789012345678901234567890123"
+                                       .getBytes(StandardCharsets.UTF_8)));
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.HMAC_SHA512);
+        val token = jws.getCompactSerialization();
+        val tokenInfo = new TokenInfo(token, token, 60, "bearer", TEST_USER.getRole(), TEST_USER);
+        server.stubFor(post(urlEqualTo("/apis/oauth2/token"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_OK)
+                                                   .withBody(MAPPER.writeValueAsString(tokenInfo))));
+        val client = syncedClient(clientConfig());
+        assertEquals(tokenInfo, client.validateToken("S", token).orElse(null));
+        server.verify(1, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+        assertEquals(tokenInfo, client.validateTokenAsync("S2", token).get().orElse(null));
+        server.verify(2, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testStaticTokenValidatedOnServer() {
+        val claims = claims("S", 60);
+        claims.unsetClaim("exp");
+        val token = sign(claims);
+        server.stubFor(post(urlEqualTo("/apis/oauth2/token"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_UNAUTHORIZED)));
+        val client = syncedClient(clientConfig());
+        assertFalse(client.validateToken("S", token).isPresent());
+        server.verify(1, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testServerValidationWhileRevocationsNotSynced() {
+        val token = token("S", 60);
+        val tokenInfo = new TokenInfo(token, token, 60, "bearer", TEST_USER.getRole(), TEST_USER);
+        server.stubFor(post(urlEqualTo("/apis/oauth2/token"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_OK)
+                                                   .withBody(MAPPER.writeValueAsString(tokenInfo))));
+        val config = clientConfig();
+        config.setRevocationMaxStalenessMs(1_000);
+        val client = new IdmanJwtVerifyingClient(config, MAPPER);
+        assertEquals(tokenInfo, client.validateToken("S", token).orElse(null));
+        server.verify(1, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+
+        client.revocationsSynced();
+        assertNotNull(client.validateToken("S2", token("S2", 60)).orElse(null));
+        server.verify(1, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+
+        Thread.sleep(1_100);
+        assertEquals(tokenInfo, client.validateTokenAsync("S", token("S", 30)).get().orElse(null));
+        server.verify(2, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+    }
+
+    @Test
+    void testServerValidationWithoutRevocationFeed() {
+        server.stubFor(post(urlEqualTo("/apis/oauth2/token"))
+                               .willReturn(aResponse()
+                                                   .withStatus(HttpStatus.SC_UNAUTHORIZED)));
+        val config = clientConfig();
+        config.setSubscribeToRevocations(false);
+        assertFalse(syncedClient(config).validateToken("S", token("S", 60)).isPresent());
+        server.verify(1, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+    }
+
+    @Test
+    void testRevokedSessionRejected() {
+        val client = syncedClient(clientConfig());
+        val token = token("S", 60);
+        assertTrue(client.validateToken("S", token).isPresent());
+        client.revokeSessions(List.of(TEST_USER.getSessionId()));
+        assertFalse(client.validateToken("S", token).isPresent());
+        assertFalse(client.validateToken("S", token("S", 120)).isPresent());
+        server.verify(0, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+    }
+
+    @Test
+    void testMalformedToken() {
+        val client = syncedClient(clientConfig());
+        assertFalse(client.validateToken("S", "abc").isPresent());
+        server.verify(0, postRequestedFor(urlEqualTo("/apis/oauth2/token")));
+    }
+
+    private String token(String audience, int expiryOffsetSeconds) {
+        return sign(claims(audience, expiryOffsetSeconds));
+    }
+
+    private JwtClaims claims(String audience, int expiryOffsetSeconds) {
+        val claims = new JwtClaims();
+        claims.setIssuer("idman");
+        claims.setJwtId(TEST_USER.getSessionId());
+        claims.setIssuedAtToNow();
+        claims.setSubject(NORMAL_USER.getId());
+        claims.setAudience(audience);
+        val expiry = NumericDate.now();
+        expiry.addSeconds(expiryOffsetSeconds);
+        claims.setExpirationTime(expiry);
+        claims.setStringClaim(TokenClaims.USER_NAME, NORMAL_USER.getName());
+        claims.setStringClaim(TokenClaims.USER_TYPE, NORMAL_USER.getUserType().name());
+        claims.setStringClaim(TokenClaims.AUTH_MODE, NORMAL_USER.getAuthMode().name());
+        claims.setStringClaim(TokenClaims.ROLE, TEST_USER.getRole());
+        return claims;
+    }
+
+    @SneakyThrows
+    private String sign(JwtClaims claims) {
+        val jws = new JsonWebSignature();
+        jws.setPayload(claims.toJson());
+        jws.setKey(signingKey.getPrivateKey());
+        jws.setKeyIdHeaderValue(signingKey.getKeyId());
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256);
+        return jws.getCompactSerialization();
+    }
+
+    private static IdmanJwtVerifyingClient syncedClient(IdManHttpClientConfig config) {
+        val client = new IdmanJwtVerifyingClient(config, MAPPER);
+        client.revocationsSynced();
+        return client;
+    }
+
+    private IdManHttpClientConfig clientConfig() {
+        val clientConfig = new IdManHttpClientConfig();
+        clientConfig.setAuthEndpoint(server.baseUrl());
+        clientConfig.setResourcePrefix("/apis");
+        clientConfig.setServiceId("S");
+        clientConfig.setAllowedPaths(Collections.singleton("unchecked"));
+        clientConfig.setVerifyTokensLocally(true);
+        clientConfig.setSubscribeToRevocations(true);
+        return clientConfig;
+    }
+}
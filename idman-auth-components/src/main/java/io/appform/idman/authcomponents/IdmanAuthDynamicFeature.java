@@ -14,6 +14,8 @@
 
 package io.appform.idman.authcomponents;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.github.benmanes.caffeine.cache.CaffeineSpec;
 import io.appform.idman.authcomponents.filters.IdmanAuthFilter;
 import io.appform.idman.authcomponents.security.IdmanAuthenticator;
@@ -51,6 +53,7 @@ public class IdmanAuthDynamicFeature extends AuthDynamicFeature {
                                                        CaffeineSpec.parse(authConfig.getCacheSpec())))
                 .setUnauthorizedHandler(new RedirectUnauthorizedHandler(authConfig))
              .buildAuthFilter());
+        registerCacheMetrics(environment.metrics(), idManClient);
         val jersey = environment.jersey();
         if(null != jersey) { //Will happen during testing
             jersey.register(new AuthValueFactoryProvider.Binder<>(ServiceUserPrincipal.class));
@@ -61,4 +64,22 @@ public class IdmanAuthDynamicFeature extends AuthDynamicFeature {
         }
         log.info("IDMan dynamic feature enabled");
     }
+
+    private static void registerCacheMetrics(MetricRegistry metrics, IdManClient idManClient) {
+        if (null == metrics) {
+            return;
+        }
+        metrics.gauge(cacheMetric("size"), () -> (Gauge<Long>) idManClient::cacheSize);
+        metrics.gauge(cacheMetric("hits"), () -> (Gauge<Long>) () -> idManClient.cacheStats().hitCount());
+        metrics.gauge(cacheMetric("misses"), () -> (Gauge<Long>) () -> idManClient.cacheStats().missCount());
+        metrics.gauge(cacheMetric("hitRatio"), () -> (Gauge<Double>) () -> idManClient.cacheStats().hitRate());
+        metrics.gauge(cacheMetric("evictions"), () -> (Gauge<Long>) () -> idManClient.cacheStats().evictionCount());
+        metrics.gauge(cacheMetric("loadFailures"),
+                      () -> (Gauge<Long>) () -> idManClient.cacheStats().loadFailureCount());
+        metrics.gauge(cacheMetric("coalesced"), () -> (Gauge<Long>) idManClient::coalescedValidations);
+    }
+
+    private static String cacheMetric(String name) {
+        return MetricRegistry.name(IdManClient.class, "validationCache", name);
+    }
 }
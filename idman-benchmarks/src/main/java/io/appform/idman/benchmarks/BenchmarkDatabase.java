@@ -0,0 +1,100 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.benchmarks;
+
+import io.appform.idman.server.db.cache.HibernateCacheConfig;
+import io.appform.idman.server.db.cache.HibernateCaches;
+import io.appform.idman.server.db.model.*;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.context.internal.ManagedSessionContext;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Embedded H2 database with the server schema, set up the same way as in the server's DAO tests
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+    private final SessionFactory sessionFactory;
+
+    public BenchmarkDatabase() {
+        this(false);
+    }
+
+    /**
+     * @param secondLevelCache Enable the second level and query caches, with the server's other cache settings
+     */
+    public BenchmarkDatabase(boolean secondLevelCache) {
+        val cacheConfig = new HibernateCacheConfig();
+        cacheConfig.setEnabled(secondLevelCache);
+        val config = new Configuration();
+        config.setProperty(AvailableSettings.URL, "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        config.setProperty(AvailableSettings.USER, "sa");
+        config.setProperty(AvailableSettings.PASS, "");
+        config.setProperty(AvailableSettings.DRIVER, "org.h2.Driver");
+        config.setProperty(AvailableSettings.HBM2DDL_AUTO, "create");
+        config.setProperty(AvailableSettings.CURRENT_SESSION_CONTEXT_CLASS, "managed");
+        config.setProperty(AvailableSettings.USE_GET_GENERATED_KEYS, "true");
+        HibernateCaches.configure(config, cacheConfig);
+        config.addAnnotatedClass(StoredService.class);
+        config.addAnnotatedClass(StoredRole.class);
+        config.addAnnotatedClass(StoredUser.class);
+        config.addAnnotatedClass(StoredUserAuthState.class);
+        config.addAnnotatedClass(StoredUserRole.class);
+        config.addAnnotatedClass(StoredPassword.class);
+        config.addAnnotatedClass(StoredDynamicSession.class);
+        config.addAnnotatedClass(StoredStaticSession.class);
+        config.addAnnotatedClass(StoredSessionRevocation.class);
+        this.sessionFactory = config.buildSessionFactory(new StandardServiceRegistryBuilder()
+                                                                 .applySettings(config.getProperties())
+                                                                 .build());
+    }
+
+    public SessionFactory sessionFactory() {
+        return sessionFactory;
+    }
+
+    /**
+     * Runs the action in a transaction on a session bound to the calling thread. Used to seed data and to call DAOs
+     * directly, outside of unit of work proxies.
+     */
+    public <T> T inTransaction(Supplier<T> action) {
+        val session = sessionFactory.openSession();
+        ManagedSessionContext.bind(session);
+        val transaction = session.beginTransaction();
+        try {
+            val result = action.get();
+            transaction.commit();
+            return result;
+        }
+        catch (RuntimeException e) {
+            transaction.rollback();
+            throw e;
+        }
+        finally {
+            ManagedSessionContext.unbind(sessionFactory);
+            session.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        sessionFactory.close();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.benchmarks;
+
+import io.appform.idman.client.IdManClient;
+import io.appform.idman.client.IdmanClientConfig;
+import io.appform.idman.model.*;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of the validation cache in {@link IdManClient}. Upstream validation is stubbed out, so misses measure
+ * the cost of loading and storing an entry, not of calling the server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ClientValidationBenchmark {
+    private static final String SERVICE_ID = "S1";
+    private static final int DISTINCT_MISSES = 1 << 20;
+
+    private IdManClient client;
+    private String[] missTokens;
+    private int missIndex;
+
+    @Setup
+    public void setup() {
+        val config = new IdmanClientConfig();
+        config.setCacheSpec("maximumSize=10000, expireAfterWrite=5m");
+        val tokenInfo = new TokenInfo("T",
+                                      "T",
+                                      3600,
+                                      "bearer",
+                                      "S1_USER",
+                                      new IdmanUser("SS1",
+                                                    SERVICE_ID,
+                                                    new User("U1", "Test User", UserType.HUMAN, AuthMode.PASSWORD),
+                                                    "S1_USER"));
+        client = new StubClient(config, tokenInfo);
+        client.validateToken(SERVICE_ID, "T");
+        missTokens = new String[DISTINCT_MISSES];
+        for (int i = 0; i < DISTINCT_MISSES; i++) {
+            missTokens[i] = "T" + i;
+        }
+    }
+
+    @Benchmark
+    public Optional<TokenInfo> cacheHit() {
+        return client.validateToken(SERVICE_ID, "T");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Optional<TokenInfo> cacheMiss() {
+        missIndex = (missIndex + 1) & (DISTINCT_MISSES - 1);
+        return client.validateToken(SERVICE_ID, missTokens[missIndex]);
+    }
+
+    private static final class StubClient extends IdManClient {
+        private final Optional<TokenInfo> tokenInfo;
+
+        private StubClient(IdmanClientConfig config, TokenInfo tokenInfo) {
+            super(config);
+            this.tokenInfo = Optional.of(tokenInfo);
+        }
+
+        @Override
+        public Optional<TokenInfo> accessToken(String serviceId, String tokenId) {
+            return tokenInfo;
+        }
+
+        @Override
+        protected Optional<TokenInfo> validateTokenImpl(String serviceId, String token) {
+            return tokenInfo;
+        }
+
+        @Override
+        public boolean deleteToken(String serviceId, String jwt) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import io.appform.idman.server.auth.hashing.BCryptPasswordHasher;
+import io.appform.idman.server.auth.hashing.PasswordHashing;
+import io.appform.idman.server.db.PasswordStore;
+import io.appform.idman.server.db.impl.DBPasswordStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password verification on login. Dominated by the BCrypt work factor, so runs with fewer and longer iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class PasswordMatchBenchmark {
+    private static final String USER_ID = "U1";
+    private static final String PASSWORD = "benchmark-password";
+
+    private BenchmarkDatabase database;
+    private PasswordStore passwordStore;
+
+    @Setup
+    public void setup() {
+        database = new BenchmarkDatabase();
+        passwordStore = new DBPasswordStore(database.sessionFactory(),
+                                            new PasswordHashing(new BCryptPasswordHasher(12)),
+                                            new MetricRegistry());
+        database.inTransaction(() -> {
+            passwordStore.set(USER_ID, PASSWORD);
+            return null;
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public boolean match() {
+        return database.inTransaction(() -> passwordStore.match(USER_ID, PASSWORD));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.benchmarks;
+
+import io.appform.idman.model.AuthMode;
+import io.appform.idman.model.UserType;
+import io.appform.idman.server.db.FieldNames;
+import io.appform.idman.server.db.model.ClientSession;
+import io.appform.idman.server.db.model.StoredUser;
+import io.appform.idman.server.db.model.StoredUserRole;
+import io.appform.idman.server.db.impl.DBDynamicSessionStore;
+import io.appform.idman.server.db.impl.DBRoleStore;
+import io.appform.idman.server.db.impl.DBServiceStore;
+import io.appform.idman.server.db.impl.DBUserInfoStore;
+import io.appform.idman.server.db.impl.DBUserRoleStore;
+import io.appform.idman.server.utils.Utils;
+import io.dropwizard.util.Duration;
+import lombok.val;
+import org.hibernate.Session;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single row DAO lookups on the token and login paths. {@link #criteriaUserById()} builds the same user lookup with
+ * the criteria API on every call, as the stores used to, to compare allocation per lookup against the named queries.
+ * The session is cleared after every lookup so that each one loads the entity afresh. Users and role mappings are
+ * never put in the second level cache, so enabling it should leave these numbers unchanged.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StoreLookupBenchmark {
+    private static final int USERS = 1_000;
+
+    @Param({"false", "true"})
+    public boolean secondLevelCache;
+
+    private BenchmarkDatabase database;
+    private DBUserInfoStore userStore;
+    private DBUserRoleStore userRoleStore;
+    private DBDynamicSessionStore sessionStore;
+    private String serviceId;
+    private Session session;
+
+    @Setup
+    public void setup() {
+        database = new BenchmarkDatabase(secondLevelCache);
+        val sessionFactory = database.sessionFactory();
+        userStore = new DBUserInfoStore(sessionFactory);
+        userRoleStore = new DBUserRoleStore(sessionFactory);
+        sessionStore = new DBDynamicSessionStore(sessionFactory);
+        val serviceStore = new DBServiceStore(sessionFactory);
+        val roleStore = new DBRoleStore(sessionFactory);
+        serviceId = database.inTransaction(
+                () -> serviceStore.create(TokenBenchmark.SERVICE_ID, "Benchmark", "http://localhost")
+                        .orElseThrow()
+                        .getServiceId());
+        database.inTransaction(() -> {
+            val roleId = roleStore.create(serviceId, "User", "").orElseThrow().getRoleId();
+            for (int i = 0; i < USERS; i++) {
+                val userId = "U" + i;
+                userStore.create(userId, userId + "@idman.test", "User " + userId, UserType.HUMAN, AuthMode.PASSWORD);
+                userRoleStore.mapUserToRole(userId, serviceId, roleId, "benchmark");
+                sessionStore.create("S" + i, userId, serviceId, "CS" + i, Utils.futureTime(Duration.days(1)));
+            }
+            return null;
+        });
+    }
+
+    @Setup(Level.Iteration)
+    public void openSession() {
+        session = database.sessionFactory().openSession();
+        ManagedSessionContext.bind(session);
+        session.beginTransaction();
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeSession() {
+        session.getTransaction().rollback();
+        ManagedSessionContext.unbind(database.sessionFactory());
+        session.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Optional<StoredUser> userById() {
+        val user = userStore.get(randomId("U"));
+        session.clear();
+        return user;
+    }
+
+    @Benchmark
+    public Optional<StoredUser> criteriaUserById() {
+        val cb = session.getCriteriaBuilder();
+        val cr = cb.createQuery(StoredUser.class);
+        val root = cr.from(StoredUser.class);
+        val user = session.createQuery(cr.select(root).where(cb.equal(root.get(FieldNames.USER_ID), randomId("U"))))
+                .getResultList()
+                .stream()
+                .findAny();
+        session.clear();
+        return user;
+    }
+
+    @Benchmark
+    public Optional<StoredUserRole> userServiceRole() {
+        val mapping = userRoleStore.getUserServiceRole(randomId("U"), serviceId);
+        session.clear();
+        return mapping;
+    }
+
+    @Benchmark
+    public Optional<ClientSession> sessionById() {
+        val clientSession = sessionStore.get(randomId("S"));
+        session.clear();
+        return clientSession;
+    }
+
+    private static String randomId(String prefix) {
+        return prefix + ThreadLocalRandom.current().nextInt(USERS);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import io.appform.idman.model.*;
+import io.appform.idman.server.auth.JwtSigningKeys;
+import io.appform.idman.server.auth.ParsedTokenInfo;
+import io.appform.idman.server.auth.TokenManager;
+import io.appform.idman.server.auth.TokenMinter;
+import io.appform.idman.server.auth.configs.JwtConfig;
+import io.appform.idman.server.db.model.ClientSession;
+import io.appform.idman.server.utils.Utils;
+import io.dropwizard.util.Duration;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.jose4j.jwk.EcJwkGenerator;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.jwt.consumer.JwtConsumer;
+import org.jose4j.keys.EllipticCurves;
+import org.jose4j.keys.HmacKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token minting and parsing, for HMAC and asymmetrically signed tokens
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TokenBenchmark {
+    static final String SERVICE_ID = "S1";
+    static final String PRIVATE_KEY
+            = "bYdNUUyCqx8IuGNqhFYS27WizZrfupAmJS8I4mfj2Cjox9Nc04Oews9tJEiDTrJfopzKdjygi8SgXeopSe/rPYqEKfrAUw/"
+            + "Dn6wMVhE56S7/5DKAvYusA2fQRqxOrOosO1lERnArw15tkAf/z5QUUUXnKZZTiczNEebjs2OG5s94PGxtQzxtYsZ1q2oXoq4lK"
+            + "PTosPpwkRxeh8LQCweDGR80xgoM1+yDAoYIeg==";
+
+    @Param({"HS512", "ES256"})
+    public String algorithm;
+
+    @Param({"STANDARD", "COMPACT"})
+    public String profile;
+
+    private JwtConfig jwtConfig;
+    private ClientSession session;
+    private IdmanUser user;
+    private String token;
+    private JwtConsumer jwtConsumer;
+    private TokenManager tokenManager;
+
+    @Setup
+    public void setup() {
+        jwtConfig = jwtConfig(algorithm);
+        jwtConfig.setTokenProfile(JwtConfig.TokenProfile.valueOf(profile));
+        session = new ClientSession(UUID.randomUUID().toString(),
+                                    Utils.hashedId("tu1@test.com"),
+                                    SERVICE_ID,
+                                    "CS1",
+                                    TokenType.DYNAMIC,
+                                    Utils.futureTime(Duration.days(1)),
+                                    false,
+                                    new Date(),
+                                    new Date());
+        user = new IdmanUser(session.getSessionId(),
+                             SERVICE_ID,
+                             new User(session.getUserId(), "Test User", UserType.HUMAN, AuthMode.PASSWORD),
+                             "S1_USER");
+        token = Utils.createAccessToken(session, user, jwtConfig);
+        jwtConsumer = Utils.buildConsumer(jwtConfig, SERVICE_ID);
+        tokenManager = new TokenManager(null, null, null, null, null, jwtConfig, new MetricRegistry());
+        if (parseToken().isEmpty()) {
+            throw new IllegalStateException("Minted token could not be parsed");
+        }
+    }
+
+    @Benchmark
+    public String createAccessToken() {
+        return Utils.createAccessToken(session, user, jwtConfig);
+    }
+
+    /**
+     * Baseline for {@link #createAccessToken()}. Mints the same token the way it was done before {@link TokenMinter},
+     * with a jose4j claims map and a freshly built signature object per token. Always mints a standard profile token.
+     */
+    @Benchmark
+    @SneakyThrows
+    public String createAccessTokenWithJwtClaims() {
+        val claims = new JwtClaims();
+        claims.setIssuer(jwtConfig.getIssuerId());
+        claims.setJwtId(session.getSessionId());
+        claims.setNotBeforeMinutesInThePast(2);
+        claims.setSubject(session.getUserId());
+        claims.setAudience(session.getServiceId());
+        claims.setIssuedAt(NumericDate.fromMilliseconds(session.getCreated().getTime()));
+        claims.setExpirationTime(NumericDate.fromMilliseconds(session.getExpiry().getTime()));
+        claims.setStringClaim(TokenClaims.USER_NAME, user.getUser().getName());
+        claims.setStringClaim(TokenClaims.USER_TYPE, user.getUser().getUserType().name());
+        claims.setStringClaim(TokenClaims.AUTH_MODE, user.getUser().getAuthMode().name());
+        claims.setStringClaim(TokenClaims.ROLE, user.getRole());
+        val keys = JwtSigningKeys.of(jwtConfig);
+        val jws = new JsonWebSignature();
+        jws.setPayload(claims.toJson());
+        jws.setKey(AlgorithmIdentifiers.HMAC_SHA512.equals(keys.getAlgorithm())
+                   ? new HmacKey(jwtConfig.getPrivateKey().getBytes(StandardCharsets.UTF_8))
+                   : keys.getSigningKey());
+        jws.setAlgorithmHeaderValue(keys.getAlgorithm());
+        if (null != keys.getKeyId()) {
+            jws.setKeyIdHeaderValue(keys.getKeyId());
+        }
+        return jws.getCompactSerialization();
+    }
+
+    @Benchmark
+    public Optional<ParsedTokenInfo> parseToken() {
+        return Utils.parseToken(token, jwtConsumer);
+    }
+
+    /**
+     * Same as {@link #parseToken()}, plus the per service consumer lookup done by {@link TokenManager}
+     */
+    @Benchmark
+    public Optional<ParsedTokenInfo> tokenManagerParseToken() {
+        return tokenManager.parseToken(SERVICE_ID, token);
+    }
+
+    @SneakyThrows
+    static JwtConfig jwtConfig(String algorithm) {
+        val jwtConfig = new JwtConfig();
+        jwtConfig.setIssuerId("idman");
+        jwtConfig.setPrivateKey(PRIVATE_KEY);
+        if ("ES256".equals(algorithm)) {
+            val key = EcJwkGenerator.generateJwk(EllipticCurves.P256);
+            key.setKeyId("K1");
+            jwtConfig.setSigningKeys(List.of(key.toParams(JsonWebKey.OutputControlLevel.INCLUDE_PRIVATE)));
+        }
+        return jwtConfig;
+    }
+}
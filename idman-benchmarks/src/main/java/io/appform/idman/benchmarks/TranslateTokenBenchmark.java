@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import io.appform.idman.model.AuthMode;
+import io.appform.idman.model.IdmanUser;
+import io.appform.idman.model.TokenType;
+import io.appform.idman.model.UserType;
+import io.appform.idman.server.auth.TokenManager;
+import io.appform.idman.server.auth.configs.JwtConfig;
+import io.appform.idman.server.db.*;
+import io.appform.idman.server.db.impl.*;
+import io.appform.idman.server.db.replica.ReplicaAwareProxyFactory;
+import io.appform.idman.server.utils.Utils;
+import io.dropwizard.util.Duration;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server side token validation through {@link TokenManager#translateToken(String, String)} against an embedded H2
+ * database seeded with users, roles and sessions. Goes through the unit of work proxy, as in the server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TranslateTokenBenchmark {
+    @Param({"100", "10000"})
+    public int users;
+
+    private BenchmarkDatabase database;
+    private TokenManager tokenManager;
+    private String[] tokens;
+
+    @Setup
+    public void setup() {
+        database = new BenchmarkDatabase();
+        val sessionFactory = database.sessionFactory();
+        val userStore = new DBUserInfoStore(sessionFactory);
+        val serviceStore = new DBServiceStore(sessionFactory);
+        val roleStore = new DBRoleStore(sessionFactory);
+        val userRoleStore = new DBUserRoleStore(sessionFactory);
+        val sessionStore = new CompositeSessionStore(new DBDynamicSessionStore(sessionFactory),
+                                                     new DBStaticSessionStore(sessionFactory),
+                                                     new DBSessionRevocationStore(sessionFactory));
+        val jwtConfig = TokenBenchmark.jwtConfig("HS512");
+        val serviceId = database.inTransaction(
+                () -> serviceStore.create(TokenBenchmark.SERVICE_ID, "Benchmark", "http://localhost")
+                        .orElseThrow()
+                        .getServiceId());
+        val roleId = database.inTransaction(
+                () -> roleStore.create(serviceId, "User", "").orElseThrow().getRoleId());
+        tokens = new String[users];
+        for (int i = 0; i < users; i++) {
+            val userId = "U" + i;
+            tokens[i] = database.inTransaction(() -> {
+                userStore.create(userId, userId + "@idman.test", "User " + userId, UserType.HUMAN, AuthMode.PASSWORD);
+                userRoleStore.mapUserToRole(userId, serviceId, roleId, "benchmark");
+                val session = sessionStore.create(Utils.hashedId(userId),
+                                                  userId,
+                                                  serviceId,
+                                                  "CS-" + userId,
+                                                  TokenType.DYNAMIC,
+                                                  Utils.futureTime(Duration.days(1)))
+                        .orElseThrow();
+                return Utils.createAccessToken(session, jwtConfig);
+            });
+        }
+        tokenManager = new ReplicaAwareProxyFactory("benchmarks", sessionFactory)
+                .create(TokenManager.class,
+                        new Class[]{
+                                UserInfoStore.class,
+                                ServiceStore.class,
+                                SessionStore.class,
+                                UserRoleStore.class,
+                                SessionFactory.class,
+                                JwtConfig.class,
+                                MetricRegistry.class
+                        },
+                        new Object[]{userStore, serviceStore, sessionStore, userRoleStore, sessionFactory,
+                                     jwtConfig, new MetricRegistry()});
+        if (translateToken().isEmpty()) {
+            throw new IllegalStateException("Seeded token could not be validated");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Optional<IdmanUser> translateToken() {
+        return tokenManager.translateToken(TokenBenchmark.SERVICE_ID,
+                                           tokens[ThreadLocalRandom.current().nextInt(tokens.length)]);
+    }
+}
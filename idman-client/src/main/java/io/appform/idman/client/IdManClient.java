@@ -14,61 +14,346 @@
 
 package io.appform.idman.client;
 
-import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import io.appform.idman.model.TokenInfo;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
-import org.checkerframework.checker.nullness.qual.NonNull;
-import org.checkerframework.checker.nullness.qual.Nullable;
+import lombok.val;
 
-import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
- * Abstraction for client information. Caches auth for 5 mins.
+ * Abstraction for client information. Validation results are cached as per {@code cacheSpec}.
+ * A valid token is never cached beyond its expiry, invalid tokens are cached for
+ * {@code negativeCacheTtlSeconds}.
+ * At most one upstream validation is outstanding per service and token. Concurrent loads, reloads of expired entries
+ * and background refreshes for the same token all wait on it.
+ * Sessions passed to {@link #revokeSessions(Collection)} are remembered as per {@code revokedSessionCacheSpec} and
+ * their tokens are rejected, including ones whose validation was in progress at the time of revocation.
  */
 @Slf4j
 public abstract class IdManClient {
+    private static final ObjectMapper CLAIMS_READER = new ObjectMapper();
 
-
-    private final LoadingCache<CacheKey, TokenInfo> localCache;
+    private final AsyncLoadingCache<CacheKey, CachedToken> localCache;
+    private final ConcurrentMap<CacheKey, CompletableFuture<Optional<TokenInfo>>> inFlight
+            = new ConcurrentHashMap<>();
+    private final Cache<String, Boolean> revokedSessions;
+    private final LongAdder coalescedValidations = new LongAdder();
+    private final long negativeCacheTtlMs;
+    private volatile long revocationsSyncedAt = -1;
 
     protected IdManClient() {
-        this.localCache = Caffeine.newBuilder()
-                .maximumSize(1)
-                .refreshAfterWrite(1, TimeUnit.MINUTES)
-                .expireAfterWrite(2, TimeUnit.MINUTES)
-                .build(new CacheLoader<CacheKey, TokenInfo>() {
-                    @Nullable
+        this(new IdmanClientConfig());
+    }
+
+    protected IdManClient(IdmanClientConfig clientConfig) {
+        this.negativeCacheTtlMs = TimeUnit.SECONDS.toMillis(clientConfig.getNegativeCacheTtlSeconds());
+        this.revokedSessions = Caffeine.from(clientConfig.getRevokedSessionCacheSpec()).build();
+        this.localCache = Caffeine.from(clientConfig.getCacheSpec())
+                .recordStats()
+                .buildAsync(new AsyncCacheLoader<>() {
+                    @Override
+                    public CompletableFuture<CachedToken> asyncLoad(CacheKey key, Executor executor) {
+                        return load(key, false);
+                    }
+
                     @Override
-                    public TokenInfo load(@NonNull CacheKey key) {
-                        log.debug("Actual Auth called");
-                        return validateTokenImpl(key.getServiceId(), key.getToken()).orElse(null);
+                    public CompletableFuture<CachedToken> asyncReload(
+                            CacheKey key, CachedToken oldValue, Executor executor) {
+                        //Implementations may validate on the calling thread, keep refreshes off the request path
+                        return CompletableFuture.supplyAsync(() -> load(key, false), executor)
+                                .thenCompose(Function.identity());
                     }
                 });
     }
 
     public abstract Optional<TokenInfo> accessToken(String serviceId, String tokenId);
 
+    /**
+     * Non-blocking variant of {@link #accessToken(String, String)}. Runs on the calling thread unless overridden.
+     */
+    public CompletableFuture<Optional<TokenInfo>> accessTokenAsync(String serviceId, String tokenId) {
+        return CompletableFuture.completedFuture(accessToken(serviceId, tokenId));
+    }
+
+    /**
+     * Validates on the calling thread through {@link #validateTokenImpl(String, String)} when the token is not
+     * cached. Shares the cache and in-progress validations with {@link #validateTokenAsync(String, String)}.
+     */
     public Optional<TokenInfo> validateToken(String serviceId, String token) {
-        log.info("Authenticator called. Service ID: {} Token: {}", serviceId, token);
-        if (Strings.isNullOrEmpty(serviceId) || Strings.isNullOrEmpty(token)) {
-            return Optional.empty();
+        log.trace("Authenticator called. Service ID: {}", serviceId);
+        try {
+            return validate(serviceId, token, true).join();
+        }
+        catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
         }
-        return Optional.ofNullable(localCache.get(new CacheKey(token, serviceId)));
+    }
+
+    /**
+     * Non-blocking variant of {@link #validateToken(String, String)}. Results are served from and stored into the
+     * same cache as the blocking call.
+     */
+    public CompletableFuture<Optional<TokenInfo>> validateTokenAsync(String serviceId, String token) {
+        return validate(serviceId, token, false);
+    }
 
+    private CompletableFuture<Optional<TokenInfo>> validate(String serviceId, String token, boolean blocking) {
+        if (Strings.isNullOrEmpty(serviceId) || Strings.isNullOrEmpty(token)) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        val key = new CacheKey(token, serviceId);
+        val entry = cachedToken(key, blocking);
+        return entry.thenCompose(cached -> {
+            if (null == cached) {
+                return CompletableFuture.completedFuture(Optional.empty());
+            }
+            if (isRevoked(cached.getTokenInfo())) {
+                localCache.asMap().remove(key, entry);
+                return CompletableFuture.completedFuture(Optional.empty());
+            }
+            if (cached.hasExpired(System.currentTimeMillis())) {
+                log.debug("Cached validation result expired for service {}", serviceId);
+                localCache.asMap().remove(key, entry);
+                return cachedToken(key, blocking)
+                        .thenApply(reloaded -> Optional.ofNullable(reloaded)
+                                .map(CachedToken::getTokenInfo)
+                                .filter(tokenInfo -> !isRevoked(tokenInfo)));
+            }
+            return CompletableFuture.completedFuture(Optional.ofNullable(cached.getTokenInfo()));
+        });
     }
 
     protected abstract Optional<TokenInfo> validateTokenImpl(String serviceId, String token);
 
+    /**
+     * Override to validate without blocking the caller. Runs {@link #validateTokenImpl(String, String)} on the
+     * calling thread by default.
+     */
+    protected CompletableFuture<Optional<TokenInfo>> validateTokenImplAsync(String serviceId, String token) {
+        return CompletableFuture.completedFuture(validateTokenImpl(serviceId, token));
+    }
+
     public abstract boolean deleteToken(String serviceId, String jwt);
 
+    /**
+     * Non-blocking variant of {@link #deleteToken(String, String)}. Runs on the calling thread unless overridden.
+     */
+    public CompletableFuture<Boolean> deleteTokenAsync(String serviceId, String jwt) {
+        return CompletableFuture.completedFuture(deleteToken(serviceId, jwt));
+    }
+
+    public CacheStats cacheStats() {
+        return localCache.synchronous().stats();
+    }
+
+    public long cacheSize() {
+        return localCache.synchronous().estimatedSize();
+    }
+
+    /**
+     * @return Number of validations that waited on an upstream call already in progress for the same token
+     */
+    public long coalescedValidations() {
+        return coalescedValidations.sum();
+    }
+
+    /**
+     * Marks the given sessions as revoked and drops cached validation results for them. Tokens of these sessions are
+     * rejected from here on, even if a validation for them completes afterwards.
+     *
+     * @return Number of cache entries removed
+     */
+    public int revokeSessions(Collection<String> sessionIds) {
+        if (sessionIds.isEmpty()) {
+            return 0;
+        }
+        val revoked = Set.copyOf(sessionIds);
+        revoked.forEach(sessionId -> revokedSessions.put(sessionId, Boolean.TRUE));
+        val stale = localCache.asMap()
+                .entrySet()
+                .stream()
+                .filter(entry -> isForSessions(entry.getValue(), revoked))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        localCache.synchronous().invalidateAll(stale);
+        return stale.size();
+    }
+
+    /**
+     * Records that all sessions revoked on the server so far have been passed to {@link #revokeSessions(Collection)}
+     */
+    public void revocationsSynced() {
+        revocationsSyncedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * @return Milliseconds since revocations were last known to be in sync with the server, or
+     * {@link Long#MAX_VALUE} if they never were
+     */
+    public long revocationsStaleForMs() {
+        val syncedAt = revocationsSyncedAt;
+        return syncedAt < 0
+               ? Long.MAX_VALUE
+               : System.currentTimeMillis() - syncedAt;
+    }
+
+    /**
+     * @return true if the session of the token has been passed to {@link #revokeSessions(Collection)}
+     */
+    protected boolean isRevoked(TokenInfo tokenInfo) {
+        return null != tokenInfo
+                && null != tokenInfo.getUser()
+                && null != tokenInfo.getUser().getSessionId()
+                && null != revokedSessions.getIfPresent(tokenInfo.getUser().getSessionId());
+    }
+
+    private static boolean isForSessions(CompletableFuture<CachedToken> entry, Set<String> sessionIds) {
+        if (!entry.isDone() || entry.isCompletedExceptionally()) {
+            return false;
+        }
+        val cached = entry.join();
+        return null != cached
+                && null != cached.getTokenInfo()
+                && null != cached.getTokenInfo().getUser()
+                && sessionIds.contains(cached.getTokenInfo().getUser().getSessionId());
+    }
+
+    /**
+     * Blocking loads are started after the entry is in the cache, so that the upstream call does not run inside the
+     * cache's compute.
+     */
+    private CompletableFuture<CachedToken> cachedToken(CacheKey key, boolean blocking) {
+        val loaded = new AtomicBoolean();
+        val entry = localCache.get(key, (k, executor) -> {
+            loaded.set(true);
+            return blocking
+                   ? new CompletableFuture<>()
+                   : load(k, false);
+        });
+        if (!loaded.get()) {
+            if (!entry.isDone()) {
+                coalescedValidations.increment();
+            }
+            return entry;
+        }
+        if (blocking) {
+            load(key, true).whenComplete((cached, error) -> {
+                if (null != error) {
+                    entry.completeExceptionally(error);
+                }
+                else {
+                    entry.complete(cached);
+                }
+            });
+        }
+        return entry;
+    }
+
+    private CompletableFuture<CachedToken> load(CacheKey key, boolean blocking) {
+        val now = System.currentTimeMillis();
+        return validateUpstream(key, blocking)
+                .thenApply(tokenInfo -> toCacheEntry(key.getToken(), tokenInfo.filter(info -> !isRevoked(info)), now));
+    }
+
+    private CompletableFuture<Optional<TokenInfo>> validateUpstream(CacheKey key, boolean blocking) {
+        val flight = new CompletableFuture<Optional<TokenInfo>>();
+        val existing = inFlight.putIfAbsent(key, flight);
+        if (null != existing) {
+            coalescedValidations.increment();
+            return existing;
+        }
+        log.debug("Actual Auth called");
+        CompletableFuture<Optional<TokenInfo>> result;
+        try {
+            result = blocking
+                     ? CompletableFuture.completedFuture(validateTokenImpl(key.getServiceId(), key.getToken()))
+                     : validateTokenImplAsync(key.getServiceId(), key.getToken());
+        }
+        catch (RuntimeException | Error e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((tokenInfo, error) -> {
+            inFlight.remove(key, flight);
+            if (null != error) {
+                flight.completeExceptionally(error);
+            }
+            else {
+                flight.complete(tokenInfo);
+            }
+        });
+        return flight;
+    }
+
+    private CachedToken toCacheEntry(String token, Optional<TokenInfo> tokenInfo, long now) {
+        return tokenInfo
+                .map(info -> new CachedToken(info, validTill(token, info, now)))
+                .orElseGet(() -> negativeCacheTtlMs > 0
+                                 ? new CachedToken(null, now + negativeCacheTtlMs)
+                                 : null);
+    }
+
+    private static long validTill(String token, TokenInfo tokenInfo, long now) {
+        var validTill = Long.MAX_VALUE;
+        if (tokenInfo.getExpiry() > 0) {
+            validTill = now + TimeUnit.SECONDS.toMillis(tokenInfo.getExpiry());
+        }
+        val expiry = jwtExpiry(token);
+        if (expiry > 0) {
+            validTill = Math.min(validTill, TimeUnit.SECONDS.toMillis(expiry));
+        }
+        return validTill;
+    }
+
+    /**
+     * Reads the exp claim from the token payload. Signature is not checked here, this is only used to cap the
+     * lifetime of an entry that has already been validated by the server.
+     */
+    private static long jwtExpiry(String token) {
+        val parts = token.split("\\.");
+        if (parts.length != 3) {
+            return -1;
+        }
+        try {
+            val exp = CLAIMS_READER.readTree(new String(Base64.getUrlDecoder().decode(parts[1]),
+                                                        StandardCharsets.UTF_8))
+                    .get("exp");
+            return null == exp || !exp.canConvertToLong() ? -1 : exp.asLong();
+        }
+        catch (Exception e) {
+            log.debug("Could not read expiry from token: {}", e.getMessage());
+            return -1;
+        }
+    }
+
     @Value
     private static class CacheKey {
         String token;
         String serviceId;
     }
+
+    @Value
+    private static class CachedToken {
+        TokenInfo tokenInfo;
+        long validTill;
+
+        boolean hasExpired(long now) {
+            return now >= validTill;
+        }
+    }
 }
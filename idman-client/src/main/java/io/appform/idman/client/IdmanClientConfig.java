@@ -16,6 +16,8 @@ package io.appform.idman.client;
 
 import lombok.Data;
 
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import java.util.Collections;
 import java.util.Set;
@@ -36,7 +38,18 @@ public class IdmanClientConfig {
 
     private Set<String> allowedPaths = Collections.emptySet();
 
-    private String cacheSpec = "maximumSize=10000, expireAfterAccess=10m";
+    private String cacheSpec = "maximumSize=10000, expireAfterWrite=2m, refreshAfterWrite=1m";
+
+    @Min(0)
+    @Max(300)
+    private int negativeCacheTtlSeconds = 5;
+
+    /**
+     * Sessions received from the revocation feed are remembered as per this spec. Entries should outlive the session
+     * duration configured on the server.
+     */
+    @NotEmpty
+    private String revokedSessionCacheSpec = "maximumSize=100000, expireAfterWrite=30d";
 
     String resourcePrefix;
 }
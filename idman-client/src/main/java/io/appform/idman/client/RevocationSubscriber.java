@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.client;
+
+import io.appform.idman.model.SessionRevocations;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the server side session revocation feed and passes revoked sessions to an {@link IdManClient}, so that
+ * logouts take effect before cached entries expire. The feed is read from the start, so that sessions revoked before
+ * startup are known as well. The client is told when the subscriber has caught up with the feed.
+ */
+@Slf4j
+public class RevocationSubscriber {
+
+    /**
+     * Source of revocations, typically a long poll against the idman server
+     */
+    @FunctionalInterface
+    public interface RevocationSource {
+        /**
+         * @param sequence Last sequence seen, zero to read from the start
+         * @return Revocations after the sequence. Empty if the feed could not be read.
+         */
+        Optional<SessionRevocations> revocationsAfter(long sequence);
+    }
+
+    private final IdManClient client;
+    private final RevocationSource source;
+    private final long retryDelayMs;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        val thread = new Thread(runnable, "idman-revocation-subscriber");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running;
+    private long sequence = 0;
+
+    public RevocationSubscriber(IdManClient client, RevocationSource source, long retryDelayMs) {
+        this.client = client;
+        this.source = source;
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    public void start() {
+        running = true;
+        executor.submit(this::follow);
+        log.info("Subscribed to session revocations");
+    }
+
+    public void stop() {
+        running = false;
+        executor.shutdownNow();
+    }
+
+    private void follow() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            SessionRevocations revocations = null;
+            try {
+                revocations = source.revocationsAfter(sequence).orElse(null);
+            }
+            catch (Exception e) {
+                log.warn("Error reading session revocations: {}", e.getMessage());
+            }
+            if (null == revocations) {
+                if (!pause()) {
+                    return;
+                }
+                continue;
+            }
+            if (!revocations.getSessionIds().isEmpty()) {
+                val evicted = client.revokeSessions(revocations.getSessionIds());
+                log.debug("Received {} session revocations, evicted {} cached tokens",
+                          revocations.getSessionIds().size(), evicted);
+            }
+            sequence = revocations.getSequence();
+            if (!revocations.isMore()) {
+                client.revocationsSynced();
+            }
+        }
+    }
+
+    private boolean pause() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(retryDelayMs);
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
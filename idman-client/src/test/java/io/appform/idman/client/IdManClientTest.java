@@ -2,9 +2,20 @@ package io.appform.idman.client;
 
 import io.appform.idman.model.*;
 import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.val;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -49,6 +60,33 @@ class IdManClientTest {
         }
     }
 
+    private static class CountingClient extends IdManClient {
+        private final Supplier<Optional<TokenInfo>> response;
+        @Getter
+        private int invocations = 0;
+
+        private CountingClient(IdmanClientConfig config, Supplier<Optional<TokenInfo>> response) {
+            super(config);
+            this.response = response;
+        }
+
+        @Override
+        public Optional<TokenInfo> accessToken(String serviceId, String tokenId) {
+            return Optional.empty();
+        }
+
+        @Override
+        protected Optional<TokenInfo> validateTokenImpl(String serviceId, String token) {
+            invocations++;
+            return response.get();
+        }
+
+        @Override
+        public boolean deleteToken(String serviceId, String jwt) {
+            return false;
+        }
+    }
+
     @Test
     void validateInvalidParams() {
         assertFalse(new TestClient(false).validateToken(null, "T").isPresent());
@@ -70,4 +108,271 @@ class IdManClientTest {
         assertEquals(1, client.getInvocations());
     }
 
-}
\ No newline at end of file
+    @Test
+    void validateFailureCached() {
+        val client = new CountingClient(new IdmanClientConfig(), Optional::empty);
+        assertFalse(client.validateToken("S", "T").isPresent());
+        assertFalse(client.validateToken("S", "T").isPresent());
+        assertEquals(1, client.getInvocations());
+    }
+
+    @Test
+    void validateFailureNotCachedWithoutNegativeTtl() {
+        val config = new IdmanClientConfig();
+        config.setNegativeCacheTtlSeconds(0);
+        val client = new CountingClient(config, Optional::empty);
+        assertFalse(client.validateToken("S", "T").isPresent());
+        assertFalse(client.validateToken("S", "T").isPresent());
+        assertEquals(2, client.getInvocations());
+    }
+
+    @Test
+    void validateExpiredJwtNotServedFromCache() {
+        val token = jwt(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - 10);
+        val client = new CountingClient(new IdmanClientConfig(), () -> Optional.of(tokenInfo(token)));
+        assertTrue(client.validateToken("S", token).isPresent());
+        val invocations = client.getInvocations();
+        assertTrue(client.validateToken("S", token).isPresent());
+        assertTrue(client.getInvocations() > invocations);
+    }
+
+    @Test
+    void validateLiveJwtServedFromCache() {
+        val token = jwt(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 3600);
+        val client = new CountingClient(new IdmanClientConfig(), () -> Optional.of(tokenInfo(token)));
+        assertTrue(client.validateToken("S", token).isPresent());
+        assertTrue(client.validateToken("S", token).isPresent());
+        assertTrue(client.validateToken("S1", token).isPresent());
+        assertEquals(2, client.getInvocations());
+        assertEquals(2, client.cacheSize());
+        assertEquals(1, client.cacheStats().hitCount());
+        assertEquals(2, client.cacheStats().missCount());
+    }
+
+    @Test
+    @SneakyThrows
+    void validateAsyncSharesCache() {
+        val token = jwt(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 3600);
+        val client = new CountingClient(new IdmanClientConfig(), () -> Optional.of(tokenInfo(token)));
+        assertTrue(client.validateTokenAsync("S", token).get().isPresent());
+        assertTrue(client.validateTokenAsync("S", token).get().isPresent());
+        assertTrue(client.validateToken("S", token).isPresent());
+        assertEquals(1, client.getInvocations());
+        assertFalse(client.validateTokenAsync(null, token).get().isPresent());
+        assertFalse(client.accessTokenAsync("S", token).get().isPresent());
+        assertFalse(client.deleteTokenAsync("S", token).get());
+    }
+
+    @Test
+    void validateBlockingOnCallingThread() {
+        final Thread caller = Thread.currentThread();
+        final CountingClient client = new CountingClient(new IdmanClientConfig(), () -> {
+            assertSame(caller, Thread.currentThread());
+            return Optional.of(tokenInfo("T"));
+        }) {
+            @Override
+            protected CompletableFuture<Optional<TokenInfo>> validateTokenImplAsync(String serviceId, String token) {
+                throw new IllegalStateException("Blocking validation should not use the async call");
+            }
+        };
+        assertTrue(client.validateToken("S", "T").isPresent());
+        assertTrue(client.validateTokenAsync("S", "T").join().isPresent());
+        assertEquals(1, client.getInvocations());
+    }
+
+    @Test
+    @SneakyThrows
+    void validateAsyncFailureCached() {
+        val client = new CountingClient(new IdmanClientConfig(), Optional::empty);
+        assertFalse(client.validateTokenAsync("S", "T").get().isPresent());
+        assertFalse(client.validateTokenAsync("S", "T").get().isPresent());
+        assertEquals(1, client.getInvocations());
+    }
+
+    @Test
+    @SneakyThrows
+    void validateAsyncCoalesced() {
+        final CompletableFuture<Optional<TokenInfo>> upstream = new CompletableFuture<>();
+        final AtomicInteger invocations = new AtomicInteger();
+        final CountingClient client = new CountingClient(new IdmanClientConfig(), Optional::empty) {
+            @Override
+            protected CompletableFuture<Optional<TokenInfo>> validateTokenImplAsync(String serviceId, String token) {
+                invocations.incrementAndGet();
+                return upstream;
+            }
+        };
+        final List<CompletableFuture<Optional<TokenInfo>>> results = IntStream.range(0, 5)
+                .mapToObj(i -> client.validateTokenAsync("S", "T"))
+                .collect(Collectors.toList());
+        assertTrue(results.stream().noneMatch(CompletableFuture::isDone));
+        assertEquals(1, invocations.get());
+        assertEquals(4, client.coalescedValidations());
+
+        final TokenInfo tokenInfo = tokenInfo("T");
+        upstream.complete(Optional.of(tokenInfo));
+        for (Future<Optional<TokenInfo>> result : results) {
+            assertEquals(tokenInfo, result.get().orElse(null));
+        }
+        assertEquals(tokenInfo, client.validateToken("S", "T").orElse(null));
+        assertEquals(1, invocations.get());
+    }
+
+    @Test
+    @SneakyThrows
+    void validateConcurrentCallsCoalesced() {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final String token = jwt(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 3600);
+        final CountingClient client = new CountingClient(new IdmanClientConfig(), () -> {
+            started.countDown();
+            await(release);
+            return Optional.of(tokenInfo(token));
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Optional<TokenInfo>>> results = IntStream.range(0, 8)
+                    .mapToObj(i -> executor.submit(() -> client.validateToken("S", token)))
+                    .collect(Collectors.toList());
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            release.countDown();
+            for (Future<Optional<TokenInfo>> result : results) {
+                assertTrue(result.get(5, TimeUnit.SECONDS).isPresent());
+            }
+            assertEquals(1, client.getInvocations());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void validateRefreshSharesUpstreamCall() {
+        final IdmanClientConfig config = new IdmanClientConfig();
+        config.setCacheSpec("maximumSize=100, expireAfterWrite=1m, refreshAfterWrite=1s");
+        final AtomicReference<CompletableFuture<Optional<TokenInfo>>> upstream
+                = new AtomicReference<>(CompletableFuture.completedFuture(Optional.of(tokenInfo("T"))));
+        final AtomicInteger invocations = new AtomicInteger();
+        final CountingClient client = new CountingClient(config, Optional::empty) {
+            @Override
+            protected CompletableFuture<Optional<TokenInfo>> validateTokenImplAsync(String serviceId, String token) {
+                invocations.incrementAndGet();
+                return upstream.get();
+            }
+        };
+        assertTrue(client.validateTokenAsync("S", "T").get().isPresent());
+        upstream.set(new CompletableFuture<>());
+        Thread.sleep(1_100);
+        assertTrue(client.validateToken("S", "T").isPresent());
+        final long deadline = System.currentTimeMillis() + 5_000;
+        while (invocations.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertTrue(client.validateToken("S", "T").isPresent());
+        }
+        assertEquals(2, invocations.get());
+        upstream.get().complete(Optional.of(tokenInfo("T")));
+    }
+
+    @Test
+    void revokeSessions() {
+        val other = new IdmanUser("S2", "S", TEST_USER.getUser(), "S_ADMIN");
+        val client = new CountingClient(new IdmanClientConfig(),
+                                        () -> Optional.of(tokenInfo("T")));
+        assertTrue(client.validateToken("S", "T1").isPresent());
+        assertTrue(client.validateToken("S", "T2").isPresent());
+        assertEquals(2, client.getInvocations());
+        assertEquals(0, client.revokeSessions(List.of("S2")));
+        assertEquals(2, client.revokeSessions(List.of(TEST_USER.getSessionId(), other.getSessionId())));
+        assertEquals(0, client.cacheSize());
+        assertFalse(client.validateToken("S", "T1").isPresent());
+        assertEquals(3, client.getInvocations());
+        assertFalse(client.validateToken("S", "T1").isPresent());
+        assertEquals(3, client.getInvocations());
+    }
+
+    @Test
+    void revokeSessionDuringValidation() {
+        final AtomicReference<CompletableFuture<Optional<TokenInfo>>> upstream
+                = new AtomicReference<>(new CompletableFuture<>());
+        final IdManClient client = new IdManClient() {
+            @Override
+            public Optional<TokenInfo> accessToken(String serviceId, String tokenId) {
+                return Optional.empty();
+            }
+
+            @Override
+            protected Optional<TokenInfo> validateTokenImpl(String serviceId, String token) {
+                return upstream.get().join();
+            }
+
+            @Override
+            public boolean deleteToken(String serviceId, String jwt) {
+                return false;
+            }
+
+            @Override
+            protected CompletableFuture<Optional<TokenInfo>> validateTokenImplAsync(String serviceId, String token) {
+                return upstream.get();
+            }
+        };
+        val pending = client.validateTokenAsync("S", "T");
+        assertEquals(0, client.revokeSessions(List.of(TEST_USER.getSessionId())));
+        upstream.get().complete(Optional.of(tokenInfo("T")));
+        assertFalse(pending.join().isPresent());
+        upstream.set(CompletableFuture.completedFuture(Optional.of(tokenInfo("T"))));
+        assertFalse(client.validateToken("S", "T").isPresent());
+    }
+
+    @Test
+    @SneakyThrows
+    void revocationSubscriberEvicts() {
+        val client = new CountingClient(new IdmanClientConfig(), () -> Optional.of(tokenInfo("T")));
+        assertTrue(client.validateToken("S", "T").isPresent());
+        assertEquals(Long.MAX_VALUE, client.revocationsStaleForMs());
+        final BlockingQueue<Long> cursors = new LinkedBlockingQueue<>();
+        final RevocationSubscriber subscriber = new RevocationSubscriber(client, sequence -> {
+            cursors.add(sequence);
+            if (sequence == 0) {
+                return Optional.of(new SessionRevocations(5, List.of(), false));
+            }
+            if (sequence == 5) {
+                return Optional.of(new SessionRevocations(6, List.of(TEST_USER.getSessionId()), false));
+            }
+            if (sequence == 6) {
+                throw new IllegalStateException("Feed unavailable");
+            }
+            return Optional.empty();
+        }, 10);
+        subscriber.start();
+        try {
+            assertEquals(0L, cursors.poll(5, TimeUnit.SECONDS));
+            assertEquals(5L, cursors.poll(5, TimeUnit.SECONDS));
+            assertEquals(6L, cursors.poll(5, TimeUnit.SECONDS));
+            assertEquals(6L, cursors.poll(5, TimeUnit.SECONDS));
+            assertEquals(0, client.cacheSize());
+            assertFalse(client.validateToken("S", "T").isPresent());
+            assertTrue(client.revocationsStaleForMs() < 5_000);
+        }
+        finally {
+            subscriber.stop();
+        }
+    }
+
+    @SneakyThrows
+    private static void await(CountDownLatch latch) {
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    private static TokenInfo tokenInfo(String token) {
+        return new TokenInfo(token, token, 60, "bearer", TEST_USER.getRole(), TEST_USER);
+    }
+
+    private static String jwt(long exp) {
+        val encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"HS512\"}".getBytes(StandardCharsets.UTF_8))
+                + "." + encoder.encodeToString(("{\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8))
+                + ".c2ln";
+    }
+}
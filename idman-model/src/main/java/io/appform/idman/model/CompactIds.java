@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.model;
+
+import lombok.experimental.UtilityClass;
+import lombok.val;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Short form of the UUID ids (session and user ids) carried in compact profile tokens. A UUID is written as a marker
+ * followed by the base64url encoding of its 16 bytes, 23 characters instead of 36. Ids that are not UUIDs are left
+ * as they are, so {@link #expand(String)} can be applied to ids from any token.
+ */
+@UtilityClass
+public class CompactIds {
+    private static final char MARKER = '~';
+    private static final int UUID_LENGTH = 36;
+    private static final int COMPACT_LENGTH = 23;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public static String compact(String id) {
+        if (null == id || id.length() != UUID_LENGTH) {
+            return id;
+        }
+        final UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        }
+        catch (IllegalArgumentException e) {
+            return id;
+        }
+        if (!uuid.toString().equals(id)) {
+            return id;
+        }
+        val bytes = ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+        return MARKER + ENCODER.encodeToString(bytes);
+    }
+
+    /**
+     * True for ids written by {@link #compact(String)}. Only compact profile tokens carry such ids.
+     */
+    public static boolean isCompact(String id) {
+        return null != id && id.length() == COMPACT_LENGTH && id.charAt(0) == MARKER;
+    }
+
+    public static String expand(String id) {
+        if (!isCompact(id)) {
+            return id;
+        }
+        final byte[] bytes;
+        try {
+            bytes = DECODER.decode(id.substring(1));
+        }
+        catch (IllegalArgumentException e) {
+            return id;
+        }
+        val buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * A page of the session revocation feed. Pass the sequence as the cursor for the next call. Recently revoked
+ * sessions are repeated across pages, so the same id can show up more than once.
+ */
+@Value
+public class SessionRevocations {
+    long sequence;
+    List<String> sessionIds;
+    /**
+     * Set when the page was cut short and more revocations are available right away
+     */
+    boolean more;
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.model;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Names of the idman specific claims carried in access tokens, in addition to the registered ones (sub, aud, jti).
+ * These allow clients to build an {@link IdmanUser} after verifying a token locally.
+ */
+@UtilityClass
+public class TokenClaims {
+    public static final String USER_NAME = "name";
+    public static final String USER_TYPE = "utyp";
+    public static final String AUTH_MODE = "amod";
+    public static final String ROLE = "role";
+}
@@ -19,9 +19,15 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 import com.google.inject.Stage;
+import io.appform.idman.server.db.cache.HibernateCacheConfig;
+import io.appform.idman.server.db.cache.HibernateCaches;
+import io.appform.idman.server.db.impl.DynamicSessionReaper;
 import io.appform.idman.server.db.model.*;
+import io.appform.idman.server.db.replica.ReadReplicaFeature;
+import io.appform.idman.server.db.replica.ReplicaRoutingDataSourceFactory;
 import io.appform.idman.server.handlebars.HandlebarsViewRenderer;
 import io.appform.idman.server.modules.CoreModule;
+import io.appform.idman.server.userimport.ImportUsersCommand;
 import io.dropwizard.Application;
 import io.dropwizard.configuration.EnvironmentVariableSubstitutor;
 import io.dropwizard.configuration.SubstitutingSourceProvider;
@@ -30,6 +36,7 @@ import io.dropwizard.hibernate.HibernateBundle;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import lombok.val;
+import org.hibernate.cfg.Configuration;
 import ru.vyarus.dropwizard.guice.GuiceBundle;
 import ru.vyarus.guicey.gsp.ServerPagesBundle;
 
@@ -48,10 +55,20 @@ public class App extends Application<AppConfig> {
                                              StoredUser.class,
                                              StoredUserAuthState.class,
                                              StoredDynamicSession.class,
-                                             StoredStaticSession.class) {
+                                             StoredStaticSession.class,
+                                             StoredSessionRevocation.class) {
+        private HibernateCacheConfig cacheConfig = new HibernateCacheConfig();
+
+        @Override
+        protected void configure(Configuration configuration) {
+            HibernateCaches.configure(configuration, cacheConfig);
+        }
+
         @Override
         public PooledDataSourceFactory getDataSourceFactory(AppConfig appConfig) {
-            return appConfig.getDb();
+            //Called before the session factory is built, which is when configure() needs the cache settings
+            cacheConfig = appConfig.getHibernateCache();
+            return new ReplicaRoutingDataSourceFactory(appConfig.getDb(), appConfig.getReadReplica());
         }
     };
 
@@ -63,11 +80,13 @@ public class App extends Application<AppConfig> {
                 new SubstitutingSourceProvider(bootstrap.getConfigurationSourceProvider(),
                                                new EnvironmentVariableSubstitutor(true)));
         bootstrap.addBundle(hibernate);
+        bootstrap.addCommand(new ImportUsersCommand(this));
 
         bootstrap.addBundle(
                 GuiceBundle.<AppConfig>builder()
                         .enableAutoConfig("io.appform.idman.server.resources", "io.appform.idman.authcomponents")
                         .modules(new CoreModule(hibernate))
+                        .extensions(DynamicSessionReaper.class, ReadReplicaFeature.class)
                         .bundles(ServerPagesBundle.builder()
                                          .addViewRenderers(new HandlebarsViewRenderer())
                                          .build())
@@ -87,6 +106,7 @@ public class App extends Application<AppConfig> {
         objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         objectMapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
         objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        HibernateCaches.registerMetrics(hibernate.getSessionFactory(), environment.metrics());
 
     }
 
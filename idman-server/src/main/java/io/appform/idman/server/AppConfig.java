@@ -15,6 +15,12 @@
 package io.appform.idman.server;
 
 import io.appform.idman.server.auth.configs.AuthenticationConfig;
+import io.appform.idman.server.db.DynamicSessionStoreConfig;
+import io.appform.idman.server.db.SessionReaperConfig;
+import io.appform.idman.server.db.cache.HibernateCacheConfig;
+import io.appform.idman.server.db.cache.StoreCacheConfig;
+import io.appform.idman.server.db.replica.ReadReplicaConfig;
+import io.appform.idman.server.userimport.UserImportConfig;
 import io.dropwizard.Configuration;
 import io.dropwizard.db.DataSourceFactory;
 import lombok.Data;
@@ -38,4 +44,28 @@ public class AppConfig extends Configuration {
     private DataSourceFactory db = new DataSourceFactory();
 
     private AuthenticationConfig authenticationCore;
+
+    @NotNull
+    @Valid
+    private StoreCacheConfig storeCache = new StoreCacheConfig();
+
+    @NotNull
+    @Valid
+    private HibernateCacheConfig hibernateCache = new HibernateCacheConfig();
+
+    @NotNull
+    @Valid
+    private SessionReaperConfig sessionReaper = new SessionReaperConfig();
+
+    @NotNull
+    @Valid
+    private DynamicSessionStoreConfig dynamicSessionStore = new DynamicSessionStoreConfig();
+
+    @NotNull
+    @Valid
+    private ReadReplicaConfig readReplica = new ReadReplicaConfig();
+
+    @NotNull
+    @Valid
+    private UserImportConfig userImport = new UserImportConfig();
 }
@@ -38,23 +38,26 @@ import java.util.Optional;
 @Slf4j
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public abstract class AuthenticationProvider {
-    private static final int MAX_FAILURES = 3;
+    public static final int MAX_FAILURES = 3;
 
     @EqualsAndHashCode.Include
     private final AuthMode authMode;
     private final AuthenticationConfig authConfig;
     private final Provider<UserInfoStore> userStore;
     private final Provider<SessionStore> sessionStore;
+    private final LoginFailureCounters loginFailures;
 
     protected AuthenticationProvider(
             AuthMode authMode,
             AuthenticationConfig authConfig,
             Provider<UserInfoStore> userStore,
-            Provider<SessionStore> sessionStore) {
+            Provider<SessionStore> sessionStore,
+            LoginFailureCounters loginFailures) {
         this.authMode = authMode;
         this.authConfig = authConfig;
         this.userStore = userStore;
         this.sessionStore = sessionStore;
+        this.loginFailures = loginFailures;
     }
 
     public abstract String redirectionURL(String sessionId);
@@ -70,16 +73,19 @@ public abstract class AuthenticationProvider {
         val userId = user.getUserId();
 
         if (!authenticate(context, user)) {
-            userStore.get().updateAuthState(userId, authState -> {
-                authState.setFailedAuthCount(authState.getFailedAuthCount() + 1);
-                if (authState.getFailedAuthCount() >= MAX_FAILURES) {
+            if (loginFailures.recordFailure(userId, user.getAuthState().getFailedAuthCount())) {
+                userStore.get().updateAuthState(userId, authState -> {
+                    authState.setFailedAuthCount(MAX_FAILURES);
                     authState.setAuthState(AuthState.LOCKED);
-                }
-            });
-            log.warn("Authentication failure for: {}", userId);
+                });
+                log.warn("Authentication failure for: {}. Account locked.", userId);
+            }
+            else {
+                log.warn("Authentication failure for: {}", userId);
+            }
             return Optional.empty();
         }
-        else {
+        if (loginFailures.reset(userId) || user.getAuthState().getFailedAuthCount() != 0) {
             userStore.get().updateAuthState(userId, authState -> authState.setFailedAuthCount(0));
         }
         val sessionDuration = Utils.sessionDuration(authConfig);
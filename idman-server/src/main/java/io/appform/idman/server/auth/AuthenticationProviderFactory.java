@@ -34,18 +34,24 @@ public class AuthenticationProviderFactory implements AuthenticationProviderConf
     private final Provider<UserInfoStore> userStore;
     private final Provider<SessionStore> sessionStore;
     private final Provider<PasswordStore> passwordStore;
+    private final PasswordVerifier passwordVerifier;
+    private final LoginFailureCounters loginFailures;
 
     public AuthenticationProviderFactory(
             AuthenticationConfig authConfig,
             ObjectMapper mapper,
             Provider<UserInfoStore> userStore,
             Provider<SessionStore> sessionStore,
-            Provider<PasswordStore> passwordStore) {
+            Provider<PasswordStore> passwordStore,
+            PasswordVerifier passwordVerifier,
+            LoginFailureCounters loginFailures) {
         this.authConfig = authConfig;
         this.mapper = mapper;
         this.userStore = userStore;
         this.sessionStore = sessionStore;
         this.passwordStore = passwordStore;
+        this.passwordVerifier = passwordVerifier;
+        this.loginFailures = loginFailures;
     }
 
     public AuthenticationProvider create(AuthenticationProviderConfig providerConfig) {
@@ -54,12 +60,17 @@ public class AuthenticationProviderFactory implements AuthenticationProviderConf
 
     @Override
     public AuthenticationProvider visit(CredentialAuthenticationProviderConfig credentialAuthenticationProviderConfig) {
-        return new PasswordAuthenticationProvider(authConfig, userStore, passwordStore, sessionStore);
+        return new PasswordAuthenticationProvider(authConfig,
+                                                  userStore,
+                                                  passwordStore,
+                                                  sessionStore,
+                                                  passwordVerifier,
+                                                  loginFailures);
     }
 
     @Override
     public AuthenticationProvider visit(GoogleAuthenticationProviderConfig googleAuthenticationConfig) {
         return new GoogleAuthenticationProvider(
-                authConfig, googleAuthenticationConfig, mapper, userStore, sessionStore);
+                authConfig, googleAuthenticationConfig, mapper, userStore, sessionStore, loginFailures);
     }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.auth;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.base.Strings;
+import io.appform.idman.server.auth.configs.JwtConfig;
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.jose4j.jwa.AlgorithmConstraints;
+import org.jose4j.jwk.EllipticCurveJsonWebKey;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.PublicJsonWebKey;
+import org.jose4j.jwk.RsaJsonWebKey;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.keys.EllipticCurves;
+import org.jose4j.keys.HmacKey;
+import org.jose4j.keys.resolvers.JwksVerificationKeyResolver;
+import org.jose4j.keys.resolvers.VerificationKeyResolver;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keys used to sign and verify tokens, parsed once per {@link JwtConfig}
+ */
+@Slf4j
+public class JwtSigningKeys {
+    private static final LoadingCache<JwtConfig, JwtSigningKeys> KEYS = Caffeine.newBuilder()
+            .weakKeys()
+            .build(JwtSigningKeys::new);
+
+    @Getter
+    private final Key signingKey;
+    @Getter
+    private final String algorithm;
+    @Getter
+    private final String keyId;
+    @Getter
+    private final String publicKeySet;
+    private final HmacKey hmacKey;
+    private final VerificationKeyResolver publicKeyResolver;
+    private final AlgorithmConstraints algorithmConstraints;
+
+    public static JwtSigningKeys of(final JwtConfig jwtConfig) {
+        return KEYS.get(jwtConfig);
+    }
+
+    private JwtSigningKeys(JwtConfig jwtConfig) {
+        this.hmacKey = new HmacKey(jwtConfig.getPrivateKey().getBytes(StandardCharsets.UTF_8));
+        val publicKeys = new ArrayList<JsonWebKey>();
+        PublicJsonWebKey activeKey = null;
+        for (Map<String, Object> keyParams : jwtConfig.getSigningKeys()) {
+            val key = parseKey(keyParams);
+            if (null == activeKey
+                    && (Strings.isNullOrEmpty(jwtConfig.getActiveKeyId())
+                    || jwtConfig.getActiveKeyId().equals(key.getKeyId()))) {
+                activeKey = key;
+            }
+            publicKeys.add(key);
+        }
+        if (!Strings.isNullOrEmpty(jwtConfig.getActiveKeyId()) && null == activeKey) {
+            throw new IllegalArgumentException("No signing key found for active key id " + jwtConfig.getActiveKeyId());
+        }
+        if (null == activeKey) {
+            this.signingKey = hmacKey;
+            this.algorithm = AlgorithmIdentifiers.HMAC_SHA512;
+            this.keyId = null;
+        }
+        else {
+            this.signingKey = activeKey.getPrivateKey();
+            this.algorithm = activeKey.getAlgorithm();
+            this.keyId = activeKey.getKeyId();
+            log.info("Tokens will be signed using {} key {}", algorithm, keyId);
+        }
+        this.publicKeySet = new JsonWebKeySet(publicKeys).toJson(JsonWebKey.OutputControlLevel.PUBLIC_ONLY);
+        this.publicKeyResolver = new JwksVerificationKeyResolver(publicKeys);
+        val allowedAlgorithms = new ArrayList<String>();
+        allowedAlgorithms.add(AlgorithmIdentifiers.HMAC_SHA512);
+        allowedAlgorithms.add(AlgorithmIdentifiers.HMAC_SHA256);
+        publicKeys.stream()
+                .map(JsonWebKey::getAlgorithm)
+                .distinct()
+                .forEach(allowedAlgorithms::add);
+        this.algorithmConstraints = new AlgorithmConstraints(AlgorithmConstraints.ConstraintType.WHITELIST,
+                                                             allowedAlgorithms.toArray(new String[0]));
+    }
+
+    /**
+     * HS512 and HS256 tokens are verified with the shared secret, everything else by kid from the configured signing
+     * keys
+     */
+    public VerificationKeyResolver verificationKeyResolver() {
+        return (jws, nestingContext) -> isHmac(jws.getAlgorithmHeaderValue())
+                                        ? hmacKey
+                                        : publicKeyResolver.resolveKey(jws, nestingContext);
+    }
+
+    public boolean isHmacSigned() {
+        return signingKey == hmacKey;
+    }
+
+    public AlgorithmConstraints algorithmConstraints() {
+        return algorithmConstraints;
+    }
+
+    private static boolean isHmac(String algorithm) {
+        return AlgorithmIdentifiers.HMAC_SHA512.equals(algorithm) || AlgorithmIdentifiers.HMAC_SHA256.equals(algorithm);
+    }
+
+    @SneakyThrows
+    private static PublicJsonWebKey parseKey(Map<String, Object> keyParams) {
+        val key = PublicJsonWebKey.Factory.newPublicJwk(keyParams);
+        if (Strings.isNullOrEmpty(key.getKeyId())) {
+            throw new IllegalArgumentException("Signing keys must have a kid");
+        }
+        if (null == key.getPrivateKey()) {
+            throw new IllegalArgumentException("No private key provided for signing key " + key.getKeyId());
+        }
+        final String algorithm;
+        if (key instanceof RsaJsonWebKey) {
+            algorithm = AlgorithmIdentifiers.RSA_USING_SHA256;
+        }
+        else if (key instanceof EllipticCurveJsonWebKey
+                && Objects.equals(EllipticCurves.P_256, ((EllipticCurveJsonWebKey) key).getCurveName())) {
+            algorithm = AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256;
+        }
+        else {
+            throw new IllegalArgumentException("Only RSA and P-256 EC keys are supported. Key: " + key.getKeyId());
+        }
+        if (!Strings.isNullOrEmpty(key.getAlgorithm()) && !algorithm.equals(key.getAlgorithm())) {
+            throw new IllegalArgumentException("Unsupported algorithm " + key.getAlgorithm() + " for key "
+                                                       + key.getKeyId());
+        }
+        key.setAlgorithm(algorithm);
+        key.setUse("sig");
+        return key;
+    }
+}
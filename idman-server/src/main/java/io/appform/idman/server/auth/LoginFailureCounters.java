@@ -0,0 +1,157 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.auth;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.appform.idman.server.db.AuthState;
+import io.appform.idman.server.db.Transactions;
+import io.appform.idman.server.db.UserInfoStore;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.hibernate.SessionFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Failed logins for users that are not yet locked, shared by all authentication providers on the node. Failures are
+ * counted in memory and added to the persisted count of each user in one transaction every {@code flushInterval},
+ * so that failures on all nodes add up and a burst of bad attempts costs a single write per user. A user is locked
+ * as soon as the persisted count plus the failures held here reach the threshold, or when a flush takes the
+ * persisted count there.
+ */
+@Slf4j
+public class LoginFailureCounters implements Managed {
+    private final SessionFactory sessionFactory;
+    private final UserInfoStore userStore;
+    private final int maxFailures;
+    private final long flushIntervalMs;
+    private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public LoginFailureCounters(
+            SessionFactory sessionFactory,
+            UserInfoStore userStore,
+            int maxFailures,
+            Duration flushInterval) {
+        this.sessionFactory = sessionFactory;
+        this.userStore = userStore;
+        this.maxFailures = maxFailures;
+        this.flushIntervalMs = flushInterval.toMilliseconds();
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                                                                       .setNameFormat("login-failure-flusher")
+                                                                       .setDaemon(true)
+                                                                       .build());
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (null != scheduler) {
+            scheduler.shutdown();
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("Login failure flush still running at shutdown");
+            }
+        }
+        flushQuietly();
+    }
+
+    /**
+     * Records a failure on top of the persisted count
+     *
+     * @return true if the user has now reached the lockout threshold. The failures held for the user are dropped in
+     * that case, as the lock is expected to be persisted.
+     */
+    public boolean recordFailure(String userId, int persistedCount) {
+        final int count = failures.merge(userId, 1, Integer::sum);
+        if (persistedCount + count < maxFailures) {
+            return false;
+        }
+        failures.remove(userId);
+        return true;
+    }
+
+    /**
+     * Drops the failures held for a user
+     *
+     * @return true if failures were held for the user
+     */
+    public boolean reset(String userId) {
+        return null != failures.remove(userId);
+    }
+
+    /**
+     * Adds the failures held so far to the persisted counts, locking users that reach the threshold. Failures are
+     * held again if the write fails.
+     *
+     * @return Number of users whose counts were written
+     */
+    public int flush() {
+        val batch = new HashMap<String, Integer>();
+        for (String userId : failures.keySet()) {
+            val count = failures.remove(userId);
+            if (null != count) {
+                batch.put(userId, count);
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            Transactions.inTransaction(sessionFactory, session -> {
+                batch.forEach((userId, count) -> userStore.updateAuthState(userId, authState -> {
+                    if (authState.getAuthState() == AuthState.LOCKED) {
+                        return;
+                    }
+                    val total = Math.min(authState.getFailedAuthCount() + count, maxFailures);
+                    authState.setFailedAuthCount(total);
+                    if (total >= maxFailures) {
+                        authState.setAuthState(AuthState.LOCKED);
+                        log.warn("Authentication failure for: {}. Account locked.", userId);
+                    }
+                }));
+                return null;
+            });
+        }
+        catch (RuntimeException e) {
+            batch.forEach((userId, count) -> failures.merge(userId, count, Integer::sum));
+            throw e;
+        }
+        return batch.size();
+    }
+
+    int failures(String userId) {
+        return failures.getOrDefault(userId, 0);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        }
+        catch (RuntimeException e) {
+            log.error("Could not persist failed login counts. Held for: {} users", failures.size(), e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.auth;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.appform.idman.server.auth.configs.PasswordVerificationConfig;
+import io.appform.idman.server.db.PasswordStore;
+import io.appform.idman.server.db.Transactions;
+import io.dropwizard.lifecycle.Managed;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.hibernate.SessionFactory;
+
+import java.util.Optional;
+import java.util.concurrent.*;
+
+/**
+ * Verifies passwords on a pool sized to the processors on the host, so that a burst of logins cannot occupy every
+ * request thread with hashing. Verifications that do not fit in the queue are rejected with a
+ * {@link RejectedExecutionException} instead of waiting.
+ * <p>
+ * A transaction open on the calling thread is committed before waiting, which returns its connection to the pool,
+ * and a new one is begun once the result is available.
+ */
+@Slf4j
+public class PasswordVerifier implements Managed {
+    private final SessionFactory sessionFactory;
+    private final PasswordStore passwordStore;
+    private final ThreadPoolExecutor executor;
+    private final Timer waitTimer;
+    private final Meter rejections;
+
+    public PasswordVerifier(
+            SessionFactory sessionFactory,
+            PasswordStore passwordStore,
+            PasswordVerificationConfig config,
+            MetricRegistry metrics) {
+        this.sessionFactory = sessionFactory;
+        this.passwordStore = passwordStore;
+        val threads = config.getThreads() > 0
+                      ? config.getThreads()
+                      : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(threads,
+                                               threads,
+                                               0,
+                                               TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(config.getMaxQueuedVerifications()),
+                                               new ThreadFactoryBuilder()
+                                                       .setNameFormat("password-verifier-%d")
+                                                       .setDaemon(true)
+                                                       .build());
+        this.waitTimer = metrics.timer(MetricRegistry.name(PasswordVerifier.class, "queue", "wait"));
+        this.rejections = metrics.meter(MetricRegistry.name(PasswordVerifier.class, "rejected"));
+        metrics.register(MetricRegistry.name(PasswordVerifier.class, "queue", "depth"),
+                         (Gauge<Integer>) () -> executor.getQueue().size());
+    }
+
+    @Override
+    public void start() {
+        //Threads are started on demand
+    }
+
+    @Override
+    public void stop() throws Exception {
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("Password verifications still running at shutdown");
+        }
+    }
+
+    /**
+     * @return Empty if the password does not match. Otherwise the hash to keep for it, which is a new one if the given
+     * hash was made under an older hashing policy.
+     */
+    public Optional<String> verify(String password, String hashedPassword) {
+        val queuedAt = System.nanoTime();
+        final Future<Optional<String>> result;
+        try {
+            result = executor.submit(() -> {
+                waitTimer.update(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                if (!passwordStore.verify(password, hashedPassword)) {
+                    return Optional.empty();
+                }
+                return Optional.of(passwordStore.needsRehash(hashedPassword)
+                                   ? passwordStore.hash(password)
+                                   : hashedPassword);
+            });
+        }
+        catch (RejectedExecutionException e) {
+            rejections.mark();
+            log.warn("Password verification rejected. Queued verifications: {}", executor.getQueue().size());
+            throw e;
+        }
+        return Transactions.outsideTransaction(sessionFactory, () -> await(result));
+    }
+
+    private static Optional<String> await(Future<Optional<String>> result) {
+        try {
+            return result.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new IllegalStateException("Interrupted while verifying password", e);
+        }
+        catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.auth;
+
+import io.appform.idman.model.SessionRevocations;
+import io.appform.idman.server.auth.configs.AuthenticationConfig;
+import io.appform.idman.server.db.ServiceStore;
+import io.appform.idman.server.db.SessionRevocationStore;
+import io.appform.idman.server.db.model.StoredSessionRevocation;
+import io.dropwizard.hibernate.UnitOfWork;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Serves the session revocation log to clients. Long polls are parked on a scheduler and re-checked every
+ * {@code revocationFeedPollInterval}, so waiting clients hold neither a request thread nor
+ * a database connection. Sequences become visible in commit order, not in sequence order, so every response also
+ * carries the revocations created within {@code revocationFeedLookback} that are at or below the cursor.
+ */
+@Slf4j
+public class RevocationFeed {
+    private static final int MAX_REVOCATIONS_PER_CALL = 1_000;
+
+    private final ServiceStore serviceStore;
+    private final SessionRevocationStore revocationStore;
+    private final ScheduledExecutorService scheduler;
+    private final long pollIntervalMs;
+    private final long maxWaitMs;
+    private final long lookbackMs;
+
+    public RevocationFeed(
+            ServiceStore serviceStore,
+            SessionRevocationStore revocationStore,
+            AuthenticationConfig authConfig,
+            ScheduledExecutorService scheduler) {
+        this.serviceStore = serviceStore;
+        this.revocationStore = revocationStore;
+        this.scheduler = scheduler;
+        this.pollIntervalMs = authConfig.getRevocationFeedPollInterval().toMilliseconds();
+        this.maxWaitMs = authConfig.getRevocationFeedMaxWait().toMilliseconds();
+        this.lookbackMs = authConfig.getRevocationFeedLookback().toMilliseconds();
+    }
+
+    /**
+     * Revocations for sessions of the service after the given sequence, along with recent ones at or below it. A
+     * negative sequence returns the current head of the log without any session ids, for subscribers that are
+     * starting up.
+     *
+     * @return Empty if the service does not exist or the secret does not match
+     */
+    @UnitOfWork
+    public Optional<SessionRevocations> revocations(String serviceId, String serviceSecret, long after) {
+        val service = serviceStore.get(serviceId).filter(s -> !s.isDeleted()).orElse(null);
+        if (null == service || !service.getSecret().equals(serviceSecret)) {
+            log.warn("Revocation feed access denied for service: {}", serviceId);
+            return Optional.empty();
+        }
+        if (after < 0) {
+            return Optional.of(new SessionRevocations(revocationStore.latestSequence(),
+                                                      Collections.emptyList(),
+                                                      false));
+        }
+        val late = revocationStore.recent(serviceId,
+                                          after,
+                                          new Date(System.currentTimeMillis() - lookbackMs),
+                                          MAX_REVOCATIONS_PER_CALL);
+        val revocations = revocationStore.since(serviceId, after, MAX_REVOCATIONS_PER_CALL);
+        val sequence = revocations.isEmpty()
+                       ? after
+                       : revocations.get(revocations.size() - 1).getId();
+        return Optional.of(new SessionRevocations(sequence,
+                                                  Stream.concat(late.stream(), revocations.stream())
+                                                          .map(StoredSessionRevocation::getSessionId)
+                                                          .distinct()
+                                                          .collect(Collectors.toList()),
+                                                  revocations.size() == MAX_REVOCATIONS_PER_CALL));
+    }
+
+    /**
+     * Like {@link #revocations(String, String, long)}, but waits up to waitMs (capped by configuration) for new
+     * revocations, or late ones that were not in the first response, to show up.
+     */
+    public CompletableFuture<Optional<SessionRevocations>> poll(
+            String serviceId,
+            String serviceSecret,
+            long after,
+            long waitMs) {
+        val result = new CompletableFuture<Optional<SessionRevocations>>();
+        val deadline = System.currentTimeMillis() + Math.min(Math.max(waitMs, 0), maxWaitMs);
+        scheduler.execute(() -> check(serviceId, serviceSecret, after, deadline, null, result));
+        return result;
+    }
+
+    private void check(
+            String serviceId,
+            String serviceSecret,
+            long after,
+            long deadline,
+            Set<String> seen,
+            CompletableFuture<Optional<SessionRevocations>> result) {
+        try {
+            val revocations = revocations(serviceId, serviceSecret, after);
+            if (revocations.map(r -> r.getSequence() > after
+                            || (null != seen && !seen.containsAll(r.getSessionIds())))
+                    .orElse(true)
+                    || after < 0
+                    || System.currentTimeMillis() + pollIntervalMs > deadline) {
+                result.complete(revocations);
+                return;
+            }
+            final Set<String> sessionIds = null != seen
+                             ? seen
+                             : new HashSet<>(revocations.get().getSessionIds());
+            scheduler.schedule(() -> check(serviceId, serviceSecret, after, deadline, sessionIds, result),
+                               pollIntervalMs,
+                               TimeUnit.MILLISECONDS);
+        }
+        catch (Exception e) {
+            log.error("Error reading revocations for service " + serviceId, e);
+            result.completeExceptionally(e);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package io.appform.idman.server.auth;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.base.Strings;
@@ -10,20 +13,23 @@ import io.appform.idman.server.auth.configs.JwtConfig;
 import io.appform.idman.server.db.ServiceStore;
 import io.appform.idman.server.db.SessionStore;
 import io.appform.idman.server.db.UserInfoStore;
+import io.appform.idman.server.db.Transactions;
 import io.appform.idman.server.db.UserRoleStore;
 import io.appform.idman.server.db.model.ClientSession;
 import io.appform.idman.server.db.model.StoredUserRole;
+import io.appform.idman.server.db.replica.ReplicaRouting;
 import io.appform.idman.server.utils.Utils;
 import io.dropwizard.hibernate.UnitOfWork;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
+import org.hibernate.SessionFactory;
 import org.jose4j.jwt.consumer.JwtConsumer;
 
 import javax.inject.Inject;
-import java.util.Date;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static io.appform.idman.server.utils.Utils.toWire;
 
@@ -38,12 +44,31 @@ public class TokenManager {
         String token;
     }
 
+    /**
+     * Outcomes recorded as meters named TokenManager.[method].[outcome]
+     */
+    public enum Outcome {
+        SUCCESS,
+        INVALID_SERVICE,
+        INVALID_TOKEN,
+        INVALID_SESSION,
+        INVALID_USER;
+
+        private final String metricName = name().toLowerCase();
+    }
+
     private final UserInfoStore userInfoStore;
     private final ServiceStore serviceStore;
     private final SessionStore sessionStore;
     private final UserRoleStore roleStore;
+    private final SessionFactory sessionFactory;
     private final JwtConfig jwtConfig;
     private final LoadingCache<String, JwtConsumer> jwtConsumers;
+    private final MethodMetrics createTokenMetrics;
+    private final MethodMetrics generateTokenMetrics;
+    private final MethodMetrics translateTokenMetrics;
+    private final MethodMetrics translateTokensMetrics;
+    private final MethodMetrics deleteTokenMetrics;
 
     @Inject
     public TokenManager(
@@ -51,13 +76,21 @@ public class TokenManager {
             ServiceStore serviceStore,
             SessionStore sessionStore,
             UserRoleStore roleStore,
-            JwtConfig jwtConfig) {
+            SessionFactory sessionFactory,
+            JwtConfig jwtConfig,
+            MetricRegistry metrics) {
         this.userInfoStore = userInfoStore;
         this.serviceStore = serviceStore;
         this.sessionStore = sessionStore;
         this.roleStore = roleStore;
+        this.sessionFactory = sessionFactory;
         this.jwtConfig = jwtConfig;
         this.jwtConsumers = Caffeine.newBuilder().build(serviceId -> Utils.buildConsumer(jwtConfig, serviceId));
+        this.createTokenMetrics = new MethodMetrics(metrics, "createToken");
+        this.generateTokenMetrics = new MethodMetrics(metrics, "generateTokenForSession");
+        this.translateTokenMetrics = new MethodMetrics(metrics, "translateToken");
+        this.translateTokensMetrics = new MethodMetrics(metrics, "translateTokens");
+        this.deleteTokenMetrics = new MethodMetrics(metrics, "deleteToken");
     }
 
     @UnitOfWork
@@ -67,57 +100,153 @@ public class TokenManager {
             String clientSessionId,
             TokenType type,
             Date expiry) {
-        if ((type == TokenType.DYNAMIC && expiry == null)
-            || (type == TokenType.STATIC && expiry != null)) {
-            return Optional.empty();
-        }
-        val user = userInfoStore.get(userId).orElse(null);
-        val service = serviceStore.get(serviceId).orElse(null);
-        if (null == user || user.isDeleted()
-                || (user.getUserType() == UserType.HUMAN && type == TokenType.STATIC)
-                || (user.getUserType() == UserType.SYSTEM && type == TokenType.DYNAMIC)
-                || null == service || service.isDeleted()) {
-            return Optional.empty();
+        try (final Timer.Context ignored = createTokenMetrics.time()) {
+            if ((type == TokenType.DYNAMIC && expiry == null)
+                || (type == TokenType.STATIC && expiry != null)) {
+                createTokenMetrics.mark(Outcome.INVALID_SESSION);
+                return Optional.empty();
+            }
+            val user = userInfoStore.get(userId).orElse(null);
+            val service = serviceStore.get(serviceId).orElse(null);
+            if (null == service || service.isDeleted()) {
+                createTokenMetrics.mark(Outcome.INVALID_SERVICE);
+                return Optional.empty();
+            }
+            if (null == user || user.isDeleted()
+                    || (user.getUserType() == UserType.HUMAN && type == TokenType.STATIC)
+                    || (user.getUserType() == UserType.SYSTEM && type == TokenType.DYNAMIC)) {
+                createTokenMetrics.mark(Outcome.INVALID_USER);
+                return Optional.empty();
+            }
+            val session = sessionStore
+                    .create(UUID.randomUUID().toString(), userId, serviceId, clientSessionId, type, expiry);
+            createTokenMetrics.mark(session.isPresent() ? Outcome.SUCCESS : Outcome.INVALID_SESSION);
+            return session;
         }
-        return sessionStore
-                .create(UUID.randomUUID().toString(), userId, serviceId, clientSessionId, type, expiry);
     }
 
+    /**
+     * Reads from the primary, as this is called right after the session is created
+     */
     @UnitOfWork
     public Optional<GeneratedTokenInfo> generateTokenForSession(String serviceId, String sessionId, TokenType tokenType) {
-        return sessionStore.get(sessionId, tokenType)
-                .filter(session -> session.getServiceId().equals(serviceId))
-                .flatMap(session -> buildIdmanUser(session)
-                        .map(user -> new GeneratedTokenInfo(user, Utils.createAccessToken(session, jwtConfig))));
+        try (final Timer.Context ignored = generateTokenMetrics.time()) {
+            val session = sessionStore.get(sessionId, tokenType)
+                    .filter(s -> s.getServiceId().equals(serviceId))
+                    .orElse(null);
+            if (null == session) {
+                generateTokenMetrics.mark(Outcome.INVALID_SESSION);
+                return Optional.empty();
+            }
+            val user = buildIdmanUser(session).orElse(null);
+            if (null == user) {
+                generateTokenMetrics.mark(Outcome.INVALID_USER);
+                return Optional.empty();
+            }
+            generateTokenMetrics.mark(Outcome.SUCCESS);
+            return Optional.of(new GeneratedTokenInfo(user, Utils.createAccessToken(session, user, jwtConfig)));
+        }
     }
 
-    @UnitOfWork
+    @UnitOfWork(readOnly = true)
     public Optional<IdmanUser> translateToken(String serviceId, String token) {
         log.debug("Auth called");
-        return serviceStore.get(serviceId)
-                .filter(service -> !service.isDeleted())
-                .flatMap(service -> parseToken(serviceId, token)
-                        .map(parsedToken -> sessionStore.get(parsedToken.getSessionId(), parsedToken.getType())
-                                .map(this::buildIdmanUser)
-                                .orElseGet(() -> {
-                                    log.warn("authentication_failed::invalid_session userId:{} tokenId:{}",
-                                             parsedToken.getUserId(),
-                                             parsedToken.getSessionId());
-                                    return Optional.empty();
-                                })))
-                .orElseGet(() -> {
-                    log.warn("authentication_failed::invalid_service serviceId:{}", serviceId);
-                    return Optional.empty();
-                });
+        try (final Timer.Context ignored = translateTokenMetrics.time()) {
+            val service = serviceStore.get(serviceId).filter(s -> !s.isDeleted()).orElse(null);
+            if (null == service) {
+                log.warn("authentication_failed::invalid_service serviceId:{}", serviceId);
+                translateTokenMetrics.mark(Outcome.INVALID_SERVICE);
+                return Optional.empty();
+            }
+            val parsedToken = parseToken(serviceId, token).orElse(null);
+            if (null == parsedToken) {
+                translateTokenMetrics.mark(Outcome.INVALID_TOKEN);
+                return Optional.empty();
+            }
+            val user = sessionStore.sessionUser(parsedToken.getSessionId(), serviceId, parsedToken.getType())
+                    .or(() -> readFromPrimary(
+                            () -> sessionStore.sessionUser(parsedToken.getSessionId(), serviceId, parsedToken.getType()),
+                            Optional.empty()));
+            if (user.isEmpty()) {
+                log.warn("authentication_failed::invalid_session userId:{} tokenId:{}",
+                         parsedToken.getUserId(),
+                         parsedToken.getSessionId());
+                translateTokenMetrics.mark(Outcome.INVALID_SESSION);
+                return user;
+            }
+            translateTokenMetrics.mark(Outcome.SUCCESS);
+            return user;
+        }
+    }
+
+    /**
+     * Validates a batch of tokens for a service. Sessions for all tokens of a type are resolved in one query.
+     * Outcomes are recorded per token.
+     *
+     * @return Users keyed by token. Invalid tokens are absent from the returned map.
+     */
+    @UnitOfWork(readOnly = true)
+    public Map<String, IdmanUser> translateTokens(String serviceId, Collection<String> tokens) {
+        try (final Timer.Context ignored = translateTokensMetrics.time()) {
+            val service = serviceStore.get(serviceId).filter(s -> !s.isDeleted()).orElse(null);
+            if (null == service) {
+                log.warn("authentication_failed::invalid_service serviceId:{}", serviceId);
+                translateTokensMetrics.mark(Outcome.INVALID_SERVICE, tokens.size());
+                return Collections.emptyMap();
+            }
+            val parsedTokens = new HashMap<String, ParsedTokenInfo>();
+            tokens.forEach(token -> parseToken(serviceId, token).ifPresent(parsed -> parsedTokens.put(token, parsed)));
+            val sessionIds = parsedTokens.values()
+                    .stream()
+                    .collect(Collectors.groupingBy(ParsedTokenInfo::getType,
+                                                   Collectors.mapping(ParsedTokenInfo::getSessionId,
+                                                                      Collectors.toSet())));
+            val sessionUsers = new HashMap<String, IdmanUser>();
+            sessionIds.forEach((type, ids) -> {
+                sessionUsers.putAll(sessionStore.sessionUsers(ids, serviceId, type));
+                val missing = ids.stream()
+                        .filter(id -> !sessionUsers.containsKey(id))
+                        .collect(Collectors.toSet());
+                if (!missing.isEmpty()) {
+                    sessionUsers.putAll(readFromPrimary(() -> sessionStore.sessionUsers(missing, serviceId, type),
+                                                        Collections.emptyMap()));
+                }
+            });
+            val users = new HashMap<String, IdmanUser>();
+            parsedTokens.forEach((token, parsedToken) -> {
+                val user = sessionUsers.get(parsedToken.getSessionId());
+                if (null == user) {
+                    log.warn("authentication_failed::invalid_session userId:{} tokenId:{}",
+                             parsedToken.getUserId(),
+                             parsedToken.getSessionId());
+                    return;
+                }
+                users.put(token, user);
+            });
+            translateTokensMetrics.mark(Outcome.INVALID_TOKEN, tokens.size() - parsedTokens.size());
+            translateTokensMetrics.mark(Outcome.INVALID_SESSION, parsedTokens.size() - users.size());
+            translateTokensMetrics.mark(Outcome.SUCCESS, users.size());
+            return users;
+        }
     }
 
     @UnitOfWork
     public boolean deleteToken(String serviceId, String jwt) {
-        return serviceStore.get(serviceId)
-                .filter(service -> !service.isDeleted())
-                .flatMap(service -> parseToken(serviceId, jwt))
-                .map(parsedToken -> sessionStore.delete(parsedToken.getSessionId(), parsedToken.getType()))
-                .orElse(false);
+        try (final Timer.Context ignored = deleteTokenMetrics.time()) {
+            val service = serviceStore.get(serviceId).filter(s -> !s.isDeleted()).orElse(null);
+            if (null == service) {
+                deleteTokenMetrics.mark(Outcome.INVALID_SERVICE);
+                return false;
+            }
+            val parsedToken = parseToken(serviceId, jwt).orElse(null);
+            if (null == parsedToken) {
+                deleteTokenMetrics.mark(Outcome.INVALID_TOKEN);
+                return false;
+            }
+            val deleted = sessionStore.delete(parsedToken.getSessionId(), parsedToken.getType());
+            deleteTokenMetrics.mark(deleted ? Outcome.SUCCESS : Outcome.INVALID_SESSION);
+            return deleted;
+        }
     }
 
     public Optional<ParsedTokenInfo> parseToken(String serviceId, String token) {
@@ -147,4 +276,51 @@ public class TokenManager {
                     return Optional.empty();
                 });
     }
+
+    /**
+     * Repeats a session lookup that came up empty on the replica, on the primary in a session of its own, when the unit
+     * of work reads from the read replica. Sessions are used as soon as they are created, possibly before they reach the
+     * replica.
+     */
+    private <T> T readFromPrimary(Supplier<T> lookup, T notFound) {
+        if (!ReplicaRouting.isReadOnly()) {
+            return notFound;
+        }
+        val previous = ReplicaRouting.setReadOnly(false);
+        try {
+            return Transactions.inTransaction(sessionFactory, session -> lookup.get());
+        }
+        finally {
+            ReplicaRouting.setReadOnly(previous);
+        }
+    }
+
+    /**
+     * Latency and outcome meters for one method, created upfront to keep registry lookups off the request path
+     */
+    private static final class MethodMetrics {
+        private final Timer timer;
+        private final Map<Outcome, Meter> outcomes = new EnumMap<>(Outcome.class);
+
+        private MethodMetrics(MetricRegistry metrics, String method) {
+            this.timer = metrics.timer(MetricRegistry.name(TokenManager.class, method));
+            for (Outcome outcome : Outcome.values()) {
+                outcomes.put(outcome, metrics.meter(MetricRegistry.name(TokenManager.class, method, outcome.metricName)));
+            }
+        }
+
+        Timer.Context time() {
+            return timer.time();
+        }
+
+        void mark(Outcome outcome) {
+            outcomes.get(outcome).mark();
+        }
+
+        void mark(Outcome outcome, long count) {
+            if (count > 0) {
+                outcomes.get(outcome).mark(count);
+            }
+        }
+    }
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.auth;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.appform.idman.model.CompactIds;
+import io.appform.idman.model.IdmanUser;
+import io.appform.idman.model.TokenClaims;
+import io.appform.idman.server.auth.configs.JwtConfig;
+import io.appform.idman.server.auth.configs.JwtConfig.TokenProfile;
+import io.appform.idman.server.db.model.ClientSession;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mints access tokens for a {@link JwtConfig}. Built once per config, it keeps the encoded JWS header and the HMAC key
+ * ready and writes the fixed claim set directly instead of going through a generic claims map and JSON writer. HMAC
+ * tokens are signed with a {@link Mac} kept per thread. Tokens signed with asymmetric keys only use the specialised
+ * claim writer, signing is left to jose4j.
+ * <p>
+ * With {@link TokenProfile#COMPACT}, HMAC tokens are signed with HS256 and only jti, sub, aud and exp are written,
+ * with UUIDs shortened by {@link CompactIds}.
+ */
+public class TokenMinter {
+    private static final LoadingCache<JwtConfig, TokenMinter> MINTERS = Caffeine.newBuilder()
+            .weakKeys()
+            .build(TokenMinter::new);
+
+    private static final long NOT_BEFORE_LEEWAY_SECONDS = TimeUnit.MINUTES.toSeconds(2);
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final JwtSigningKeys keys;
+    private final boolean compact;
+    private final String issuerJson;
+    private final String hmacHeader;
+    private final ThreadLocal<Mac> mac;
+
+    public static TokenMinter of(final JwtConfig jwtConfig) {
+        return MINTERS.get(jwtConfig);
+    }
+
+    private TokenMinter(JwtConfig jwtConfig) {
+        this.keys = JwtSigningKeys.of(jwtConfig);
+        this.compact = jwtConfig.getTokenProfile() == TokenProfile.COMPACT;
+        this.issuerJson = jsonString(new StringBuilder(), jwtConfig.getIssuerId()).toString();
+        if (keys.isHmacSigned()) {
+            val algorithm = compact
+                            ? AlgorithmIdentifiers.HMAC_SHA256
+                            : AlgorithmIdentifiers.HMAC_SHA512;
+            val macAlgorithm = compact
+                               ? "HmacSHA256"
+                               : "HmacSHA512";
+            val secretKey = new SecretKeySpec(jwtConfig.getPrivateKey().getBytes(StandardCharsets.UTF_8),
+                                              macAlgorithm);
+            this.hmacHeader = ENCODER.encodeToString(("{\"alg\":\"" + algorithm + "\"}")
+                                                             .getBytes(StandardCharsets.UTF_8));
+            this.mac = ThreadLocal.withInitial(() -> newMac(secretKey));
+        }
+        else {
+            this.hmacHeader = null;
+            this.mac = null;
+        }
+    }
+
+    /**
+     * @param user Adds the user claims if present
+     */
+    @SneakyThrows
+    public String mint(final ClientSession session, final IdmanUser user) {
+        val payload = claims(session, user);
+        if (null == mac) {
+            val jws = new JsonWebSignature();
+            jws.setPayload(payload);
+            jws.setKey(keys.getSigningKey());
+            jws.setAlgorithmHeaderValue(keys.getAlgorithm());
+            if (null != keys.getKeyId()) {
+                jws.setKeyIdHeaderValue(keys.getKeyId());
+            }
+            return jws.getCompactSerialization();
+        }
+        val signingInput = hmacHeader + '.' + ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        val signature = mac.get().doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + '.' + ENCODER.encodeToString(signature);
+    }
+
+    private String claims(final ClientSession session, final IdmanUser user) {
+        val json = new StringBuilder(256);
+        if (compact) {
+            json.append("{\"jti\":");
+            jsonString(json, CompactIds.compact(session.getSessionId()))
+                    .append(",\"sub\":");
+            jsonString(json, CompactIds.compact(session.getUserId()));
+        }
+        else {
+            val now = System.currentTimeMillis() / 1000;
+            val issuedAt = null != session.getCreated()
+                           ? session.getCreated().getTime() / 1000
+                           : now;
+            json.append("{\"iss\":").append(issuerJson)
+                    .append(",\"jti\":");
+            jsonString(json, session.getSessionId())
+                    .append(",\"iat\":").append(issuedAt)
+                    .append(",\"nbf\":").append(now - NOT_BEFORE_LEEWAY_SECONDS)
+                    .append(",\"sub\":");
+            jsonString(json, session.getUserId());
+        }
+        json.append(",\"aud\":");
+        jsonString(json, session.getServiceId());
+        if (null != session.getExpiry()) {
+            json.append(",\"exp\":").append(session.getExpiry().getTime() / 1000);
+        }
+        //Compact HMAC tokens are validated on the server, user claims would only add to their size
+        if (null != user && !(compact && null != mac)) {
+            stringClaim(json, TokenClaims.USER_NAME, user.getUser().getName());
+            stringClaim(json, TokenClaims.USER_TYPE, user.getUser().getUserType().name());
+            stringClaim(json, TokenClaims.AUTH_MODE, user.getUser().getAuthMode().name());
+            stringClaim(json, TokenClaims.ROLE, user.getRole());
+        }
+        return json.append('}').toString();
+    }
+
+    private static void stringClaim(StringBuilder json, String name, String value) {
+        if (null == value) {
+            return;
+        }
+        json.append(',');
+        jsonString(json, name).append(':');
+        jsonString(json, value);
+    }
+
+    private static StringBuilder jsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            val c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"');
+    }
+
+    @SneakyThrows
+    private static Mac newMac(SecretKeySpec key) {
+        val mac = Mac.getInstance(key.getAlgorithm());
+        mac.init(key);
+        return mac;
+    }
+}
@@ -19,6 +19,8 @@ import lombok.Data;
 import org.hibernate.validator.constraints.URL;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 
@@ -48,4 +50,39 @@ public class AuthenticationConfig {
 
     @NotNull
     private Duration maxDynamicTokenRefreshInterval = Duration.minutes(15);
+
+    /**
+     * Failed logins are counted in memory and added to the persisted counts this often
+     */
+    @NotNull
+    private Duration failedLoginFlushInterval = Duration.seconds(5);
+
+    @NotNull
+    @Valid
+    private PasswordVerificationConfig passwordVerification = new PasswordVerificationConfig();
+
+    @NotNull
+    @Valid
+    private PasswordHashingConfig passwordHashing = new PasswordHashingConfig();
+
+    @Min(1)
+    @Max(1_000)
+    private int maxTokensPerValidationBatch = 100;
+
+    /**
+     * Longest time a revocation feed long poll is held open
+     */
+    @NotNull
+    private Duration revocationFeedMaxWait = Duration.seconds(30);
+
+    @NotNull
+    private Duration revocationFeedPollInterval = Duration.seconds(1);
+
+    /**
+     * Revocations created within this window are sent again on every feed call, as they may have committed after a
+     * later sequence was handed out. Needs to be longer than the longest transaction that revokes sessions plus the
+     * clock difference between nodes.
+     */
+    @NotNull
+    private Duration revocationFeedLookback = Duration.minutes(2);
 }
@@ -14,10 +14,18 @@
 
 package io.appform.idman.server.auth.configs;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.ValidationMethod;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -25,6 +33,18 @@ import javax.validation.constraints.NotEmpty;
 @Data
 @NoArgsConstructor
 public class JwtConfig {
+    public enum TokenProfile {
+        /**
+         * HS512 or the signing key algorithm, with issuer, issue and not before times and user claims
+         */
+        STANDARD,
+        /**
+         * HS256 or the signing key algorithm, with only jti, sub, aud and exp and short UUID ids. User claims are added
+         * only to asymmetrically signed tokens, which clients can verify locally.
+         */
+        COMPACT
+    }
+
     @NotEmpty
     private String privateKey;
 
@@ -34,4 +54,42 @@ public class JwtConfig {
     @NotEmpty
     private String authCachePolicy = "maximumSize=10000, expireAfterAccess=10m";
 
+    /**
+     * RSA or EC (P-256) private keys in JWK format. When present, tokens are signed with RS256/ES256 and the public
+     * parts are published on /apis/oauth2/jwks. Keep retired keys in the list till tokens signed by them expire.
+     * {@link #privateKey} is still used to verify HMAC signed tokens issued before the switch.
+     */
+    @NotNull
+    private List<Map<String, Object>> signingKeys = Collections.emptyList();
+
+    /**
+     * kid of the key from {@link #signingKeys} to sign new tokens with. Defaults to the first key.
+     */
+    private String activeKeyId;
+
+    @NotNull
+    private Duration jwksCacheDuration = Duration.minutes(15);
+
+    /**
+     * Format of new tokens. Tokens in either format are accepted irrespective of this setting.
+     */
+    @NotNull
+    private TokenProfile tokenProfile = TokenProfile.STANDARD;
+
+    /**
+     * Tokens are signed with {@link #privateKey} when there are no {@link #signingKeys}. HS256 needs 32 bytes of it and
+     * HS512 needs 64.
+     */
+    @JsonIgnore
+    @ValidationMethod(message = "privateKey is too short to sign tokens with HMAC, needs 32 bytes for the COMPACT " +
+            "profile and 64 bytes otherwise")
+    public boolean isHmacKeyLongEnough() {
+        return null == privateKey
+                || null == tokenProfile
+                || (null != signingKeys && !signingKeys.isEmpty())
+                || privateKey.getBytes(StandardCharsets.UTF_8).length >= (tokenProfile == TokenProfile.COMPACT
+                                                                           ? 32
+                                                                           : 64);
+    }
+
 }
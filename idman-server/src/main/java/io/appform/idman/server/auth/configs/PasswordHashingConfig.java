@@ -0,0 +1,53 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.auth.configs;
+
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Policy for hashing stored passwords. Passwords hashed with another algorithm or a lower cost are rehashed on the
+ * next successful login. All nodes should share the same policy. PasswordMatchBenchmark in idman-benchmarks shows how
+ * long verification takes.
+ */
+@Data
+public class PasswordHashingConfig {
+    public enum Algorithm {
+        BCRYPT,
+        ARGON2ID
+    }
+
+    @NotNull
+    private Algorithm algorithm = Algorithm.BCRYPT;
+
+    @Min(4)
+    @Max(31)
+    private int bcryptCost = 12;
+
+    @Min(8_192)
+    @Max(4_194_304)
+    private int argon2MemoryKb = 65_536;
+
+    @Min(1)
+    @Max(100)
+    private int argon2Iterations = 3;
+
+    @Min(1)
+    @Max(64)
+    private int argon2Parallelism = 1;
+}
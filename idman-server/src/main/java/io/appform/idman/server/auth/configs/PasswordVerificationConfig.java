@@ -0,0 +1,40 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.auth.configs;
+
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+/**
+ * Sizing for the pool that verifies passwords during login
+ */
+@Data
+public class PasswordVerificationConfig {
+    /**
+     * Uses one thread per available processor if 0
+     */
+    @Min(0)
+    @Max(64)
+    private int threads = 0;
+
+    /**
+     * Logins waiting beyond this are rejected
+     */
+    @Min(1)
+    @Max(10_000)
+    private int maxQueuedVerifications = 64;
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.auth.hashing;
+
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
+import org.bouncycastle.crypto.params.Argon2Parameters;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Argon2id, stored in the PHC string format: $argon2id$v=19$m=[memory KB],t=[iterations],p=[parallelism]$[salt]$[hash]
+ */
+@Slf4j
+public class Argon2idPasswordHasher implements PasswordHasher {
+    private static final String PREFIX = "$argon2id$";
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+
+    @Getter
+    private final int memoryKb;
+    @Getter
+    private final int iterations;
+    @Getter
+    private final int parallelism;
+    private final String currentPrefix;
+    private final SecureRandom random = new SecureRandom();
+
+    @Value
+    private static class HashParams {
+        int memoryKb;
+        int iterations;
+        int parallelism;
+        String salt;
+        String hash;
+    }
+
+    public Argon2idPasswordHasher(int memoryKb, int iterations, int parallelism) {
+        this.memoryKb = memoryKb;
+        this.iterations = iterations;
+        this.parallelism = parallelism;
+        this.currentPrefix = PREFIX + paramString(memoryKb, iterations, parallelism);
+    }
+
+    @Override
+    public String hash(String password) {
+        val salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        val hash = generate(password, salt, memoryKb, iterations, parallelism, HASH_LENGTH);
+        val encoder = Base64.getEncoder().withoutPadding();
+        return currentPrefix + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    @Override
+    public boolean canVerify(String hashedPassword) {
+        return hashedPassword.startsWith(PREFIX);
+    }
+
+    @Override
+    public boolean verify(String password, String hashedPassword) {
+        val params = parse(hashedPassword).orElse(null);
+        if (null == params) {
+            return false;
+        }
+        try {
+            val decoder = Base64.getDecoder();
+            val expected = decoder.decode(params.getHash());
+            val actual = generate(password,
+                                  decoder.decode(params.getSalt()),
+                                  params.getMemoryKb(),
+                                  params.getIterations(),
+                                  params.getParallelism(),
+                                  expected.length);
+            return MessageDigest.isEqual(expected, actual);
+        }
+        catch (IllegalArgumentException | IllegalStateException e) {
+            log.warn("Malformed argon2id hash: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return true for argon2id hashes with at least the configured memory and iterations. Parallelism does not make
+     * a hash cheaper to attack, so it is not compared.
+     */
+    @Override
+    public boolean isCurrent(String hashedPassword) {
+        return canVerify(hashedPassword)
+                && parse(hashedPassword)
+                .map(params -> params.getMemoryKb() >= memoryKb && params.getIterations() >= iterations)
+                .orElse(false);
+    }
+
+    private static Optional<HashParams> parse(String hashedPassword) {
+        //"", "argon2id", "v=19", "m=..,t=..,p=..", salt, hash
+        val parts = hashedPassword.split("\\$");
+        if (parts.length != 6 || !parts[2].equals("v=" + Argon2Parameters.ARGON2_VERSION_13)) {
+            log.warn("Unsupported argon2id hash format");
+            return Optional.empty();
+        }
+        try {
+            int memory = 0;
+            int time = 0;
+            int lanes = 0;
+            for (String param : parts[3].split(",")) {
+                val value = Integer.parseInt(param.substring(2));
+                switch (param.substring(0, 2)) {
+                    case "m=":
+                        memory = value;
+                        break;
+                    case "t=":
+                        time = value;
+                        break;
+                    case "p=":
+                        lanes = value;
+                        break;
+                    default:
+                        log.warn("Unknown argon2id parameter {}", param);
+                        return Optional.empty();
+                }
+            }
+            return Optional.of(new HashParams(memory, time, lanes, parts[4], parts[5]));
+        }
+        catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            log.warn("Malformed argon2id hash: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static String paramString(int memoryKb, int iterations, int parallelism) {
+        return String.format("v=%d$m=%d,t=%d,p=%d",
+                             Argon2Parameters.ARGON2_VERSION_13, memoryKb, iterations, parallelism);
+    }
+
+    private static byte[] generate(
+            String password,
+            byte[] salt,
+            int memoryKb,
+            int iterations,
+            int parallelism,
+            int length) {
+        val generator = new Argon2BytesGenerator();
+        generator.init(new Argon2Parameters.Builder(Argon2Parameters.ARGON2_id)
+                               .withVersion(Argon2Parameters.ARGON2_VERSION_13)
+                               .withMemoryAsKB(memoryKb)
+                               .withIterations(iterations)
+                               .withParallelism(parallelism)
+                               .withSalt(salt)
+                               .build());
+        val hash = new byte[length];
+        generator.generateBytes(password.getBytes(StandardCharsets.UTF_8), hash);
+        return hash;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.auth.hashing;
+
+import at.favre.lib.crypto.bcrypt.BCrypt;
+import lombok.Getter;
+
+/**
+ * BCrypt with a configurable cost, stored as $2[version]$[cost]$[salt and hash]
+ */
+public class BCryptPasswordHasher implements PasswordHasher {
+    private static final String PREFIX = "$2";
+
+    @Getter
+    private final int cost;
+
+    public BCryptPasswordHasher(int cost) {
+        this.cost = cost;
+    }
+
+    @Override
+    public String hash(String password) {
+        return BCrypt.withDefaults().hashToString(cost, password.toCharArray());
+    }
+
+    @Override
+    public boolean canVerify(String hashedPassword) {
+        return hashedPassword.startsWith(PREFIX);
+    }
+
+    @Override
+    public boolean verify(String password, String hashedPassword) {
+        return BCrypt.verifyer().verify(password.toCharArray(), hashedPassword.toCharArray()).verified;
+    }
+
+    /**
+     * @return true for BCrypt hashes with at least the configured cost
+     */
+    @Override
+    public boolean isCurrent(String hashedPassword) {
+        //"", "2a", cost, salt and hash
+        final String[] parts = hashedPassword.split("\\$", 4);
+        if (!canVerify(hashedPassword) || parts.length != 4) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(parts[2]) >= cost;
+        }
+        catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.auth.hashing;
+
+/**
+ * A password hashing algorithm along with the parameters to use for new hashes
+ */
+public interface PasswordHasher {
+    String hash(String password);
+
+    /**
+     * @return true if the hash was produced by this algorithm, with any parameters
+     */
+    boolean canVerify(String hashedPassword);
+
+    /**
+     * Works for hashes produced by this algorithm with any parameters
+     */
+    boolean verify(String password, String hashedPassword);
+
+    /**
+     * @return true if the hash was produced by this algorithm with a cost at least as high as the current one
+     */
+    boolean isCurrent(String hashedPassword);
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.auth.hashing;
+
+import io.appform.idman.server.auth.configs.PasswordHashingConfig;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Hashes new passwords with the configured algorithm and verifies hashes made by any supported algorithm, so that the
+ * policy can be changed without invalidating stored passwords.
+ */
+@Slf4j
+public class PasswordHashing {
+    private static final int MAX_BCRYPT_COST = 31;
+
+    @Getter
+    private final PasswordHasher current;
+    private final List<PasswordHasher> hashers;
+
+    public PasswordHashing(PasswordHasher current) {
+        this.current = current;
+        //Parameters for the fallbacks do not matter, as they are only used to verify
+        this.hashers = List.of(current,
+                               new BCryptPasswordHasher(MAX_BCRYPT_COST),
+                               new Argon2idPasswordHasher(8_192, 1, 1));
+    }
+
+    /**
+     * Builds the hasher for the configured algorithm. The cost comes from the config as is, so that all nodes hash
+     * with the same cost.
+     */
+    public static PasswordHashing create(PasswordHashingConfig config) {
+        if (config.getAlgorithm() == PasswordHashingConfig.Algorithm.ARGON2ID) {
+            return new PasswordHashing(new Argon2idPasswordHasher(config.getArgon2MemoryKb(),
+                                                                  config.getArgon2Iterations(),
+                                                                  config.getArgon2Parallelism()));
+        }
+        return new PasswordHashing(new BCryptPasswordHasher(config.getBcryptCost()));
+    }
+
+    public String hash(String password) {
+        return current.hash(password);
+    }
+
+    public boolean verify(String password, String hashedPassword) {
+        for (PasswordHasher hasher : hashers) {
+            if (hasher.canVerify(hashedPassword)) {
+                return hasher.verify(password, hashedPassword);
+            }
+        }
+        log.warn("No hasher found for stored password hash");
+        return false;
+    }
+
+    /**
+     * @return true if the hash was made with another algorithm, or with a lower cost than the current one
+     */
+    public boolean needsRehash(String hashedPassword) {
+        return !current.isCurrent(hashedPassword);
+    }
+}
@@ -69,8 +69,9 @@ public class GoogleAuthenticationProvider extends AuthenticationProvider {
             GoogleAuthenticationProviderConfig googleAuthConfig,
             ObjectMapper mapper,
             Provider<UserInfoStore> userInfoStore,
-            Provider<SessionStore> sessionStore) {
-        super(AuthMode.GOOGLE_AUTH, authConfig, userInfoStore, sessionStore);
+            Provider<SessionStore> sessionStore,
+            LoginFailureCounters loginFailures) {
+        super(AuthMode.GOOGLE_AUTH, authConfig, userInfoStore, sessionStore, loginFailures);
         this.authConfig = authConfig;
         this.userInfoStore = userInfoStore;
         val transportBuilder = new NetHttpTransport.Builder();
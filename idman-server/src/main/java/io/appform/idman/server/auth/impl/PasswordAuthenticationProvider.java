@@ -39,16 +39,20 @@ public class PasswordAuthenticationProvider extends AuthenticationProvider {
 
     private final Provider<UserInfoStore> userStore;
     private final Provider<PasswordStore> passwordStore;
+    private final PasswordVerifier passwordVerifier;
 
     @Inject
     public PasswordAuthenticationProvider(
             AuthenticationConfig authConfig,
             Provider<UserInfoStore> userStore,
             Provider<PasswordStore> passwordStore,
-            Provider<SessionStore> sessionStore) {
-        super(AuthMode.PASSWORD, authConfig, userStore, sessionStore);
+            Provider<SessionStore> sessionStore,
+            PasswordVerifier passwordVerifier,
+            LoginFailureCounters loginFailures) {
+        super(AuthMode.PASSWORD, authConfig, userStore, sessionStore, loginFailures);
         this.userStore = userStore;
         this.passwordStore = passwordStore;
+        this.passwordVerifier = passwordVerifier;
     }
 
 
@@ -69,10 +73,29 @@ public class PasswordAuthenticationProvider extends AuthenticationProvider {
     }
 
 
+    /**
+     * Verification runs on the {@link PasswordVerifier} pool, which releases the DB connection while it waits. Hashes
+     * made under an older hashing policy are replaced after a successful login.
+     */
     @Override
     protected final boolean authenticate(AuthenticatorContext context, StoredUser user) {
         val pwdCtx = pwdContext(context);
-        return passwordStore.get().match(user.getUserId(), pwdCtx.getPwdAuthInfo().getPassword());
+        val userId = user.getUserId();
+        val store = passwordStore.get();
+        val hashedPassword = store.getHashed(userId).orElse(null);
+        if (null == hashedPassword) {
+            return false;
+        }
+        val currentHash = passwordVerifier.verify(pwdCtx.getPwdAuthInfo().getPassword(), hashedPassword)
+                .orElse(null);
+        if (null == currentHash) {
+            return false;
+        }
+        if (!currentHash.equals(hashedPassword)) {
+            store.rehash(userId, hashedPassword, currentHash);
+            log.info("Rehashed password for user {} under the current hashing policy", userId);
+        }
+        return true;
     }
 
     private PasswordAuthInfo toPwdAuthInfo(AuthInfo authInfo) {
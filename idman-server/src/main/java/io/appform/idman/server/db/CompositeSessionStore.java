@@ -1,15 +1,19 @@
 package io.appform.idman.server.db;
 
+import io.appform.idman.model.IdmanUser;
 import io.appform.idman.model.TokenType;
 import io.appform.idman.server.db.model.ClientSession;
+import lombok.val;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  *
@@ -17,12 +21,15 @@ import java.util.Optional;
 @Singleton
 public class CompositeSessionStore implements SessionStore {
     private Map<TokenType, SessionStoreForType> stores;
+    private final SessionRevocationStore revocationStore;
 
     @Inject
     public CompositeSessionStore(
             @Named("dynamic") final SessionStoreForType dynamicStore,
-            @Named("static")  final SessionStoreForType staticStore) {
+            @Named("static")  final SessionStoreForType staticStore,
+            final SessionRevocationStore revocationStore) {
         stores = Map.of(TokenType.DYNAMIC, dynamicStore, TokenType.STATIC, staticStore);
+        this.revocationStore = revocationStore;
     }
     @Override
     public Optional<ClientSession> create(
@@ -35,6 +42,16 @@ public class CompositeSessionStore implements SessionStore {
         return stores.get(type).get(sessionId);
     }
 
+    @Override
+    public Optional<IdmanUser> sessionUser(String sessionId, String serviceId, TokenType type) {
+        return stores.get(type).sessionUser(sessionId, serviceId);
+    }
+
+    @Override
+    public Map<String, IdmanUser> sessionUsers(Collection<String> sessionIds, String serviceId, TokenType type) {
+        return stores.get(type).sessionUsers(sessionIds, serviceId);
+    }
+
     @Override
     public List<ClientSession> sessionsForUser(String userId, TokenType type) {
         return stores.get(type).sessionsForUser(userId);
@@ -42,6 +59,57 @@ public class CompositeSessionStore implements SessionStore {
 
     @Override
     public boolean delete(String sessionId, TokenType type) {
-        return stores.get(type).delete(sessionId);
+        val store = stores.get(type);
+        val session = store.get(sessionId).orElse(null);
+        val status = store.delete(sessionId);
+        if (status && null != session) {
+            revocationStore.add(sessionId, session.getServiceId(), RevocationKind.REVOKED);
+        }
+        return status;
+    }
+
+    @Override
+    public void invalidateStaticSessions(String userId, String serviceId) {
+        forService(stores.get(TokenType.STATIC).sessionsForUser(userId), serviceId)
+                .forEach(session -> revocationStore.add(session.getSessionId(),
+                                                        session.getServiceId(),
+                                                        RevocationKind.CHANGED));
+    }
+
+    @Override
+    public void invalidateStaticSessions(Collection<String> userIds, String serviceId) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        forService(stores.get(TokenType.STATIC).sessionsForUsers(userIds), serviceId)
+                .forEach(session -> revocationStore.add(session.getSessionId(),
+                                                        session.getServiceId(),
+                                                        RevocationKind.CHANGED));
+    }
+
+    @Override
+    public void revokeDynamicSessions(String userId, String serviceId) {
+        revoke(stores.get(TokenType.DYNAMIC), stores.get(TokenType.DYNAMIC).sessionsForUser(userId), serviceId);
+    }
+
+    @Override
+    public void revokeDynamicSessions(Collection<String> userIds, String serviceId) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        revoke(stores.get(TokenType.DYNAMIC), stores.get(TokenType.DYNAMIC).sessionsForUsers(userIds), serviceId);
+    }
+
+    private void revoke(SessionStoreForType store, List<ClientSession> sessions, String serviceId) {
+        forService(sessions, serviceId)
+                .filter(session -> store.delete(session.getSessionId()))
+                .forEach(session -> revocationStore.add(session.getSessionId(),
+                                                        session.getServiceId(),
+                                                        RevocationKind.REVOKED));
+    }
+
+    private static Stream<ClientSession> forService(List<ClientSession> sessions, String serviceId) {
+        return sessions.stream()
+                .filter(session -> null == serviceId || session.getServiceId().equals(serviceId));
     }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db;
+
+import io.dropwizard.util.Duration;
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Selects where dynamic sessions are looked up. IN_MEMORY serves sessions from a local index and writes them to the
+ * database in the background. Sessions deleted on other nodes are dropped from the index once they are seen in the
+ * revocation log, so for up to {@code revocationPollInterval} they are still accepted on this node.
+ */
+@Data
+public class DynamicSessionStoreConfig {
+    public enum StoreType {
+        DB,
+        IN_MEMORY
+    }
+
+    @NotNull
+    private StoreType type = StoreType.DB;
+
+    @NotNull
+    private Duration flushInterval = Duration.seconds(1);
+
+    @Min(1)
+    @Max(10_000)
+    private int flushBatchSize = 500;
+
+    /**
+     * Delay before the first retry of a change that could not be written. The delay doubles on every failure, up to
+     * {@code maxRetryDelay}.
+     */
+    @NotNull
+    private Duration retryDelay = Duration.seconds(1);
+
+    @NotNull
+    private Duration maxRetryDelay = Duration.minutes(1);
+
+    /**
+     * How often IN_MEMORY reads the revocation log for sessions deleted on other nodes
+     */
+    @NotNull
+    private Duration revocationPollInterval = Duration.seconds(1);
+
+    /**
+     * Revocations created within this window are read again on every poll, to pick up those that were committed
+     * after revocations with a higher sequence
+     */
+    @NotNull
+    private Duration revocationLookback = Duration.minutes(2);
+}
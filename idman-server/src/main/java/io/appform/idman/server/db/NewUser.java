@@ -0,0 +1,32 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db;
+
+import io.appform.idman.model.AuthMode;
+import io.appform.idman.model.UserType;
+import lombok.Value;
+
+/**
+ * Details for a user created as part of a batch
+ */
+@Value
+public class NewUser {
+    String userId;
+    String email;
+    String name;
+    UserType userType;
+    AuthMode authMode;
+    boolean expire;
+}
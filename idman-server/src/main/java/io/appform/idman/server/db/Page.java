@@ -0,0 +1,32 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * A page of results from a keyset paginated listing
+ */
+@Value
+public class Page<T> {
+    List<T> items;
+
+    /**
+     * Pass this to the listing to fetch the next page. Null on the last page.
+     */
+    String nextPageToken;
+}
@@ -14,12 +14,50 @@
 
 package io.appform.idman.server.db;
 
+import java.util.Map;
+import java.util.Optional;
+
 /**
  *
  */
 public interface PasswordStore {
     void set(String userId, String password);
+
+    /**
+     * Hashes a password for {@link #setHashed(Map)}. Does not need a unit of work, so that batches can be hashed
+     * in parallel before they are written.
+     */
+    String hash(String password);
+
+    /**
+     * Stores already hashed passwords, keyed by user id, looking existing passwords up with a single query
+     */
+    void setHashed(Map<String, String> hashedPasswords);
+
     boolean update(String userId, String oldPassword, String newPassword);
     boolean delete(String userId);
     boolean match(String userId, String password);
+
+    /**
+     * Hash stored for a user, for callers that verify it away from the unit of work with {@link #verify(String,
+     * String)}
+     */
+    Optional<String> getHashed(String userId);
+
+    /**
+     * Checks a password against a hash. Does not need a unit of work.
+     */
+    boolean verify(String password, String hashedPassword);
+
+    /**
+     * @return true if the hash was made under an older hashing policy and should be replaced on the next successful
+     * verification
+     */
+    boolean needsRehash(String hashedPassword);
+
+    /**
+     * Replaces a hash with one made under the current policy, unless the password changed after the current hash was
+     * read
+     */
+    boolean rehash(String userId, String currentHashedPassword, String newHashedPassword);
 }
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db;
+
+/**
+ * Reason for an entry in the revocation log
+ */
+public enum RevocationKind {
+    /**
+     * The session was deleted. Its tokens are no longer valid anywhere.
+     */
+    REVOKED,
+    /**
+     * The session is still valid, but its user or role changed. Only cached copies of it have to be dropped.
+     */
+    CHANGED
+}
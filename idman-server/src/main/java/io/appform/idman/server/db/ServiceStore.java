@@ -34,4 +34,11 @@ public interface ServiceStore {
     List<StoredService> get(Collection<String> serviceIds);
 
     List<StoredService> list(boolean includeDeleted);
+
+    /**
+     * Lists services ordered by name, a page at a time
+     *
+     * @param pageToken Token from the previous page, null for the first page
+     */
+    Page<StoredService> list(boolean includeDeleted, String pageToken, int pageSize);
 }
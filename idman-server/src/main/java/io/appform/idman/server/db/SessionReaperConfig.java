@@ -0,0 +1,44 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db;
+
+import io.dropwizard.util.Duration;
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Controls the periodic purge of expired and deleted dynamic sessions
+ */
+@Data
+public class SessionReaperConfig {
+    private boolean enabled = true;
+
+    @NotNull
+    private Duration interval = Duration.hours(1);
+
+    /**
+     * Rows removed per delete statement in partitions that are still in use
+     */
+    @Min(1)
+    @Max(100_000)
+    private int batchSize = 1_000;
+
+    @Min(1)
+    @Max(100_000)
+    private int maxBatchesPerRun = 100;
+}
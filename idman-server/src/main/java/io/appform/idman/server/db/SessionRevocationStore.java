@@ -0,0 +1,55 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db;
+
+import io.appform.idman.server.db.model.StoredSessionRevocation;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Append only log of revoked and changed sessions. Clients read the revoked ones to evict cached validations, server
+ * side caches evict on both kinds.
+ */
+public interface SessionRevocationStore {
+    void add(String sessionId, String serviceId, RevocationKind kind);
+
+    /**
+     * @return {@link RevocationKind#REVOKED} entries for the service with sequence greater than the one provided, in
+     * sequence order
+     */
+    List<StoredSessionRevocation> since(String serviceId, long sequence, int maxResults);
+
+    /**
+     * @return Entries of either kind across all services with sequence greater than the one provided, in sequence
+     * order
+     */
+    List<StoredSessionRevocation> since(long sequence, int maxResults);
+
+    /**
+     * @return {@link RevocationKind#REVOKED} entries for the service with sequence up to the one provided that were
+     * created at or after the given time, in sequence order. Used to pick up entries that committed after a later
+     * sequence was read.
+     */
+    List<StoredSessionRevocation> recent(String serviceId, long sequence, Date createdAfter, int maxResults);
+
+    /**
+     * @return Entries of either kind across all services with sequence up to the one provided that were created at or
+     * after the given time, in sequence order
+     */
+    List<StoredSessionRevocation> recent(long sequence, Date createdAfter, int maxResults);
+
+    long latestSequence();
+}
@@ -14,11 +14,14 @@
 
 package io.appform.idman.server.db;
 
+import io.appform.idman.model.IdmanUser;
 import io.appform.idman.server.db.model.ClientSession;
 import io.appform.idman.model.TokenType;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -32,6 +35,35 @@ public interface SessionStore {
             String clientSessionId, TokenType type,
             Date expiry);
     Optional<ClientSession> get(String sessionId, TokenType type);
+    Optional<IdmanUser> sessionUser(String sessionId, String serviceId, TokenType type);
+    Map<String, IdmanUser> sessionUsers(Collection<String> sessionIds, String serviceId, TokenType type);
     List<ClientSession> sessionsForUser(String userId, TokenType type);
     boolean delete(String sessionId, TokenType type);
+
+    /**
+     * Logs the user's static sessions as {@link RevocationKind#CHANGED} after a change to the user or the user's roles,
+     * so that copies cached on other nodes are dropped. The sessions stay valid and are not put on the client feed.
+     *
+     * @param serviceId Limits this to sessions for one service. All of the user's static sessions if null.
+     */
+    void invalidateStaticSessions(String userId, String serviceId);
+
+    /**
+     * Same as {@link #invalidateStaticSessions(String, String)} for a set of users
+     */
+    void invalidateStaticSessions(Collection<String> userIds, String serviceId);
+
+    /**
+     * Deletes the user's dynamic sessions after the user is deleted or the user's role changes. Their tokens carry the
+     * role and are verified locally by clients, so they are logged as {@link RevocationKind#REVOKED} for clients to
+     * reject them. The user logs in again to get a token with the new role.
+     *
+     * @param serviceId Limits this to sessions for one service. All of the user's dynamic sessions if null.
+     */
+    void revokeDynamicSessions(String userId, String serviceId);
+
+    /**
+     * Same as {@link #revokeDynamicSessions(String, String)} for a set of users
+     */
+    void revokeDynamicSessions(Collection<String> userIds, String serviceId);
 }
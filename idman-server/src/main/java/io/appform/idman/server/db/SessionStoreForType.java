@@ -14,11 +14,15 @@
 
 package io.appform.idman.server.db;
 
+import io.appform.idman.model.IdmanUser;
 import io.appform.idman.server.db.model.ClientSession;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * For session management
@@ -31,6 +35,25 @@ public interface SessionStoreForType {
             String clientSessionId,
             Date expiry);
     Optional<ClientSession> get(String sessionId);
+
+    /**
+     * Resolves the user and the user's role in the service for an active session
+     */
+    Optional<IdmanUser> sessionUser(String sessionId, String serviceId);
+
+    /**
+     * Resolves users for a batch of sessions. Inactive sessions are absent from the returned map.
+     */
+    Map<String, IdmanUser> sessionUsers(Collection<String> sessionIds, String serviceId);
     List<ClientSession> sessionsForUser(String userId);
+
+    /**
+     * Active sessions for a set of users. Stores that can do better than a lookup per user should override this.
+     */
+    default List<ClientSession> sessionsForUsers(Collection<String> userIds) {
+        return userIds.stream()
+                .flatMap(userId -> sessionsForUser(userId).stream())
+                .collect(Collectors.toList());
+    }
     boolean delete(String sessionId);
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.inject.matcher.AbstractMatcher;
+import com.google.inject.matcher.Matcher;
+import io.dropwizard.hibernate.AbstractDAO;
+import lombok.Value;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import javax.inject.Provider;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times store methods and counts failures. Metrics are named [store class].[method] and
+ * [store class].[method].failures, overloads share the same metrics.
+ */
+public class StoreMetricsInterceptor implements MethodInterceptor {
+
+    /**
+     * Public methods declared by DAO implementations, skipping the ones inherited from {@link AbstractDAO}
+     */
+    public static final Matcher<Method> STORE_METHODS = new AbstractMatcher<>() {
+        @Override
+        public boolean matches(Method method) {
+            return Modifier.isPublic(method.getModifiers())
+                    && !method.isSynthetic()
+                    && !method.getDeclaringClass().equals(AbstractDAO.class)
+                    && !method.getDeclaringClass().equals(Object.class);
+        }
+    };
+
+    @Value
+    private static class MethodMetrics {
+        Timer timer;
+        Meter failures;
+    }
+
+    private final Provider<MetricRegistry> metrics;
+    private final Map<Method, MethodMetrics> methodMetrics = new ConcurrentHashMap<>();
+
+    public StoreMetricsInterceptor(Provider<MetricRegistry> metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        final MethodMetrics current = methodMetrics.computeIfAbsent(invocation.getMethod(), this::create);
+        try (final Timer.Context ignored = current.getTimer().time()) {
+            return invocation.proceed();
+        }
+        catch (Throwable t) {
+            current.getFailures().mark();
+            throw t;
+        }
+    }
+
+    private MethodMetrics create(Method method) {
+        final MetricRegistry registry = metrics.get();
+        final String name = MetricRegistry.name(method.getDeclaringClass(), method.getName());
+        return new MethodMetrics(registry.timer(name), registry.meter(MetricRegistry.name(name, "failures")));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db;
+
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.hibernate.resource.transaction.spi.TransactionStatus;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs work outside of a request scoped unit of work, for background jobs and commands, or while the unit of work
+ * waits on something slow
+ */
+@UtilityClass
+public class Transactions {
+
+    /**
+     * Runs the handler in a transaction on a new session. The session is bound to the calling thread for the
+     * duration of the call, so that DAOs can be used, and a session bound before is bound again afterwards.
+     */
+    public static <T> T inTransaction(SessionFactory sessionFactory, Function<Session, T> handler) {
+        try (final Session session = sessionFactory.openSession()) {
+            final Session previous = ManagedSessionContext.bind(session);
+            val transaction = session.beginTransaction();
+            try {
+                final T result = handler.apply(session);
+                transaction.commit();
+                return result;
+            }
+            catch (RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            }
+            finally {
+                ManagedSessionContext.unbind(sessionFactory);
+                if (null != previous) {
+                    ManagedSessionContext.bind(previous);
+                }
+            }
+        }
+    }
+
+    /**
+     * Commits the transaction open on the calling thread, if any, so that its connection goes back to the pool while
+     * the handler runs. A new transaction is begun on the same session afterwards.
+     */
+    public static <T> T outsideTransaction(SessionFactory sessionFactory, Supplier<T> handler) {
+        val transaction = activeTransaction(sessionFactory);
+        if (null != transaction) {
+            transaction.commit();
+        }
+        try {
+            return handler.get();
+        }
+        finally {
+            if (null != transaction) {
+                transaction.begin();
+            }
+        }
+    }
+
+    private static Transaction activeTransaction(SessionFactory sessionFactory) {
+        if (!ManagedSessionContext.hasBind(sessionFactory)) {
+            return null;
+        }
+        val transaction = sessionFactory.getCurrentSession().getTransaction();
+        return transaction.getStatus() == TransactionStatus.ACTIVE ? transaction : null;
+    }
+}
@@ -22,6 +22,7 @@ import io.appform.idman.server.db.model.StoredUserAuthState;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 
 /**
@@ -34,11 +35,26 @@ public interface UserInfoStore {
     }
 
     Optional<StoredUser> create(String userId, String email, String name, UserType userType, AuthMode authMode, boolean expire);
+
+    /**
+     * Creates or updates a batch of users the same way {@link #create(String, String, String, UserType, AuthMode,
+     * boolean)} does for one, looking existing users up with a single query
+     *
+     * @return Ids of the users that did not exist before
+     */
+    Set<String> create(Collection<NewUser> users);
     Optional<StoredUser> get(String userId);
     Optional<StoredUser> getByEmail(String email);
     Optional<StoredUser> updateName(String userId, String name);
     Optional<StoredUser> updateAuthState(String userId, Consumer<StoredUserAuthState> handler);
     boolean deleteUser(String userId);
     List<StoredUser> list(boolean includeDeleted);
+
+    /**
+     * Lists users ordered by user id, a page at a time
+     *
+     * @param pageToken Token from the previous page, null for the first page
+     */
+    Page<StoredUser> list(boolean includeDeleted, String pageToken, int pageSize);
     List<StoredUser> get(Collection<String> userIds);
 }
@@ -16,6 +16,7 @@ package io.appform.idman.server.db;
 
 import io.appform.idman.server.db.model.StoredUserRole;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,8 +25,22 @@ import java.util.Optional;
  */
 public interface UserRoleStore {
     void mapUserToRole(String userId, String serviceId, String roleId, String assignedBy);
+
+    /**
+     * Maps all given users to the role, replacing any role they have in the service. Users are not validated.
+     *
+     * @return Number of users mapped
+     */
+    int mapUsersToRole(Collection<String> userIds, String serviceId, String roleId, String assignedBy);
     boolean unmapUserFromRole(String userId, String serviceId);
     List<StoredUserRole> getUserRoles(String userId);
     List<StoredUserRole> getServiceRoleMappings(String serviceId);
+
+    /**
+     * Lists active mappings of the service ordered by user id, a page at a time
+     *
+     * @param pageToken Token from the previous page, null for the first page
+     */
+    Page<StoredUserRole> getServiceRoleMappings(String serviceId, String pageToken, int pageSize);
     Optional<StoredUserRole> getUserServiceRole(String userId, String serviceId);
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.cache;
+
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.hibernate.context.internal.ManagedSessionContext;
+
+import javax.transaction.Synchronization;
+
+/**
+ * Runs cache invalidations for changes made in a unit of work. The invalidation runs right away, so that the unit of
+ * work does not see its own stale entries, and again once the transaction completes, to drop entries that other
+ * threads loaded before the change was committed.
+ */
+@UtilityClass
+public class AfterCommit {
+
+    public static void invalidate(SessionFactory sessionFactory, Runnable invalidation) {
+        invalidation.run();
+        if (!ManagedSessionContext.hasBind(sessionFactory)) {
+            return;
+        }
+        val transaction = sessionFactory.getCurrentSession().getTransaction();
+        if (!transaction.isActive()) {
+            return;
+        }
+        transaction.registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+                //Nothing to do before commit
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                invalidation.run();
+            }
+        });
+    }
+}
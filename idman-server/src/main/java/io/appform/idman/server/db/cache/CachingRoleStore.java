@@ -0,0 +1,94 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.appform.idman.server.db.RoleStore;
+import io.appform.idman.server.db.model.StoredRole;
+import lombok.Value;
+import lombok.val;
+import org.hibernate.SessionFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-through cache for single role lookups. Mutations drop the affected role right away and again after commit.
+ * Changes made on other nodes are picked up once the entry expires.
+ */
+public class CachingRoleStore implements RoleStore {
+    @Value
+    private static class RoleKey {
+        String serviceId;
+        String roleId;
+    }
+
+    private final RoleStore root;
+    private final SessionFactory sessionFactory;
+    private final Cache<RoleKey, StoredRole> roles;
+
+    public CachingRoleStore(
+            RoleStore root,
+            SessionFactory sessionFactory,
+            StoreCacheConfig cacheConfig,
+            MetricRegistry metrics) {
+        this.root = root;
+        this.sessionFactory = sessionFactory;
+        this.roles = StoreCaches.create(cacheConfig, metrics, RoleStore.class);
+    }
+
+    @Override
+    public Optional<StoredRole> create(String serviceId, String displayName, String description) {
+        val role = root.create(serviceId, displayName, description);
+        role.ifPresent(r -> invalidate(new RoleKey(r.getServiceId(), r.getRoleId())));
+        return role;
+    }
+
+    @Override
+    public Optional<StoredRole> get(String serviceId, String roleId) {
+        return Optional.ofNullable(roles.get(new RoleKey(serviceId, roleId),
+                                             key -> root.get(key.getServiceId(), key.getRoleId()).orElse(null)));
+    }
+
+    @Override
+    public Optional<StoredRole> update(String serviceId, String roleId, String description) {
+        val role = root.update(serviceId, roleId, description);
+        invalidate(new RoleKey(serviceId, roleId));
+        return role;
+    }
+
+    @Override
+    public boolean delete(String serviceId, String roleId) {
+        val status = root.delete(serviceId, roleId);
+        invalidate(new RoleKey(serviceId, roleId));
+        return status;
+    }
+
+    @Override
+    public List<StoredRole> list(String serviceId, boolean includeDeleted) {
+        return root.list(serviceId, includeDeleted);
+    }
+
+    @Override
+    public List<StoredRole> get(Collection<String> roleIds) {
+        return root.get(roleIds);
+    }
+
+    private void invalidate(RoleKey key) {
+        AfterCommit.invalidate(sessionFactory, () -> roles.invalidate(key));
+    }
+}
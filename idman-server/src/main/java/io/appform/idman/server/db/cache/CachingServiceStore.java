@@ -0,0 +1,109 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.appform.idman.server.db.Page;
+import io.appform.idman.server.db.ServiceStore;
+import io.appform.idman.server.db.model.StoredService;
+import lombok.val;
+import org.hibernate.SessionFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-through cache for single service lookups. Lookups that miss are not cached. Every mutation drops the
+ * affected service right away and again after commit, so changes made through this node are visible immediately;
+ * changes made on other nodes are picked up once the entry expires.
+ */
+public class CachingServiceStore implements ServiceStore {
+    private final ServiceStore root;
+    private final SessionFactory sessionFactory;
+    private final Cache<String, StoredService> services;
+
+    public CachingServiceStore(
+            ServiceStore root,
+            SessionFactory sessionFactory,
+            StoreCacheConfig cacheConfig,
+            MetricRegistry metrics) {
+        this.root = root;
+        this.sessionFactory = sessionFactory;
+        this.services = StoreCaches.create(cacheConfig, metrics, ServiceStore.class);
+    }
+
+    @Override
+    public Optional<StoredService> create(String name, String description, String callbackUrl) {
+        val service = root.create(name, description, callbackUrl);
+        service.ifPresent(s -> invalidate(s.getServiceId()));
+        return service;
+    }
+
+    @Override
+    public Optional<StoredService> get(String serviceId) {
+        if (null == serviceId) {
+            return root.get(serviceId);
+        }
+        return Optional.ofNullable(services.get(serviceId, id -> root.get(id).orElse(null)));
+    }
+
+    @Override
+    public Optional<StoredService> updateDescription(String serviceId, String description) {
+        return invalidateAfter(serviceId, root.updateDescription(serviceId, description));
+    }
+
+    @Override
+    public Optional<StoredService> updateCallbackUrl(String serviceId, String callbackUrl) {
+        return invalidateAfter(serviceId, root.updateCallbackUrl(serviceId, callbackUrl));
+    }
+
+    @Override
+    public Optional<StoredService> updateSecret(String serviceId) {
+        return invalidateAfter(serviceId, root.updateSecret(serviceId));
+    }
+
+    @Override
+    public boolean delete(String serviceId) {
+        val status = root.delete(serviceId);
+        invalidate(serviceId);
+        return status;
+    }
+
+    @Override
+    public List<StoredService> get(Collection<String> serviceIds) {
+        return root.get(serviceIds);
+    }
+
+    @Override
+    public List<StoredService> list(boolean includeDeleted) {
+        return root.list(includeDeleted);
+    }
+
+    @Override
+    public Page<StoredService> list(boolean includeDeleted, String pageToken, int pageSize) {
+        return root.list(includeDeleted, pageToken, pageSize);
+    }
+
+    private Optional<StoredService> invalidateAfter(String serviceId, Optional<StoredService> result) {
+        invalidate(serviceId);
+        return result;
+    }
+
+    private void invalidate(String serviceId) {
+        AfterCommit.invalidate(sessionFactory, () -> services.invalidate(serviceId));
+    }
+}
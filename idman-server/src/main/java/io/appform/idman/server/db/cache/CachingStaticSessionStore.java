@@ -0,0 +1,182 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.appform.idman.model.IdmanUser;
+import io.appform.idman.server.db.SessionRevocationStore;
+import io.appform.idman.server.db.SessionStoreForType;
+import io.appform.idman.server.db.model.ClientSession;
+import io.appform.idman.server.db.model.StoredSessionRevocation;
+import lombok.val;
+import org.hibernate.SessionFactory;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caches the resolved user for static sessions. Entries are dropped when the session is deleted through this node,
+ * or when the session shows up in the revocation log, which also carries changes made on other nodes to the user or
+ * the user's roles. The log is checked at most once per {@code invalidationPollInterval}, on the calling thread.
+ * Revocations created within {@code invalidationLookback} are read again on every check, as they can be committed
+ * out of sequence order. Entries expire after {@code staticSessionExpiry} in case a change is missed anyway.
+ */
+public class CachingStaticSessionStore implements SessionStoreForType {
+    private static final int MAX_REVOCATIONS_PER_POLL = 1_000;
+
+    private final SessionStoreForType root;
+    private final SessionRevocationStore revocationStore;
+    private final SessionFactory sessionFactory;
+    private final long pollIntervalMs;
+    private final long lookbackMs;
+    private final Cache<String, IdmanUser> users;
+    private final ReentrantLock pollLock = new ReentrantLock();
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile long nextPollTime = 0;
+    private long sequence = -1;
+    private final Map<Long, Date> appliedRevocations = new HashMap<>();
+
+    public CachingStaticSessionStore(
+            SessionStoreForType root,
+            SessionRevocationStore revocationStore,
+            SessionFactory sessionFactory,
+            StoreCacheConfig cacheConfig,
+            MetricRegistry metrics) {
+        this.root = root;
+        this.revocationStore = revocationStore;
+        this.sessionFactory = sessionFactory;
+        this.pollIntervalMs = cacheConfig.getInvalidationPollInterval().toMilliseconds();
+        this.lookbackMs = cacheConfig.getInvalidationLookback().toMilliseconds();
+        this.users = Caffeine.newBuilder()
+                .maximumSize(cacheConfig.getMaxStaticSessions())
+                .expireAfterWrite(cacheConfig.getStaticSessionExpiry().toMilliseconds(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        StoreCaches.register(metrics, CachingStaticSessionStore.class, users);
+    }
+
+    @Override
+    public Optional<ClientSession> create(
+            String sessionId,
+            String userId,
+            String serviceId,
+            String clientSessionId,
+            Date expiry) {
+        return root.create(sessionId, userId, serviceId, clientSessionId, expiry);
+    }
+
+    @Override
+    public Optional<ClientSession> get(String sessionId) {
+        return root.get(sessionId);
+    }
+
+    @Override
+    public Optional<IdmanUser> sessionUser(String sessionId, String serviceId) {
+        return Optional.ofNullable(sessionUsers(List.of(sessionId), serviceId).get(sessionId));
+    }
+
+    @Override
+    public Map<String, IdmanUser> sessionUsers(Collection<String> sessionIds, String serviceId) {
+        pollInvalidations();
+        val result = new HashMap<String, IdmanUser>();
+        val misses = new ArrayList<String>();
+        for (String sessionId : sessionIds) {
+            val user = users.getIfPresent(sessionId);
+            if (null == user) {
+                misses.add(sessionId);
+            }
+            else if (user.getServiceId().equals(serviceId)) {
+                result.put(sessionId, user);
+            }
+        }
+        if (misses.isEmpty()) {
+            return result;
+        }
+        val invalidationsBeforeLoad = invalidations.get();
+        val loaded = root.sessionUsers(misses, serviceId);
+        //Skip caching if anything was invalidated while loading, the loaded values might predate the invalidation
+        if (invalidations.get() == invalidationsBeforeLoad) {
+            users.putAll(loaded);
+        }
+        result.putAll(loaded);
+        return result;
+    }
+
+    @Override
+    public List<ClientSession> sessionsForUser(String userId) {
+        return root.sessionsForUser(userId);
+    }
+
+    @Override
+    public List<ClientSession> sessionsForUsers(Collection<String> userIds) {
+        return root.sessionsForUsers(userIds);
+    }
+
+    @Override
+    public boolean delete(String sessionId) {
+        val status = root.delete(sessionId);
+        AfterCommit.invalidate(sessionFactory, () -> invalidate(sessionId));
+        return status;
+    }
+
+    private void pollInvalidations() {
+        if (System.currentTimeMillis() < nextPollTime || !pollLock.tryLock()) {
+            return;
+        }
+        try {
+            val now = System.currentTimeMillis();
+            if (now < nextPollTime) {
+                return;
+            }
+            nextPollTime = now + pollIntervalMs;
+            if (sequence < 0) {
+                sequence = revocationStore.latestSequence();
+                invalidations.incrementAndGet();
+                users.invalidateAll();
+                return;
+            }
+            val cutoff = new Date(now - lookbackMs);
+            appliedRevocations.values().removeIf(created -> created.before(cutoff));
+            revocationStore.recent(sequence, cutoff, MAX_REVOCATIONS_PER_POLL)
+                    .forEach(this::apply);
+            List<StoredSessionRevocation> revocations;
+            do {
+                revocations = revocationStore.since(sequence, MAX_REVOCATIONS_PER_POLL);
+                for (StoredSessionRevocation revocation : revocations) {
+                    apply(revocation);
+                    sequence = revocation.getId();
+                }
+            } while (revocations.size() == MAX_REVOCATIONS_PER_POLL);
+        }
+        finally {
+            pollLock.unlock();
+        }
+    }
+
+    private void apply(StoredSessionRevocation revocation) {
+        if (null == appliedRevocations.putIfAbsent(revocation.getId(), revocation.getCreated())) {
+            invalidate(revocation.getSessionId());
+        }
+    }
+
+    private void invalidate(String sessionId) {
+        invalidations.incrementAndGet();
+        users.invalidate(sessionId);
+    }
+}
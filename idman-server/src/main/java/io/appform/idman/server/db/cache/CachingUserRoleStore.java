@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.appform.idman.server.db.Page;
+import io.appform.idman.server.db.UserRoleStore;
+import io.appform.idman.server.db.model.StoredUserRole;
+import lombok.Value;
+import lombok.val;
+import org.hibernate.SessionFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache for the role a user has on a service. Mapping and unmapping drop the affected user/service
+ * pair right away and again after commit. Changes made on other nodes are picked up once the entry expires. Listings
+ * are not cached.
+ */
+public class CachingUserRoleStore implements UserRoleStore {
+    @Value
+    private static class MappingKey {
+        String userId;
+        String serviceId;
+    }
+
+    private final UserRoleStore root;
+    private final SessionFactory sessionFactory;
+    private final Cache<MappingKey, StoredUserRole> mappings;
+
+    public CachingUserRoleStore(
+            UserRoleStore root,
+            SessionFactory sessionFactory,
+            StoreCacheConfig cacheConfig,
+            MetricRegistry metrics) {
+        this.root = root;
+        this.sessionFactory = sessionFactory;
+        this.mappings = StoreCaches.create(cacheConfig, metrics, UserRoleStore.class);
+    }
+
+    @Override
+    public void mapUserToRole(String userId, String serviceId, String roleId, String assignedBy) {
+        root.mapUserToRole(userId, serviceId, roleId, assignedBy);
+        invalidate(List.of(new MappingKey(userId, serviceId)));
+    }
+
+    @Override
+    public int mapUsersToRole(Collection<String> userIds, String serviceId, String roleId, String assignedBy) {
+        val mapped = root.mapUsersToRole(userIds, serviceId, roleId, assignedBy);
+        invalidate(userIds.stream()
+                           .map(userId -> new MappingKey(userId, serviceId))
+                           .collect(Collectors.toList()));
+        return mapped;
+    }
+
+    @Override
+    public boolean unmapUserFromRole(String userId, String serviceId) {
+        val status = root.unmapUserFromRole(userId, serviceId);
+        invalidate(List.of(new MappingKey(userId, serviceId)));
+        return status;
+    }
+
+    @Override
+    public List<StoredUserRole> getUserRoles(String userId) {
+        return root.getUserRoles(userId);
+    }
+
+    @Override
+    public List<StoredUserRole> getServiceRoleMappings(String serviceId) {
+        return root.getServiceRoleMappings(serviceId);
+    }
+
+    @Override
+    public Page<StoredUserRole> getServiceRoleMappings(String serviceId, String pageToken, int pageSize) {
+        return root.getServiceRoleMappings(serviceId, pageToken, pageSize);
+    }
+
+    @Override
+    public Optional<StoredUserRole> getUserServiceRole(String userId, String serviceId) {
+        return Optional.ofNullable(
+                mappings.get(new MappingKey(userId, serviceId),
+                             key -> root.getUserServiceRole(key.getUserId(), key.getServiceId()).orElse(null)));
+    }
+
+    private void invalidate(List<MappingKey> keys) {
+        AfterCommit.invalidate(sessionFactory, () -> mappings.invalidateAll(keys));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import lombok.val;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+
+import javax.cache.Cache;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JCache region factory that creates bounded, expiring Caffeine caches for entity and query regions.
+ * The update timestamps region is never evicted, as losing entries there would let stale query results through.
+ */
+public class CaffeineRegionFactory extends JCacheRegionFactory {
+    public static final String MAX_ENTRIES = "idman.cache.max_entries";
+    public static final String EXPIRY_MS = "idman.cache.expiry_ms";
+
+    private long maxEntries;
+    private long expiryMs;
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    protected void prepareForUse(SessionFactoryOptions settings, Map configValues) {
+        this.maxEntries = ConfigurationHelper.getLong(MAX_ENTRIES, configValues, 10_000);
+        this.expiryMs = ConfigurationHelper.getLong(EXPIRY_MS, configValues, 300_000);
+        super.prepareForUse(settings, configValues);
+    }
+
+    @Override
+    protected Cache<Object, Object> createCache(String regionName) {
+        val config = new CaffeineConfiguration<Object, Object>();
+        config.setTypes(Object.class, Object.class);
+        config.setStoreByValue(false);
+        if (!regionName.equals(qualify(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME))) {
+            config.setMaximumSize(OptionalLong.of(maxEntries));
+            config.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(expiryMs)));
+        }
+        return getCacheManager().createCache(regionName, config);
+    }
+}
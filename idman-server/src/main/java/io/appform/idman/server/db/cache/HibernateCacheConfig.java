@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.cache;
+
+import io.dropwizard.util.Duration;
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Hibernate second level cache for services and roles. Users, auth states and role mappings are never cached, as
+ * lockouts, deletions and role changes made on one node have to take effect on all of them right away.
+ */
+@Data
+public class HibernateCacheConfig {
+    /**
+     * Other nodes keep serving cached services and roles for up to {@code expiry} after they change. Enable only if
+     * that is acceptable.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Caches the results of the single row lookups by business id
+     */
+    private boolean queryCache = true;
+
+    @Min(1)
+    @Max(1_000_000)
+    private int maxEntriesPerRegion = 10_000;
+
+    /**
+     * Bounds how long changes made on other nodes can go unnoticed
+     */
+    @NotNull
+    private Duration expiry = Duration.minutes(5);
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.cache;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.stat.CacheRegionStatistics;
+
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sets up the second level cache on the hibernate configuration and publishes region statistics as gauges
+ */
+@UtilityClass
+public class HibernateCaches {
+    public static final String SERVICES = "services";
+    public static final String ROLES = "roles";
+
+    private static final String[] REGIONS = {SERVICES, ROLES};
+
+    public static void configure(Configuration configuration, HibernateCacheConfig config) {
+        if (!config.isEnabled()) {
+            configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false");
+            configuration.setProperty(AvailableSettings.USE_QUERY_CACHE, "false");
+            return;
+        }
+        configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true");
+        configuration.setProperty(AvailableSettings.USE_QUERY_CACHE, Boolean.toString(config.isQueryCache()));
+        configuration.setProperty(AvailableSettings.CACHE_REGION_FACTORY, CaffeineRegionFactory.class.getName());
+        configuration.setProperty("hibernate.javax.cache.provider", CaffeineCachingProvider.class.getName());
+        configuration.setProperty("hibernate.javax.cache.missing_cache_strategy", "create");
+        configuration.setProperty(CaffeineRegionFactory.MAX_ENTRIES, Integer.toString(config.getMaxEntriesPerRegion()));
+        configuration.setProperty(CaffeineRegionFactory.EXPIRY_MS, Long.toString(config.getExpiry().toMilliseconds()));
+        configuration.setProperty(AvailableSettings.GENERATE_STATISTICS, "true");
+        configuration.setProperty(AvailableSettings.LOG_SESSION_METRICS, "false");
+    }
+
+    public static void registerMetrics(SessionFactory sessionFactory, MetricRegistry metrics) {
+        val statistics = sessionFactory.getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return;
+        }
+        val regionNames = Set.of(statistics.getSecondLevelCacheRegionNames());
+        for (String region : REGIONS) {
+            if (regionNames.contains(region)) {
+                registerRegion(metrics, region, () -> statistics.getDomainDataRegionStatistics(region));
+            }
+        }
+        metrics.gauge(name("queries", "hits"), () -> (Gauge<Long>) statistics::getQueryCacheHitCount);
+        metrics.gauge(name("queries", "misses"), () -> (Gauge<Long>) statistics::getQueryCacheMissCount);
+        metrics.gauge(name("queries", "puts"), () -> (Gauge<Long>) statistics::getQueryCachePutCount);
+    }
+
+    private static void registerRegion(
+            MetricRegistry metrics,
+            String region,
+            Supplier<CacheRegionStatistics> statistics) {
+        gauge(metrics, region, "hits", statistics, CacheRegionStatistics::getHitCount);
+        gauge(metrics, region, "misses", statistics, CacheRegionStatistics::getMissCount);
+        gauge(metrics, region, "puts", statistics, CacheRegionStatistics::getPutCount);
+        metrics.gauge(name(region, "hitRatio"), () -> (Gauge<Double>) () -> {
+            val regionStatistics = statistics.get();
+            val lookups = regionStatistics.getHitCount() + regionStatistics.getMissCount();
+            return lookups == 0 ? 0.0 : (double) regionStatistics.getHitCount() / lookups;
+        });
+    }
+
+    private static void gauge(
+            MetricRegistry metrics,
+            String region,
+            String metric,
+            Supplier<CacheRegionStatistics> statistics,
+            ToLongFunction<CacheRegionStatistics> value) {
+        metrics.gauge(name(region, metric), () -> (Gauge<Long>) () -> value.applyAsLong(statistics.get()));
+    }
+
+    private static String name(String region, String metric) {
+        return MetricRegistry.name("hibernate", "cache", region, metric);
+    }
+}
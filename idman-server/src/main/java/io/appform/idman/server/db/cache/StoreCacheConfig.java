@@ -0,0 +1,74 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.cache;
+
+import io.dropwizard.util.Duration;
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Bounds for the in-memory caches in front of service, role, user-role and static session lookups
+ */
+@Data
+public class StoreCacheConfig {
+    /**
+     * Caches service, role and user-role lookups. Changes are dropped from the cache of the node that made them, but
+     * other nodes keep serving the old values for up to {@code expiry}, including deleted services and roles and
+     * removed role mappings. Enable only if that is acceptable.
+     */
+    private boolean enabled = false;
+
+    @Min(1)
+    @Max(1_000_000)
+    private int maxEntries = 10_000;
+
+    @NotNull
+    private Duration expiry = Duration.minutes(5);
+
+    /**
+     * Caches static sessions and their users. Changes made on other nodes are picked up from the revocation log.
+     */
+    private boolean cacheStaticSessions = true;
+
+    /**
+     * Static sessions and their users are cached up to this many sessions
+     */
+    @Min(1)
+    @Max(10_000_000)
+    private int maxStaticSessions = 100_000;
+
+    /**
+     * Static session entries are reloaded after this long even if no revocation was seen for them, which bounds the
+     * staleness if the revocation log misses a change
+     */
+    @NotNull
+    private Duration staticSessionExpiry = Duration.minutes(10);
+
+    /**
+     * How often the revocation log is checked for static sessions changed on other nodes
+     */
+    @NotNull
+    private Duration invalidationPollInterval = Duration.seconds(1);
+
+    /**
+     * Revocations created within this window are read again on every poll, to pick up those that were committed
+     * after revocations with a higher sequence
+     */
+    @NotNull
+    private Duration invalidationLookback = Duration.minutes(2);
+}
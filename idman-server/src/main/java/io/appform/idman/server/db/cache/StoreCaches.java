@@ -0,0 +1,52 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.cache;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.experimental.UtilityClass;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds bounded caches for the store decorators and publishes their stats as gauges
+ */
+@UtilityClass
+public class StoreCaches {
+
+    public static <K, V> Cache<K, V> create(StoreCacheConfig config, MetricRegistry metrics, Class<?> owner) {
+        final Cache<K, V> cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxEntries())
+                .expireAfterWrite(config.getExpiry().toMilliseconds(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        register(metrics, owner, cache);
+        return cache;
+    }
+
+    public static void register(MetricRegistry metrics, Class<?> owner, Cache<?, ?> cache) {
+        metrics.gauge(name(owner, "size"), () -> (Gauge<Long>) cache::estimatedSize);
+        metrics.gauge(name(owner, "hits"), () -> (Gauge<Long>) () -> cache.stats().hitCount());
+        metrics.gauge(name(owner, "misses"), () -> (Gauge<Long>) () -> cache.stats().missCount());
+        metrics.gauge(name(owner, "hitRatio"), () -> (Gauge<Double>) () -> cache.stats().hitRate());
+        metrics.gauge(name(owner, "evictions"), () -> (Gauge<Long>) () -> cache.stats().evictionCount());
+    }
+
+    private static String name(Class<?> owner, String metric) {
+        return MetricRegistry.name(owner, "cache", metric);
+    }
+}
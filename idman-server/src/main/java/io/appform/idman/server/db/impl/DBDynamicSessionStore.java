@@ -14,6 +14,7 @@
 
 package io.appform.idman.server.db.impl;
 
+import io.appform.idman.model.IdmanUser;
 import io.appform.idman.model.TokenType;
 import io.appform.idman.server.db.FieldNames;
 import io.appform.idman.server.db.SessionStoreForType;
@@ -25,11 +26,14 @@ import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.hibernate.SessionFactory;
 import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.query.Query;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -68,17 +72,20 @@ public class DBDynamicSessionStore extends AbstractDAO<StoredDynamicSession> imp
 
     @Override
     public Optional<ClientSession> get(String sessionId) {
-        val cb = currentSession().getCriteriaBuilder();
-        val cr = criteriaQuery();
-        val root = cr.from(StoredDynamicSession.class);
-        return list(cr.select(root).where(
-                cb.and(cb.equal(root.get("sessionId"), sessionId),
-                       cb.equal(root.get(FieldNames.DELETED), false))))
-                .stream()
-                .findAny()
+        return EntityLookups.find(sessionQuery(StoredDynamicSession.ACTIVE_BY_SESSION_ID, sessionId))
                 .map(DBDynamicSessionStore::toWire);
     }
 
+    @Override
+    public Optional<IdmanUser> sessionUser(String sessionId, String serviceId) {
+        return SessionUserQuery.sessionUser(currentSession(), StoredDynamicSession.class, sessionId, serviceId);
+    }
+
+    @Override
+    public Map<String, IdmanUser> sessionUsers(Collection<String> sessionIds, String serviceId) {
+        return SessionUserQuery.sessionUsers(currentSession(), StoredDynamicSession.class, sessionIds, serviceId);
+    }
+
     @Override
     public List<ClientSession> sessionsForUser(String userId) {
         val cb = currentSession().getCriteriaBuilder();
@@ -98,14 +105,26 @@ public class DBDynamicSessionStore extends AbstractDAO<StoredDynamicSession> imp
                 .collect(Collectors.toList());
     }
 
-    @Override
-    public boolean delete(String sessionId) {
+    /**
+     * Sessions that are neither deleted nor expired
+     */
+    public List<ClientSession> activeSessions() {
         val cb = currentSession().getCriteriaBuilder();
         val cr = criteriaQuery();
         val root = cr.from(StoredDynamicSession.class);
-        val session = list(cr.select(root).where(cb.equal(root.get("sessionId"), sessionId)))
+        return list(cr.select(root)
+                            .where(cb.equal(root.get(FieldNames.DELETED), false),
+                                   cb.or(cb.isNull(root.get("expiry")),
+                                         cb.greaterThan(root.get("expiry"), new Date()))))
                 .stream()
-                .findAny()
+                .map(DBDynamicSessionStore::toWire)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean delete(String sessionId) {
+        val session = EntityLookups.findForUpdate(currentSession(),
+                                                  sessionQuery(StoredDynamicSession.BY_SESSION_ID, sessionId))
                 .orElse(null);
         if (null == session) {
             return false;
@@ -114,6 +133,10 @@ public class DBDynamicSessionStore extends AbstractDAO<StoredDynamicSession> imp
         return persist(session).isDeleted();
     }
 
+    private Query<StoredDynamicSession> sessionQuery(String queryName, String sessionId) {
+        return namedTypedQuery(queryName).setParameter("sessionId", sessionId);
+    }
+
     private static ClientSession toWire(final StoredDynamicSession dynamicSession) {
         return new ClientSession(
                 dynamicSession.getSessionId(),
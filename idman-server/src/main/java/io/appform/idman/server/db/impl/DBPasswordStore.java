@@ -14,15 +14,22 @@
 
 package io.appform.idman.server.db.impl;
 
-import at.favre.lib.crypto.bcrypt.BCrypt;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.appform.idman.server.auth.hashing.PasswordHashing;
+import io.appform.idman.server.db.FieldNames;
 import io.appform.idman.server.db.PasswordStore;
 import io.appform.idman.server.db.model.StoredPassword;
 import io.dropwizard.hibernate.AbstractDAO;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
 
 import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
 import java.util.function.UnaryOperator;
 
 /**
@@ -30,10 +37,16 @@ import java.util.function.UnaryOperator;
  */
 @Slf4j
 public class DBPasswordStore extends AbstractDAO<StoredPassword> implements PasswordStore {
+    private final PasswordHashing hashing;
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
 
     @Inject
-    public DBPasswordStore(SessionFactory sessionFactory) {
+    public DBPasswordStore(SessionFactory sessionFactory, PasswordHashing hashing, MetricRegistry metrics) {
         super(sessionFactory);
+        this.hashing = hashing;
+        this.hashTimer = metrics.timer(MetricRegistry.name(DBPasswordStore.class, "password", "hash"));
+        this.verifyTimer = metrics.timer(MetricRegistry.name(DBPasswordStore.class, "password", "verify"));
     }
 
     @Override
@@ -50,10 +63,37 @@ public class DBPasswordStore extends AbstractDAO<StoredPassword> implements Pass
         persist(pwd);
     }
 
+    @Override
+    public void setHashed(Map<String, String> hashedPasswords) {
+        if (hashedPasswords.isEmpty()) {
+            return;
+        }
+        val session = currentSession();
+        val cr = criteriaQuery();
+        val root = cr.from(StoredPassword.class);
+        val existing = new HashMap<String, StoredPassword>();
+        list(cr.select(root).where(root.get(FieldNames.USER_ID).in(hashedPasswords.keySet())))
+                .forEach(pwd -> {
+                    session.setReadOnly(pwd, false);
+                    existing.put(pwd.getUserId(), pwd);
+                });
+        hashedPasswords.forEach((userId, hashedPassword) -> {
+            var pwd = existing.get(userId);
+            if (null != pwd) {
+                pwd.setPassword(hashedPassword);
+                pwd.setDeleted(false);
+            }
+            else {
+                pwd = new StoredPassword(userId, hashedPassword);
+            }
+            persist(pwd);
+        });
+    }
+
     @Override
     public boolean update(String userId, String oldPassword, String newPassword) {
         return updatePasswordObject(userId, pwd -> {
-            if (verify(oldPassword, pwd) && !oldPassword.equals(newPassword)) {
+            if (verify(oldPassword, pwd.getPassword()) && !oldPassword.equals(newPassword)) {
                 pwd.setPassword(hash(newPassword));
                 return pwd;
             }
@@ -74,29 +114,57 @@ public class DBPasswordStore extends AbstractDAO<StoredPassword> implements Pass
 
     @Override
     public boolean match(String userId, String password) {
-        var pwd = passwordForUser(userId);
-        if (null != pwd && !pwd.isDeleted()) {
-            return verify(password, pwd);
+        val hashedPassword = getHashed(userId).orElse(null);
+        if (null == hashedPassword || !verify(password, hashedPassword)) {
+            return false;
         }
-        return false;
+        if (needsRehash(hashedPassword)) {
+            rehash(userId, hashedPassword, hash(password));
+        }
+        return true;
+    }
+
+    @Override
+    public Optional<String> getHashed(String userId) {
+        return EntityLookups.find(passwordQuery(userId))
+                .filter(pwd -> !pwd.isDeleted())
+                .map(StoredPassword::getPassword);
     }
 
-    private static String hash(String s) {
-        return BCrypt.withDefaults().hashToString(12, s.toCharArray());
+    @Override
+    public boolean verify(String password, String hashedPassword) {
+        return verifyTimer.timeSupplier(
+                () -> hashing.verify(password, hashedPassword));
+    }
+
+    @Override
+    public boolean needsRehash(String hashedPassword) {
+        return hashing.needsRehash(hashedPassword);
+    }
+
+    @Override
+    public boolean rehash(String userId, String currentHashedPassword, String newHashedPassword) {
+        return updatePasswordObject(userId, pwd -> {
+            if (pwd.isDeleted() || !pwd.getPassword().equals(currentHashedPassword)) {
+                log.info("Password for user {} changed before it could be rehashed", userId);
+                return null;
+            }
+            pwd.setPassword(newHashedPassword);
+            return pwd;
+        });
     }
 
-    private static boolean verify(String input, StoredPassword pwd) {
-        return BCrypt.verifyer().verify(input.toCharArray(), pwd.getPassword().toCharArray()).verified;
+    @Override
+    public String hash(String s) {
+        return hashTimer.timeSupplier(() -> hashing.hash(s));
     }
 
     private StoredPassword passwordForUser(String userId) {
-        val cb = currentSession().getCriteriaBuilder();
-        val cr = criteriaQuery();
-        val root = cr.from(StoredPassword.class);
-        return list(cr.select(root).where(cb.equal(root.get("userId"), userId)))
-                .stream()
-                .findAny()
-                .orElse(null);
+        return EntityLookups.findForUpdate(currentSession(), passwordQuery(userId)).orElse(null);
+    }
+
+    private Query<StoredPassword> passwordQuery(String userId) {
+        return namedTypedQuery(StoredPassword.BY_USER_ID).setParameter(FieldNames.USER_ID, userId);
     }
 
     private boolean updatePasswordObject(String userId, UnaryOperator<StoredPassword> handler) {
@@ -21,6 +21,7 @@ import io.appform.idman.server.utils.Utils;
 import io.dropwizard.hibernate.AbstractDAO;
 import lombok.val;
 import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
 
 import javax.inject.Inject;
 import java.util.Collection;
@@ -40,7 +41,7 @@ public class DBRoleStore extends AbstractDAO<StoredRole> implements RoleStore {
     @Override
     public Optional<StoredRole> create(String serviceId, String displayName, String description) {
         val roleId = Utils.readableId(serviceId + "_" + displayName);
-        var role = get(serviceId, roleId).orElse(null);
+        var role = getForUpdate(serviceId, roleId).orElse(null);
         if (null != role) {
             role.setDescription(description);
             role.setDeleted(false);
@@ -53,19 +54,12 @@ public class DBRoleStore extends AbstractDAO<StoredRole> implements RoleStore {
 
     @Override
     public Optional<StoredRole> get(String serviceId, String roleId) {
-        val cb = currentSession().getCriteriaBuilder();
-        val cr = criteriaQuery();
-        val root = cr.from(StoredRole.class);
-        return list(cr.select(root)
-                            .where(cb.and(cb.equal(root.get(FieldNames.SERVICE_ID), serviceId),
-                                          cb.equal(root.get("roleId"), roleId))))
-                .stream()
-                .findAny();
+        return EntityLookups.find(roleQuery(serviceId, roleId));
     }
 
     @Override
     public Optional<StoredRole> update(String serviceId, String roleId, String description) {
-        var role = get(serviceId, roleId).orElse(null);
+        var role = getForUpdate(serviceId, roleId).orElse(null);
         if (null == role) {
             return Optional.empty();
         }
@@ -77,7 +71,7 @@ public class DBRoleStore extends AbstractDAO<StoredRole> implements RoleStore {
 
     @Override
     public boolean delete(String serviceId, String roleId) {
-        var role = get(serviceId, roleId).orElse(null);
+        var role = getForUpdate(serviceId, roleId).orElse(null);
         if (null == role) {
             return false;
         }
@@ -109,4 +103,13 @@ public class DBRoleStore extends AbstractDAO<StoredRole> implements RoleStore {
                 root.get(FieldNames.ROLE_ID).in(roleIds))));
     }
 
+    private Optional<StoredRole> getForUpdate(String serviceId, String roleId) {
+        return EntityLookups.findForUpdate(currentSession(), roleQuery(serviceId, roleId));
+    }
+
+    private Query<StoredRole> roleQuery(String serviceId, String roleId) {
+        return namedTypedQuery(StoredRole.BY_ROLE_ID)
+                .setParameter(FieldNames.SERVICE_ID, serviceId)
+                .setParameter(FieldNames.ROLE_ID, roleId);
+    }
 }
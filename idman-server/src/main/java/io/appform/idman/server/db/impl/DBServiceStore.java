@@ -15,14 +15,18 @@
 package io.appform.idman.server.db.impl;
 
 import io.appform.idman.server.db.FieldNames;
+import io.appform.idman.server.db.Page;
 import io.appform.idman.server.db.ServiceStore;
 import io.appform.idman.server.db.model.StoredService;
 import io.appform.idman.server.utils.Utils;
 import io.dropwizard.hibernate.AbstractDAO;
 import lombok.val;
 import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
 
 import javax.inject.Inject;
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -42,7 +46,7 @@ public class DBServiceStore extends AbstractDAO<StoredService> implements Servic
     @Override
     public Optional<StoredService> create(String name, String description, String callbackUrl) {
         val id = Utils.readableId(name);
-        var service = get(id).orElse(null);
+        var service = getForUpdate(id).orElse(null);
         val secret = UUID.randomUUID().toString();
         if (null == service) {
             service = new StoredService(id, name, description, callbackUrl, secret);
@@ -58,12 +62,7 @@ public class DBServiceStore extends AbstractDAO<StoredService> implements Servic
 
     @Override
     public Optional<StoredService> get(String serviceId) {
-        val cb = currentSession().getCriteriaBuilder();
-        val cr = criteriaQuery();
-        val root = cr.from(StoredService.class);
-        return list(cr.select(root).where(cb.equal(root.get("serviceId"), serviceId)))
-                .stream()
-                .findAny();
+        return EntityLookups.find(serviceQuery(serviceId));
     }
 
     @Override
@@ -83,7 +82,7 @@ public class DBServiceStore extends AbstractDAO<StoredService> implements Servic
 
     @Override
     public boolean delete(String serviceId) {
-        val service = get(serviceId).orElse(null);
+        val service = getForUpdate(serviceId).orElse(null);
         if (null == service) {
             return false;
         }
@@ -110,13 +109,40 @@ public class DBServiceStore extends AbstractDAO<StoredService> implements Servic
         val root = cr.from(StoredService.class);
         val query = cr.select(root).orderBy(cb.asc(root.get("name")));
         if (!includeDeleted) {
-            list(query.where(cb.equal(root.get("deleted"), false)));
+            return list(query.where(cb.equal(root.get("deleted"), false)));
         }
         return list(query);
     }
 
+    @Override
+    public Page<StoredService> list(boolean includeDeleted, String pageToken, int pageSize) {
+        val size = PageTokens.pageSize(pageSize);
+        val cb = currentSession().getCriteriaBuilder();
+        val cr = criteriaQuery();
+        val root = cr.from(StoredService.class);
+        val predicates = new ArrayList<Predicate>();
+        if (!includeDeleted) {
+            predicates.add(cb.equal(root.get(FieldNames.DELETED), false));
+        }
+        PageTokens.decode(pageToken, 2)
+                .ifPresent(after -> predicates.add(cb.or(
+                        cb.greaterThan(root.get("name"), after[0]),
+                        cb.and(cb.equal(root.get("name"), after[0]),
+                               cb.greaterThan(root.get(FieldNames.SERVICE_ID), after[1])))));
+        cr.select(root)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(root.get("name")), cb.asc(root.get(FieldNames.SERVICE_ID)));
+        val services = list(currentSession().createQuery(cr).setMaxResults(size + 1));
+        if (services.size() <= size) {
+            return new Page<>(services, null);
+        }
+        val items = services.subList(0, size);
+        val last = items.get(size - 1);
+        return new Page<>(items, PageTokens.encode(last.getName(), last.getServiceId()));
+    }
+
     private Optional<StoredService> updateService(String serviceId, Consumer<StoredService> handler) {
-        val service = get(serviceId).orElse(null);
+        val service = getForUpdate(serviceId).orElse(null);
         if (null == service) {
             return Optional.empty();
         }
@@ -124,4 +150,11 @@ public class DBServiceStore extends AbstractDAO<StoredService> implements Servic
         return Optional.of(persist(service));
     }
 
+    private Optional<StoredService> getForUpdate(String serviceId) {
+        return EntityLookups.findForUpdate(currentSession(), serviceQuery(serviceId));
+    }
+
+    private Query<StoredService> serviceQuery(String serviceId) {
+        return namedTypedQuery(StoredService.BY_SERVICE_ID).setParameter(FieldNames.SERVICE_ID, serviceId);
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.impl;
+
+import io.appform.idman.server.db.FieldNames;
+import io.appform.idman.server.db.RevocationKind;
+import io.appform.idman.server.db.SessionRevocationStore;
+import io.appform.idman.server.db.model.StoredSessionRevocation;
+import io.dropwizard.hibernate.AbstractDAO;
+import lombok.val;
+import org.hibernate.SessionFactory;
+
+import javax.inject.Inject;
+import java.util.Date;
+import java.util.List;
+
+/**
+ *
+ */
+public class DBSessionRevocationStore extends AbstractDAO<StoredSessionRevocation> implements SessionRevocationStore {
+
+    @Inject
+    public DBSessionRevocationStore(SessionFactory sessionFactory) {
+        super(sessionFactory);
+    }
+
+    @Override
+    public void add(String sessionId, String serviceId, RevocationKind kind) {
+        persist(new StoredSessionRevocation(sessionId, serviceId, kind));
+    }
+
+    @Override
+    public List<StoredSessionRevocation> since(String serviceId, long sequence, int maxResults) {
+        val cb = currentSession().getCriteriaBuilder();
+        val cr = criteriaQuery();
+        val root = cr.from(StoredSessionRevocation.class);
+        return currentSession()
+                .createQuery(cr.select(root)
+                                     .where(cb.equal(root.get(FieldNames.SERVICE_ID), serviceId),
+                                            cb.equal(root.get("kind"), RevocationKind.REVOKED),
+                                            cb.greaterThan(root.<Long>get("id"), sequence))
+                                     .orderBy(cb.asc(root.get("id"))))
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    @Override
+    public List<StoredSessionRevocation> since(long sequence, int maxResults) {
+        val cb = currentSession().getCriteriaBuilder();
+        val cr = criteriaQuery();
+        val root = cr.from(StoredSessionRevocation.class);
+        return currentSession()
+                .createQuery(cr.select(root)
+                                     .where(cb.greaterThan(root.<Long>get("id"), sequence))
+                                     .orderBy(cb.asc(root.get("id"))))
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    @Override
+    public List<StoredSessionRevocation> recent(String serviceId, long sequence, Date createdAfter, int maxResults) {
+        val cb = currentSession().getCriteriaBuilder();
+        val cr = criteriaQuery();
+        val root = cr.from(StoredSessionRevocation.class);
+        return currentSession()
+                .createQuery(cr.select(root)
+                                     .where(cb.equal(root.get(FieldNames.SERVICE_ID), serviceId),
+                                            cb.equal(root.get("kind"), RevocationKind.REVOKED),
+                                            cb.greaterThanOrEqualTo(root.<Date>get("created"), createdAfter),
+                                            cb.lessThanOrEqualTo(root.<Long>get("id"), sequence))
+                                     .orderBy(cb.asc(root.get("id"))))
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    @Override
+    public List<StoredSessionRevocation> recent(long sequence, Date createdAfter, int maxResults) {
+        val cb = currentSession().getCriteriaBuilder();
+        val cr = criteriaQuery();
+        val root = cr.from(StoredSessionRevocation.class);
+        return currentSession()
+                .createQuery(cr.select(root)
+                                     .where(cb.greaterThanOrEqualTo(root.<Date>get("created"), createdAfter),
+                                            cb.lessThanOrEqualTo(root.<Long>get("id"), sequence))
+                                     .orderBy(cb.asc(root.get("id"))))
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    @Override
+    public long latestSequence() {
+        val cb = currentSession().getCriteriaBuilder();
+        val cr = cb.createQuery(Long.class);
+        val root = cr.from(StoredSessionRevocation.class);
+        val latest = currentSession().createQuery(cr.select(cb.max(root.<Long>get("id")))).getSingleResult();
+        return null == latest ? 0L : latest;
+    }
+}
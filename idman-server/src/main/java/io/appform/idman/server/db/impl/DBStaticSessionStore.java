@@ -17,6 +17,7 @@ package io.appform.idman.server.db.impl;
 import io.appform.idman.server.db.FieldNames;
 import io.appform.idman.server.db.SessionStoreForType;
 import io.appform.idman.server.db.model.ClientSession;
+import io.appform.idman.model.IdmanUser;
 import io.appform.idman.model.TokenType;
 import io.appform.idman.server.db.model.StoredStaticSession;
 import io.dropwizard.hibernate.AbstractDAO;
@@ -24,11 +25,14 @@ import lombok.SneakyThrows;
 import lombok.val;
 import org.hibernate.SessionFactory;
 import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.query.Query;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -65,17 +69,20 @@ public class DBStaticSessionStore extends AbstractDAO<StoredStaticSession> imple
 
     @Override
     public Optional<ClientSession> get(String sessionId) {
-        val cb = currentSession().getCriteriaBuilder();
-        val cr = criteriaQuery();
-        val root = cr.from(StoredStaticSession.class);
-        return list(cr.select(root).where(
-                cb.and(cb.equal(root.get("sessionId"), sessionId),
-                       cb.equal(root.get(FieldNames.DELETED), false))))
-                .stream()
-                .findAny()
+        return EntityLookups.find(sessionQuery(StoredStaticSession.ACTIVE_BY_SESSION_ID, sessionId))
                 .map(DBStaticSessionStore::toWire);
     }
 
+    @Override
+    public Optional<IdmanUser> sessionUser(String sessionId, String serviceId) {
+        return SessionUserQuery.sessionUser(currentSession(), StoredStaticSession.class, sessionId, serviceId);
+    }
+
+    @Override
+    public Map<String, IdmanUser> sessionUsers(Collection<String> sessionIds, String serviceId) {
+        return SessionUserQuery.sessionUsers(currentSession(), StoredStaticSession.class, sessionIds, serviceId);
+    }
+
     @Override
     public List<ClientSession> sessionsForUser(String userId) {
         val cb = currentSession().getCriteriaBuilder();
@@ -92,13 +99,23 @@ public class DBStaticSessionStore extends AbstractDAO<StoredStaticSession> imple
     }
 
     @Override
-    public boolean delete(String sessionId) {
+    public List<ClientSession> sessionsForUsers(Collection<String> userIds) {
         val cb = currentSession().getCriteriaBuilder();
         val cr = criteriaQuery();
         val root = cr.from(StoredStaticSession.class);
-        val session = list(cr.select(root).where(cb.equal(root.get("sessionId"), sessionId)))
+        return list(cr.select(root)
+                            .where(cb.and(
+                                    root.get(FieldNames.USER_ID).in(userIds),
+                                    cb.equal(root.get("deleted"), false))))
                 .stream()
-                .findAny()
+                .map(DBStaticSessionStore::toWire)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean delete(String sessionId) {
+        val session = EntityLookups.findForUpdate(currentSession(),
+                                                  sessionQuery(StoredStaticSession.BY_SESSION_ID, sessionId))
                 .orElse(null);
         if (null == session) {
             return false;
@@ -107,6 +124,10 @@ public class DBStaticSessionStore extends AbstractDAO<StoredStaticSession> imple
         return persist(session).isDeleted();
     }
 
+    private Query<StoredStaticSession> sessionQuery(String queryName, String sessionId) {
+        return namedTypedQuery(queryName).setParameter("sessionId", sessionId);
+    }
+
     private static ClientSession toWire(final StoredStaticSession dynamicSession) {
         return new ClientSession(
                 dynamicSession.getSessionId(),
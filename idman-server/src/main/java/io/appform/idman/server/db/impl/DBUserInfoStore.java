@@ -18,18 +18,31 @@ import io.appform.idman.model.AuthMode;
 import io.appform.idman.model.UserType;
 import io.appform.idman.server.db.AuthState;
 import io.appform.idman.server.db.FieldNames;
+import io.appform.idman.server.db.NewUser;
+import io.appform.idman.server.db.Page;
 import io.appform.idman.server.db.UserInfoStore;
 import io.appform.idman.server.db.model.StoredUser;
 import io.appform.idman.server.db.model.StoredUserAuthState;
 import io.dropwizard.hibernate.AbstractDAO;
 import lombok.val;
 import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
 
 import javax.inject.Inject;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  *
@@ -49,43 +62,65 @@ public class DBUserInfoStore extends AbstractDAO<StoredUser> implements UserInfo
             UserType userType,
             AuthMode authMode,
             boolean expire) {
-        var user = get(userId).orElse(null);
+        var user = getForUpdate(userId).orElse(null);
         val state = expire ? AuthState.EXPIRED : AuthState.ACTIVE;
         if (null == user) {
-            user = new StoredUser(userId, email, name, userType);
-            user.setAuthState(new StoredUserAuthState(authMode, state, 0, user));
+            user = newUser(userId, email, name, userType, authMode, state);
         }
         else {
-            user.setName(name);
-            user.setUserType(userType);
-            user.setDeleted(false);
-
-            val authState = user.getAuthState();
-            authState.setAuthMode(authMode);
-            authState.setAuthState(state);
-            authState.setFailedAuthCount(0);
+            reset(user, name, userType, authMode, state);
         }
         return Optional.of(persist(user));
     }
 
     @Override
-    public Optional<StoredUser> get(String userId) {
-        val cb = currentSession().getCriteriaBuilder();
+    public Set<String> create(Collection<NewUser> users) {
+        if (users.isEmpty()) {
+            return Collections.emptySet();
+        }
+        val session = currentSession();
         val cr = criteriaQuery();
-        val root = cr.from(StoredUser.class);
-        return list(cr.select(root).where(cb.equal(root.get(FieldNames.USER_ID), userId)))
-                .stream()
-                .findAny();
+        val root = withAuthState(cr);
+        cr.select(root)
+                .where(root.get(FieldNames.USER_ID).in(users.stream()
+                                                               .map(NewUser::getUserId)
+                                                               .collect(Collectors.toSet())));
+        val existing = new HashMap<String, StoredUser>();
+        list(cr).forEach(user -> {
+            session.setReadOnly(user, false);
+            session.setReadOnly(user.getAuthState(), false);
+            existing.put(user.getUserId(), user);
+        });
+        val created = new HashSet<String>();
+        for (NewUser details : users) {
+            val state = details.isExpire() ? AuthState.EXPIRED : AuthState.ACTIVE;
+            var user = existing.get(details.getUserId());
+            if (null == user) {
+                user = newUser(details.getUserId(),
+                               details.getEmail(),
+                               details.getName(),
+                               details.getUserType(),
+                               details.getAuthMode(),
+                               state);
+                existing.put(details.getUserId(), user);
+                created.add(details.getUserId());
+            }
+            else {
+                reset(user, details.getName(), details.getUserType(), details.getAuthMode(), state);
+            }
+            persist(user);
+        }
+        return created;
+    }
+
+    @Override
+    public Optional<StoredUser> get(String userId) {
+        return EntityLookups.find(userQuery(userId));
     }
 
     @Override
     public Optional<StoredUser> getByEmail(String email) {
-        val cb = currentSession().getCriteriaBuilder();
-        val cr = criteriaQuery();
-        val root = cr.from(StoredUser.class);
-        return list(cr.select(root).where(cb.equal(root.get("email"), email)))
-                .stream()
-                .findAny();
+        return EntityLookups.find(namedTypedQuery(StoredUser.BY_EMAIL).setParameter("email", email));
     }
 
     @Override
@@ -111,7 +146,7 @@ public class DBUserInfoStore extends AbstractDAO<StoredUser> implements UserInfo
     public List<StoredUser> list(boolean includeDeleted) {
         val cr = criteriaQuery();
         val cb = currentSession().getCriteriaBuilder();
-        val root = cr.from(StoredUser.class);
+        val root = withAuthState(cr);
         val query = cr.select(root).orderBy(cb.asc(root.get(FieldNames.USER_ID)));
         if (!includeDeleted) {
             return list(query.where(cb.equal(root.get(FieldNames.DELETED), false)));
@@ -119,17 +154,72 @@ public class DBUserInfoStore extends AbstractDAO<StoredUser> implements UserInfo
         return list(query);
     }
 
+    @Override
+    public Page<StoredUser> list(boolean includeDeleted, String pageToken, int pageSize) {
+        val size = PageTokens.pageSize(pageSize);
+        val cr = criteriaQuery();
+        val cb = currentSession().getCriteriaBuilder();
+        val root = withAuthState(cr);
+        val predicates = new ArrayList<Predicate>();
+        if (!includeDeleted) {
+            predicates.add(cb.equal(root.get(FieldNames.DELETED), false));
+        }
+        PageTokens.decode(pageToken, 1)
+                .ifPresent(after -> predicates.add(cb.greaterThan(root.get(FieldNames.USER_ID), after[0])));
+        cr.select(root)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(root.get(FieldNames.USER_ID)));
+        val users = list(currentSession().createQuery(cr).setMaxResults(size + 1));
+        if (users.size() <= size) {
+            return new Page<>(users, null);
+        }
+        val items = users.subList(0, size);
+        return new Page<>(items, PageTokens.encode(items.get(size - 1).getUserId()));
+    }
+
     @Override
     public List<StoredUser> get(Collection<String> userIds) {
         val cr = criteriaQuery();
         val cb = currentSession().getCriteriaBuilder();
-        val root = cr.from(StoredUser.class);
+        val root = withAuthState(cr);
         val query = cr.select(root).orderBy(cb.asc(root.get(FieldNames.USER_ID)));
         return list(query.where(root.get(FieldNames.USER_ID).in(userIds)));
     }
 
+    private static StoredUser newUser(
+            String userId,
+            String email,
+            String name,
+            UserType userType,
+            AuthMode authMode,
+            AuthState state) {
+        val user = new StoredUser(userId, email, name, userType);
+        user.setAuthState(new StoredUserAuthState(authMode, state, 0, user));
+        return user;
+    }
+
+    private static void reset(StoredUser user, String name, UserType userType, AuthMode authMode, AuthState state) {
+        user.setName(name);
+        user.setUserType(userType);
+        user.setDeleted(false);
+
+        val authState = user.getAuthState();
+        authState.setAuthMode(authMode);
+        authState.setAuthState(state);
+        authState.setFailedAuthCount(0);
+    }
+
+    /**
+     * Auth state is an eager association. Fetching it in the same query avoids a select per listed user.
+     */
+    private static Root<StoredUser> withAuthState(CriteriaQuery<StoredUser> cr) {
+        val root = cr.from(StoredUser.class);
+        root.fetch("authState", JoinType.LEFT);
+        return root;
+    }
+
     private Optional<StoredUser> updateUser(String userId, Consumer<StoredUser> consumer) {
-        var user = get(userId).orElse(null);
+        var user = getForUpdate(userId).orElse(null);
         if (null == user) {
             return Optional.empty();
         }
@@ -137,4 +227,16 @@ public class DBUserInfoStore extends AbstractDAO<StoredUser> implements UserInfo
         return Optional.of(persist(user));
     }
 
+    private Optional<StoredUser> getForUpdate(String userId) {
+        val session = currentSession();
+        val user = EntityLookups.findForUpdate(session, userQuery(userId));
+        user.map(StoredUser::getAuthState)
+                .filter(session::contains)
+                .ifPresent(authState -> session.setReadOnly(authState, false));
+        return user;
+    }
+
+    private Query<StoredUser> userQuery(String userId) {
+        return namedTypedQuery(StoredUser.BY_USER_ID).setParameter(FieldNames.USER_ID, userId);
+    }
 }
@@ -14,25 +14,35 @@
 
 package io.appform.idman.server.db.impl;
 
+import com.google.common.collect.Iterables;
 import io.appform.idman.server.db.FieldNames;
+import io.appform.idman.server.db.Page;
 import io.appform.idman.server.db.UserRoleStore;
 import io.appform.idman.server.db.model.StoredUserRole;
 import io.dropwizard.hibernate.AbstractDAO;
 import lombok.val;
 import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
 
 import javax.inject.Inject;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  *
  */
 public class DBUserRoleStore extends AbstractDAO<StoredUserRole> implements UserRoleStore {
+    static final int BULK_MAPPING_CHUNK_SIZE = 500;
 
     @Inject
     public DBUserRoleStore(SessionFactory sessionFactory) {
@@ -53,6 +63,58 @@ public class DBUserRoleStore extends AbstractDAO<StoredUserRole> implements User
         persist(mapping);
     }
 
+    /**
+     * Works in chunks of users. Per chunk, existing mappings are found with one query and updated with one bulk
+     * update, and the rest are added with one multi row insert. Both statements are declared against
+     * {@link StoredUserRole}, so cached mappings and cached queries over it are invalidated.
+     * Mappings already loaded in the current session are not refreshed.
+     */
+    @Override
+    public int mapUsersToRole(Collection<String> userIds, String serviceId, String roleId, String assignedBy) {
+        val session = currentSession();
+        int mapped = 0;
+        for (List<String> chunk : Iterables.partition(new LinkedHashSet<>(userIds), BULK_MAPPING_CHUNK_SIZE)) {
+            val existing = new HashSet<>(session.createQuery("select userId from StoredUserRole "
+                                                                     + "where serviceId = :serviceId "
+                                                                     + "and userId in (:userIds)", String.class)
+                                                 .setParameter(FieldNames.SERVICE_ID, serviceId)
+                                                 .setParameterList("userIds", chunk)
+                                                 .list());
+            if (!existing.isEmpty()) {
+                session.createQuery("update StoredUserRole "
+                                            + "set roleId = :roleId, assignedBy = :assignedBy, deleted = false "
+                                            + "where serviceId = :serviceId and userId in (:userIds)")
+                        .setParameter(FieldNames.ROLE_ID, roleId)
+                        .setParameter("assignedBy", assignedBy)
+                        .setParameter(FieldNames.SERVICE_ID, serviceId)
+                        .setParameterList("userIds", existing)
+                        .executeUpdate();
+            }
+            val added = chunk.stream()
+                    .filter(userId -> !existing.contains(userId))
+                    .collect(Collectors.toList());
+            if (!added.isEmpty()) {
+                val sql = new StringBuilder(
+                        "insert into user_roles (user_id, service_id, role_id, assigned_by, deleted) values ");
+                for (int i = 0; i < added.size(); i++) {
+                    sql.append(i == 0 ? "" : ", ")
+                            .append("(:user").append(i).append(", :serviceId, :roleId, :assignedBy, false)");
+                }
+                val insert = session.createNativeQuery(sql.toString())
+                        .addSynchronizedEntityClass(StoredUserRole.class)
+                        .setParameter(FieldNames.SERVICE_ID, serviceId)
+                        .setParameter(FieldNames.ROLE_ID, roleId)
+                        .setParameter("assignedBy", assignedBy);
+                for (int i = 0; i < added.size(); i++) {
+                    insert.setParameter("user" + i, added.get(i));
+                }
+                insert.executeUpdate();
+            }
+            mapped += chunk.size();
+        }
+        return mapped;
+    }
+
     @Override
     public boolean unmapUserFromRole(String userId, String serviceId) {
         var mapping = getMapping(userId, serviceId);
@@ -80,14 +142,31 @@ public class DBUserRoleStore extends AbstractDAO<StoredUserRole> implements User
                 cb.equal(root.get(FieldNames.DELETED), false)));
     }
 
+    @Override
+    public Page<StoredUserRole> getServiceRoleMappings(String serviceId, String pageToken, int pageSize) {
+        val size = PageTokens.pageSize(pageSize);
+        val cb = currentSession().getCriteriaBuilder();
+        val cr = criteriaQuery();
+        val root = cr.from(StoredUserRole.class);
+        val predicates = new ArrayList<Predicate>();
+        predicates.add(cb.equal(root.get(FieldNames.SERVICE_ID), serviceId));
+        predicates.add(cb.equal(root.get(FieldNames.DELETED), false));
+        PageTokens.decode(pageToken, 1)
+                .ifPresent(after -> predicates.add(cb.greaterThan(root.get(FieldNames.USER_ID), after[0])));
+        cr.select(root)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(root.get(FieldNames.USER_ID)));
+        val mappings = list(currentSession().createQuery(cr).setMaxResults(size + 1));
+        if (mappings.size() <= size) {
+            return new Page<>(mappings, null);
+        }
+        val items = mappings.subList(0, size);
+        return new Page<>(items, PageTokens.encode(items.get(size - 1).getUserId()));
+    }
+
     @Override
     public Optional<StoredUserRole> getUserServiceRole(String userId, String serviceId) {
-        return list((cr, cb, root) -> cb.and(
-                cb.equal(root.get(FieldNames.SERVICE_ID), serviceId),
-                cb.equal(root.get(FieldNames.USER_ID), userId),
-                cb.equal(root.get(FieldNames.DELETED), false)))
-                .stream()
-                .findAny();
+        return EntityLookups.find(mappingQuery(StoredUserRole.ACTIVE_BY_USER_AND_SERVICE, userId, serviceId));
     }
 
     @FunctionalInterface
@@ -103,14 +182,15 @@ public class DBUserRoleStore extends AbstractDAO<StoredUserRole> implements User
     }
 
     private StoredUserRole getMapping(String userId, String serviceId) {
-        val cb = currentSession().getCriteriaBuilder();
-        val cr = criteriaQuery();
-        val root = cr.from(StoredUserRole.class);
-        return list(cr.select(root).where(cb.and(cb.equal(root.get(FieldNames.SERVICE_ID), serviceId),
-                                                 cb.equal(root.get(FieldNames.USER_ID), userId))))
-                .stream()
-                .findAny()
+        return EntityLookups.findForUpdate(currentSession(),
+                                           mappingQuery(StoredUserRole.BY_USER_AND_SERVICE, userId, serviceId))
                 .orElse(null);
     }
 
+    private Query<StoredUserRole> mappingQuery(String queryName, String userId, String serviceId) {
+        return namedTypedQuery(queryName)
+                .setParameter(FieldNames.USER_ID, userId)
+                .setParameter(FieldNames.SERVICE_ID, serviceId);
+    }
+
 }
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.impl;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.appform.idman.server.auth.configs.AuthenticationConfig;
+import io.appform.idman.server.db.SessionReaperConfig;
+import io.appform.idman.server.db.Transactions;
+import io.appform.idman.server.db.model.StoredDynamicSession;
+import io.appform.idman.server.db.model.StoredSessionRevocation;
+import io.appform.idman.server.utils.Utils;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.persistence.TemporalType;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purges dynamic sessions that can no longer be used. Sessions are partitioned by week of creation, so partitions
+ * of weeks older than the session duration are truncated in one go (or emptied in batches on databases without
+ * partitions). Expired and deleted sessions in partitions still in use are removed in bounded batches. Entries in the
+ * revocation log older than the session duration refer to sessions that have expired anyway and are removed too.
+ */
+@Singleton
+@Slf4j
+public class DynamicSessionReaper implements Managed {
+    private static final int MAX_PARTITION = 53;
+
+    @Value
+    public static class ReapResult {
+        int partitionsTruncated;
+        long rowsDeleted;
+        long revocationsDeleted;
+    }
+
+    private static final class RunState {
+        private int partitionsTruncated;
+        private long rowsDeleted;
+        private long revocationsDeleted;
+        private int batchesLeft;
+
+        private RunState(int maxBatches) {
+            this.batchesLeft = maxBatches;
+        }
+    }
+
+    private final SessionFactory sessionFactory;
+    private final Duration sessionDuration;
+    private final SessionReaperConfig config;
+    private final Timer runTimer;
+    private final Meter partitionsTruncated;
+    private final Meter rowsDeleted;
+    private final Meter revocationsDeleted;
+    private final Meter failures;
+    private ScheduledExecutorService scheduler;
+
+    @Inject
+    public DynamicSessionReaper(
+            SessionFactory sessionFactory,
+            AuthenticationConfig authConfig,
+            SessionReaperConfig config,
+            MetricRegistry metrics) {
+        this.sessionFactory = sessionFactory;
+        this.sessionDuration = authConfig.getSessionDuration();
+        this.config = config;
+        this.runTimer = metrics.timer(MetricRegistry.name(DynamicSessionReaper.class, "run"));
+        this.partitionsTruncated = metrics.meter(MetricRegistry.name(DynamicSessionReaper.class, "partitionsTruncated"));
+        this.rowsDeleted = metrics.meter(MetricRegistry.name(DynamicSessionReaper.class, "rowsDeleted"));
+        this.revocationsDeleted = metrics.meter(MetricRegistry.name(DynamicSessionReaper.class,
+                                                                    "revocationsDeleted"));
+        this.failures = metrics.meter(MetricRegistry.name(DynamicSessionReaper.class, "failures"));
+    }
+
+    @Override
+    public void start() {
+        if (!config.isEnabled()) {
+            log.info("Session reaper is disabled");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            val thread = new Thread(runnable, "session-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        val intervalMs = config.getInterval().toMilliseconds();
+        scheduler.scheduleWithFixedDelay(this::reapSafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (null != scheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs one purge pass. At most {@code maxBatchesPerRun} batch deletes that remove rows are issued, remaining
+     * rows are picked up in the next run.
+     */
+    public ReapResult reap() {
+        try (final Timer.Context ignored = runTimer.time()) {
+            val now = new Date();
+            val livePartitions = livePartitions(now);
+            val partitioned = isPartitioned();
+            val state = new RunState(config.getMaxBatchesPerRun());
+            for (int partition = 1; partition <= MAX_PARTITION && state.batchesLeft > 0; partition++) {
+                if (livePartitions.contains(partition)) {
+                    deleteInBatches(state, partition, now, false);
+                }
+                else if (hasLiveSessions(partition, now)) {
+                    log.warn("Partition {} is past session duration but has unexpired sessions", partition);
+                    deleteInBatches(state, partition, now, false);
+                }
+                else if (hasSessions(partition)) {
+                    if (partitioned) {
+                        truncate(partition);
+                        state.partitionsTruncated++;
+                        partitionsTruncated.mark();
+                    }
+                    else {
+                        deleteInBatches(state, partition, now, true);
+                    }
+                }
+            }
+            deleteRevocations(state, now);
+            log.info("Session reaper truncated {} partitions and deleted {} sessions and {} revocations",
+                     state.partitionsTruncated, state.rowsDeleted, state.revocationsDeleted);
+            return new ReapResult(state.partitionsTruncated, state.rowsDeleted, state.revocationsDeleted);
+        }
+    }
+
+    private void reapSafely() {
+        try {
+            reap();
+        }
+        catch (Exception e) {
+            failures.mark();
+            log.error("Error reaping sessions", e);
+        }
+    }
+
+    /**
+     * Weeks in which sessions that have not expired yet could have been created. The next week is included to
+     * tolerate clock differences between nodes around week boundaries.
+     */
+    private Set<Integer> livePartitions(Date now) {
+        val weeks = (int) Math.ceil(sessionDuration.toDays() / 7.0) + 1;
+        val partitions = new HashSet<Integer>();
+        val instant = now.toInstant();
+        partitions.add(Utils.weekOfYear(instant.plus(1, ChronoUnit.DAYS)));
+        for (int week = 0; week <= weeks; week++) {
+            partitions.add(Utils.weekOfYear(instant.minus(week * 7L, ChronoUnit.DAYS)));
+        }
+        return partitions;
+    }
+
+    private boolean isPartitioned() {
+        return sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect() instanceof MySQLDialect;
+    }
+
+    private boolean hasLiveSessions(int partition, Date now) {
+        return Transactions.inTransaction(sessionFactory, session -> ((Number) session.createNativeQuery(
+                "SELECT COUNT(*) FROM dynamic_sessions WHERE partition_id = :partition AND deleted = false"
+                        + " AND (expiry IS NULL OR expiry > :now)")
+                .setParameter("partition", partition)
+                .setParameter("now", now, TemporalType.TIMESTAMP)
+                .getSingleResult()).longValue() > 0);
+    }
+
+    private boolean hasSessions(int partition) {
+        return Transactions.inTransaction(sessionFactory, session -> !session.createNativeQuery(
+                "SELECT id FROM dynamic_sessions WHERE partition_id = :partition")
+                .setParameter("partition", partition)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty());
+    }
+
+    private void truncate(int partition) {
+        log.info("Truncating dynamic session partition {}", partition);
+        Transactions.inTransaction(sessionFactory, session -> session.createNativeQuery(
+                "ALTER TABLE dynamic_sessions TRUNCATE PARTITION p" + partition)
+                .addSynchronizedEntityClass(StoredDynamicSession.class)
+                .executeUpdate());
+    }
+
+    private void deleteInBatches(RunState state, int partition, Date now, boolean wholePartition) {
+        val condition = wholePartition
+                        ? ""
+                        : " AND (deleted = true OR expiry < :now)";
+        val sql = "DELETE FROM dynamic_sessions WHERE partition_id = :partition" + condition
+                + " LIMIT " + config.getBatchSize();
+        int deleted;
+        do {
+            deleted = Transactions.inTransaction(sessionFactory, session -> {
+                val query = session.createNativeQuery(sql)
+                        .addSynchronizedEntityClass(StoredDynamicSession.class)
+                        .setParameter("partition", partition);
+                if (!wholePartition) {
+                    query.setParameter("now", now, TemporalType.TIMESTAMP);
+                }
+                return query.executeUpdate();
+            });
+            if (deleted > 0) {
+                state.batchesLeft--;
+            }
+            state.rowsDeleted += deleted;
+            rowsDeleted.mark(deleted);
+        } while (deleted == config.getBatchSize() && state.batchesLeft > 0);
+    }
+
+    private void deleteRevocations(RunState state, Date now) {
+        val cutoff = new Date(now.getTime() - sessionDuration.toMilliseconds());
+        val sql = "DELETE FROM session_revocations WHERE created < :cutoff LIMIT " + config.getBatchSize();
+        int deleted = config.getBatchSize();
+        while (deleted == config.getBatchSize() && state.batchesLeft > 0) {
+            deleted = Transactions.inTransaction(sessionFactory, session -> session.createNativeQuery(sql)
+                    .addSynchronizedEntityClass(StoredSessionRevocation.class)
+                    .setParameter("cutoff", cutoff, TemporalType.TIMESTAMP)
+                    .executeUpdate());
+            if (deleted > 0) {
+                state.batchesLeft--;
+            }
+            state.revocationsDeleted += deleted;
+            revocationsDeleted.mark(deleted);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.impl;
+
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+import java.util.Optional;
+
+/**
+ * Single row lookups over the named queries declared on the entities
+ */
+@UtilityClass
+class EntityLookups {
+
+    /**
+     * Loads the entity read-only, so that hibernate does not keep a snapshot of it for dirty checking.
+     * Changes made to the returned entity are not persisted, use {@link #findForUpdate(Session, Query)} for that.
+     */
+    static <T> Optional<T> find(Query<T> query) {
+        return query.setReadOnly(true)
+                .setMaxResults(1)
+                .uniqueResultOptional();
+    }
+
+    /**
+     * Loads a modifiable entity. Also makes the entity modifiable again if an earlier read-only lookup in the same
+     * session has already loaded it.
+     */
+    static <T> Optional<T> findForUpdate(Session session, Query<T> query) {
+        val entity = query.setMaxResults(1).uniqueResultOptional();
+        entity.ifPresent(e -> session.setReadOnly(e, false));
+        return entity;
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.impl;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.appform.idman.model.IdmanUser;
+import io.appform.idman.model.TokenType;
+import io.appform.idman.server.db.DynamicSessionStoreConfig;
+import io.appform.idman.server.db.RevocationKind;
+import io.appform.idman.server.db.SessionRevocationStore;
+import io.appform.idman.server.db.SessionStoreForType;
+import io.appform.idman.server.db.Transactions;
+import io.appform.idman.server.db.model.ClientSession;
+import io.appform.idman.server.db.model.StoredSessionRevocation;
+import io.dropwizard.lifecycle.Managed;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.hibernate.SessionFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps dynamic sessions in memory and persists creates and deletes to the database in batches from a background
+ * thread. Sessions not found in memory, for example ones created on other nodes, are looked up in the database.
+ * Deleted sessions stay in memory until the delete has been written, so that they are not read back from the
+ * database in the meantime. Changes that cannot be written are retried with backoff, and later changes to the same
+ * session wait for them. Sessions deleted on other nodes are evicted when they show up in the revocation log, which is
+ * read every {@code revocationPollInterval}. Revocations created within {@code revocationLookback} are read again on
+ * every poll, as they can be committed out of sequence order.
+ */
+@Slf4j
+public class InMemoryDynamicSessionStore implements SessionStoreForType, Managed {
+    private static final int MAX_REVOCATIONS_PER_POLL = 1_000;
+
+    private enum WriteType {
+        CREATE,
+        DELETE
+    }
+
+    @Value
+    @AllArgsConstructor
+    private static class PendingWrite {
+        WriteType type;
+        ClientSession session;
+        int attempts;
+        long retryAt;
+
+        PendingWrite(WriteType type, ClientSession session) {
+            this(type, session, 0, 0);
+        }
+
+        PendingWrite failed(long now, DynamicSessionStoreConfig config) {
+            val delay = Math.min(config.getRetryDelay().toMilliseconds() << Math.min(attempts, 20),
+                                 config.getMaxRetryDelay().toMilliseconds());
+            return new PendingWrite(type, session, attempts + 1, now + delay);
+        }
+
+        String sessionId() {
+            return session.getSessionId();
+        }
+    }
+
+    private final DBDynamicSessionStore root;
+    private final SessionRevocationStore revocationStore;
+    private final SessionFactory sessionFactory;
+    private final DynamicSessionStoreConfig config;
+    private final Map<String, ClientSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> userSessions = new ConcurrentHashMap<>();
+    private final BlockingQueue<PendingWrite> pendingWrites = new LinkedBlockingQueue<>();
+    private final Queue<PendingWrite> retries = new ConcurrentLinkedQueue<>();
+    private final Meter writeFailures;
+    private ScheduledExecutorService flusher;
+    private long sequence = -1;
+
+    public InMemoryDynamicSessionStore(
+            DBDynamicSessionStore root,
+            SessionRevocationStore revocationStore,
+            SessionFactory sessionFactory,
+            DynamicSessionStoreConfig config,
+            MetricRegistry metrics) {
+        this.root = root;
+        this.revocationStore = revocationStore;
+        this.sessionFactory = sessionFactory;
+        this.config = config;
+        this.writeFailures = metrics.meter(MetricRegistry.name(InMemoryDynamicSessionStore.class, "writeFailures"));
+        metrics.gauge(MetricRegistry.name(InMemoryDynamicSessionStore.class, "size"),
+                      () -> (Gauge<Integer>) sessions::size);
+        metrics.gauge(MetricRegistry.name(InMemoryDynamicSessionStore.class, "pendingWrites"),
+                      () -> (Gauge<Integer>) pendingWrites::size);
+        metrics.gauge(MetricRegistry.name(InMemoryDynamicSessionStore.class, "retryBacklog"),
+                      () -> (Gauge<Integer>) retries::size);
+    }
+
+    @Override
+    public void start() {
+        val active = Transactions.inTransaction(sessionFactory, session -> {
+            sequence = revocationStore.latestSequence();
+            return root.activeSessions();
+        });
+        active.forEach(this::index);
+        log.info("Loaded {} active dynamic sessions", active.size());
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            val thread = new Thread(runnable, "session-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        val intervalMs = config.getFlushInterval().toMilliseconds();
+        flusher.scheduleWithFixedDelay(this::flushSafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        val pollIntervalMs = config.getRevocationPollInterval().toMilliseconds();
+        flusher.scheduleWithFixedDelay(this::pollRevocationsSafely,
+                                       pollIntervalMs,
+                                       pollIntervalMs,
+                                       TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (null != flusher) {
+            flusher.shutdown();
+            flusher.awaitTermination(config.getFlushInterval().toMilliseconds() * 2, TimeUnit.MILLISECONDS);
+        }
+        while (!pendingWrites.isEmpty()) {
+            flush();
+        }
+        if (!retries.isEmpty()) {
+            log.error("{} session changes could not be written to the database", retries.size());
+        }
+    }
+
+    @Override
+    public Optional<ClientSession> create(
+            String sessionId,
+            String userId,
+            String serviceId,
+            String clientSessionId,
+            Date expiry) {
+        val now = new Date();
+        val session = new ClientSession(sessionId,
+                                        userId,
+                                        serviceId,
+                                        clientSessionId,
+                                        TokenType.DYNAMIC,
+                                        expiry,
+                                        false,
+                                        now,
+                                        now);
+        if (!index(session)) {
+            throw new IllegalArgumentException("Session exists");
+        }
+        pendingWrites.add(new PendingWrite(WriteType.CREATE, session));
+        return Optional.of(session);
+    }
+
+    @Override
+    public Optional<ClientSession> get(String sessionId) {
+        val session = sessions.get(sessionId);
+        if (null == session) {
+            return root.get(sessionId);
+        }
+        return session.isDeleted() ? Optional.empty() : Optional.of(session);
+    }
+
+    @Override
+    public Optional<IdmanUser> sessionUser(String sessionId, String serviceId) {
+        return Optional.ofNullable(sessionUsers(List.of(sessionId), serviceId).get(sessionId));
+    }
+
+    @Override
+    public Map<String, IdmanUser> sessionUsers(Collection<String> sessionIds, String serviceId) {
+        val known = new ArrayList<ClientSession>();
+        val unknown = new ArrayList<String>();
+        for (String sessionId : sessionIds) {
+            val session = sessions.get(sessionId);
+            if (null == session) {
+                unknown.add(sessionId);
+            }
+            else if (!session.isDeleted() && session.getServiceId().equals(serviceId)) {
+                known.add(session);
+            }
+        }
+        val users = new HashMap<>(SessionUserQuery.sessionUsers(sessionFactory.getCurrentSession(), known, serviceId));
+        if (!unknown.isEmpty()) {
+            users.putAll(root.sessionUsers(unknown, serviceId));
+        }
+        return users;
+    }
+
+    @Override
+    public List<ClientSession> sessionsForUser(String userId) {
+        val userSessionsById = new HashMap<String, ClientSession>();
+        root.sessionsForUser(userId).forEach(session -> userSessionsById.put(session.getSessionId(), session));
+        userSessions.getOrDefault(userId, Collections.emptySet())
+                .forEach(sessionId -> {
+                    val session = sessions.get(sessionId);
+                    if (null != session) {
+                        userSessionsById.put(sessionId, session);
+                    }
+                });
+        val now = new Date();
+        return userSessionsById.values()
+                .stream()
+                .filter(session -> !session.isDeleted()
+                        && (null == session.getExpiry() || session.getExpiry().after(now)))
+                .sorted(Comparator.comparing(ClientSession::getUpdated,
+                                             Comparator.nullsLast(Comparator.reverseOrder())))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean delete(String sessionId) {
+        val deleted = sessions.computeIfPresent(
+                sessionId,
+                (id, session) -> new ClientSession(session.getSessionId(),
+                                                   session.getUserId(),
+                                                   session.getServiceId(),
+                                                   session.getClientSessionId(),
+                                                   session.getType(),
+                                                   session.getExpiry(),
+                                                   true,
+                                                   session.getCreated(),
+                                                   new Date()));
+        if (null == deleted) {
+            return root.delete(sessionId);
+        }
+        pendingWrites.add(new PendingWrite(WriteType.DELETE, deleted));
+        return true;
+    }
+
+    /**
+     * Writes up to {@code flushBatchSize} changes in one transaction, retries that are due first. If the batch fails,
+     * changes are written one by one and the ones that still fail are queued for retry.
+     */
+    synchronized void flush() {
+        val now = System.currentTimeMillis();
+        val batch = new ArrayList<PendingWrite>(config.getFlushBatchSize());
+        val waiting = new HashSet<String>();
+        val retryIterator = retries.iterator();
+        while (retryIterator.hasNext()) {
+            val retry = retryIterator.next();
+            if (retry.getRetryAt() <= now
+                    && !waiting.contains(retry.sessionId())
+                    && batch.size() < config.getFlushBatchSize()) {
+                batch.add(retry);
+                retryIterator.remove();
+            }
+            else {
+                waiting.add(retry.sessionId());
+            }
+        }
+        val fresh = new ArrayList<PendingWrite>(config.getFlushBatchSize() - batch.size());
+        pendingWrites.drainTo(fresh, config.getFlushBatchSize() - batch.size());
+        for (PendingWrite pendingWrite : fresh) {
+            if (waiting.contains(pendingWrite.sessionId())) {
+                retries.add(pendingWrite);
+            }
+            else {
+                batch.add(pendingWrite);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        var written = batch;
+        try {
+            Transactions.inTransaction(sessionFactory, session -> {
+                batch.forEach(this::write);
+                return null;
+            });
+        }
+        catch (RuntimeException e) {
+            log.warn("Error writing batch of {} session changes, retrying individually", batch.size(), e);
+            written = new ArrayList<>();
+            val failed = new HashSet<String>();
+            for (PendingWrite pendingWrite : batch) {
+                if (failed.contains(pendingWrite.sessionId())) {
+                    retries.add(pendingWrite);
+                    continue;
+                }
+                try {
+                    Transactions.inTransaction(sessionFactory, session -> {
+                        write(pendingWrite);
+                        return null;
+                    });
+                    written.add(pendingWrite);
+                }
+                catch (RuntimeException writeError) {
+                    writeFailures.mark();
+                    failed.add(pendingWrite.sessionId());
+                    val retry = pendingWrite.failed(now, config);
+                    retries.add(retry);
+                    log.error("Could not write {} for session {}, attempt {}. Will retry in {} ms",
+                              pendingWrite.getType(), pendingWrite.sessionId(), retry.getAttempts(),
+                              retry.getRetryAt() - now, writeError);
+                }
+            }
+        }
+        written.stream()
+                .filter(pendingWrite -> pendingWrite.getType() == WriteType.DELETE)
+                .forEach(pendingWrite -> evict(pendingWrite.sessionId()));
+    }
+
+    /**
+     * Evicts sessions that were deleted on other nodes, so that they are read from the database from here on
+     */
+    synchronized void pollRevocations() {
+        Transactions.inTransaction(sessionFactory, session -> {
+            if (sequence < 0) {
+                sequence = revocationStore.latestSequence();
+                return null;
+            }
+            val cutoff = new Date(System.currentTimeMillis() - config.getRevocationLookback().toMilliseconds());
+            revocationStore.recent(sequence, cutoff, MAX_REVOCATIONS_PER_POLL)
+                    .forEach(this::apply);
+            List<StoredSessionRevocation> revocations;
+            do {
+                revocations = revocationStore.since(sequence, MAX_REVOCATIONS_PER_POLL);
+                for (StoredSessionRevocation revocation : revocations) {
+                    apply(revocation);
+                    sequence = revocation.getId();
+                }
+            } while (revocations.size() == MAX_REVOCATIONS_PER_POLL);
+            return null;
+        });
+    }
+
+    private void pollRevocationsSafely() {
+        try {
+            pollRevocations();
+        }
+        catch (Exception e) {
+            log.error("Error reading session revocations", e);
+        }
+    }
+
+    /**
+     * Sessions deleted through this node are left to the flusher, as the delete might not have been written yet
+     */
+    private void apply(StoredSessionRevocation revocation) {
+        if (revocation.getKind() != RevocationKind.REVOKED) {
+            return;
+        }
+        val session = sessions.get(revocation.getSessionId());
+        if (null != session && !session.isDeleted()) {
+            evict(revocation.getSessionId());
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+            evictExpired();
+        }
+        catch (Exception e) {
+            log.error("Error flushing sessions", e);
+        }
+    }
+
+    private void write(PendingWrite pendingWrite) {
+        val session = pendingWrite.getSession();
+        if (pendingWrite.getType() == WriteType.CREATE) {
+            root.create(session.getSessionId(),
+                        session.getUserId(),
+                        session.getServiceId(),
+                        session.getClientSessionId(),
+                        session.getExpiry());
+        }
+        else {
+            root.delete(session.getSessionId());
+        }
+    }
+
+    private boolean index(ClientSession session) {
+        if (null != sessions.putIfAbsent(session.getSessionId(), session)) {
+            return false;
+        }
+        userSessions.compute(session.getUserId(), (userId, sessionIds) -> {
+            val ids = null == sessionIds ? ConcurrentHashMap.<String>newKeySet() : sessionIds;
+            ids.add(session.getSessionId());
+            return ids;
+        });
+        return true;
+    }
+
+    private void evict(String sessionId) {
+        val session = sessions.remove(sessionId);
+        if (null != session) {
+            userSessions.computeIfPresent(session.getUserId(), (userId, sessionIds) -> {
+                sessionIds.remove(sessionId);
+                return sessionIds.isEmpty() ? null : sessionIds;
+            });
+        }
+    }
+
+    private void evictExpired() {
+        val now = new Date();
+        sessions.values()
+                .stream()
+                .filter(session -> !session.isDeleted()
+                        && null != session.getExpiry()
+                        && session.getExpiry().before(now))
+                .map(ClientSession::getSessionId)
+                .collect(Collectors.toList())
+                .forEach(this::evict);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.impl;
+
+import com.google.common.base.Strings;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Page tokens carry the sort key of the last row of a page, so that the next page can seek past it.
+ * Each key part is base64url encoded, parts are separated by dots.
+ */
+@UtilityClass
+@Slf4j
+class PageTokens {
+    static final int MAX_PAGE_SIZE = 500;
+
+    private static final String SEPARATOR = ".";
+
+    static String encode(String... keys) {
+        return Arrays.stream(keys)
+                .map(key -> Base64.getUrlEncoder()
+                        .withoutPadding()
+                        .encodeToString(key.getBytes(StandardCharsets.UTF_8)))
+                .reduce((lhs, rhs) -> lhs + SEPARATOR + rhs)
+                .orElse("");
+    }
+
+    /**
+     * @return Key parts, or empty for a missing or malformed token, in which case listing starts from the first row
+     */
+    static Optional<String[]> decode(String token, int parts) {
+        if (Strings.isNullOrEmpty(token)) {
+            return Optional.empty();
+        }
+        val encoded = token.split("\\.", -1);
+        if (encoded.length != parts) {
+            log.warn("Ignoring page token with {} parts, expected {}", encoded.length, parts);
+            return Optional.empty();
+        }
+        try {
+            val keys = new String[parts];
+            for (int i = 0; i < parts; i++) {
+                keys[i] = new String(Base64.getUrlDecoder().decode(encoded[i]), StandardCharsets.UTF_8);
+            }
+            return Optional.of(keys);
+        }
+        catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed page token: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    static int pageSize(int requested) {
+        return Math.max(1, Math.min(requested, MAX_PAGE_SIZE));
+    }
+}
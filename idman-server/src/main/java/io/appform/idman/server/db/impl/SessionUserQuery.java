@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.impl;
+
+import io.appform.idman.model.AuthMode;
+import io.appform.idman.model.IdmanUser;
+import io.appform.idman.model.User;
+import io.appform.idman.model.UserType;
+import io.appform.idman.server.db.FieldNames;
+import io.appform.idman.server.db.model.ClientSession;
+import io.appform.idman.server.db.model.StoredUser;
+import io.appform.idman.server.db.model.StoredUserRole;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import org.hibernate.Session;
+
+import javax.persistence.Tuple;
+import java.util.*;
+
+/**
+ * Resolves session, user, auth state and role mapping for tokens in a single query
+ */
+@UtilityClass
+class SessionUserQuery {
+    private static final String SESSION_ID = "sessionId";
+
+    static <T> Optional<IdmanUser> sessionUser(
+            Session session,
+            Class<T> sessionEntity,
+            String sessionId,
+            String serviceId) {
+        return Optional.ofNullable(sessionUsers(session, sessionEntity, List.of(sessionId), serviceId).get(sessionId));
+    }
+
+    /**
+     * @return Users keyed by session id. Sessions that are not active for the service are absent from the result.
+     */
+    static <T> Map<String, IdmanUser> sessionUsers(
+            Session session,
+            Class<T> sessionEntity,
+            Collection<String> sessionIds,
+            String serviceId) {
+        if (sessionIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        val cb = session.getCriteriaBuilder();
+        val cr = cb.createTupleQuery();
+        val clientSession = cr.from(sessionEntity);
+        val user = cr.from(StoredUser.class);
+        val authState = user.join("authState");
+        val userRole = cr.from(StoredUserRole.class);
+        cr.multiselect(clientSession.get(SESSION_ID),
+                       user.get(FieldNames.USER_ID),
+                       user.get("name"),
+                       user.get("userType"),
+                       authState.get("authMode"),
+                       userRole.get(FieldNames.ROLE_ID))
+                .where(clientSession.get(SESSION_ID).in(sessionIds),
+                       cb.equal(clientSession.get(FieldNames.SERVICE_ID), serviceId),
+                       cb.equal(clientSession.get(FieldNames.DELETED), false),
+                       cb.equal(user.get(FieldNames.USER_ID), clientSession.get(FieldNames.USER_ID)),
+                       cb.equal(user.get(FieldNames.DELETED), false),
+                       cb.equal(userRole.get(FieldNames.USER_ID), clientSession.get(FieldNames.USER_ID)),
+                       cb.equal(userRole.get(FieldNames.SERVICE_ID), serviceId),
+                       cb.equal(userRole.get(FieldNames.DELETED), false));
+        val users = new HashMap<String, IdmanUser>();
+        for (Tuple row : session.createQuery(cr).getResultList()) {
+            val sessionId = row.get(0, String.class);
+            users.putIfAbsent(sessionId, new IdmanUser(sessionId,
+                                                       serviceId,
+                                                       new User(row.get(1, String.class),
+                                                                row.get(2, String.class),
+                                                                row.get(3, UserType.class),
+                                                                row.get(4, AuthMode.class)),
+                                                       row.get(5, String.class)));
+        }
+        return users;
+    }
+
+    /**
+     * Resolves users for sessions that are already known to be active, without reading the session tables
+     *
+     * @return Users keyed by session id. Sessions of deleted users or users without a role in the service are absent.
+     */
+    static Map<String, IdmanUser> sessionUsers(
+            Session session,
+            Collection<ClientSession> clientSessions,
+            String serviceId) {
+        if (clientSessions.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        val userIds = new HashSet<String>();
+        clientSessions.forEach(clientSession -> userIds.add(clientSession.getUserId()));
+        val cb = session.getCriteriaBuilder();
+        val cr = cb.createTupleQuery();
+        val user = cr.from(StoredUser.class);
+        val authState = user.join("authState");
+        val userRole = cr.from(StoredUserRole.class);
+        cr.multiselect(user.get(FieldNames.USER_ID),
+                       user.get("name"),
+                       user.get("userType"),
+                       authState.get("authMode"),
+                       userRole.get(FieldNames.ROLE_ID))
+                .where(user.get(FieldNames.USER_ID).in(userIds),
+                       cb.equal(user.get(FieldNames.DELETED), false),
+                       cb.equal(userRole.get(FieldNames.USER_ID), user.get(FieldNames.USER_ID)),
+                       cb.equal(userRole.get(FieldNames.SERVICE_ID), serviceId),
+                       cb.equal(userRole.get(FieldNames.DELETED), false));
+        val rows = new HashMap<String, Tuple>();
+        for (Tuple row : session.createQuery(cr).getResultList()) {
+            rows.putIfAbsent(row.get(0, String.class), row);
+        }
+        val users = new HashMap<String, IdmanUser>();
+        for (ClientSession clientSession : clientSessions) {
+            val row = rows.get(clientSession.getUserId());
+            if (null != row) {
+                users.put(clientSession.getSessionId(),
+                          new IdmanUser(clientSession.getSessionId(),
+                                        serviceId,
+                                        new User(row.get(0, String.class),
+                                                 row.get(1, String.class),
+                                                 row.get(2, UserType.class),
+                                                 row.get(3, AuthMode.class)),
+                                        row.get(4, String.class)));
+            }
+        }
+        return users;
+    }
+}
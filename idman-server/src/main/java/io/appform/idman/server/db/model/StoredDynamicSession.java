@@ -41,7 +41,16 @@ import java.util.Date;
 )
 @Data
 @NoArgsConstructor
+@NamedQueries({
+        @NamedQuery(name = StoredDynamicSession.BY_SESSION_ID,
+                    query = "from StoredDynamicSession where sessionId = :sessionId"),
+        @NamedQuery(name = StoredDynamicSession.ACTIVE_BY_SESSION_ID,
+                    query = "from StoredDynamicSession where sessionId = :sessionId and deleted = false")
+})
 public class StoredDynamicSession {
+    public static final String BY_SESSION_ID = "StoredDynamicSession.bySessionId";
+    public static final String ACTIVE_BY_SESSION_ID = "StoredDynamicSession.activeBySessionId";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
@@ -31,7 +31,12 @@ import java.util.Date;
 @Entity
 @Table(name = "passwords")
 @SQLDelete(sql="UPDATE passwords SET deleted = '1' WHERE id = ?")
+@NamedQueries({
+        @NamedQuery(name = StoredPassword.BY_USER_ID, query = "from StoredPassword where userId = :userId")
+})
 public class StoredPassword {
+    public static final String BY_USER_ID = "StoredPassword.byUserId";
+
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -14,10 +14,14 @@
 
 package io.appform.idman.server.db.model;
 
+import io.appform.idman.server.db.cache.HibernateCaches;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Generated;
 import org.hibernate.annotations.GenerationTime;
+import org.hibernate.annotations.QueryHints;
 import org.hibernate.annotations.SQLDelete;
 
 import javax.persistence.*;
@@ -33,7 +37,16 @@ import java.util.Date;
 @SQLDelete(sql="UPDATE service_permissions SET deleted = '1' WHERE id = ?")
 @Data
 @NoArgsConstructor
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCaches.ROLES)
+@NamedQueries({
+        @NamedQuery(name = StoredRole.BY_ROLE_ID,
+                    query = "from StoredRole where serviceId = :serviceId and roleId = :roleId",
+                    hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true"))
+})
 public class StoredRole {
+    public static final String BY_ROLE_ID = "StoredRole.byRoleId";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
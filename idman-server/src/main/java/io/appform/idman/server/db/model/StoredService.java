@@ -14,10 +14,14 @@
 
 package io.appform.idman.server.db.model;
 
+import io.appform.idman.server.db.cache.HibernateCaches;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Generated;
 import org.hibernate.annotations.GenerationTime;
+import org.hibernate.annotations.QueryHints;
 import org.hibernate.annotations.SQLDelete;
 
 import javax.persistence.*;
@@ -29,12 +33,22 @@ import java.util.Date;
 @Entity
 @Table(name = "services",
         indexes = {
-                @Index(name = "idx_service", columnList = "service_id")
+                @Index(name = "idx_service", columnList = "service_id"),
+                @Index(name = "idx_service_name", columnList = "name, service_id")
         })
 @SQLDelete(sql = "UPDATE services SET deleted = '1' WHERE id = ?")
 @Data
 @NoArgsConstructor
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCaches.SERVICES)
+@NamedQueries({
+        @NamedQuery(name = StoredService.BY_SERVICE_ID,
+                    query = "from StoredService where serviceId = :serviceId",
+                    hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true"))
+})
 public class StoredService {
+    public static final String BY_SERVICE_ID = "StoredService.byServiceId";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.model;
+
+import io.appform.idman.server.db.RevocationKind;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Entry in the revocation log. The id doubles as the feed sequence number. Ids are assigned on insert but become
+ * visible on commit, so readers also go over recently created entries to pick up ones that committed late.
+ * Entries of kind {@link RevocationKind#CHANGED} only invalidate caches and are not passed on to clients.
+ */
+@Entity
+@Table(
+        name = "session_revocations",
+        indexes = {
+                @Index(name = "idx_sr_service_id", columnList = "service_id, kind, id"),
+                @Index(name = "idx_sr_service_created", columnList = "service_id, created"),
+                @Index(name = "idx_sr_created", columnList = "created")
+        }
+)
+@Data
+@NoArgsConstructor
+public class StoredSessionRevocation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(name = "session_id", nullable = false)
+    private String sessionId;
+
+    @Column(name = "service_id", nullable = false)
+    private String serviceId;
+
+    @Column(name = "kind", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private RevocationKind kind;
+
+    @Column(name = "created", columnDefinition = "timestamp", nullable = false, updatable = false)
+    private Date created;
+
+    public StoredSessionRevocation(String sessionId, String serviceId, RevocationKind kind) {
+        this.sessionId = sessionId;
+        this.serviceId = serviceId;
+        this.kind = kind;
+        this.created = new Date();
+    }
+}
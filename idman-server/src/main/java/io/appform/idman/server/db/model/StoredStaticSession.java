@@ -36,7 +36,16 @@ import java.util.Date;
 )
 @Data
 @NoArgsConstructor
+@NamedQueries({
+        @NamedQuery(name = StoredStaticSession.BY_SESSION_ID,
+                    query = "from StoredStaticSession where sessionId = :sessionId"),
+        @NamedQuery(name = StoredStaticSession.ACTIVE_BY_SESSION_ID,
+                    query = "from StoredStaticSession where sessionId = :sessionId and deleted = false")
+})
 public class StoredStaticSession {
+    public static final String BY_SESSION_ID = "StoredStaticSession.bySessionId";
+    public static final String ACTIVE_BY_SESSION_ID = "StoredStaticSession.activeBySessionId";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
@@ -33,7 +33,16 @@ import java.util.Date;
     })
 @Data
 @NoArgsConstructor
+@NamedQueries({
+        @NamedQuery(name = StoredUser.BY_USER_ID,
+                    query = "from StoredUser u left join fetch u.authState where u.userId = :userId"),
+        @NamedQuery(name = StoredUser.BY_EMAIL,
+                    query = "from StoredUser u left join fetch u.authState where u.email = :email")
+})
 public class StoredUser {
+    public static final String BY_USER_ID = "StoredUser.byUserId";
+    public static final String BY_EMAIL = "StoredUser.byEmail";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
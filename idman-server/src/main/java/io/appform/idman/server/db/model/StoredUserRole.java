@@ -36,7 +36,16 @@ import java.util.Date;
         })
 @Data
 @NoArgsConstructor
+@NamedQueries({
+        @NamedQuery(name = StoredUserRole.BY_USER_AND_SERVICE,
+                    query = "from StoredUserRole where userId = :userId and serviceId = :serviceId"),
+        @NamedQuery(name = StoredUserRole.ACTIVE_BY_USER_AND_SERVICE,
+                    query = "from StoredUserRole where userId = :userId and serviceId = :serviceId and deleted = false")
+})
 public class StoredUserRole {
+    public static final String BY_USER_AND_SERVICE = "StoredUserRole.byUserAndService";
+    public static final String ACTIVE_BY_USER_AND_SERVICE = "StoredUserRole.activeByUserAndService";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.replica;
+
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.util.Duration;
+import lombok.Data;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Optional read replica for read-only units of work. Reads go to the primary when this is not configured.
+ */
+@Data
+public class ReadReplicaConfig {
+    @Valid
+    private DataSourceFactory db;
+
+    /**
+     * Reads fall back to the primary while the replica is further behind than this
+     */
+    @NotNull
+    private Duration maxLag = Duration.seconds(5);
+
+    @NotNull
+    private Duration checkInterval = Duration.seconds(1);
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.replica;
+
+import io.dropwizard.hibernate.UnitOfWork;
+import lombok.val;
+
+import javax.ws.rs.container.*;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Routes resource methods annotated with {@code @UnitOfWork(readOnly = true)} to the read replica. The flag is set
+ * before the unit of work opens its session and cleared once the response is ready.
+ */
+@Provider
+public class ReadReplicaFeature implements DynamicFeature {
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        val unitOfWork = resourceInfo.getResourceMethod().getAnnotation(UnitOfWork.class);
+        if (null != unitOfWork && unitOfWork.readOnly()) {
+            context.register(new ReadOnlyUnitOfWorkFilter());
+        }
+    }
+
+    private static class ReadOnlyUnitOfWorkFilter implements ContainerRequestFilter, ContainerResponseFilter {
+        @Override
+        public void filter(ContainerRequestContext requestContext) {
+            ReplicaRouting.setReadOnly(true);
+        }
+
+        @Override
+        public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+            ReplicaRouting.setReadOnly(false);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.replica;
+
+import io.dropwizard.hibernate.HibernateBundle;
+import io.dropwizard.hibernate.UnitOfWork;
+import io.dropwizard.hibernate.UnitOfWorkAspect;
+import io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.context.internal.ManagedSessionContext;
+
+import java.util.Map;
+
+/**
+ * Unit of work proxies that route read-only units of work to the read replica when they open their own session.
+ * A read-only unit of work called from within a read-write one joins it and reads from the primary.
+ */
+public class ReplicaAwareProxyFactory extends UnitOfWorkAwareProxyFactory {
+    private final SessionFactory sessionFactory;
+
+    public ReplicaAwareProxyFactory(HibernateBundle<?> bundle) {
+        super(bundle);
+        this.sessionFactory = bundle.getSessionFactory();
+    }
+
+    public ReplicaAwareProxyFactory(String name, SessionFactory sessionFactory) {
+        super(name, sessionFactory);
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public UnitOfWorkAspect newAspect(Map<String, SessionFactory> sessionFactories) {
+        return new RoutingUnitOfWorkAspect(sessionFactories, sessionFactory);
+    }
+
+    private static class RoutingUnitOfWorkAspect extends UnitOfWorkAspect {
+        private final SessionFactory sessionFactory;
+        private UnitOfWork unitOfWork;
+        private Boolean previousReadOnly;
+
+        RoutingUnitOfWorkAspect(Map<String, SessionFactory> sessionFactories, SessionFactory sessionFactory) {
+            super(sessionFactories);
+            this.sessionFactory = sessionFactory;
+        }
+
+        @Override
+        public void beforeStart(UnitOfWork unitOfWork) {
+            this.unitOfWork = unitOfWork;
+            if (null != unitOfWork && !ManagedSessionContext.hasBind(sessionFactory)) {
+                previousReadOnly = ReplicaRouting.setReadOnly(unitOfWork.readOnly());
+            }
+            super.beforeStart(unitOfWork);
+        }
+
+        @Override
+        public void onFinish() {
+            try {
+                super.onFinish();
+            }
+            finally {
+                if (null != previousReadOnly) {
+                    ReplicaRouting.setReadOnly(previousReadOnly);
+                    previousReadOnly = null;
+                }
+            }
+        }
+
+        @Override
+        protected void validateSession() {
+            if (unitOfWork.readOnly() && !getSession().isDefaultReadOnly()) {
+                return;
+            }
+            super.validateSession();
+        }
+    }
+}
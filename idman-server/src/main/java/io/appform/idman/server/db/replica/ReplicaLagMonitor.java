@@ -0,0 +1,137 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.replica;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Tracks how far the replica is behind the primary, using a heartbeat counter in the {@code replica_heartbeat} table
+ * as the replication marker. Every check bumps the counter on the primary and notes its new value; the lag is the age
+ * of the oldest noted value the replica has not received yet. The counter moves on every check, so the lag shows up
+ * even when nothing else is being written.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+    static final String BEAT_UPDATE = "UPDATE replica_heartbeat SET beat = beat + 1 WHERE id = 1";
+    static final String BEAT_INSERT = "INSERT INTO replica_heartbeat (id, beat) VALUES (1, 1)";
+    static final String BEAT_QUERY = "SELECT beat FROM replica_heartbeat WHERE id = 1";
+    private static final int MAX_PENDING = 1_000;
+
+    @Value
+    private static class Observation {
+        long seenAt;
+        long sequence;
+    }
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long maxLagMs;
+    private final Deque<Observation> pending = new ArrayDeque<>();
+    private volatile boolean usable = false;
+    private volatile long lagMs = 0;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, long maxLagMs) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLagMs = maxLagMs;
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    public long lagMs() {
+        return lagMs;
+    }
+
+    /**
+     * Stops routing reads to the replica until the next successful check
+     */
+    public void markFailed() {
+        updateUsable(false);
+    }
+
+    public synchronized void check(long now) {
+        try {
+            val primarySequence = beat(primary);
+            val replicaSequence = sequence(replica);
+            while (!pending.isEmpty() && pending.peekFirst().getSequence() <= replicaSequence) {
+                pending.pollFirst();
+            }
+            if (primarySequence > replicaSequence
+                    && (pending.isEmpty() || pending.peekLast().getSequence() < primarySequence)) {
+                if (pending.size() == MAX_PENDING) {
+                    pending.pollLast();
+                }
+                pending.addLast(new Observation(now, primarySequence));
+            }
+            lagMs = pending.isEmpty() ? 0 : now - pending.peekFirst().getSeenAt();
+            updateUsable(lagMs <= maxLagMs);
+        }
+        catch (SQLException | RuntimeException e) {
+            log.warn("Replica lag check failed: {}", e.getMessage());
+            updateUsable(false);
+        }
+    }
+
+    private void updateUsable(boolean usable) {
+        if (this.usable != usable) {
+            log.info("Read replica is now {}. Lag: {} ms", usable ? "in use" : "bypassed", lagMs);
+        }
+        this.usable = usable;
+    }
+
+    /**
+     * Bumps the heartbeat on the primary. The row is created if it is missing.
+     *
+     * @return The heartbeat after the bump, which can be ahead of this node's own bumps if other nodes bump it too
+     */
+    private static long beat(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            if (statement.executeUpdate(BEAT_UPDATE) == 0) {
+                statement.executeUpdate(BEAT_INSERT);
+            }
+            val beat = sequence(statement);
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+            return beat;
+        }
+    }
+
+    private static long sequence(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            return sequence(statement);
+        }
+    }
+
+    private static long sequence(Statement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(BEAT_QUERY)) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.replica;
+
+import lombok.experimental.UtilityClass;
+import lombok.val;
+
+/**
+ * Marks the calling thread as running a read-only unit of work. Connections acquired while this is set are taken
+ * from the read replica, if one is configured and usable.
+ */
+@UtilityClass
+public class ReplicaRouting {
+    private static final ThreadLocal<Boolean> READ_ONLY = ThreadLocal.withInitial(() -> false);
+
+    public static boolean isReadOnly() {
+        return READ_ONLY.get();
+    }
+
+    /**
+     * @return The previous value, to be restored once the unit of work is done
+     */
+    public static boolean setReadOnly(boolean readOnly) {
+        val previous = READ_ONLY.get();
+        READ_ONLY.set(readOnly);
+        return previous;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.replica;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.db.ManagedDataSource;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Hands out replica connections to threads running read-only units of work, see {@link ReplicaRouting}, and primary
+ * connections to everything else. Read-only work falls back to the primary while the replica is lagging or
+ * unreachable.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource implements ManagedDataSource {
+    private final ManagedDataSource primary;
+    private final ManagedDataSource replica;
+    private final ReplicaLagMonitor monitor;
+    private final long checkIntervalMs;
+    private final Meter replicaConnections;
+    private final Meter primaryFallbacks;
+    private ScheduledExecutorService scheduler;
+
+    public ReplicaRoutingDataSource(
+            ManagedDataSource primary,
+            ManagedDataSource replica,
+            ReadReplicaConfig config,
+            MetricRegistry metrics,
+            String name) {
+        this.primary = primary;
+        this.replica = replica;
+        this.monitor = new ReplicaLagMonitor(primary, replica, config.getMaxLag().toMilliseconds());
+        this.checkIntervalMs = config.getCheckInterval().toMilliseconds();
+        this.replicaConnections = metrics.meter(MetricRegistry.name(ReplicaRoutingDataSource.class,
+                                                                    name, "replicaConnections"));
+        this.primaryFallbacks = metrics.meter(MetricRegistry.name(ReplicaRoutingDataSource.class,
+                                                                  name, "primaryFallbacks"));
+        metrics.register(MetricRegistry.name(ReplicaRoutingDataSource.class, name, "lagMs"),
+                         (Gauge<Long>) monitor::lagMs);
+        metrics.register(MetricRegistry.name(ReplicaRoutingDataSource.class, name, "replicaUsable"),
+                         (Gauge<Boolean>) monitor::isReplicaUsable);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!ReplicaRouting.isReadOnly()) {
+            return primary.getConnection();
+        }
+        if (monitor.isReplicaUsable()) {
+            try {
+                val connection = replica.getConnection();
+                replicaConnections.mark();
+                return connection;
+            }
+            catch (SQLException e) {
+                log.warn("Could not get replica connection, falling back to primary: {}", e.getMessage());
+                monitor.markFailed();
+            }
+        }
+        primaryFallbacks.mark();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    public void start() throws Exception {
+        primary.start();
+        replica.start();
+        monitor.check(System.currentTimeMillis());
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            val thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> monitor.check(System.currentTimeMillis()),
+                                         checkIntervalMs,
+                                         checkIntervalMs,
+                                         TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (null != scheduler) {
+            scheduler.shutdownNow();
+        }
+        replica.stop();
+        primary.stop();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return primary.isWrapperFor(iface);
+    }
+}
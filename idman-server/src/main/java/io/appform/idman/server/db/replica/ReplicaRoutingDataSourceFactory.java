@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.replica;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.db.PooledDataSourceFactory;
+import io.dropwizard.util.Duration;
+import lombok.val;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Builds the primary pool, wrapped in a {@link ReplicaRoutingDataSource} when a read replica is configured.
+ * Everything else is taken from the primary configuration.
+ */
+public class ReplicaRoutingDataSourceFactory implements PooledDataSourceFactory {
+    private final DataSourceFactory primary;
+    private final ReadReplicaConfig replicaConfig;
+
+    public ReplicaRoutingDataSourceFactory(DataSourceFactory primary, ReadReplicaConfig replicaConfig) {
+        this.primary = primary;
+        this.replicaConfig = replicaConfig;
+    }
+
+    @Override
+    public ManagedDataSource build(MetricRegistry metricRegistry, String name) {
+        val primaryDataSource = primary.build(metricRegistry, name);
+        if (null == replicaConfig.getDb()) {
+            return primaryDataSource;
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource,
+                                            replicaConfig.getDb().build(metricRegistry, name + "-replica"),
+                                            replicaConfig,
+                                            metricRegistry,
+                                            name);
+    }
+
+    @Override
+    public boolean isAutoCommentsEnabled() {
+        return primary.isAutoCommentsEnabled();
+    }
+
+    @Override
+    public Map<String, String> getProperties() {
+        return primary.getProperties();
+    }
+
+    @Override
+    public Optional<Duration> getValidationQueryTimeout() {
+        return primary.getValidationQueryTimeout();
+    }
+
+    @Override
+    public Optional<Duration> getHealthCheckValidationTimeout() {
+        return primary.getHealthCheckValidationTimeout();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public Optional<String> getValidationQuery() {
+        return primary.getValidationQuery();
+    }
+
+    @Override
+    public String getHealthCheckValidationQuery() {
+        return primary.getHealthCheckValidationQuery();
+    }
+
+    @Override
+    public String getDriverClass() {
+        return primary.getDriverClass();
+    }
+
+    @Override
+    public String getUrl() {
+        return primary.getUrl();
+    }
+
+    @Override
+    public void asSingleConnectionPool() {
+        primary.asSingleConnectionPool();
+    }
+}
@@ -39,6 +39,9 @@ import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Size;
 import javax.ws.rs.PathParam;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -49,6 +52,8 @@ import java.util.stream.Collectors;
 @Singleton
 @Slf4j
 public class Engine {
+    public static final int ADMIN_PAGE_SIZE = 50;
+
     private final Provider<ServiceStore> serviceStore;
     private final Provider<RoleStore> roleStore;
     private final Provider<UserInfoStore> userInfoStore;
@@ -75,7 +80,11 @@ public class Engine {
         this.tokenManager = tokenManager;
     }
 
-    public EngineEvalResult renderHome(final ServiceUserPrincipal principal, final String redirect) {
+    public EngineEvalResult renderHome(
+            final ServiceUserPrincipal principal,
+            final String redirect,
+            final String servicesPageToken,
+            final String usersPageToken) {
         val idmanUser = principal.getServiceUser();
         val userId = idmanUser.getUser().getId();
         val currentUser = userInfoStore.get().get(userId).orElse(null);
@@ -90,8 +99,10 @@ public class Engine {
         }
         return new ViewOpSuccess(
                 new HomeView(
-                        serviceStore.get().list(false),
-                        userInfoStore.get().list(false),
+                        serviceStore.get().list(false, servicesPageToken, ADMIN_PAGE_SIZE),
+                        servicesPageToken,
+                        userInfoStore.get().list(false, usersPageToken, ADMIN_PAGE_SIZE),
+                        usersPageToken,
                         principal.getServiceUser()));
     }
 
@@ -108,36 +119,49 @@ public class Engine {
         return new ServiceOpSuccess(service.getServiceId());
     }
 
-    public EngineEvalResult renderServiceDetails(final ServiceUserPrincipal principal, final String serviceId) {
+    public EngineEvalResult renderServiceDetails(
+            final ServiceUserPrincipal principal,
+            final String serviceId,
+            final String usersPageToken,
+            final String mappedUsersPageToken) {
         val service = serviceStore.get().get(serviceId).orElse(null);
         if (null == service) {
             return new InvalidService();
         }
-        val serviceRoleMappings = userRoleStore.get().getServiceRoleMappings(serviceId);
+        val serviceRoleMappings = userRoleStore.get()
+                .getServiceRoleMappings(serviceId, mappedUsersPageToken, ADMIN_PAGE_SIZE);
         val roles = roleStore.get().list(serviceId, false);
         val roleMap = roles.stream()
                 .collect(Collectors.toMap(StoredRole::getRoleId, Function.identity()));
-        val allUsers = userInfoStore.get().list(false);
-        val mappedUserDetails = allUsers
+        val mappedUserDetails = userInfoStore.get()
+                .get(serviceRoleMappings.getItems()
+                             .stream()
+                             .map(StoredUserRole::getUserId)
+                             .collect(Collectors.toSet()))
                 .stream()
+                .filter(user -> !user.isDeleted())
                 .collect(Collectors.toMap(StoredUser::getUserId, Function.identity()));
 
         return new ViewOpSuccess(
                 new ServiceDetailsView(
                         service,
                         roles,
-                        allUsers,
-                        serviceRoleMappings.stream()
-                                .map(mapping -> {
-                                    val user = mappedUserDetails.get(mapping.getUserId());
-                                    val role = roleMap.get(mapping.getRoleId());
-                                    if (null == user || null == role) {
-                                        return null;
-                                    }
-                                    return new ServiceDetailsView.ServiceUser(user, role);
-                                })
-                                .filter(Objects::nonNull)
-                                .collect(Collectors.toList()),
+                        userInfoStore.get().list(false, usersPageToken, ADMIN_PAGE_SIZE),
+                        usersPageToken,
+                        new Page<>(serviceRoleMappings.getItems()
+                                           .stream()
+                                           .map(mapping -> {
+                                               val user = mappedUserDetails.get(mapping.getUserId());
+                                               val role = roleMap.get(mapping.getRoleId());
+                                               if (null == user || null == role) {
+                                                   return null;
+                                               }
+                                               return new ServiceDetailsView.ServiceUser(user, role);
+                                           })
+                                           .filter(Objects::nonNull)
+                                           .collect(Collectors.toList()),
+                                   serviceRoleMappings.getNextPageToken()),
+                        mappedUsersPageToken,
                         principal.getServiceUser()));
     }
 
@@ -313,6 +337,7 @@ public class Engine {
             log.warn("Name not updated for: {}", userId);
             return new UserOpFailure(userId);
         }
+        sessionStore.get().invalidateStaticSessions(userId, null);
         return new UserOpSuccess(userId);
     }
 
@@ -324,6 +349,10 @@ public class Engine {
         }
         val status = userStore.deleteUser(userId);
         log.info("Deletion status for: {} is: {}", userId, status);
+        if (status) {
+            sessionStore.get().invalidateStaticSessions(userId, null);
+            sessionStore.get().revokeDynamicSessions(userId, null);
+        }
         return new GeneralOpSuccess();
     }
 
@@ -409,6 +438,8 @@ public class Engine {
         }
         userRoleStore.get()
                 .mapUserToRole(userId, serviceId, roleId, sessionUser.getServiceUser().getUser().getId());
+        sessionStore.get().invalidateStaticSessions(userId, serviceId);
+        sessionStore.get().revokeDynamicSessions(userId, serviceId);
         log.info("Mapping user {} to role: {}/{} completed", userId, serviceId, roleId);
         if (null == referer || referer.toString().isEmpty()) {
             return new UserOpSuccess(userId);
@@ -416,6 +447,40 @@ public class Engine {
         return new RedirectToParam(referer.getPath());
     }
 
+    /**
+     * Maps a batch of users to a role. Users are validated with a single lookup; unknown and deleted users are
+     * skipped and reported back.
+     */
+    public EngineEvalResult mapUsersToRole(
+            final ServiceUserPrincipal sessionUser,
+            final String serviceId,
+            final String roleId,
+            final Collection<String> userIds) {
+        val service = serviceStore.get().get(serviceId).orElse(null);
+        val role = roleStore.get().get(serviceId, roleId).orElse(null);
+        if (service == null || service.isDeleted()
+                || role == null || role.isDeleted()) {
+            return new RoleOpFailure(serviceId, roleId);
+        }
+        val requested = new LinkedHashSet<>(userIds);
+        val validUserIds = userInfoStore.get()
+                .get(requested)
+                .stream()
+                .filter(user -> !user.isDeleted())
+                .map(StoredUser::getUserId)
+                .collect(Collectors.toSet());
+        val mapped = new ArrayList<String>(validUserIds.size());
+        val invalid = new ArrayList<String>();
+        requested.forEach(userId -> (validUserIds.contains(userId) ? mapped : invalid).add(userId));
+        userRoleStore.get()
+                .mapUsersToRole(mapped, serviceId, roleId, sessionUser.getServiceUser().getUser().getId());
+        sessionStore.get().invalidateStaticSessions(mapped, serviceId);
+        sessionStore.get().revokeDynamicSessions(mapped, serviceId);
+        log.info("Mapping {} users to role: {}/{} completed. Skipped {} invalid users",
+                 mapped.size(), serviceId, roleId, invalid.size());
+        return new UsersMappedToRole(serviceId, roleId, mapped, invalid);
+    }
+
     public EngineEvalResult unmapUserFromRole(
             final URI referer, final String serviceId, final String roleId, final String userId) {
         val service = serviceStore.get().get(serviceId).orElse(null);
@@ -428,6 +493,10 @@ public class Engine {
         }
         val status = userRoleStore.get().unmapUserFromRole(userId, serviceId);
         log.info("Status for unmapping user {} from role: {}/{}: {}", userId, serviceId, roleId, status);
+        if (status) {
+            sessionStore.get().invalidateStaticSessions(userId, serviceId);
+            sessionStore.get().revokeDynamicSessions(userId, serviceId);
+        }
         if (null == referer || referer.toString().isEmpty()) {
             return new UserOpSuccess(userId);
         }
@@ -45,4 +45,6 @@ public interface EngineEvalResultVisitor <T> {
     T visit(RoleOpSuccess roleOpSuccess);
 
     T visit(TokenOpSuccess tokenOpSuccess);
+
+    T visit(UsersMappedToRole usersMappedToRole);
 }
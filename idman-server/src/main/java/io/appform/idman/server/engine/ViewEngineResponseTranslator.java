@@ -19,6 +19,7 @@ import io.appform.idman.server.engine.results.*;
 import io.appform.idman.server.utils.Utils;
 
 import javax.inject.Inject;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.net.URI;
 
@@ -106,6 +107,11 @@ public class ViewEngineResponseTranslator implements EngineEvalResultVisitor<Res
                                       + "/" + tokenOpSuccess.getSessionId());
     }
 
+    @Override
+    public Response visit(UsersMappedToRole usersMappedToRole) {
+        return Response.ok(usersMappedToRole).type(MediaType.APPLICATION_JSON_TYPE).build();
+    }
+
     private Response redirectToLogin() {
         return redirectToPage("/auth/login");
     }
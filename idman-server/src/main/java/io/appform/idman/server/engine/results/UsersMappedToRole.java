@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.engine.results;
+
+import io.appform.idman.server.engine.EngineEvalResult;
+import io.appform.idman.server.engine.EngineEvalResultVisitor;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk role mapping. Users that do not exist or are deleted are skipped and reported.
+ */
+@Value
+public class UsersMappedToRole implements EngineEvalResult {
+    String serviceId;
+    String roleId;
+    List<String> mappedUserIds;
+    List<String> invalidUserIds;
+
+    @Override
+    public <T> T accept(EngineEvalResultVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
@@ -15,6 +15,7 @@
 package io.appform.idman.server.localauth;
 
 import io.appform.idman.client.IdManClient;
+import io.appform.idman.client.IdmanClientConfig;
 import io.appform.idman.model.IdmanUser;
 import io.appform.idman.model.TokenInfo;
 import io.appform.idman.model.TokenType;
@@ -24,19 +25,25 @@ import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import java.util.Optional;
 
 /**
  *
  */
 @Slf4j
+@Singleton
 public class LocalIdmanClient extends IdManClient {
 
     private final AuthenticationConfig authConfig;
     private final TokenManager tokenManager;
 
     @Inject
-    public LocalIdmanClient(AuthenticationConfig authConfig, TokenManager tokenManager) {
+    public LocalIdmanClient(
+            IdmanClientConfig clientConfig,
+            AuthenticationConfig authConfig,
+            TokenManager tokenManager) {
+        super(clientConfig);
         this.authConfig = authConfig;
         this.tokenManager = tokenManager;
     }
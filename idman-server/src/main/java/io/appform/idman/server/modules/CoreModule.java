@@ -14,30 +14,46 @@
 
 package io.appform.idman.server.modules;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
-import com.google.inject.name.Names;
+import com.google.inject.matcher.Matchers;
+import com.google.inject.name.Named;
 import io.appform.idman.client.IdManClient;
 import io.appform.idman.client.IdmanClientConfig;
 import io.appform.idman.model.AuthMode;
 import io.appform.idman.server.AppConfig;
 import io.appform.idman.server.auth.AuthenticationProvider;
+import io.appform.idman.server.auth.LoginFailureCounters;
+import io.appform.idman.server.auth.PasswordVerifier;
+import io.appform.idman.server.auth.RevocationFeed;
 import io.appform.idman.server.auth.TokenManager;
 import io.appform.idman.server.auth.configs.AuthenticationConfig;
 import io.appform.idman.server.auth.configs.AuthenticationProviderConfig;
 import io.appform.idman.server.auth.configs.JwtConfig;
+import io.appform.idman.server.auth.hashing.PasswordHashing;
 import io.appform.idman.server.auth.impl.PasswordAuthenticationProvider;
 import io.appform.idman.server.db.*;
+import io.appform.idman.server.db.cache.CachingRoleStore;
+import io.appform.idman.server.db.cache.CachingServiceStore;
+import io.appform.idman.server.db.cache.CachingStaticSessionStore;
+import io.appform.idman.server.db.cache.CachingUserRoleStore;
+import io.appform.idman.server.db.cache.StoreCacheConfig;
 import io.appform.idman.server.db.impl.*;
+import io.appform.idman.server.db.replica.ReplicaAwareProxyFactory;
 import io.appform.idman.server.localauth.LocalIdmanClient;
+import io.appform.idman.server.userimport.UserImporter;
+import io.dropwizard.hibernate.AbstractDAO;
 import io.dropwizard.hibernate.HibernateBundle;
+import io.dropwizard.setup.Environment;
 import io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory;
 import lombok.val;
 import org.hibernate.SessionFactory;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Create Data access objects
@@ -53,15 +69,14 @@ public class CoreModule extends AbstractModule {
 
     @Override
     protected void configure() {
-        bind(ServiceStore.class).to(DBServiceStore.class);
-        bind(RoleStore.class).to(DBRoleStore.class);
-        bind(UserRoleStore.class).to(DBUserRoleStore.class);
         bind(PasswordStore.class).to(DBPasswordStore.class);
-        bind(SessionStoreForType.class).annotatedWith(Names.named("dynamic")).to(DBDynamicSessionStore.class);
-        bind(SessionStoreForType.class).annotatedWith(Names.named("static")).to(DBStaticSessionStore.class);
         bind(SessionStore.class).to(CompositeSessionStore.class);
+        bind(SessionRevocationStore.class).to(DBSessionRevocationStore.class);
         bind(UserInfoStore.class).to(DBUserInfoStore.class);
         bind(IdManClient.class).to(LocalIdmanClient.class);
+        bindInterceptor(Matchers.subclassesOf(AbstractDAO.class),
+                        StoreMetricsInterceptor.STORE_METHODS,
+                        new StoreMetricsInterceptor(getProvider(MetricRegistry.class)));
     }
 
     @Provides
@@ -70,6 +85,101 @@ public class CoreModule extends AbstractModule {
         return hibernate.getSessionFactory();
     }
 
+    @Provides
+    @Singleton
+    public MetricRegistry metricRegistry(Environment environment) {
+        return environment.metrics();
+    }
+
+    @Provides
+    @Singleton
+    public StoreCacheConfig storeCacheConfig(AppConfig appConfig) {
+        return appConfig.getStoreCache();
+    }
+
+    @Provides
+    @Singleton
+    public ServiceStore serviceStore(
+            DBServiceStore store,
+            SessionFactory sessionFactory,
+            StoreCacheConfig cacheConfig,
+            MetricRegistry metrics) {
+        return cacheConfig.isEnabled()
+               ? new CachingServiceStore(store, sessionFactory, cacheConfig, metrics)
+               : store;
+    }
+
+    @Provides
+    @Singleton
+    public RoleStore roleStore(
+            DBRoleStore store,
+            SessionFactory sessionFactory,
+            StoreCacheConfig cacheConfig,
+            MetricRegistry metrics) {
+        return cacheConfig.isEnabled()
+               ? new CachingRoleStore(store, sessionFactory, cacheConfig, metrics)
+               : store;
+    }
+
+    @Provides
+    @Singleton
+    public UserRoleStore userRoleStore(
+            DBUserRoleStore store,
+            SessionFactory sessionFactory,
+            StoreCacheConfig cacheConfig,
+            MetricRegistry metrics) {
+        return cacheConfig.isEnabled()
+               ? new CachingUserRoleStore(store, sessionFactory, cacheConfig, metrics)
+               : store;
+    }
+
+    @Provides
+    @Singleton
+    @Named("static")
+    public SessionStoreForType staticSessionStore(
+            DBStaticSessionStore store,
+            SessionRevocationStore revocationStore,
+            SessionFactory sessionFactory,
+            StoreCacheConfig cacheConfig,
+            MetricRegistry metrics) {
+        return cacheConfig.isCacheStaticSessions()
+               ? new CachingStaticSessionStore(store, revocationStore, sessionFactory, cacheConfig, metrics)
+               : store;
+    }
+
+    @Provides
+    @Singleton
+    public DynamicSessionStoreConfig dynamicSessionStoreConfig(AppConfig appConfig) {
+        return appConfig.getDynamicSessionStore();
+    }
+
+    @Provides
+    @Singleton
+    @Named("dynamic")
+    public SessionStoreForType dynamicSessionStore(
+            DBDynamicSessionStore store,
+            SessionRevocationStore revocationStore,
+            DynamicSessionStoreConfig storeConfig,
+            MetricRegistry metrics,
+            Environment environment) {
+        if (storeConfig.getType() == DynamicSessionStoreConfig.StoreType.DB) {
+            return store;
+        }
+        val inMemoryStore = new InMemoryDynamicSessionStore(store,
+                                                            revocationStore,
+                                                            hibernate.getSessionFactory(),
+                                                            storeConfig,
+                                                            metrics);
+        environment.lifecycle().manage(inMemoryStore);
+        return inMemoryStore;
+    }
+
+    @Provides
+    @Singleton
+    public SessionReaperConfig sessionReaperConfig(AppConfig appConfig) {
+        return appConfig.getSessionReaper();
+    }
+
     @Provides
     @Singleton
     public AuthenticationConfig authenticationConfig(AppConfig appConfig) {
@@ -109,6 +219,41 @@ public class CoreModule extends AbstractModule {
         return Map.of(AuthMode.PASSWORD, credentialAuthenticationProvider);
     }
 
+    @Provides
+    @Singleton
+    public PasswordHashing passwordHashing(AuthenticationConfig authConfig) {
+        return PasswordHashing.create(authConfig.getPasswordHashing());
+    }
+
+    @Provides
+    @Singleton
+    public LoginFailureCounters loginFailureCounters(
+            UserInfoStore userInfoStore,
+            AuthenticationConfig authConfig,
+            Environment environment) {
+        val counters = new LoginFailureCounters(hibernate.getSessionFactory(),
+                                                userInfoStore,
+                                                AuthenticationProvider.MAX_FAILURES,
+                                                authConfig.getFailedLoginFlushInterval());
+        environment.lifecycle().manage(counters);
+        return counters;
+    }
+
+    @Provides
+    @Singleton
+    public PasswordVerifier passwordVerifier(
+            PasswordStore passwordStore,
+            AuthenticationConfig authConfig,
+            MetricRegistry metrics,
+            Environment environment) {
+        val verifier = new PasswordVerifier(hibernate.getSessionFactory(),
+                                            passwordStore,
+                                            authConfig.getPasswordVerification(),
+                                            metrics);
+        environment.lifecycle().manage(verifier);
+        return verifier;
+    }
+
     @Provides
     @Singleton
     public TokenManager idManClient(
@@ -116,23 +261,73 @@ public class CoreModule extends AbstractModule {
             UserInfoStore userInfoStore,
             ServiceStore serviceStore,
             UserRoleStore roleStore,
-            AuthenticationConfig authConfig) {
+            AuthenticationConfig authConfig,
+            MetricRegistry metrics) {
 
-        return new UnitOfWorkAwareProxyFactory(hibernate)
+        return new ReplicaAwareProxyFactory(hibernate)
                 .create(TokenManager.class,
                         new Class[]{
                                 UserInfoStore.class,
                                 ServiceStore.class,
                                 SessionStore.class,
                                 UserRoleStore.class,
-                                JwtConfig.class
+                                SessionFactory.class,
+                                JwtConfig.class,
+                                MetricRegistry.class
                         },
                         new Object[]{
                                 userInfoStore,
                                 serviceStore,
                                 sessionStore,
                                 roleStore,
-                                authConfig.getJwt()
+                                hibernate.getSessionFactory(),
+                                authConfig.getJwt(),
+                                metrics
+                        });
+    }
+
+    @Provides
+    @Singleton
+    public RevocationFeed revocationFeed(
+            ServiceStore serviceStore,
+            SessionRevocationStore revocationStore,
+            AuthenticationConfig authConfig,
+            Environment environment) {
+        val scheduler = environment.lifecycle()
+                .scheduledExecutorService("revocation-feed-%d")
+                .threads(1)
+                .build();
+        return new UnitOfWorkAwareProxyFactory(hibernate)
+                .create(RevocationFeed.class,
+                        new Class[]{
+                                ServiceStore.class,
+                                SessionRevocationStore.class,
+                                AuthenticationConfig.class,
+                                ScheduledExecutorService.class
+                        },
+                        new Object[]{
+                                serviceStore,
+                                revocationStore,
+                                authConfig,
+                                scheduler
                         });
     }
+
+    @Provides
+    @Singleton
+    public UserImporter userImporter(
+            SessionFactory sessionFactory,
+            UserInfoStore userInfoStore,
+            PasswordStore passwordStore,
+            UserRoleStore userRoleStore,
+            AppConfig appConfig,
+            Environment environment) {
+        return new UserImporter(sessionFactory,
+                                userInfoStore,
+                                passwordStore,
+                                userRoleStore,
+                                environment.getObjectMapper(),
+                                environment.getValidator(),
+                                appConfig.getUserImport());
+    }
 }
@@ -15,6 +15,10 @@
 package io.appform.idman.server.resources;
 
 import io.appform.idman.model.TokenInfo;
+import io.appform.idman.model.TokenValidationResult;
+import io.appform.idman.server.auth.RevocationFeed;
+import io.appform.idman.server.auth.TokenManager;
+import io.appform.idman.server.auth.configs.AuthenticationConfig;
 import io.appform.idman.server.db.ServiceStore;
 import io.appform.idman.server.localauth.LocalIdmanClient;
 import io.dropwizard.hibernate.UnitOfWork;
@@ -23,11 +27,17 @@ import lombok.val;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  *
@@ -39,21 +49,104 @@ public class Apis {
 
     private final Provider<ServiceStore> serviceStore;
     private final Provider<LocalIdmanClient> client;
+    private final Provider<TokenManager> tokenManager;
+    private final Provider<RevocationFeed> revocationFeed;
+    private final AuthenticationConfig authConfig;
 
     @Inject
-    public Apis(Provider<ServiceStore> serviceStore, Provider<LocalIdmanClient> client) {
+    public Apis(
+            Provider<ServiceStore> serviceStore,
+            Provider<LocalIdmanClient> client,
+            Provider<TokenManager> tokenManager,
+            Provider<RevocationFeed> revocationFeed,
+            AuthenticationConfig authConfig) {
         this.serviceStore = serviceStore;
         this.client = client;
+        this.tokenManager = tokenManager;
+        this.revocationFeed = revocationFeed;
+        this.authConfig = authConfig;
     }
 
     @Path("/check/v1/{serviceId}")
     @POST
-    @UnitOfWork
+    @UnitOfWork(readOnly = true)
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
     public Response validateToken(
             @HeaderParam(HttpHeaders.AUTHORIZATION) @NotEmpty final String authorization,
             @PathParam("serviceId") @NotEmpty final String serviceId,
             @FormParam("token") @NotEmpty final String token) {
+        val authFailure = checkServiceAuth(authorization, serviceId);
+        if (null != authFailure) {
+            return authFailure;
+        }
+        val validatedUser = client.get()
+                .validateToken(serviceId, token)
+                .map(TokenInfo::getUser)
+                .orElse(null);
+        if(null == validatedUser) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+        return Response.ok(validatedUser).build();
+    }
+
+    @Path("/check/v2/{serviceId}")
+    @POST
+    @UnitOfWork(readOnly = true)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response validateTokens(
+            @HeaderParam(HttpHeaders.AUTHORIZATION) @NotEmpty final String authorization,
+            @PathParam("serviceId") @NotEmpty final String serviceId,
+            @NotNull final List<String> tokens) {
+        val authFailure = checkServiceAuth(authorization, serviceId);
+        if (null != authFailure) {
+            return authFailure;
+        }
+        if (tokens.size() > authConfig.getMaxTokensPerValidationBatch()) {
+            log.error("Too many tokens sent for validation by {}: {}", serviceId, tokens.size());
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        val users = tokenManager.get().translateTokens(serviceId, tokens);
+        return Response.ok(tokens.stream()
+                                   .map(token -> {
+                                       val user = users.get(token);
+                                       return new TokenValidationResult(token, null != user, user);
+                                   })
+                                   .collect(Collectors.toList()))
+                .build();
+    }
+
+    /**
+     * Long poll for sessions of the service deleted after the given sequence. Not a {@link UnitOfWork}, the feed opens
+     * its own sessions so that parked requests do not hold database connections.
+     */
+    @Path("/revocations/v1/{serviceId}")
+    @GET
+    public void revocations(
+            @HeaderParam(HttpHeaders.AUTHORIZATION) @NotEmpty final String authorization,
+            @PathParam("serviceId") @NotEmpty final String serviceId,
+            @QueryParam("after") @DefaultValue("-1") final long after,
+            @QueryParam("waitMs") @DefaultValue("0") @Min(0) final long waitMs,
+            @Suspended final AsyncResponse asyncResponse) {
+        final String[] parts = authorization.split("Bearer ");
+        if (parts.length != 2) {
+            log.error("Invalid auth secret sent for revocations by: {}", serviceId);
+            asyncResponse.resume(Response.status(Response.Status.UNAUTHORIZED).build());
+            return;
+        }
+        revocationFeed.get()
+                .poll(serviceId, parts[1], after, waitMs)
+                .whenComplete((revocations, error) -> {
+                    if (null != error) {
+                        asyncResponse.resume(Response.serverError().build());
+                        return;
+                    }
+                    asyncResponse.resume(revocations.map(r -> Response.ok(r).build())
+                                                 .orElseGet(() -> Response.status(Response.Status.UNAUTHORIZED)
+                                                         .build()));
+                });
+    }
+
+    private Response checkServiceAuth(String authorization, String serviceId) {
         val service = serviceStore.get().get(serviceId).orElse(null);
         if (null == service) {
             log.error("Invalid service id provided for token validation: {}", serviceId);
@@ -69,13 +162,6 @@ public class Apis {
         if (!service.getSecret().equals(providedSecret)) {
             return Response.status(Response.Status.UNAUTHORIZED).build();
         }
-        val validatedUser = client.get()
-                .validateToken(serviceId, token)
-                .map(TokenInfo::getUser)
-                .orElse(null);
-        if(null == validatedUser) {
-            return Response.status(Response.Status.UNAUTHORIZED).build();
-        }
-        return Response.ok(validatedUser).build();
+        return null;
     }
 }
@@ -20,6 +20,7 @@ import io.appform.idman.server.auth.AuthenticationProviderRegistry;
 import io.appform.idman.server.auth.configs.AuthenticationConfig;
 import io.appform.idman.server.auth.impl.PasswordAuthInfo;
 import io.appform.idman.server.db.ServiceStore;
+import io.appform.idman.server.db.model.ClientSession;
 import io.appform.idman.server.views.LoginScreenView;
 import io.dropwizard.hibernate.UnitOfWork;
 import lombok.extern.slf4j.Slf4j;
@@ -37,6 +38,7 @@ import javax.ws.rs.core.UriBuilder;
 import java.net.URI;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  *
@@ -89,10 +91,16 @@ public class Auth {
                 .provider(AuthMode.PASSWORD)
                 .orElse(null);
         Objects.requireNonNull(authenticationProvider, "No authenticator found");
-        val session = authenticationProvider.login(
-                new PasswordAuthInfo(email, password, serviceId, clientSessionId),
-                UUID.randomUUID().toString())
-                .orElse(null);
+        final ClientSession session;
+        try {
+            session = authenticationProvider.login(
+                    new PasswordAuthInfo(email, password, serviceId, clientSessionId),
+                    UUID.randomUUID().toString())
+                    .orElse(null);
+        }
+        catch (RejectedExecutionException e) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
         if (session == null) {
             return Response.seeOther(errorUri(referer, "Invalid credentials")).build();
         }
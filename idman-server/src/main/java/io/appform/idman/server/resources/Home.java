@@ -36,6 +36,7 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.net.URI;
+import java.util.List;
 
 /**
  *
@@ -46,6 +47,7 @@ import java.net.URI;
 @Produces({MediaType.TEXT_HTML, MediaType.APPLICATION_JSON})
 @PermitAll
 public class Home {
+    private static final int MAX_BULK_MAPPING_USERS = 10_000;
 
     private final Engine engine;
     private final ViewEngineResponseTranslator translator;
@@ -57,11 +59,13 @@ public class Home {
     }
 
     @GET
-    @UnitOfWork
+    @UnitOfWork(readOnly = true)
     public Response home(
             @Auth final ServiceUserPrincipal principal,
-            @QueryParam("redirect") @Size(max = 4096) final String redirect) {
-        return translator.translate(engine.renderHome(principal, redirect));
+            @QueryParam("redirect") @Size(max = 4096) final String redirect,
+            @QueryParam("servicesPage") @Size(max = 1024) final String servicesPage,
+            @QueryParam("usersPage") @Size(max = 1024) final String usersPage) {
+        return translator.translate(engine.renderHome(principal, redirect, servicesPage, usersPage));
     }
 
     @Path("/services")
@@ -84,11 +88,13 @@ public class Home {
 
     @Path("/services/{serviceId}")
     @GET
-    @UnitOfWork
+    @UnitOfWork(readOnly = true)
     public Response serviceDetails(
             @Auth final ServiceUserPrincipal principal,
-            @PathParam("serviceId") @NotEmpty @Size(min = 1, max = 40) final String serviceId) {
-        return translator.translate(engine.renderServiceDetails(principal, serviceId));
+            @PathParam("serviceId") @NotEmpty @Size(min = 1, max = 40) final String serviceId,
+            @QueryParam("usersPage") @Size(max = 1024) final String usersPage,
+            @QueryParam("mappedUsersPage") @Size(max = 1024) final String mappedUsersPage) {
+        return translator.translate(engine.renderServiceDetails(principal, serviceId, usersPage, mappedUsersPage));
     }
 
     @Path("/services/{serviceId}/update/description")
@@ -193,7 +199,7 @@ public class Home {
 
     @Path("/users/{userId}")
     @GET
-    @UnitOfWork
+    @UnitOfWork(readOnly = true)
     public Response userDetails(
             @Auth final ServiceUserPrincipal principal,
             @PathParam("userId") @NotEmpty @Size(max = 250) final String userId) {
@@ -221,7 +227,7 @@ public class Home {
 
     @Path("/users/{userId}/update/password")
     @GET
-    @UnitOfWork
+    @UnitOfWork(readOnly = true)
     public Response renderPasswordChangePage(
             @Auth final ServiceUserPrincipal principal,
             @PathParam("userId") @NotEmpty @Size(max = 40) final String userId) {
@@ -269,6 +275,20 @@ public class Home {
         return translator.translate(engine.mapUserToRole(sessionUser, referer, serviceId, roleId, userId));
     }
 
+    @Path("/roles/{serviceId}/{roleId}/map/bulk")
+    @POST
+    @UnitOfWork
+    @RolesAllowed(IdmanRoles.ADMIN)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response mapUsersToRole(
+            @Auth final ServiceUserPrincipal sessionUser,
+            @PathParam("serviceId") @NotEmpty @Size(max = 40) final String serviceId,
+            @PathParam("roleId") @NotEmpty @Size(max = 40) final String roleId,
+            @NotEmpty @Size(max = MAX_BULK_MAPPING_USERS) final List<@NotEmpty @Size(max = 45) String> userIds) {
+        return translator.translate(engine.mapUsersToRole(sessionUser, serviceId, roleId, userIds));
+    }
+
     @Path("/roles/{serviceId}/{roleId}/unmap/{userId}")
     @POST
     @UnitOfWork
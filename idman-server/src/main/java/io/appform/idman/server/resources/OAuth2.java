@@ -3,6 +3,7 @@ package io.appform.idman.server.resources;
 import com.google.api.client.util.Strings;
 import io.appform.idman.client.IdManClient;
 import io.appform.idman.model.TokenInfo;
+import io.appform.idman.server.auth.JwtSigningKeys;
 import io.appform.idman.server.auth.configs.AuthenticationConfig;
 import io.appform.idman.server.db.ServiceStore;
 import io.dropwizard.hibernate.UnitOfWork;
@@ -13,6 +14,7 @@ import lombok.val;
 import javax.inject.Inject;
 import javax.validation.constraints.NotEmpty;
 import javax.ws.rs.*;
+import javax.ws.rs.core.CacheControl;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
@@ -96,6 +98,17 @@ public class OAuth2 {
         return Response.seeOther(uri).build();
     }
 
+    @GET
+    @Path("/jwks")
+    public Response jwks() {
+        val jwtConfig = authenticationConfig.getJwt();
+        val cacheControl = new CacheControl();
+        cacheControl.setMaxAge((int) jwtConfig.getJwksCacheDuration().toSeconds());
+        return Response.ok(JwtSigningKeys.of(jwtConfig).getPublicKeySet())
+                .cacheControl(cacheControl)
+                .build();
+    }
+
     @POST
     @Path("/token")
     @UnitOfWork
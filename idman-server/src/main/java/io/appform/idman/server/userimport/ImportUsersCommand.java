@@ -0,0 +1,70 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.userimport;
+
+import io.appform.idman.server.AppConfig;
+import io.dropwizard.Application;
+import io.dropwizard.cli.EnvironmentCommand;
+import io.dropwizard.setup.Environment;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import ru.vyarus.dropwizard.guice.injector.lookup.InjectorLookup;
+
+import java.io.BufferedInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Imports users from a JSON lines file. Usage: import-users --file users.jsonl config.yml
+ */
+@Slf4j
+public class ImportUsersCommand extends EnvironmentCommand<AppConfig> {
+    private static final String INPUT_FILE = "inputFile";
+    private static final String IMPORTED_BY = "importedBy";
+
+    public ImportUsersCommand(Application<AppConfig> application) {
+        super(application, "import-users", "Create or update users from a JSON lines file");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--file")
+                .dest(INPUT_FILE)
+                .required(true)
+                .help("File with one user per line");
+        subparser.addArgument("--imported-by")
+                .dest(IMPORTED_BY)
+                .setDefault("IDMAN")
+                .help("Recorded as the assigner of roles given to new users");
+    }
+
+    @Override
+    protected void run(Environment environment, Namespace namespace, AppConfig configuration) throws Exception {
+        val importer = InjectorLookup.getInstance(environment, UserImporter.class)
+                .orElseThrow(() -> new IllegalStateException("Guice injector has not been created"));
+        val path = Paths.get(namespace.getString(INPUT_FILE));
+        try (val input = new BufferedInputStream(Files.newInputStream(path))) {
+            val result = importer.importUsers(input,
+                                              namespace.getString(IMPORTED_BY),
+                                              progress -> log.info("Progress: {} rows read", progress.getRows()));
+            result.getErrors().forEach(error -> log.error("Line {}: {}", error.getLine(), error.getMessage()));
+            log.info("Import complete. Rows: {} Created: {} Updated: {} Failed: {}",
+                     result.getRows(), result.getCreated(), result.getUpdated(), result.getFailed());
+        }
+    }
+}
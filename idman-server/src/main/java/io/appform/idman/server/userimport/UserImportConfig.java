@@ -0,0 +1,47 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.userimport;
+
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+/**
+ * Tuning for bulk user imports
+ */
+@Data
+public class UserImportConfig {
+    /**
+     * Rows hashed together and written in one transaction
+     */
+    @Min(1)
+    @Max(1_000)
+    private int chunkSize = 200;
+
+    /**
+     * Threads used to hash passwords. Uses one per available processor if 0.
+     */
+    @Min(0)
+    @Max(64)
+    private int hashingThreads = 0;
+
+    /**
+     * Row errors beyond this are counted but not reported individually
+     */
+    @Min(0)
+    @Max(10_000)
+    private int maxReportedErrors = 100;
+}
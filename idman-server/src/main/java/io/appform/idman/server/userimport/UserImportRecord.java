@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.userimport;
+
+import io.appform.idman.model.UserType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Email;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+/**
+ * One line of an import file. Human users are identified by email and need a password, system users are identified
+ * by name and must not have one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportRecord {
+    @NotEmpty
+    @Email
+    @Size(max = 255)
+    private String email;
+
+    @NotEmpty
+    @Size(max = 255)
+    private String name;
+
+    @NotNull
+    private UserType userType = UserType.HUMAN;
+
+    @Size(max = 40)
+    private String password;
+
+    /**
+     * Human users have to change the imported password on first login unless this is turned off
+     */
+    private boolean forcePasswordChange = true;
+}
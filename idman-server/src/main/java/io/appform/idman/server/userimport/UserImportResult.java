@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.userimport;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Counts for an import, also reported as progress after every chunk
+ */
+@Value
+public class UserImportResult {
+    @Value
+    public static class RowError {
+        long line;
+        String message;
+    }
+
+    long rows;
+    long created;
+    long updated;
+    long failed;
+    List<RowError> errors;
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.userimport;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.appform.idman.model.AuthMode;
+import io.appform.idman.model.UserType;
+import io.appform.idman.server.auth.IdmanRoles;
+import io.appform.idman.server.db.NewUser;
+import io.appform.idman.server.db.PasswordStore;
+import io.appform.idman.server.db.Transactions;
+import io.appform.idman.server.db.UserInfoStore;
+import io.appform.idman.server.db.UserRoleStore;
+import io.appform.idman.server.utils.Utils;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.hibernate.SessionFactory;
+
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Creates or updates users from a JSON lines stream, one {@link UserImportRecord} per line. The stream is read a
+ * chunk at a time, passwords in a chunk are hashed in parallel and the chunk is then written in its own transaction.
+ * Rows that fail do not stop the import. New human users are given the idman user role, same as users created from
+ * the console.
+ */
+@Slf4j
+public class UserImporter {
+    private static final String IDMAN_SERVICE = "IDMAN";
+
+    private final SessionFactory sessionFactory;
+    private final UserInfoStore userInfoStore;
+    private final PasswordStore passwordStore;
+    private final UserRoleStore userRoleStore;
+    private final ObjectReader recordReader;
+    private final Validator validator;
+    private final UserImportConfig config;
+
+    public UserImporter(
+            SessionFactory sessionFactory,
+            UserInfoStore userInfoStore,
+            PasswordStore passwordStore,
+            UserRoleStore userRoleStore,
+            ObjectMapper mapper,
+            Validator validator,
+            UserImportConfig config) {
+        this.sessionFactory = sessionFactory;
+        this.userInfoStore = userInfoStore;
+        this.passwordStore = passwordStore;
+        this.userRoleStore = userRoleStore;
+        this.recordReader = mapper.readerFor(UserImportRecord.class);
+        this.validator = validator;
+        this.config = config;
+    }
+
+    private static class Row {
+        final long line;
+        final UserImportRecord importRecord;
+        final String userId;
+        String hashedPassword;
+
+        Row(long line, UserImportRecord importRecord, String userId) {
+            this.line = line;
+            this.importRecord = importRecord;
+            this.userId = userId;
+        }
+    }
+
+    private class ImportState {
+        long rows;
+        long created;
+        long updated;
+        long failed;
+        final List<UserImportResult.RowError> errors = new ArrayList<>();
+
+        void fail(long line, String message) {
+            failed++;
+            if (errors.size() < config.getMaxReportedErrors()) {
+                errors.add(new UserImportResult.RowError(line, message));
+            }
+        }
+
+        UserImportResult result() {
+            return new UserImportResult(rows, created, updated, failed, List.copyOf(errors));
+        }
+    }
+
+    /**
+     * Does not close the stream
+     *
+     * @param importedBy Recorded as the assigner of roles given to new users
+     * @param progress   Called with the running counts after every chunk
+     */
+    public UserImportResult importUsers(
+            InputStream input,
+            String importedBy,
+            Consumer<UserImportResult> progress) throws IOException {
+        val threads = config.getHashingThreads() > 0
+                      ? config.getHashingThreads()
+                      : Runtime.getRuntime().availableProcessors();
+        val hashingPool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("user-import-hash-%d")
+                .setDaemon(true)
+                .build());
+        try {
+            val reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            val state = new ImportState();
+            val chunk = new ArrayList<Row>(config.getChunkSize());
+            long lineNumber = 0;
+            String line;
+            while (null != (line = reader.readLine())) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                state.rows++;
+                val row = parse(lineNumber, line, state);
+                if (null != row) {
+                    chunk.add(row);
+                }
+                if (chunk.size() == config.getChunkSize()) {
+                    importChunk(chunk, importedBy, hashingPool, state);
+                    chunk.clear();
+                    progress.accept(state.result());
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, importedBy, hashingPool, state);
+                progress.accept(state.result());
+            }
+            return state.result();
+        }
+        finally {
+            hashingPool.shutdownNow();
+        }
+    }
+
+    private Row parse(long line, String json, ImportState state) {
+        final UserImportRecord importRecord;
+        try {
+            importRecord = recordReader.readValue(json);
+        }
+        catch (JsonProcessingException e) {
+            state.fail(line, "Malformed row: " + e.getOriginalMessage());
+            return null;
+        }
+        val violations = validator.validate(importRecord);
+        if (!violations.isEmpty()) {
+            state.fail(line, violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+            return null;
+        }
+        val human = importRecord.getUserType() == UserType.HUMAN;
+        if (human == Strings.isNullOrEmpty(importRecord.getPassword())) {
+            state.fail(line, human
+                             ? "password is required for human users"
+                             : "password is not supported for system users");
+            return null;
+        }
+        return new Row(line,
+                       importRecord,
+                       Utils.hashedId(human ? importRecord.getEmail() : importRecord.getName()));
+    }
+
+    private void importChunk(List<Row> chunk, String importedBy, ExecutorService hashingPool, ImportState state) {
+        val hashed = hash(chunk, hashingPool, state);
+        if (hashed.isEmpty()) {
+            return;
+        }
+        try {
+            final int created = Transactions.inTransaction(sessionFactory, session -> {
+                session.setJdbcBatchSize(config.getChunkSize());
+                return writeChunk(hashed, importedBy);
+            });
+            state.created += created;
+            state.updated += hashed.size() - created;
+            log.info("Imported {} users. Created: {} Updated: {} Failed: {}",
+                     state.rows, state.created, state.updated, state.failed);
+        }
+        catch (RuntimeException e) {
+            log.error("Error writing import chunk starting at line {}", hashed.get(0).line, e);
+            hashed.forEach(row -> state.fail(row.line, "Could not be saved: " + e.getMessage()));
+        }
+    }
+
+    private List<Row> hash(List<Row> chunk, ExecutorService hashingPool, ImportState state) {
+        val hashes = chunk.stream()
+                .map(row -> null == row.importRecord.getPassword()
+                            ? CompletableFuture.<String>completedFuture(null)
+                            : CompletableFuture.supplyAsync(
+                                    () -> passwordStore.hash(row.importRecord.getPassword()), hashingPool))
+                .collect(Collectors.toList());
+        val hashed = new ArrayList<Row>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            val row = chunk.get(i);
+            try {
+                row.hashedPassword = hashes.get(i).join();
+                hashed.add(row);
+            }
+            catch (CompletionException e) {
+                state.fail(row.line, "Could not hash password: " + e.getCause().getMessage());
+            }
+        }
+        return hashed;
+    }
+
+    /**
+     * @return Number of users created
+     */
+    private int writeChunk(List<Row> rows, String importedBy) {
+        val users = new LinkedHashMap<String, NewUser>();
+        val passwords = new HashMap<String, String>();
+        rows.forEach(row -> {
+            val importRecord = row.importRecord;
+            val human = importRecord.getUserType() == UserType.HUMAN;
+            users.put(row.userId, new NewUser(row.userId,
+                                              importRecord.getEmail(),
+                                              importRecord.getName(),
+                                              importRecord.getUserType(),
+                                              human ? AuthMode.PASSWORD : AuthMode.TOKEN,
+                                              human && importRecord.isForcePasswordChange()));
+            if (null != row.hashedPassword) {
+                passwords.put(row.userId, row.hashedPassword);
+            }
+        });
+        val created = userInfoStore.create(users.values());
+        passwordStore.setHashed(passwords);
+        val newHumans = created.stream()
+                .filter(userId -> users.get(userId).getUserType() == UserType.HUMAN)
+                .collect(Collectors.toList());
+        userRoleStore.mapUsersToRole(newHumans, IDMAN_SERVICE, IdmanRoles.USER, importedBy);
+        //Duplicate rows for the same user count as updates
+        return created.size();
+    }
+}
@@ -15,32 +15,30 @@
 package io.appform.idman.server.utils;
 
 import io.appform.idman.model.AuthMode;
+import io.appform.idman.model.CompactIds;
+import io.appform.idman.model.IdmanUser;
 import io.appform.idman.model.TokenType;
 import io.appform.idman.model.User;
+import io.appform.idman.server.auth.JwtSigningKeys;
 import io.appform.idman.server.auth.ParsedTokenInfo;
+import io.appform.idman.server.auth.TokenMinter;
 import io.appform.idman.server.auth.configs.AuthenticationConfig;
 import io.appform.idman.server.auth.configs.JwtConfig;
 import io.appform.idman.server.db.model.ClientSession;
 import io.dropwizard.util.Duration;
-import lombok.SneakyThrows;
 import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
-import org.jose4j.jwa.AlgorithmConstraints;
-import org.jose4j.jws.AlgorithmIdentifiers;
-import org.jose4j.jws.JsonWebSignature;
-import org.jose4j.jwt.JwtClaims;
 import org.jose4j.jwt.MalformedClaimException;
 import org.jose4j.jwt.NumericDate;
 import org.jose4j.jwt.consumer.InvalidJwtException;
 import org.jose4j.jwt.consumer.JwtConsumer;
 import org.jose4j.jwt.consumer.JwtConsumerBuilder;
-import org.jose4j.keys.HmacKey;
+import org.jose4j.jwt.consumer.JwtContext;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.IsoFields;
 import java.util.Date;
@@ -67,34 +65,25 @@ public class Utils {
     }
 
     public static int weekOfYear() {
-        return ZonedDateTime.now(ZoneId.of("Asia/Calcutta")).get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+        return weekOfYear(Instant.now());
+    }
+
+    /**
+     * Week used as partition id for dynamic sessions created at the given instant
+     */
+    public static int weekOfYear(Instant instant) {
+        return instant.atZone(ZoneId.of("Asia/Calcutta")).get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
     }
 
-    @SneakyThrows
     public static String createAccessToken(final ClientSession session, final JwtConfig jwtConfig) {
-        val claims = new JwtClaims();
-        claims.setIssuer(jwtConfig.getIssuerId());
-        claims.setGeneratedJwtId();
-        claims.setIssuedAtToNow();
-        claims.setJwtId(session.getSessionId());
-        claims.setNotBeforeMinutesInThePast(2);
-        claims.setSubject(session.getUserId());
-        claims.setAudience(session.getServiceId());
-        if (null != session.getCreated()) {
-            claims.setIssuedAt(NumericDate.fromMilliseconds(session.getCreated().getTime()));
-        }
-        else {
-            claims.setIssuedAt(NumericDate.now());
-        }
-        if (null != session.getExpiry()) {
-            claims.setExpirationTime(NumericDate.fromMilliseconds(session.getExpiry().getTime()));
-        }
-        val jws = new JsonWebSignature();
-        jws.setPayload(claims.toJson());
-        val secretKey = jwtConfig.getPrivateKey().getBytes(StandardCharsets.UTF_8);
-        jws.setKey(new HmacKey(secretKey));
-        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.HMAC_SHA512);
-        return jws.getCompactSerialization();
+        return createAccessToken(session, null, jwtConfig);
+    }
+
+    public static String createAccessToken(
+            final ClientSession session,
+            final IdmanUser user,
+            final JwtConfig jwtConfig) {
+        return TokenMinter.of(jwtConfig).mint(session, user);
     }
 
     public Optional<ParsedTokenInfo> parseToken(String token, JwtConsumer jwtConsumer) {
@@ -107,8 +96,8 @@ public class Utils {
             val jwtContext = jwtConsumer.process(token);
 
             val claims = jwtContext.getJwtClaims();
-            userId = claims.getSubject();
-            sessionId = claims.getJwtId();
+            userId = CompactIds.expand(claims.getSubject());
+            sessionId = CompactIds.expand(claims.getJwtId());
             extServiceId = claims.getAudience().get(0);
             expiry = claims.getExpirationTime();
         }
@@ -140,20 +129,36 @@ public class Utils {
         return buildConsumer(authConfig.getJwt(), serviceId);
     }
 
+    /**
+     * Accepts tokens in both {@link JwtConfig.TokenProfile}s. Compact tokens carry neither issuer nor issue time and
+     * are recognised by their shortened session id, every other token has to carry both.
+     */
     public static JwtConsumer buildConsumer(JwtConfig jwtConfig, final String serviceId) {
-        val secretKey = jwtConfig.getPrivateKey().getBytes(StandardCharsets.UTF_8);
+        val keys = JwtSigningKeys.of(jwtConfig);
         return new JwtConsumerBuilder()
-                .setRequireIssuedAt()
                 .setRequireSubject()
-                .setExpectedIssuer(jwtConfig.getIssuerId())
-                .setVerificationKey(new HmacKey(secretKey))
-                .setJwsAlgorithmConstraints(new AlgorithmConstraints(
-                        AlgorithmConstraints.ConstraintType.WHITELIST,
-                        AlgorithmIdentifiers.HMAC_SHA512))
+                .setExpectedIssuer(false, jwtConfig.getIssuerId())
+                .registerValidator(Utils::validateProfileClaims)
+                .setVerificationKeyResolver(keys.verificationKeyResolver())
+                .setJwsAlgorithmConstraints(keys.algorithmConstraints())
                 .setExpectedAudience(serviceId)
                 .build();
     }
 
+    private static String validateProfileClaims(JwtContext jwtContext) throws MalformedClaimException {
+        val claims = jwtContext.getJwtClaims();
+        if (CompactIds.isCompact(claims.getJwtId())) {
+            return null;
+        }
+        if (null == claims.getIssuer()) {
+            return "No Issuer (iss) claim present";
+        }
+        if (null == claims.getIssuedAt()) {
+            return "No Issued At (iat) claim present";
+        }
+        return null;
+    }
+
     public static User toWire(io.appform.idman.server.db.model.StoredUser user) {
         return new User(user.getUserId(),
                         user.getName(),
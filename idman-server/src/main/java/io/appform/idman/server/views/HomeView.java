@@ -15,6 +15,7 @@
 package io.appform.idman.server.views;
 
 import io.appform.idman.model.IdmanUser;
+import io.appform.idman.server.db.Page;
 import io.appform.idman.server.db.model.StoredService;
 import io.appform.idman.server.db.model.StoredUser;
 import lombok.EqualsAndHashCode;
@@ -22,8 +23,6 @@ import lombok.ToString;
 import lombok.Value;
 import ru.vyarus.guicey.gsp.views.template.TemplateView;
 
-import java.util.List;
-
 /**
  * Renders the homepage
  */
@@ -31,17 +30,23 @@ import java.util.List;
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class HomeView extends TemplateView {
-    List<StoredService> services;
-    List<StoredUser> users;
+    Page<StoredService> services;
+    String servicesPageToken;
+    Page<StoredUser> users;
+    String usersPageToken;
     IdmanUser sessionUser;
 
     public HomeView(
-            List<StoredService> services,
-            List<StoredUser> users,
+            Page<StoredService> services,
+            String servicesPageToken,
+            Page<StoredUser> users,
+            String usersPageToken,
             IdmanUser sessionUser) {
         super("templates/home.hbs");
         this.services = services;
+        this.servicesPageToken = servicesPageToken;
         this.users = users;
+        this.usersPageToken = usersPageToken;
         this.sessionUser = sessionUser;
     }
 }
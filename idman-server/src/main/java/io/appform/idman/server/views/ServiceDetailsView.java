@@ -15,6 +15,7 @@
 package io.appform.idman.server.views;
 
 import io.appform.idman.model.IdmanUser;
+import io.appform.idman.server.db.Page;
 import io.appform.idman.server.db.model.StoredRole;
 import io.appform.idman.server.db.model.StoredService;
 import io.appform.idman.server.db.model.StoredUser;
@@ -39,20 +40,27 @@ public class ServiceDetailsView extends TemplateView {
     }
     StoredService service;
     List<StoredRole> roles;
-    List<StoredUser> users;
-    List<ServiceUser> mappedUsers;
+    Page<StoredUser> users;
+    String usersPageToken;
+    Page<ServiceUser> mappedUsers;
+    String mappedUsersPageToken;
     IdmanUser sessionUser;
 
     public ServiceDetailsView(
             StoredService service,
             List<StoredRole> roles,
-            List<StoredUser> users, List<ServiceUser> mappedUsers,
+            Page<StoredUser> users,
+            String usersPageToken,
+            Page<ServiceUser> mappedUsers,
+            String mappedUsersPageToken,
             IdmanUser sessionUser) {
         super("templates/servicedetails.hbs");
         this.service = service;
         this.roles = roles;
         this.users = users;
+        this.usersPageToken = usersPageToken;
         this.mappedUsers = mappedUsers;
+        this.mappedUsersPageToken = mappedUsersPageToken;
         this.sessionUser = sessionUser;
     }
 }
@@ -38,6 +38,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import static io.appform.idman.server.utils.Utils.toWire;
@@ -84,7 +85,7 @@ class EngineTest {
 
         val principal = new ServiceUserPrincipal(new IdmanUser("Ts1", "S1", user, IdmanRoles.ADMIN));
 
-        val r = engine.renderHome(principal, "/");
+        val r = engine.renderHome(principal, "/", null, null);
         assertEquals(RedirectToParam.class, r.getClass());
         assertEquals("/", ((RedirectToParam) r).getRedirect());
     }
@@ -99,7 +100,7 @@ class EngineTest {
 
         val principal = new ServiceUserPrincipal(new IdmanUser("Ts1", "S1", user, IdmanRoles.ADMIN));
         ServerTestingUtils.runInCtx(() -> {
-            val r = engine.renderHome(principal, null);
+            val r = engine.renderHome(principal, null, null, null);
             assertEquals(ViewOpSuccess.class, r.getClass());
         });
     }
@@ -115,7 +116,7 @@ class EngineTest {
         val principal = new ServiceUserPrincipal(new IdmanUser("Ts1", "S1", user, IdmanRoles.ADMIN));
 
         storedUser.getAuthState().setAuthState(AuthState.EXPIRED);
-        val r = engine.renderHome(principal, "/");
+        val r = engine.renderHome(principal, "/", null, null);
         assertEquals(CredentialsExpired.class, r.getClass());
         assertEquals(user.getId(), ((CredentialsExpired) r).getUserId());
     }
@@ -130,7 +131,7 @@ class EngineTest {
 
         val principal = new ServiceUserPrincipal(new IdmanUser("Ts1", "S1", user, IdmanRoles.ADMIN));
         storedUser.setDeleted(true);
-        val r = engine.renderHome(principal, "/");
+        val r = engine.renderHome(principal, "/", null, null);
         assertEquals(InvalidUser.class, r.getClass());
     }
 
@@ -144,7 +145,7 @@ class EngineTest {
                                                                   UserType.HUMAN,
                                                                   AuthMode.PASSWORD,
                                                                   IdmanRoles.ADMIN));
-        val r = engine.renderHome(invalidPrincipal, "/");
+        val r = engine.renderHome(invalidPrincipal, "/", null, null);
         assertEquals(InvalidUser.class, r.getClass());
     }
 
@@ -172,7 +173,7 @@ class EngineTest {
 
         val user = toWire(storedUser);
         val principal = new ServiceUserPrincipal(new IdmanUser("Ts1", "S1", user, IdmanRoles.ADMIN));
-        val r = engine.renderServiceDetails(principal, "S");
+        val r = engine.renderServiceDetails(principal, "S", null, null);
         assertEquals(InvalidService.class, r.getClass());
     }
 
@@ -185,21 +186,25 @@ class EngineTest {
 
         val testService = ServerTestingUtils.testService();
         setupServiceMock(testService);
-        doReturn(List.of(
+        doReturn(new Page<>(List.of(
                 new StoredUserRole(storedUser.getUserId(), testService.getServiceId(), "S_ADMIN", "TEST"),
                 new StoredUserRole(storedUser.getUserId(), testService.getServiceId(), "S_ADMIN_1", "TEST"),
                 new StoredUserRole("blah", testService.getServiceId(), "S_ADMIN", "TEST")
-                        ))
-                .when(userRoleStore).getServiceRoleMappings(testService.getServiceId());
-        doReturn(Collections.singletonList(storedUser)).when(userInfoStore).list(false);
+                                   ), "NEXT"))
+                .when(userRoleStore).getServiceRoleMappings(testService.getServiceId(), null, Engine.ADMIN_PAGE_SIZE);
+        doReturn(Collections.singletonList(storedUser)).when(userInfoStore).get(anyCollection());
+        doReturn(new Page<>(Collections.singletonList(storedUser), null))
+                .when(userInfoStore).list(false, null, Engine.ADMIN_PAGE_SIZE);
         doReturn(Collections.singletonList(adminRole()))
                 .when(roleStore).list("S", false);
         ServerTestingUtils.runInCtx(() -> {
-            val r = engine.renderServiceDetails(principal, "S");
+            val r = engine.renderServiceDetails(principal, "S", null, null);
             assertEquals(ViewOpSuccess.class, r.getClass());
             val v = ((ViewOpSuccess) r).getView();
             assertEquals(ServiceDetailsView.class, v.getClass());
-            assertEquals(1, ((ServiceDetailsView) v).getMappedUsers().size());
+            assertEquals(1, ((ServiceDetailsView) v).getMappedUsers().getItems().size());
+            assertEquals("NEXT", ((ServiceDetailsView) v).getMappedUsers().getNextPageToken());
+            verify(userInfoStore).get(Set.of(storedUser.getUserId(), "blah"));
         });
     }
 
@@ -590,6 +595,8 @@ class EngineTest {
         doReturn(true).when(userInfoStore).deleteUser(anyString());
         val r = engine.deleteUser(user.getUserId());
         assertEquals(GeneralOpSuccess.class, r.getClass());
+        verify(sessionStore).invalidateStaticSessions(user.getUserId(), null);
+        verify(sessionStore).revokeDynamicSessions(user.getUserId(), null);
     }
 
     @Test
@@ -877,6 +884,44 @@ class EngineTest {
                                      "S_ADMIN",
                                      user.getUserId());
         assertEquals(RedirectToParam.class, r.getClass());
+        verify(sessionStore).invalidateStaticSessions(user.getUserId(), service.getServiceId());
+        verify(sessionStore).revokeDynamicSessions(user.getUserId(), service.getServiceId());
+    }
+
+    @Test
+    void mapUsersToRoleInvalidRole() {
+        val service = ServerTestingUtils.testService();
+        doReturn(Optional.of(service)).when(serviceStore).get(anyString());
+        doReturn(Optional.empty()).when(roleStore).get(eq(service.getServiceId()), anyString());
+        val r = engine.mapUsersToRole(null, service.getServiceId(), "S_ADMIN", List.of("U1"));
+        assertEquals(RoleOpFailure.class, r.getClass());
+        verify(userRoleStore, never()).mapUsersToRole(anyCollection(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void mapUsersToRoleSuccess() {
+        val service = ServerTestingUtils.testService();
+        val role = adminRole();
+        val user = ServerTestingUtils.normalUser();
+        val deletedUser = ServerTestingUtils.adminUser();
+        deletedUser.setDeleted(true);
+        doReturn(Optional.of(service)).when(serviceStore).get(anyString());
+        doReturn(Optional.of(role)).when(roleStore).get(eq(service.getServiceId()), anyString());
+        doReturn(List.of(user, deletedUser)).when(userInfoStore).get(anyCollection());
+
+        val principal = new ServiceUserPrincipal(new IdmanUser("ts1", "IDMAN", toWire(user), IdmanRoles.ADMIN));
+        val r = engine.mapUsersToRole(principal,
+                                      service.getServiceId(),
+                                      "S_ADMIN",
+                                      List.of(user.getUserId(), deletedUser.getUserId(), "UNKNOWN", user.getUserId()));
+        assertEquals(UsersMappedToRole.class, r.getClass());
+        val result = (UsersMappedToRole) r;
+        assertEquals(List.of(user.getUserId()), result.getMappedUserIds());
+        assertEquals(List.of(deletedUser.getUserId(), "UNKNOWN"), result.getInvalidUserIds());
+        verify(userRoleStore).mapUsersToRole(List.of(user.getUserId()), service.getServiceId(), "S_ADMIN",
+                                             user.getUserId());
+        verify(sessionStore).invalidateStaticSessions(List.of(user.getUserId()), service.getServiceId());
+        verify(sessionStore).revokeDynamicSessions(List.of(user.getUserId()), service.getServiceId());
     }
 
     @Test
@@ -978,9 +1023,12 @@ class EngineTest {
         doReturn(Optional.of(service)).when(serviceStore).get(anyString());
         doReturn(Optional.of(role)).when(roleStore).get(eq(service.getServiceId()), anyString());
         doReturn(Optional.of(user)).when(userInfoStore).get(user.getUserId());
+        doReturn(true).when(userRoleStore).unmapUserFromRole(user.getUserId(), service.getServiceId());
 
         val r = engine.unmapUserFromRole(URI.create("/role"), service.getServiceId(), "S_ADMIN", user.getUserId());
         assertEquals(RedirectToParam.class, r.getClass());
+        verify(sessionStore).invalidateStaticSessions(user.getUserId(), service.getServiceId());
+        verify(sessionStore).revokeDynamicSessions(user.getUserId(), service.getServiceId());
     }
 
     @Test
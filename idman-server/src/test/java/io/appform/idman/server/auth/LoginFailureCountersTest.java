@@ -0,0 +1,117 @@
+package io.appform.idman.server.auth;
+
+import io.appform.idman.model.AuthMode;
+import io.appform.idman.model.UserType;
+import io.appform.idman.server.db.AuthState;
+import io.appform.idman.server.db.UserInfoStore;
+import io.appform.idman.server.db.impl.DBUserInfoStore;
+import io.appform.idman.server.db.model.StoredUser;
+import io.appform.idman.server.db.model.StoredUserAuthState;
+import io.dropwizard.testing.junit5.DAOTestExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+class LoginFailureCountersTest {
+    public DAOTestExtension database = DAOTestExtension.newBuilder()
+            .addEntityClass(StoredUser.class)
+            .addEntityClass(StoredUserAuthState.class)
+            .build();
+
+    private UserInfoStore userStore;
+    private LoginFailureCounters counters;
+
+    @BeforeEach
+    void setup() {
+        userStore = new DBUserInfoStore(database.getSessionFactory());
+        database.inTransaction(() -> userStore.create("U1", "u1@u.t", "U1", UserType.HUMAN, AuthMode.PASSWORD));
+        database.inTransaction(() -> userStore.create("U2", "u2@u.t", "U2", UserType.HUMAN, AuthMode.PASSWORD));
+        counters = newCounters();
+    }
+
+    @Test
+    void testLockAfterMaxFailures() {
+        assertFalse(counters.recordFailure("U1", 0));
+        assertFalse(counters.recordFailure("U1", 0));
+        assertEquals(2, counters.failures("U1"));
+        assertEquals(0, counters.failures("U2"));
+        assertTrue(counters.recordFailure("U1", 0));
+        assertEquals(0, counters.failures("U1"));
+        assertFalse(counters.reset("U1"));
+    }
+
+    @Test
+    void testAddedToPersistedCount() {
+        assertFalse(counters.recordFailure("U1", 1));
+        assertTrue(counters.recordFailure("U1", 1));
+    }
+
+    @Test
+    void testReset() {
+        assertFalse(counters.reset("U1"));
+        assertFalse(counters.recordFailure("U1", 0));
+        assertTrue(counters.reset("U1"));
+        assertFalse(counters.recordFailure("U1", 0));
+        assertFalse(counters.recordFailure("U1", 0));
+    }
+
+    @Test
+    void testFlush() {
+        assertEquals(0, counters.flush());
+        assertFalse(counters.recordFailure("U1", 0));
+        assertFalse(counters.recordFailure("U1", 0));
+        assertFalse(counters.recordFailure("U2", 0));
+        assertEquals(2, counters.flush());
+        assertEquals(0, counters.failures("U1"));
+        assertEquals(0, counters.flush());
+        assertEquals(2, authState("U1").getFailedAuthCount());
+        assertEquals(1, authState("U2").getFailedAuthCount());
+        assertNotEquals(AuthState.LOCKED, authState("U1").getAuthState());
+    }
+
+    @Test
+    void testFailuresOnAllNodesAddUp() {
+        final LoginFailureCounters otherNode = newCounters();
+        assertFalse(counters.recordFailure("U1", 0));
+        assertFalse(otherNode.recordFailure("U1", 0));
+        assertFalse(otherNode.recordFailure("U1", 0));
+        counters.flush();
+        otherNode.flush();
+        assertEquals(3, authState("U1").getFailedAuthCount());
+        assertEquals(AuthState.LOCKED, authState("U1").getAuthState());
+    }
+
+    @Test
+    void testFailuresHeldWhenFlushFails() {
+        final UserInfoStore failingStore = mock(UserInfoStore.class);
+        doThrow(new IllegalStateException("Write failed")).when(failingStore).updateAuthState(anyString(), any());
+        counters = new LoginFailureCounters(database.getSessionFactory(), failingStore, 3, Duration.seconds(5));
+        assertFalse(counters.recordFailure("U1", 0));
+        assertThrows(IllegalStateException.class, counters::flush);
+        assertFalse(counters.recordFailure("U1", 0));
+        assertEquals(2, counters.failures("U1"));
+    }
+
+    private LoginFailureCounters newCounters() {
+        return new LoginFailureCounters(database.getSessionFactory(), userStore, 3, Duration.seconds(5));
+    }
+
+    private StoredUserAuthState authState(String userId) {
+        return database.inTransaction(() -> {
+            database.getSessionFactory().getCurrentSession().clear();
+            return userStore.get(userId).map(StoredUser::getAuthState).orElse(null);
+        });
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.auth;
+
+import com.codahale.metrics.MetricRegistry;
+import io.appform.idman.server.auth.configs.PasswordVerificationConfig;
+import io.appform.idman.server.auth.hashing.BCryptPasswordHasher;
+import io.appform.idman.server.auth.hashing.PasswordHashing;
+import io.appform.idman.server.db.PasswordStore;
+import io.appform.idman.server.db.impl.DBPasswordStore;
+import io.appform.idman.server.db.model.StoredPassword;
+import io.dropwizard.testing.junit5.DAOTestExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import lombok.val;
+import org.hibernate.resource.transaction.spi.TransactionStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+class PasswordVerifierTest {
+    public DAOTestExtension database = DAOTestExtension.newBuilder()
+            .addEntityClass(StoredPassword.class)
+            .build();
+
+    private PasswordVerifier verifier;
+
+    @AfterEach
+    void destroy() throws Exception {
+        verifier.stop();
+    }
+
+    @Test
+    void testVerifyReleasesTransaction() {
+        final PasswordStore passwordStore = new DBPasswordStore(database.getSessionFactory(),
+                                                                new PasswordHashing(new BCryptPasswordHasher(4)),
+                                                                new MetricRegistry());
+        verifier = new PasswordVerifier(database.getSessionFactory(),
+                                        passwordStore,
+                                        new PasswordVerificationConfig(),
+                                        new MetricRegistry());
+        database.inTransaction(() -> passwordStore.set("U1", "PASSWORD"));
+        database.inTransaction(() -> {
+            val transaction = database.getSessionFactory().getCurrentSession().getTransaction();
+            val hashedPassword = passwordStore.getHashed("U1").orElse(null);
+            assertNotNull(hashedPassword);
+            assertEquals(hashedPassword, verifier.verify("PASSWORD", hashedPassword).orElse(null));
+            assertFalse(verifier.verify("WRONG", hashedPassword).isPresent());
+            assertEquals(TransactionStatus.ACTIVE, transaction.getStatus());
+        });
+        assertTrue(verifier.verify("PASSWORD", passwordStore.hash("PASSWORD")).isPresent());
+    }
+
+    @Test
+    void testRehashUnderNewPolicy() {
+        val oldStore = new DBPasswordStore(database.getSessionFactory(),
+                                           new PasswordHashing(new BCryptPasswordHasher(4)),
+                                           new MetricRegistry());
+        val passwordStore = new DBPasswordStore(database.getSessionFactory(),
+                                                new PasswordHashing(new BCryptPasswordHasher(5)),
+                                                new MetricRegistry());
+        verifier = new PasswordVerifier(database.getSessionFactory(),
+                                        passwordStore,
+                                        new PasswordVerificationConfig(),
+                                        new MetricRegistry());
+        val oldHash = oldStore.hash("PASSWORD");
+        val newHash = verifier.verify("PASSWORD", oldHash).orElse(null);
+        assertNotNull(newHash);
+        assertNotEquals(oldHash, newHash);
+        assertFalse(passwordStore.needsRehash(newHash));
+        assertEquals(newHash, verifier.verify("PASSWORD", newHash).orElse(null));
+        assertFalse(verifier.verify("WRONG", oldHash).isPresent());
+    }
+
+    @Test
+    void testRejectWhenQueueFull() throws Exception {
+        val passwordStore = mock(PasswordStore.class);
+        val started = new CountDownLatch(1);
+        val release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return true;
+        }).when(passwordStore).verify(anyString(), anyString());
+        val config = new PasswordVerificationConfig();
+        config.setThreads(1);
+        config.setMaxQueuedVerifications(1);
+        val metrics = new MetricRegistry();
+        verifier = new PasswordVerifier(database.getSessionFactory(), passwordStore, config, metrics);
+
+        val running = CompletableFuture.supplyAsync(() -> verifier.verify("P1", "H1"));
+        started.await();
+        val queued = CompletableFuture.supplyAsync(() -> verifier.verify("P2", "H2"));
+        while (metrics.getGauges().get(MetricRegistry.name(PasswordVerifier.class, "queue", "depth"))
+                .getValue().equals(0)) {
+            Thread.sleep(10);
+        }
+        assertThrows(RejectedExecutionException.class, () -> verifier.verify("P3", "H3"));
+        assertEquals(1, metrics.meter(MetricRegistry.name(PasswordVerifier.class, "rejected")).getCount());
+        release.countDown();
+        assertEquals("H1", running.get().orElse(null));
+        assertEquals("H2", queued.get().orElse(null));
+        assertEquals(2, metrics.timer(MetricRegistry.name(PasswordVerifier.class, "queue", "wait")).getCount());
+    }
+}
@@ -0,0 +1,141 @@
+package io.appform.idman.server.auth;
+
+import io.appform.idman.model.SessionRevocations;
+import io.appform.idman.server.auth.configs.AuthenticationConfig;
+import io.appform.idman.server.db.ServiceStore;
+import io.appform.idman.server.db.RevocationKind;
+import io.appform.idman.server.db.SessionRevocationStore;
+import io.appform.idman.server.db.impl.DBSessionRevocationStore;
+import io.appform.idman.server.db.model.StoredService;
+import io.appform.idman.server.db.model.StoredSessionRevocation;
+import io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory;
+import io.dropwizard.testing.junit5.DAOTestExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.dropwizard.util.Duration;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+class RevocationFeedTest {
+    public DAOTestExtension database = DAOTestExtension.newBuilder()
+            .addEntityClass(StoredSessionRevocation.class)
+            .build();
+
+    private final ServiceStore serviceStore = mock(ServiceStore.class);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private SessionRevocationStore revocationStore;
+    private RevocationFeed feed;
+
+    @BeforeEach
+    void setup() {
+        val service = new StoredService("S1", "Test Service", "", "blah.com", "SECRET_TOKEN");
+        doReturn(Optional.of(service)).when(serviceStore).get("S1");
+        doReturn(Optional.empty()).when(serviceStore).get("S2");
+        val authConfig = new AuthenticationConfig();
+        authConfig.setRevocationFeedPollInterval(Duration.milliseconds(50));
+        authConfig.setRevocationFeedMaxWait(Duration.seconds(5));
+        revocationStore = new DBSessionRevocationStore(database.getSessionFactory());
+        feed = new UnitOfWorkAwareProxyFactory("default", database.getSessionFactory())
+                .create(RevocationFeed.class,
+                        new Class[]{
+                                ServiceStore.class,
+                                SessionRevocationStore.class,
+                                AuthenticationConfig.class,
+                                ScheduledExecutorService.class
+                        },
+                        new Object[]{serviceStore, revocationStore, authConfig, scheduler});
+    }
+
+    @AfterEach
+    void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    @SneakyThrows
+    void testRevocations() {
+        database.inTransaction(() -> revocationStore.add("SS1", "S1", RevocationKind.REVOKED));
+        val head = feed.poll("S1", "SECRET_TOKEN", -1, 1_000).get().orElse(null);
+        assertNotNull(head);
+        assertTrue(head.getSessionIds().isEmpty());
+        assertTrue(head.getSequence() > 0);
+
+        assertEquals(new SessionRevocations(head.getSequence(), List.of("SS1"), false),
+                     feed.poll("S1", "SECRET_TOKEN", 0, 1_000).get().orElse(null));
+        //Recent revocations at or below the cursor are sent again in case they committed late
+        assertEquals(new SessionRevocations(head.getSequence(), List.of("SS1"), false),
+                     feed.poll("S1", "SECRET_TOKEN", head.getSequence(), 0).get().orElse(null));
+    }
+
+    @Test
+    @SneakyThrows
+    void testChangedSessionsNotOnFeed() {
+        database.inTransaction(() -> {
+            revocationStore.add("SS1", "S1", RevocationKind.CHANGED);
+            revocationStore.add("SS2", "S1", RevocationKind.REVOKED);
+            revocationStore.add("SS3", "S1", RevocationKind.CHANGED);
+        });
+        val revocations = feed.poll("S1", "SECRET_TOKEN", 0, 0).get().orElse(null);
+        assertNotNull(revocations);
+        assertEquals(List.of("SS2"), revocations.getSessionIds());
+    }
+
+    @Test
+    @SneakyThrows
+    void testLookbackExpiry() {
+        val authConfig = new AuthenticationConfig();
+        authConfig.setRevocationFeedLookback(Duration.milliseconds(0));
+        val noLookback = new UnitOfWorkAwareProxyFactory("default", database.getSessionFactory())
+                .create(RevocationFeed.class,
+                        new Class[]{
+                                ServiceStore.class,
+                                SessionRevocationStore.class,
+                                AuthenticationConfig.class,
+                                ScheduledExecutorService.class
+                        },
+                        new Object[]{serviceStore, revocationStore, authConfig, scheduler});
+        database.inTransaction(() -> revocationStore.add("SS1", "S1", RevocationKind.REVOKED));
+        val head = noLookback.poll("S1", "SECRET_TOKEN", -1, 0).get().orElseThrow();
+        Thread.sleep(10);
+        assertEquals(new SessionRevocations(head.getSequence(), Collections.emptyList(), false),
+                     noLookback.poll("S1", "SECRET_TOKEN", head.getSequence(), 0).get().orElse(null));
+    }
+
+    @Test
+    @SneakyThrows
+    void testLongPoll() {
+        val sequence = feed.poll("S1", "SECRET_TOKEN", -1, 0).get().orElseThrow().getSequence();
+        val pending = feed.poll("S1", "SECRET_TOKEN", sequence, 5_000);
+        assertFalse(pending.isDone());
+        database.inTransaction(() -> revocationStore.add("SS2", "S1", RevocationKind.REVOKED));
+        val revocations = pending.get(5, TimeUnit.SECONDS).orElse(null);
+        assertNotNull(revocations);
+        assertEquals(List.of("SS2"), revocations.getSessionIds());
+        assertTrue(revocations.getSequence() > sequence);
+    }
+
+    @Test
+    @SneakyThrows
+    void testAccessDenied() {
+        assertFalse(feed.poll("S1", "WRONG", -1, 0).get().isPresent());
+        assertFalse(feed.poll("S2", "SECRET_TOKEN", -1, 0).get().isPresent());
+    }
+}
@@ -1,5 +1,6 @@
 package io.appform.idman.server.auth;
 
+import com.codahale.metrics.MetricRegistry;
 import io.appform.idman.model.TokenType;
 import io.appform.idman.server.auth.configs.JwtConfig;
 import io.appform.idman.server.db.ServiceStore;
@@ -8,15 +9,18 @@ import io.appform.idman.server.db.UserInfoStore;
 import io.appform.idman.server.db.UserRoleStore;
 import io.appform.idman.server.db.model.StoredService;
 import io.appform.idman.server.db.model.StoredUser;
+import io.appform.idman.server.db.replica.ReplicaRouting;
 import io.appform.idman.server.utils.ServerTestingUtils;
 import io.appform.idman.server.utils.Utils;
 import io.dropwizard.util.Duration;
 import lombok.val;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
-import java.util.Date;
-import java.util.Optional;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,20 +33,25 @@ class TokenManagerTest {
     private final ServiceStore serviceStore = mock(ServiceStore.class);
     private final SessionStore sessionStore = mock(SessionStore.class);
     private final UserRoleStore roleStore = mock(UserRoleStore.class);
+    private final SessionFactory sessionFactory = mock(SessionFactory.class);
     private final JwtConfig jwtConfig = ServerTestingUtils.passwordauthConfig().getJwt();
+    private final MetricRegistry metrics = new MetricRegistry();
 
     private final TokenManager tokenManager = new TokenManager(userInfoStore,
                                                                serviceStore,
                                                                sessionStore,
                                                                roleStore,
-                                                               jwtConfig);
+                                                               sessionFactory,
+                                                               jwtConfig,
+                                                               metrics);
 
     @AfterEach
     void destroy() {
         reset(userInfoStore,
               serviceStore,
               sessionStore,
-              roleStore);
+              roleStore,
+              sessionFactory);
     }
 
     @Test
@@ -62,6 +71,8 @@ class TokenManagerTest {
         val r = tokenManager.createToken(testService.getServiceId(), user.getUserId(), "CS1", TokenType.DYNAMIC, expiry)
                 .orElse(null);
         assertNotNull(r);
+        assertEquals(1, outcomeCount("createToken", "success"));
+        assertEquals(1, metrics.timer(MetricRegistry.name(TokenManager.class, "createToken")).getCount());
     }
 
     @Test
@@ -127,6 +138,8 @@ class TokenManagerTest {
                                             TokenType.DYNAMIC,
                                             expiry)
                            .orElse(null));
+        assertEquals(1, outcomeCount("createToken", "invalid_service"));
+        assertEquals(0, outcomeCount("createToken", "success"));
     }
 
     @Test
@@ -193,6 +206,7 @@ class TokenManagerTest {
                                             TokenType.DYNAMIC,
                                             expiry)
                            .orElse(null));
+        assertEquals(1, outcomeCount("createToken", "invalid_user"));
     }
 
     @Test
@@ -238,6 +252,7 @@ class TokenManagerTest {
         val ti = tokenManager.generateTokenForSession(testService.getServiceId(), session.getSessionId(), TokenType.DYNAMIC)
                 .orElse(null);
         assertNull(ti);
+        assertEquals(1, outcomeCount("generateTokenForSession", "invalid_user"));
     }
 
     @Test
@@ -282,6 +297,7 @@ class TokenManagerTest {
                 .orElse(null);
         assertNotNull(ti);
         assertFalse(tokenManager.deleteToken(session.getServiceId(), ti.getToken()));
+        assertEquals(1, outcomeCount("deleteToken", "invalid_service"));
     }
 
     @Test
@@ -307,6 +323,136 @@ class TokenManagerTest {
         assertFalse(tokenManager.deleteToken(session.getServiceId(), ti.getToken()));
     }
 
+    @Test
+    void testTranslateTokenSuccess() {
+        val user = ServerTestingUtils.normalUser();
+        val testService = ServerTestingUtils.testService();
+        val session = ServerTestingUtils.dynamicSession();
+        setupStores(user, testService);
+        doReturn(Optional.of(session))
+                .when(sessionStore)
+                .get(session.getSessionId(), TokenType.DYNAMIC);
+        doReturn(Optional.of(ServerTestingUtils.normalRole(user.getUserId())))
+                .when(roleStore)
+                .getUserServiceRole(user.getUserId(), testService.getServiceId());
+        val ti = tokenManager.generateTokenForSession(testService.getServiceId(),
+                                                      session.getSessionId(),
+                                                      TokenType.DYNAMIC)
+                .orElse(null);
+        assertNotNull(ti);
+        doReturn(Optional.of(ti.getUser()))
+                .when(sessionStore)
+                .sessionUser(session.getSessionId(), testService.getServiceId(), TokenType.DYNAMIC);
+        assertEquals(ti.getUser(), tokenManager.translateToken(testService.getServiceId(), ti.getToken()).orElse(null));
+        verify(userInfoStore, times(1)).get(user.getUserId());
+        verify(roleStore, times(1)).getUserServiceRole(user.getUserId(), testService.getServiceId());
+        assertEquals(1, outcomeCount("translateToken", "success"));
+        assertFalse(tokenManager.translateToken(testService.getServiceId(), "garbage").isPresent());
+        assertEquals(1, outcomeCount("translateToken", "invalid_token"));
+        assertFalse(tokenManager.translateToken("S2", ti.getToken()).isPresent());
+        assertEquals(1, outcomeCount("translateToken", "invalid_service"));
+    }
+
+    @Test
+    void testTranslateTokenInvalidSession() {
+        val user = ServerTestingUtils.normalUser();
+        val testService = ServerTestingUtils.testService();
+        val session = ServerTestingUtils.dynamicSession();
+        setupStores(user, testService);
+        doReturn(Optional.of(session))
+                .when(sessionStore)
+                .get(session.getSessionId(), TokenType.DYNAMIC);
+        doReturn(Optional.of(ServerTestingUtils.normalRole(user.getUserId())))
+                .when(roleStore)
+                .getUserServiceRole(user.getUserId(), testService.getServiceId());
+        val ti = tokenManager.generateTokenForSession(testService.getServiceId(),
+                                                      session.getSessionId(),
+                                                      TokenType.DYNAMIC)
+                .orElse(null);
+        assertNotNull(ti);
+        doReturn(Optional.empty())
+                .when(sessionStore)
+                .sessionUser(anyString(), anyString(), any(TokenType.class));
+        assertNull(tokenManager.translateToken(testService.getServiceId(), ti.getToken()).orElse(null));
+        assertEquals(1, outcomeCount("translateToken", "invalid_session"));
+    }
+
+    @Test
+    void testTranslateTokens() {
+        val user = ServerTestingUtils.normalUser();
+        val testService = ServerTestingUtils.testService();
+        val session = ServerTestingUtils.dynamicSession();
+        setupStores(user, testService);
+        doReturn(Optional.of(session))
+                .when(sessionStore)
+                .get(session.getSessionId(), TokenType.DYNAMIC);
+        doReturn(Optional.of(ServerTestingUtils.normalRole(user.getUserId())))
+                .when(roleStore)
+                .getUserServiceRole(user.getUserId(), testService.getServiceId());
+        val ti = tokenManager.generateTokenForSession(testService.getServiceId(),
+                                                      session.getSessionId(),
+                                                      TokenType.DYNAMIC)
+                .orElse(null);
+        assertNotNull(ti);
+        doReturn(Map.of(session.getSessionId(), ti.getUser()))
+                .when(sessionStore)
+                .sessionUsers(Set.of(session.getSessionId()), testService.getServiceId(), TokenType.DYNAMIC);
+        val users = tokenManager.translateTokens(testService.getServiceId(), List.of(ti.getToken(), "garbage"));
+        assertEquals(Map.of(ti.getToken(), ti.getUser()), users);
+        verify(sessionStore, times(1)).sessionUsers(anyCollection(), anyString(), any(TokenType.class));
+
+        assertEquals(1, outcomeCount("translateTokens", "success"));
+        assertEquals(1, outcomeCount("translateTokens", "invalid_token"));
+
+        assertTrue(tokenManager.translateTokens("S2", List.of(ti.getToken())).isEmpty());
+        assertEquals(1, outcomeCount("translateTokens", "invalid_service"));
+    }
+
+    @Test
+    void testTranslateTokenReadsPrimaryOnReplicaMiss() {
+        val user = ServerTestingUtils.normalUser();
+        val testService = ServerTestingUtils.testService();
+        val session = ServerTestingUtils.dynamicSession();
+        setupStores(user, testService);
+        doReturn(Optional.of(session))
+                .when(sessionStore)
+                .get(session.getSessionId(), TokenType.DYNAMIC);
+        doReturn(Optional.of(ServerTestingUtils.normalRole(user.getUserId())))
+                .when(roleStore)
+                .getUserServiceRole(user.getUserId(), testService.getServiceId());
+        val ti = tokenManager.generateTokenForSession(testService.getServiceId(),
+                                                      session.getSessionId(),
+                                                      TokenType.DYNAMIC)
+                .orElse(null);
+        assertNotNull(ti);
+        val dbSession = mock(Session.class);
+        doReturn(sessionFactory).when(dbSession).getSessionFactory();
+        doReturn(mock(Transaction.class)).when(dbSession).beginTransaction();
+        doReturn(dbSession).when(sessionFactory).openSession();
+        doAnswer(invocation -> ReplicaRouting.isReadOnly() ? Optional.empty() : Optional.of(ti.getUser()))
+                .when(sessionStore)
+                .sessionUser(session.getSessionId(), testService.getServiceId(), TokenType.DYNAMIC);
+        doAnswer(invocation -> ReplicaRouting.isReadOnly()
+                               ? Collections.emptyMap()
+                               : Map.of(session.getSessionId(), ti.getUser()))
+                .when(sessionStore)
+                .sessionUsers(Set.of(session.getSessionId()), testService.getServiceId(), TokenType.DYNAMIC);
+
+        ReplicaRouting.setReadOnly(true);
+        try {
+            assertEquals(ti.getUser(),
+                         tokenManager.translateToken(testService.getServiceId(), ti.getToken()).orElse(null));
+            assertEquals(Map.of(ti.getToken(), ti.getUser()),
+                         tokenManager.translateTokens(testService.getServiceId(), List.of(ti.getToken())));
+            assertTrue(ReplicaRouting.isReadOnly());
+        }
+        finally {
+            ReplicaRouting.setReadOnly(false);
+        }
+        verify(sessionFactory, times(2)).openSession();
+        verify(dbSession, times(2)).close();
+    }
+
     private void setupStores(StoredUser user, StoredService testService) {
         doReturn(Optional.of(user))
                 .when(userInfoStore)
@@ -316,4 +462,8 @@ class TokenManagerTest {
                 .get(testService.getServiceId());
     }
 
+    private long outcomeCount(String method, String outcome) {
+        return metrics.meter(MetricRegistry.name(TokenManager.class, method, outcome)).getCount();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.auth;
+
+import io.appform.idman.model.*;
+import io.appform.idman.server.auth.configs.JwtConfig;
+import io.appform.idman.server.db.model.ClientSession;
+import io.appform.idman.server.utils.ServerTestingUtils;
+import io.appform.idman.server.utils.Utils;
+import io.dropwizard.jersey.validation.Validators;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.jwt.consumer.JwtConsumerBuilder;
+import org.jose4j.keys.HmacKey;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+class TokenMinterTest {
+
+    @Test
+    @SneakyThrows
+    void testHmacToken() {
+        val config = ServerTestingUtils.passwordauthConfig().getJwt();
+        val created = new Date(1_600_000_000_123L);
+        val expiry = new Date(4_100_000_000_456L);
+        val session = new ClientSession("SS1", "U1", "S1", "CS1", TokenType.DYNAMIC, expiry, false, created, created);
+        val user = new IdmanUser("SS1",
+                                 "S1",
+                                 new User("U1", "Quote \" Back\\slash\nÜser", UserType.HUMAN, AuthMode.PASSWORD),
+                                 "S_USER");
+        val minter = TokenMinter.of(config);
+        assertSame(minter, TokenMinter.of(config));
+        val jwt = minter.mint(session, user);
+
+        val jws = (JsonWebSignature) JsonWebSignature.fromCompactSerialization(jwt);
+        jws.setKey(new HmacKey(config.getPrivateKey().getBytes(StandardCharsets.UTF_8)));
+        assertTrue(jws.verifySignature());
+        assertEquals(AlgorithmIdentifiers.HMAC_SHA512, jws.getAlgorithmHeaderValue());
+        assertNull(jws.getKeyIdHeaderValue());
+
+        val claims = Utils.buildConsumer(config, "S1").process(jwt).getJwtClaims();
+        assertEquals(config.getIssuerId(), claims.getIssuer());
+        assertEquals("SS1", claims.getJwtId());
+        assertEquals("U1", claims.getSubject());
+        assertEquals(List.of("S1"), claims.getAudience());
+        assertEquals(1_600_000_000L, claims.getIssuedAt().getValue());
+        assertEquals(4_100_000_000L, claims.getExpirationTime().getValue());
+        assertTrue(claims.getNotBefore().getValue() < System.currentTimeMillis() / 1000);
+        assertEquals("Quote \" Back\\slash\nÜser", claims.getStringClaimValue(TokenClaims.USER_NAME));
+        assertEquals("HUMAN", claims.getStringClaimValue(TokenClaims.USER_TYPE));
+        assertEquals("PASSWORD", claims.getStringClaimValue(TokenClaims.AUTH_MODE));
+        assertEquals("S_USER", claims.getStringClaimValue(TokenClaims.ROLE));
+    }
+
+    @Test
+    @SneakyThrows
+    void testStaticTokenWithoutUser() {
+        val config = ServerTestingUtils.passwordauthConfig().getJwt();
+        val session = new ClientSession("SS1", "U1", "S1", "CS1", TokenType.STATIC, null, false, null, null);
+        val claims = Utils.buildConsumer(config, "S1")
+                .process(TokenMinter.of(config).mint(session, null))
+                .getJwtClaims();
+        assertNull(claims.getExpirationTime());
+        assertNotNull(claims.getIssuedAt());
+        assertFalse(claims.hasClaim(TokenClaims.USER_NAME));
+        assertFalse(claims.hasClaim(TokenClaims.ROLE));
+    }
+
+    @Test
+    @SneakyThrows
+    void testCompactHmacToken() {
+        val config = ServerTestingUtils.passwordauthConfig().getJwt();
+        val standardConfig = ServerTestingUtils.passwordauthConfig().getJwt();
+        config.setTokenProfile(JwtConfig.TokenProfile.COMPACT);
+        val sessionId = UUID.randomUUID().toString();
+        val userId = Utils.hashedId("tu1@test.com");
+        val session = new ClientSession(sessionId,
+                                        userId,
+                                        "S1",
+                                        "CS1",
+                                        TokenType.DYNAMIC,
+                                        new Date(1_700_000_000_456L),
+                                        false,
+                                        new Date(),
+                                        new Date());
+        val user = new IdmanUser(sessionId,
+                                 "S1",
+                                 new User(userId, "TU1", UserType.HUMAN, AuthMode.PASSWORD),
+                                 "S_USER");
+        val jwt = TokenMinter.of(config).mint(session, user);
+        assertTrue(jwt.length() < TokenMinter.of(standardConfig).mint(session, user).length() / 2);
+
+        val jws = (JsonWebSignature) JsonWebSignature.fromCompactSerialization(jwt);
+        assertEquals(AlgorithmIdentifiers.HMAC_SHA256, jws.getAlgorithmHeaderValue());
+
+        //Setting the clock as the test expiry is in the past
+        val claims = new JwtConsumerBuilder()
+                .setEvaluationTime(NumericDate.fromSeconds(1_600_000_000L))
+                .setVerificationKey(new HmacKey(config.getPrivateKey().getBytes(StandardCharsets.UTF_8)))
+                .setExpectedAudience("S1")
+                .build()
+                .process(jwt)
+                .getJwtClaims();
+        assertEquals(Set.of("jti", "sub", "aud", "exp"), claims.getClaimsMap().keySet());
+        assertEquals(CompactIds.compact(sessionId), claims.getJwtId());
+        assertEquals(23, claims.getJwtId().length());
+        assertEquals(CompactIds.compact(userId), claims.getSubject());
+
+        //Tokens of both profiles are accepted by consumers for either profile
+        val session2 = new ClientSession(sessionId, userId, "S1", "CS1", TokenType.STATIC, null, false, null, null);
+        for (val consumerConfig : List.of(config, standardConfig)) {
+            val consumer = Utils.buildConsumer(consumerConfig, "S1");
+            for (val minterConfig : List.of(config, standardConfig)) {
+                val parsed = Utils.parseToken(TokenMinter.of(minterConfig).mint(session2, user), consumer)
+                        .orElse(null);
+                assertNotNull(parsed);
+                assertEquals(sessionId, parsed.getSessionId());
+                assertEquals(userId, parsed.getUserId());
+                assertEquals("S1", parsed.getServiceId());
+                assertEquals(TokenType.STATIC, parsed.getType());
+            }
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testCompactAsymmetricToken() {
+        val config = ServerTestingUtils.passwordauthConfig().getJwt();
+        config.setSigningKeys(List.of(ServerTestingUtils.ecSigningKey("K1")));
+        config.setTokenProfile(JwtConfig.TokenProfile.COMPACT);
+        val sessionId = UUID.randomUUID().toString();
+        val session = new ClientSession(sessionId, "U1", "S1", "CS1", TokenType.STATIC, null, false, null, null);
+        val user = new IdmanUser(sessionId,
+                                 "S1",
+                                 new User("U1", "TU1", UserType.HUMAN, AuthMode.PASSWORD),
+                                 "S_USER");
+        val jwt = TokenMinter.of(config).mint(session, user);
+        val jws = (JsonWebSignature) JsonWebSignature.fromCompactSerialization(jwt);
+        assertEquals(AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256, jws.getAlgorithmHeaderValue());
+        assertEquals("K1", jws.getKeyIdHeaderValue());
+
+        val claims = Utils.buildConsumer(config, "S1").process(jwt).getJwtClaims();
+        assertNull(claims.getIssuer());
+        assertNull(claims.getIssuedAt());
+        assertEquals(CompactIds.compact(sessionId), claims.getJwtId());
+        assertEquals("U1", claims.getSubject());
+        assertEquals("TU1", claims.getStringClaimValue(TokenClaims.USER_NAME));
+        assertEquals("S_USER", claims.getStringClaimValue(TokenClaims.ROLE));
+    }
+
+    @Test
+    void testWrongIssuerRejected() {
+        val config = ServerTestingUtils.passwordauthConfig().getJwt();
+        val otherConfig = ServerTestingUtils.passwordauthConfig().getJwt();
+        otherConfig.setIssuerId("someone-else");
+        val session = new ClientSession("SS1", "U1", "S1", "CS1", TokenType.STATIC, null, false, null, null);
+        assertFalse(Utils.parseToken(TokenMinter.of(otherConfig).mint(session, null),
+                                     Utils.buildConsumer(config, "S1"))
+                            .isPresent());
+    }
+
+    @Test
+    @SneakyThrows
+    void testStandardTokenWithoutIssuerOrIssueTimeRejected() {
+        val config = ServerTestingUtils.passwordauthConfig().getJwt();
+        val consumer = Utils.buildConsumer(config, "S1");
+        val key = new HmacKey(config.getPrivateKey().getBytes(StandardCharsets.UTF_8));
+        for (val claim : List.of("iss", "iat")) {
+            val claims = new JwtClaims();
+            claims.setIssuer(config.getIssuerId());
+            claims.setIssuedAtToNow();
+            claims.setJwtId("SS1");
+            claims.setSubject("U1");
+            claims.setAudience("S1");
+            claims.unsetClaim(claim);
+            val jws = new JsonWebSignature();
+            jws.setPayload(claims.toJson());
+            jws.setKey(key);
+            jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.HMAC_SHA512);
+            assertFalse(Utils.parseToken(jws.getCompactSerialization(), consumer).isPresent());
+        }
+    }
+
+    @Test
+    void testConcurrentMinting() {
+        val config = ServerTestingUtils.passwordauthConfig().getJwt();
+        val consumer = Utils.buildConsumer(config, "S1");
+        val tokens = IntStream.range(0, 64)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> TokenMinter.of(config).mint(
+                        new ClientSession("SS" + i, "U" + i, "S1", "CS1", TokenType.STATIC, null, false, null, null),
+                        null)))
+                .collect(Collectors.toList());
+        IntStream.range(0, tokens.size())
+                .forEach(i -> assertEquals("U" + i,
+                                           Utils.parseToken(tokens.get(i).join(), consumer)
+                                                   .map(ParsedTokenInfo::getUserId)
+                                                   .orElse(null)));
+    }
+
+    @Test
+    void testShortHmacKeyRejectedOnLoad() {
+        val validator = Validators.newValidator();
+        val config = ServerTestingUtils.passwordauthConfig().getJwt();
+        assertTrue(validator.validate(config).isEmpty());
+        config.setPrivateKey(ServerTestingUtils.randomString(32));
+        assertFalse(validator.validate(config).isEmpty());
+        config.setTokenProfile(JwtConfig.TokenProfile.COMPACT);
+        assertTrue(validator.validate(config).isEmpty());
+        config.setPrivateKey("too-short");
+        assertFalse(validator.validate(config).isEmpty());
+        config.setSigningKeys(List.of(ServerTestingUtils.rsaSigningKey("K1")));
+        assertTrue(validator.validate(config).isEmpty());
+    }
+}
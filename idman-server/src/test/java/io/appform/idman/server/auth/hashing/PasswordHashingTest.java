@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.auth.hashing;
+
+import io.appform.idman.server.auth.configs.PasswordHashingConfig;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+class PasswordHashingTest {
+
+    @Test
+    void testBCrypt() {
+        val hashing = new PasswordHashing(new BCryptPasswordHasher(5));
+        val hashed = hashing.hash("PASSWORD");
+        assertTrue(hashed.startsWith("$2a$05$"));
+        assertTrue(hashing.verify("PASSWORD", hashed));
+        assertFalse(hashing.verify("WRONG", hashed));
+        assertFalse(hashing.needsRehash(hashed));
+        assertTrue(hashing.needsRehash(new BCryptPasswordHasher(4).hash("PASSWORD")));
+        assertTrue(hashing.verify("PASSWORD", new BCryptPasswordHasher(4).hash("PASSWORD")));
+    }
+
+    @Test
+    void testArgon2id() {
+        val hasher = new Argon2idPasswordHasher(8_192, 2, 1);
+        val hashing = new PasswordHashing(hasher);
+        val hashed = hashing.hash("PASSWORD");
+        assertTrue(hashed.startsWith("$argon2id$v=19$m=8192,t=2,p=1$"));
+        assertNotEquals(hashed, hashing.hash("PASSWORD"));
+        assertTrue(hashing.verify("PASSWORD", hashed));
+        assertFalse(hashing.verify("WRONG", hashed));
+        assertFalse(hashing.needsRehash(hashed));
+        assertTrue(hashing.needsRehash(new Argon2idPasswordHasher(8_192, 1, 1).hash("PASSWORD")));
+        assertFalse(hasher.verify("PASSWORD", "$argon2id$v=19$m=8192,t=2$c2FsdA$aGFzaA"));
+        assertFalse(hasher.verify("PASSWORD", "$argon2id$v=16$m=8192,t=2,p=1$c2FsdA$aGFzaA"));
+    }
+
+    @Test
+    void testPolicyChange() {
+        val bcryptHash = new BCryptPasswordHasher(4).hash("PASSWORD");
+        val argonHashing = new PasswordHashing(new Argon2idPasswordHasher(8_192, 1, 1));
+        assertTrue(argonHashing.verify("PASSWORD", bcryptHash));
+        assertTrue(argonHashing.needsRehash(bcryptHash));
+
+        val argonHash = argonHashing.hash("PASSWORD");
+        val bcryptHashing = new PasswordHashing(new BCryptPasswordHasher(4));
+        assertTrue(bcryptHashing.verify("PASSWORD", argonHash));
+        assertTrue(bcryptHashing.needsRehash(argonHash));
+        assertFalse(bcryptHashing.verify("PASSWORD", "plaintext"));
+    }
+
+    @Test
+    void testCreate() {
+        val config = new PasswordHashingConfig();
+        config.setBcryptCost(4);
+        assertEquals(4, ((BCryptPasswordHasher) PasswordHashing.create(config).getCurrent()).getCost());
+
+        config.setAlgorithm(PasswordHashingConfig.Algorithm.ARGON2ID);
+        config.setArgon2MemoryKb(8_192);
+        config.setArgon2Iterations(2);
+        val argon = (Argon2idPasswordHasher) PasswordHashing.create(config).getCurrent();
+        assertEquals(8_192, argon.getMemoryKb());
+        assertEquals(2, argon.getIterations());
+    }
+
+    @Test
+    void testHigherCostIsCurrent() {
+        val bcrypt = new BCryptPasswordHasher(5);
+        assertTrue(bcrypt.isCurrent(new BCryptPasswordHasher(6).hash("PASSWORD")));
+        assertTrue(bcrypt.isCurrent("$2b$05$" + "x".repeat(53)));
+        assertFalse(bcrypt.isCurrent("$2a$xx$" + "x".repeat(53)));
+        assertFalse(bcrypt.isCurrent(new Argon2idPasswordHasher(8_192, 1, 1).hash("PASSWORD")));
+
+        val argon = new Argon2idPasswordHasher(8_192, 2, 1);
+        assertTrue(argon.isCurrent(new Argon2idPasswordHasher(8_192, 3, 1).hash("PASSWORD")));
+        assertTrue(argon.isCurrent(new Argon2idPasswordHasher(16_384, 2, 2).hash("PASSWORD")));
+        assertFalse(argon.isCurrent(new Argon2idPasswordHasher(16_384, 1, 1).hash("PASSWORD")));
+        assertFalse(argon.isCurrent("$argon2id$v=19$m=8192,t=x,p=1$c2FsdA$aGFzaA"));
+        assertFalse(argon.isCurrent(new BCryptPasswordHasher(4).hash("PASSWORD")));
+    }
+}
@@ -14,26 +14,38 @@
 
 package io.appform.idman.server.auth.impl;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.appform.idman.model.AuthMode;
 import io.appform.idman.model.UserType;
+import io.appform.idman.server.auth.AuthenticationProvider;
 import io.appform.idman.server.auth.AuthenticationProviderFactory;
+import io.appform.idman.server.auth.LoginFailureCounters;
+import io.appform.idman.server.auth.PasswordVerifier;
 import io.appform.idman.server.auth.configs.AuthenticationConfig;
+import io.appform.idman.server.auth.configs.PasswordVerificationConfig;
+import io.appform.idman.server.auth.hashing.BCryptPasswordHasher;
+import io.appform.idman.server.auth.hashing.PasswordHashing;
 import io.appform.idman.server.db.*;
 import io.appform.idman.server.db.impl.DBPasswordStore;
 import io.appform.idman.server.db.impl.DBDynamicSessionStore;
+import io.appform.idman.server.db.impl.DBSessionRevocationStore;
 import io.appform.idman.server.db.impl.DBStaticSessionStore;
 import io.appform.idman.server.db.impl.DBUserInfoStore;
 import io.appform.idman.server.db.model.*;
 import io.appform.idman.server.utils.ServerTestingUtils;
 import io.dropwizard.testing.junit5.DAOTestExtension;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.dropwizard.util.Duration;
 import lombok.val;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -50,19 +62,29 @@ class PasswordAuthenticationProviderTest {
             .addEntityClass(StoredPassword.class)
             .addEntityClass(StoredDynamicSession.class)
             .addEntityClass(StoredStaticSession.class)
+            .addEntityClass(StoredSessionRevocation.class)
             .build();
 
     private UserInfoStore userInfoStore;
     private PasswordStore passwordStore;
+    private PasswordVerifier passwordVerifier;
     private SessionStore sessionStore;
     private AuthenticationConfig authenticationConfig;
+    private LoginFailureCounters loginFailures;
 
     @BeforeEach
     void setup() {
         userInfoStore = new DBUserInfoStore(database.getSessionFactory());
-        passwordStore = new DBPasswordStore(database.getSessionFactory());
+        passwordStore = new DBPasswordStore(database.getSessionFactory(),
+                                            new PasswordHashing(new BCryptPasswordHasher(4)),
+                                            new MetricRegistry());
+        passwordVerifier = new PasswordVerifier(database.getSessionFactory(),
+                                                passwordStore,
+                                                new PasswordVerificationConfig(),
+                                                new MetricRegistry());
         sessionStore = new CompositeSessionStore(new DBDynamicSessionStore(database.getSessionFactory()),
-                                                 new DBStaticSessionStore(database.getSessionFactory()));
+                                                 new DBStaticSessionStore(database.getSessionFactory()),
+                                                 new DBSessionRevocationStore(database.getSessionFactory()));
 
         val user = database.inTransaction(() -> userInfoStore.create("UI",
                                                                      "u@u.t",
@@ -73,6 +95,7 @@ class PasswordAuthenticationProviderTest {
         database.inTransaction((Runnable) () -> passwordStore.set(user.getUserId(), "TESTPASSWORD"));
 
         authenticationConfig = ServerTestingUtils.passwordauthConfig();
+        loginFailures = newLoginFailures();
     }
 
     @Test
@@ -81,7 +104,9 @@ class PasswordAuthenticationProviderTest {
                                                    new ObjectMapper(),
                                                    () -> userInfoStore,
                                                    () -> sessionStore,
-                                                   () -> passwordStore);
+                                                   () -> passwordStore,
+                                                   passwordVerifier,
+                                                   loginFailures);
 
         val authProvider = af.create(authenticationConfig.getProvider());
         val user = userInfoStore.get("UI").orElse(null);
@@ -124,7 +149,9 @@ class PasswordAuthenticationProviderTest {
                                                    new ObjectMapper(),
                                                    () -> userInfoStore,
                                                    () -> sessionStore,
-                                                   () -> passwordStore);
+                                                   () -> passwordStore,
+                                                   passwordVerifier,
+                                                   loginFailures);
 
         val authProvider = af.create(authenticationConfig.getProvider());
         val user = userInfoStore.get("UI").orElse(null);
@@ -162,13 +189,96 @@ class PasswordAuthenticationProviderTest {
         }
     }
 
+    @Test
+    void testFailuresPersistedOnlyOnTransitions() {
+        val updates = new AtomicInteger();
+        val countingStore = new DBUserInfoStore(database.getSessionFactory()) {
+            @Override
+            public Optional<StoredUser> updateAuthState(String userId, Consumer<StoredUserAuthState> handler) {
+                updates.incrementAndGet();
+                return super.updateAuthState(userId, handler);
+            }
+        };
+        val authProvider = new PasswordAuthenticationProvider(authenticationConfig,
+                                                              () -> countingStore,
+                                                              () -> passwordStore,
+                                                              () -> sessionStore,
+                                                              passwordVerifier,
+                                                              loginFailures);
+        val otherNodeProvider = new PasswordAuthenticationProvider(authenticationConfig,
+                                                                   () -> countingStore,
+                                                                   () -> passwordStore,
+                                                                   () -> sessionStore,
+                                                                   passwordVerifier,
+                                                                   newLoginFailures());
+        IntStream.rangeClosed(1, 2)
+                .forEach(i -> assertFalse(authProvider.login(new PasswordAuthInfo("u@u.t", "WRONG", "S1", "CS1"), "S1")
+                                                  .isPresent()));
+        assertEquals(0, updates.get());
+        assertEquals(0, failedAuthCount());
+
+        //Nothing to reset for a provider that has not seen failures
+        assertTrue(otherNodeProvider.login(new PasswordAuthInfo("u@u.t", "TESTPASSWORD", "S1", "CS1"), "S2")
+                           .isPresent());
+        assertEquals(0, updates.get());
+
+        //Reset after failures costs one write
+        assertTrue(authProvider.login(new PasswordAuthInfo("u@u.t", "TESTPASSWORD", "S1", "CS1"), "S3").isPresent());
+        assertEquals(1, updates.get());
+        assertTrue(authProvider.login(new PasswordAuthInfo("u@u.t", "TESTPASSWORD", "S1", "CS1"), "S4").isPresent());
+        assertEquals(1, updates.get());
+
+        //Crossing the threshold locks the account with a single write
+        IntStream.rangeClosed(1, 3)
+                .forEach(i -> assertFalse(authProvider.login(new PasswordAuthInfo("u@u.t", "WRONG", "S1", "CS1"), "S1")
+                                                  .isPresent()));
+        assertEquals(2, updates.get());
+        assertEquals(3, failedAuthCount());
+        assertEquals(AuthState.LOCKED,
+                     userInfoStore.get("UI").map(user -> user.getAuthState().getAuthState()).orElse(null));
+    }
+
+    @Test
+    void testFailuresFlushedAcrossNodes() {
+        val authProvider = new PasswordAuthenticationProvider(authenticationConfig,
+                                                              () -> userInfoStore,
+                                                              () -> passwordStore,
+                                                              () -> sessionStore,
+                                                              passwordVerifier,
+                                                              loginFailures);
+        val otherNodeFailures = newLoginFailures();
+        val otherNodeProvider = new PasswordAuthenticationProvider(authenticationConfig,
+                                                                   () -> userInfoStore,
+                                                                   () -> passwordStore,
+                                                                   () -> sessionStore,
+                                                                   passwordVerifier,
+                                                                   otherNodeFailures);
+        assertFalse(database.inTransaction(
+                () -> authProvider.login(new PasswordAuthInfo("u@u.t", "WRONG", "S1", "CS1"), "S1")).isPresent());
+        assertFalse(database.inTransaction(
+                () -> otherNodeProvider.login(new PasswordAuthInfo("u@u.t", "WRONG", "S1", "CS1"), "S1")).isPresent());
+        assertEquals(1, loginFailures.flush());
+        assertEquals(1, otherNodeFailures.flush());
+        database.getSessionFactory().getCurrentSession().clear();
+        assertEquals(2, failedAuthCount());
+
+        //The third failure on either node locks the account
+        assertFalse(database.inTransaction(
+                () -> authProvider.login(new PasswordAuthInfo("u@u.t", "WRONG", "S1", "CS1"), "S1")).isPresent());
+        database.getSessionFactory().getCurrentSession().clear();
+        assertEquals(AuthState.LOCKED,
+                     userInfoStore.get("UI").map(user -> user.getAuthState().getAuthState()).orElse(null));
+    }
+
     @Test
     void testDeletedUser() {
         val af = new AuthenticationProviderFactory(authenticationConfig,
                                                    new ObjectMapper(),
                                                    () -> userInfoStore,
                                                    () -> sessionStore,
-                                                   () -> passwordStore);
+                                                   () -> passwordStore,
+                                                   passwordVerifier,
+                                                   loginFailures);
 
         val authProvider = af.create(authenticationConfig.getProvider());
         {
@@ -190,7 +300,9 @@ class PasswordAuthenticationProviderTest {
                                                    new ObjectMapper(),
                                                    () -> userInfoStore,
                                                    () -> sessionStore,
-                                                   () -> passwordStore);
+                                                   () -> passwordStore,
+                                                   passwordVerifier,
+                                                   loginFailures);
 
         val authProvider = af.create(authenticationConfig.getProvider());
         {
@@ -199,4 +311,15 @@ class PasswordAuthenticationProviderTest {
             assertNull(resp);
         }
     }
-}
\ No newline at end of file
+
+    private LoginFailureCounters newLoginFailures() {
+        return new LoginFailureCounters(database.getSessionFactory(),
+                                        userInfoStore,
+                                        AuthenticationProvider.MAX_FAILURES,
+                                        Duration.seconds(5));
+    }
+
+    private int failedAuthCount() {
+        return userInfoStore.get("UI").map(user -> user.getAuthState().getFailedAuthCount()).orElse(-1);
+    }
+}
@@ -0,0 +1,63 @@
+package io.appform.idman.server.db;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.matcher.Matchers;
+import io.appform.idman.server.db.model.StoredService;
+import io.dropwizard.hibernate.AbstractDAO;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ */
+class StoreMetricsInterceptorTest {
+
+    public static class TestStore extends AbstractDAO<StoredService> {
+        @Inject
+        public TestStore(SessionFactory sessionFactory) {
+            super(sessionFactory);
+        }
+
+        public String echo(String value) {
+            return value;
+        }
+
+        public void fail() {
+            throw new IllegalStateException("failed");
+        }
+    }
+
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    @Test
+    void testStoreMethodsTimed() {
+        val store = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(SessionFactory.class).toInstance(mock(SessionFactory.class));
+                bind(MetricRegistry.class).toInstance(metrics);
+                bindInterceptor(Matchers.subclassesOf(AbstractDAO.class),
+                                StoreMetricsInterceptor.STORE_METHODS,
+                                new StoreMetricsInterceptor(getProvider(MetricRegistry.class)));
+            }
+        }).getInstance(TestStore.class);
+
+        assertEquals("a", store.echo("a"));
+        assertEquals("b", store.echo("b"));
+        assertThrows(IllegalStateException.class, store::fail);
+
+        assertEquals(2, metrics.timer(MetricRegistry.name(TestStore.class, "echo")).getCount());
+        assertEquals(0, metrics.meter(MetricRegistry.name(TestStore.class, "echo", "failures")).getCount());
+        assertEquals(1, metrics.timer(MetricRegistry.name(TestStore.class, "fail")).getCount());
+        assertEquals(1, metrics.meter(MetricRegistry.name(TestStore.class, "fail", "failures")).getCount());
+        assertTrue(metrics.getTimers().keySet().stream().noneMatch(name -> name.endsWith("currentSession")));
+    }
+}
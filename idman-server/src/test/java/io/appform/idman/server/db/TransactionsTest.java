@@ -0,0 +1,62 @@
+package io.appform.idman.server.db;
+
+import io.appform.idman.server.db.model.StoredService;
+import io.dropwizard.testing.junit5.DAOTestExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.hibernate.resource.transaction.spi.TransactionStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+class TransactionsTest {
+    public DAOTestExtension database = DAOTestExtension.newBuilder()
+            .addEntityClass(StoredService.class)
+            .build();
+
+    @Test
+    void testCommit() {
+        final SessionFactory sessionFactory = database.getSessionFactory();
+        final Session outer = sessionFactory.getCurrentSession();
+        Transactions.inTransaction(sessionFactory, session -> {
+            assertNotSame(outer, session);
+            assertSame(session, sessionFactory.getCurrentSession());
+            return session.save(new StoredService("S1", "S1", "S1", "http://localhost", "secret"));
+        });
+        assertSame(outer, sessionFactory.getCurrentSession());
+        assertNotNull(database.inTransaction(() -> outer.get(StoredService.class, 1L)));
+    }
+
+    @Test
+    void testRollback() {
+        final SessionFactory sessionFactory = database.getSessionFactory();
+        assertThrows(IllegalStateException.class, () -> Transactions.inTransaction(sessionFactory, session -> {
+            session.save(new StoredService("S1", "S1", "S1", "http://localhost", "secret"));
+            throw new IllegalStateException("Failed");
+        }));
+        assertTrue(ManagedSessionContext.hasBind(sessionFactory));
+        assertNull(database.inTransaction(() -> sessionFactory.getCurrentSession().get(StoredService.class, 1L)));
+    }
+
+    @Test
+    void testOutsideTransaction() {
+        final SessionFactory sessionFactory = database.getSessionFactory();
+        database.inTransaction(() -> {
+            final Transaction transaction = sessionFactory.getCurrentSession().getTransaction();
+            assertEquals("done", Transactions.outsideTransaction(sessionFactory, () -> {
+                assertNotEquals(TransactionStatus.ACTIVE, transaction.getStatus());
+                return "done";
+            }));
+            assertEquals(TransactionStatus.ACTIVE, transaction.getStatus());
+        });
+        assertEquals("done", Transactions.outsideTransaction(sessionFactory, () -> "done"));
+    }
+}
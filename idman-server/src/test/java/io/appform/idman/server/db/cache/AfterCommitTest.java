@@ -0,0 +1,41 @@
+package io.appform.idman.server.db.cache;
+
+import io.appform.idman.server.db.model.StoredService;
+import io.dropwizard.testing.junit5.DAOTestExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+class AfterCommitTest {
+    public DAOTestExtension database = DAOTestExtension.newBuilder()
+            .addEntityClass(StoredService.class)
+            .build();
+
+    @Test
+    void testInvalidatedAgainAfterCommit() {
+        final AtomicInteger invalidations = new AtomicInteger();
+        database.inTransaction(() -> {
+            AfterCommit.invalidate(database.getSessionFactory(), invalidations::incrementAndGet);
+            assertEquals(1, invalidations.get());
+        });
+        assertEquals(2, invalidations.get());
+    }
+
+    @Test
+    void testInvalidatedOnceOutsideTransaction() {
+        final AtomicInteger invalidations = new AtomicInteger();
+        AfterCommit.invalidate(database.getSessionFactory(), invalidations::incrementAndGet);
+        AfterCommit.invalidate(mock(SessionFactory.class), invalidations::incrementAndGet);
+        assertEquals(2, invalidations.get());
+    }
+}
@@ -0,0 +1,57 @@
+package io.appform.idman.server.db.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import io.appform.idman.server.db.RoleStore;
+import io.appform.idman.server.db.model.StoredRole;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ */
+class CachingRoleStoreTest {
+    private RoleStore root;
+    private CachingRoleStore store;
+
+    @BeforeEach
+    void setup() {
+        root = mock(RoleStore.class);
+        store = new CachingRoleStore(root, mock(SessionFactory.class), new StoreCacheConfig(), new MetricRegistry());
+    }
+
+    @Test
+    void testGetCached() {
+        val role = new StoredRole("S1_R1", "S1", "R1", "R1");
+        doReturn(Optional.of(role)).when(root).get("S1", "S1_R1");
+        assertEquals(role, store.get("S1", "S1_R1").orElse(null));
+        assertEquals(role, store.get("S1", "S1_R1").orElse(null));
+        assertFalse(store.get("S2", "S1_R1").isPresent());
+        verify(root, times(1)).get("S1", "S1_R1");
+        verify(root, times(1)).get("S2", "S1_R1");
+    }
+
+    @Test
+    void testMutationsInvalidate() {
+        val role = new StoredRole("S1_R1", "S1", "R1", "R1");
+        doReturn(Optional.of(role)).when(root).get("S1", "S1_R1");
+        doReturn(Optional.of(role)).when(root).create("S1", "R1", "R1");
+        doReturn(Optional.of(role)).when(root).update("S1", "S1_R1", "D");
+        doReturn(true).when(root).delete("S1", "S1_R1");
+
+        store.get("S1", "S1_R1");
+        assertTrue(store.create("S1", "R1", "R1").isPresent());
+        store.get("S1", "S1_R1");
+        assertTrue(store.update("S1", "S1_R1", "D").isPresent());
+        store.get("S1", "S1_R1");
+        assertTrue(store.delete("S1", "S1_R1"));
+        store.get("S1", "S1_R1");
+        verify(root, times(4)).get("S1", "S1_R1");
+    }
+}
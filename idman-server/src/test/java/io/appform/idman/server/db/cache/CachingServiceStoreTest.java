@@ -0,0 +1,84 @@
+package io.appform.idman.server.db.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import io.appform.idman.server.db.ServiceStore;
+import io.appform.idman.server.db.model.StoredService;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ */
+class CachingServiceStoreTest {
+    private ServiceStore root;
+    private MetricRegistry metrics;
+    private CachingServiceStore store;
+
+    @BeforeEach
+    void setup() {
+        root = mock(ServiceStore.class);
+        metrics = new MetricRegistry();
+        store = new CachingServiceStore(root, mock(SessionFactory.class), new StoreCacheConfig(), metrics);
+    }
+
+    @Test
+    void testGetCached() {
+        val service = new StoredService("S1", "S1", "S1", "http://localhost", "secret");
+        doReturn(Optional.of(service)).when(root).get("S1");
+        assertEquals(service, store.get("S1").orElse(null));
+        assertEquals(service, store.get("S1").orElse(null));
+        verify(root, times(1)).get("S1");
+        assertEquals(1L, metrics.getGauges().get("io.appform.idman.server.db.ServiceStore.cache.hits").getValue());
+        assertEquals(0.5, metrics.getGauges().get("io.appform.idman.server.db.ServiceStore.cache.hitRatio").getValue());
+    }
+
+    @Test
+    void testMissNotCached() {
+        doReturn(Optional.empty()).when(root).get("S1");
+        assertFalse(store.get("S1").isPresent());
+        assertFalse(store.get("S1").isPresent());
+        verify(root, times(2)).get("S1");
+    }
+
+    @Test
+    void testMutationsInvalidate() {
+        val service = new StoredService("S1", "S1", "S1", "http://localhost", "secret");
+        doReturn(Optional.of(service)).when(root).get("S1");
+        doReturn(Optional.of(service)).when(root).create("S1", "S1", "http://localhost");
+        doReturn(Optional.of(service)).when(root).updateDescription("S1", "D");
+        doReturn(Optional.of(service)).when(root).updateCallbackUrl("S1", "http://localhost");
+        doReturn(Optional.of(service)).when(root).updateSecret("S1");
+        doReturn(true).when(root).delete("S1");
+
+        store.get("S1");
+        assertTrue(store.create("S1", "S1", "http://localhost").isPresent());
+        store.get("S1");
+        assertTrue(store.updateDescription("S1", "D").isPresent());
+        store.get("S1");
+        assertTrue(store.updateCallbackUrl("S1", "http://localhost").isPresent());
+        store.get("S1");
+        assertTrue(store.updateSecret("S1").isPresent());
+        store.get("S1");
+        assertTrue(store.delete("S1"));
+        store.get("S1");
+        verify(root, times(6)).get("S1");
+    }
+
+    @Test
+    void testPassThrough() {
+        doReturn(List.of()).when(root).list(true);
+        doReturn(List.of()).when(root).get(List.of("S1"));
+        assertTrue(store.list(true).isEmpty());
+        assertTrue(store.get(List.of("S1")).isEmpty());
+        verify(root).list(true);
+        verify(root).get(List.of("S1"));
+    }
+}
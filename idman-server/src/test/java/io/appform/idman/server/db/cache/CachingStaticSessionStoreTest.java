@@ -0,0 +1,114 @@
+package io.appform.idman.server.db.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import io.appform.idman.model.AuthMode;
+import io.appform.idman.model.IdmanUser;
+import io.appform.idman.model.User;
+import io.appform.idman.model.UserType;
+import io.appform.idman.server.db.RevocationKind;
+import io.appform.idman.server.db.SessionRevocationStore;
+import io.appform.idman.server.db.SessionStoreForType;
+import io.appform.idman.server.db.model.StoredSessionRevocation;
+import io.dropwizard.util.Duration;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ */
+class CachingStaticSessionStoreTest {
+    private static final IdmanUser USER
+            = new IdmanUser("SS1", "S1", new User("U1", "U", UserType.SYSTEM, AuthMode.PASSWORD), "S1_ADMIN");
+
+    private SessionStoreForType root;
+    private SessionRevocationStore revocationStore;
+    private CachingStaticSessionStore store;
+
+    @BeforeEach
+    void setup() {
+        root = mock(SessionStoreForType.class);
+        revocationStore = mock(SessionRevocationStore.class);
+        doReturn(5L).when(revocationStore).latestSequence();
+        doReturn(Collections.emptyList()).when(revocationStore).since(anyLong(), anyInt());
+        doReturn(Collections.emptyList()).when(revocationStore).recent(anyLong(), any(), anyInt());
+        doReturn(Map.of("SS1", USER)).when(root).sessionUsers(anyCollection(), eq("S1"));
+        doReturn(Collections.emptyMap()).when(root).sessionUsers(anyCollection(), eq("S2"));
+        val cacheConfig = new StoreCacheConfig();
+        cacheConfig.setInvalidationPollInterval(Duration.milliseconds(0));
+        store = new CachingStaticSessionStore(root,
+                                              revocationStore,
+                                              mock(SessionFactory.class),
+                                              cacheConfig,
+                                              new MetricRegistry());
+    }
+
+    @Test
+    void testSessionUserCached() {
+        assertEquals(USER, store.sessionUser("SS1", "S1").orElse(null));
+        assertEquals(USER, store.sessionUser("SS1", "S1").orElse(null));
+        assertEquals(Map.of("SS1", USER), store.sessionUsers(List.of("SS1"), "S1"));
+        verify(root, times(1)).sessionUsers(anyCollection(), eq("S1"));
+
+        assertFalse(store.sessionUser("SS1", "S2").isPresent());
+        assertFalse(store.sessionUser("SS2", "S1").isPresent());
+        assertFalse(store.sessionUser("SS2", "S1").isPresent());
+        verify(root, never()).sessionUsers(anyCollection(), eq("S2"));
+        verify(root, times(3)).sessionUsers(anyCollection(), eq("S1"));
+    }
+
+    @Test
+    void testDeleteInvalidates() {
+        doReturn(true).when(root).delete("SS1");
+        store.sessionUser("SS1", "S1");
+        assertTrue(store.delete("SS1"));
+        store.sessionUser("SS1", "S1");
+        verify(root, times(2)).sessionUsers(anyCollection(), eq("S1"));
+    }
+
+    @Test
+    void testRevocationLogInvalidates() {
+        store.sessionUser("SS1", "S1");
+        store.sessionUser("SS1", "S1");
+        verify(root, times(1)).sessionUsers(anyCollection(), eq("S1"));
+
+        val revocation = new StoredSessionRevocation("SS1", "S1", RevocationKind.CHANGED);
+        revocation.setId(6);
+        doReturn(List.of(revocation)).when(revocationStore).since(5, 1_000);
+        store.sessionUser("SS1", "S1");
+        store.sessionUser("SS1", "S1");
+        verify(root, times(2)).sessionUsers(anyCollection(), eq("S1"));
+        verify(revocationStore, times(1)).latestSequence();
+        verify(revocationStore, times(2)).since(5, 1_000);
+        verify(revocationStore, atLeastOnce()).since(6, 1_000);
+    }
+
+    @Test
+    void testLateRevocationInvalidatesOnce() {
+        store.sessionUser("SS1", "S1");
+        store.sessionUser("SS1", "S1");
+        verify(root, times(1)).sessionUsers(anyCollection(), eq("S1"));
+
+        val revocation = new StoredSessionRevocation("SS1", "S1", RevocationKind.REVOKED);
+        revocation.setId(4);
+        doReturn(List.of(revocation)).when(revocationStore).recent(eq(5L), any(), eq(1_000));
+        store.sessionUser("SS1", "S1");
+        store.sessionUser("SS1", "S1");
+        store.sessionUser("SS1", "S1");
+        verify(root, times(2)).sessionUsers(anyCollection(), eq("S1"));
+        verify(revocationStore, atLeast(3)).recent(eq(5L), any(), eq(1_000));
+    }
+}
@@ -0,0 +1,78 @@
+package io.appform.idman.server.db.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import io.appform.idman.server.db.UserRoleStore;
+import io.appform.idman.server.db.model.StoredUserRole;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ */
+class CachingUserRoleStoreTest {
+    private UserRoleStore root;
+    private CachingUserRoleStore store;
+
+    @BeforeEach
+    void setup() {
+        root = mock(UserRoleStore.class);
+        store = new CachingUserRoleStore(root,
+                                         mock(SessionFactory.class),
+                                         new StoreCacheConfig(),
+                                         new MetricRegistry());
+    }
+
+    @Test
+    void testGetCached() {
+        val mapping = new StoredUserRole("U1", "S1", "S1_R1", "ADMIN");
+        doReturn(Optional.of(mapping)).when(root).getUserServiceRole("U1", "S1");
+        assertEquals(mapping, store.getUserServiceRole("U1", "S1").orElse(null));
+        assertEquals(mapping, store.getUserServiceRole("U1", "S1").orElse(null));
+        verify(root, times(1)).getUserServiceRole("U1", "S1");
+    }
+
+    @Test
+    void testMutationsInvalidate() {
+        val mapping = new StoredUserRole("U1", "S1", "S1_R1", "ADMIN");
+        doReturn(Optional.of(mapping)).when(root).getUserServiceRole("U1", "S1");
+        doReturn(Optional.of(mapping)).when(root).getUserServiceRole("U2", "S1");
+        doReturn(true).when(root).unmapUserFromRole("U1", "S1");
+
+        store.getUserServiceRole("U1", "S1");
+        store.getUserServiceRole("U2", "S1");
+        store.mapUserToRole("U1", "S1", "S1_R2", "ADMIN");
+        store.getUserServiceRole("U1", "S1");
+        assertTrue(store.unmapUserFromRole("U1", "S1"));
+        store.getUserServiceRole("U1", "S1");
+        store.getUserServiceRole("U2", "S1");
+        verify(root, times(3)).getUserServiceRole("U1", "S1");
+        verify(root, times(1)).getUserServiceRole("U2", "S1");
+        verify(root).mapUserToRole("U1", "S1", "S1_R2", "ADMIN");
+    }
+
+    @Test
+    void testBulkMappingInvalidates() {
+        val mapping = new StoredUserRole("U1", "S1", "S1_R1", "ADMIN");
+        doReturn(Optional.of(mapping)).when(root).getUserServiceRole(anyString(), eq("S1"));
+        doReturn(2).when(root).mapUsersToRole(List.of("U1", "U2"), "S1", "S1_R2", "ADMIN");
+
+        store.getUserServiceRole("U1", "S1");
+        store.getUserServiceRole("U2", "S1");
+        store.getUserServiceRole("U3", "S1");
+        assertEquals(2, store.mapUsersToRole(List.of("U1", "U2"), "S1", "S1_R2", "ADMIN"));
+        store.getUserServiceRole("U1", "S1");
+        store.getUserServiceRole("U2", "S1");
+        store.getUserServiceRole("U3", "S1");
+        verify(root, times(2)).getUserServiceRole("U1", "S1");
+        verify(root, times(2)).getUserServiceRole("U2", "S1");
+        verify(root, times(1)).getUserServiceRole("U3", "S1");
+    }
+}
@@ -0,0 +1,179 @@
+package io.appform.idman.server.db.cache;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.appform.idman.model.AuthMode;
+import io.appform.idman.model.UserType;
+import io.appform.idman.server.db.RoleStore;
+import io.appform.idman.server.db.ServiceStore;
+import io.appform.idman.server.db.UserInfoStore;
+import io.appform.idman.server.db.UserRoleStore;
+import io.appform.idman.server.db.impl.DBRoleStore;
+import io.appform.idman.server.db.impl.DBServiceStore;
+import io.appform.idman.server.db.impl.DBUserInfoStore;
+import io.appform.idman.server.db.impl.DBUserRoleStore;
+import io.appform.idman.server.db.model.*;
+import io.dropwizard.testing.junit5.DAOTestExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import lombok.val;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+class HibernateCachesTest {
+    public DAOTestExtension database = DAOTestExtension.newBuilder()
+            .addEntityClass(StoredService.class)
+            .addEntityClass(StoredRole.class)
+            .addEntityClass(StoredUser.class)
+            .addEntityClass(StoredUserAuthState.class)
+            .addEntityClass(StoredUserRole.class)
+            .customizeConfiguration(configuration -> HibernateCaches.configure(configuration, enabledConfig()))
+            .build();
+
+    private ServiceStore serviceStore;
+    private RoleStore roleStore;
+    private UserInfoStore userInfoStore;
+    private UserRoleStore userRoleStore;
+    private Statistics statistics;
+    private String serviceId;
+    private String roleId;
+
+    @BeforeEach
+    void setup() {
+        serviceStore = new DBServiceStore(database.getSessionFactory());
+        roleStore = new DBRoleStore(database.getSessionFactory());
+        userInfoStore = new DBUserInfoStore(database.getSessionFactory());
+        userRoleStore = new DBUserRoleStore(database.getSessionFactory());
+        statistics = database.getSessionFactory().getStatistics();
+        serviceId = inUnitOfWork(() -> serviceStore.create("Test", "Test Service", "http://localhost"))
+                .map(StoredService::getServiceId)
+                .orElse(null);
+        roleId = inUnitOfWork(() -> roleStore.create(serviceId, "Admin", "Admin"))
+                .map(StoredRole::getRoleId)
+                .orElse(null);
+        inUnitOfWork(() -> {
+            userInfoStore.create("TU1", "test@test.com", "Test", UserType.HUMAN, AuthMode.PASSWORD, false);
+            userRoleStore.mapUserToRole("TU1", serviceId, roleId, "TEST");
+            return null;
+        });
+        statistics.clear();
+    }
+
+    @AfterEach
+    void destroy() {
+        //Session factories are left open by the extension and share the default cache manager
+        database.getSessionFactory().getCache().evictAllRegions();
+    }
+
+    @Test
+    void testServiceLookupServedFromCache() {
+        assertEquals("Test Service", inUnitOfWork(() -> serviceStore.get(serviceId))
+                .map(StoredService::getDescription)
+                .orElse(null));
+        val statements = statistics.getPrepareStatementCount();
+
+        assertTrue(inUnitOfWork(() -> serviceStore.get(serviceId)).isPresent());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        assertTrue(statistics.getDomainDataRegionStatistics(HibernateCaches.SERVICES).getHitCount() > 0);
+    }
+
+    @Test
+    void testUsersAndRoleMappingsNotCached() {
+        assertTrue(inUnitOfWork(() -> userInfoStore.get("TU1")).isPresent());
+        assertTrue(inUnitOfWork(() -> userRoleStore.getUserServiceRole("TU1", serviceId)).isPresent());
+        val statements = statistics.getPrepareStatementCount();
+
+        assertTrue(inUnitOfWork(() -> userInfoStore.get("TU1")).isPresent());
+        assertTrue(inUnitOfWork(() -> userRoleStore.getUserServiceRole("TU1", serviceId)).isPresent());
+        assertTrue(statistics.getPrepareStatementCount() > statements);
+        assertEquals(0, statistics.getQueryCacheHitCount());
+        val regions = Set.of(statistics.getSecondLevelCacheRegionNames());
+        assertFalse(regions.contains("users"));
+        assertFalse(regions.contains("user_auth_states"));
+        assertFalse(regions.contains("user_roles"));
+    }
+
+    @Test
+    void testUpdatesInvalidateCachedLookups() {
+        assertTrue(inUnitOfWork(() -> serviceStore.get(serviceId)).isPresent());
+        assertTrue(inUnitOfWork(() -> roleStore.get(serviceId, roleId)).isPresent());
+
+        inUnitOfWork(() -> {
+            serviceStore.updateDescription(serviceId, "Updated");
+            return roleStore.update(serviceId, roleId, "Updated");
+        });
+
+        assertEquals("Updated", inUnitOfWork(() -> serviceStore.get(serviceId))
+                .map(StoredService::getDescription)
+                .orElse(null));
+        assertEquals("Updated", inUnitOfWork(() -> roleStore.get(serviceId, roleId))
+                .map(StoredRole::getDescription)
+                .orElse(null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMetrics() {
+        val metrics = new MetricRegistry();
+        HibernateCaches.registerMetrics(database.getSessionFactory(), metrics);
+        inUnitOfWork(() -> roleStore.get(serviceId, roleId));
+        inUnitOfWork(() -> roleStore.get(serviceId, roleId));
+
+        val gauges = metrics.getGauges();
+        assertEquals(1L, gauges.get("hibernate.cache.queries.hits").getValue());
+        assertEquals(1L, gauges.get("hibernate.cache.queries.misses").getValue());
+        assertEquals(1L, gauges.get("hibernate.cache.roles.hits").getValue());
+        assertEquals(1.0, ((Gauge<Double>) gauges.get("hibernate.cache.roles.hitRatio")).getValue());
+        assertFalse(gauges.containsKey("hibernate.cache.users.puts"));
+    }
+
+    @Test
+    void testDisabled() {
+        val metrics = new MetricRegistry();
+        val config = new HibernateCacheConfig();
+        assertFalse(config.isEnabled());
+        val configuration = new org.hibernate.cfg.Configuration();
+        HibernateCaches.configure(configuration, config);
+        assertEquals("false", configuration.getProperty("hibernate.cache.use_second_level_cache"));
+        assertNull(configuration.getProperty("hibernate.cache.region.factory_class"));
+        assertTrue(metrics.getGauges().isEmpty());
+    }
+
+    private static HibernateCacheConfig enabledConfig() {
+        val config = new HibernateCacheConfig();
+        config.setEnabled(true);
+        return config;
+    }
+
+    /**
+     * Runs the lookup in its own session and transaction, the way resources and proxies do
+     */
+    private <T> T inUnitOfWork(Supplier<T> work) {
+        val sessionFactory = database.getSessionFactory();
+        val testSession = ManagedSessionContext.unbind(sessionFactory);
+        try (val session = sessionFactory.openSession()) {
+            ManagedSessionContext.bind(session);
+            val transaction = session.beginTransaction();
+            val result = work.get();
+            transaction.commit();
+            return result;
+        }
+        finally {
+            ManagedSessionContext.unbind(sessionFactory);
+            ManagedSessionContext.bind(testSession);
+        }
+    }
+}
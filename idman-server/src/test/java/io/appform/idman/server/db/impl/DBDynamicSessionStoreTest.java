@@ -15,8 +15,10 @@
 package io.appform.idman.server.db.impl;
 
 import io.appform.idman.server.db.SessionStoreForType;
+import io.appform.idman.model.AuthMode;
 import io.appform.idman.model.TokenType;
-import io.appform.idman.server.db.model.StoredDynamicSession;
+import io.appform.idman.model.UserType;
+import io.appform.idman.server.db.model.*;
 import io.dropwizard.testing.junit5.DAOTestExtension;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
 import lombok.val;
@@ -27,6 +29,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -37,6 +42,9 @@ import static org.junit.jupiter.api.Assertions.*;
 class DBDynamicSessionStoreTest {
     public DAOTestExtension database = DAOTestExtension.newBuilder()
             .addEntityClass(StoredDynamicSession.class)
+            .addEntityClass(StoredUser.class)
+            .addEntityClass(StoredUserAuthState.class)
+            .addEntityClass(StoredUserRole.class)
             .build();
 
     private SessionStoreForType store;
@@ -111,4 +119,61 @@ class DBDynamicSessionStoreTest {
 
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSessionUser() {
+        val userStore = new DBUserInfoStore(database.getSessionFactory());
+        val roleStore = new DBUserRoleStore(database.getSessionFactory());
+        val user = database.inTransaction(
+                () -> userStore.create("U1", "u@u.t", "TestUser", UserType.HUMAN, AuthMode.PASSWORD))
+                .orElse(null);
+        assertNotNull(user);
+        database.inTransaction(() -> store.create("SS1", "U1", "S1", "CS1", null));
+        assertNull(database.inTransaction(() -> store.sessionUser("SS1", "S1")).orElse(null));
+
+        database.inTransaction((Runnable) () -> roleStore.mapUserToRole(user.getUserId(), "S1", "S1_ADMIN", "test"));
+        val sessionUser = database.inTransaction(() -> store.sessionUser("SS1", "S1")).orElse(null);
+        assertNotNull(sessionUser);
+        assertEquals("SS1", sessionUser.getSessionId());
+        assertEquals("S1", sessionUser.getServiceId());
+        assertEquals("S1_ADMIN", sessionUser.getRole());
+        assertEquals(user.getUserId(), sessionUser.getUser().getId());
+        assertEquals("TestUser", sessionUser.getUser().getName());
+        assertEquals(UserType.HUMAN, sessionUser.getUser().getUserType());
+        assertEquals(AuthMode.PASSWORD, sessionUser.getUser().getAuthMode());
+
+        assertNull(database.inTransaction(() -> store.sessionUser("SS1", "S2")).orElse(null));
+        assertNull(database.inTransaction(() -> store.sessionUser("SS2", "S1")).orElse(null));
+
+        database.inTransaction(() -> roleStore.unmapUserFromRole(user.getUserId(), "S1"));
+        assertNull(database.inTransaction(() -> store.sessionUser("SS1", "S1")).orElse(null));
+        database.inTransaction((Runnable) () -> roleStore.mapUserToRole(user.getUserId(), "S1", "S1_ADMIN", "test"));
+        assertNotNull(database.inTransaction(() -> store.sessionUser("SS1", "S1")).orElse(null));
+
+        assertTrue(database.inTransaction((Callable<Boolean>) () -> userStore.deleteUser(user.getUserId())));
+        assertNull(database.inTransaction(() -> store.sessionUser("SS1", "S1")).orElse(null));
+    }
+
+    @Test
+    void testSessionUsers() {
+        val userStore = new DBUserInfoStore(database.getSessionFactory());
+        val roleStore = new DBUserRoleStore(database.getSessionFactory());
+        val user = database.inTransaction(
+                () -> userStore.create("U1", "u@u.t", "TestUser", UserType.HUMAN, AuthMode.PASSWORD))
+                .orElse(null);
+        assertNotNull(user);
+        database.inTransaction(() -> store.create("SS1", "U1", "S1", "CS1", null));
+        database.inTransaction(() -> store.create("SS2", "U1", "S1", "CS2", null));
+        database.inTransaction(() -> store.create("SS3", "U1", "S2", "CS3", null));
+        database.inTransaction((Runnable) () -> roleStore.mapUserToRole(user.getUserId(), "S1", "S1_ADMIN", "test"));
+        database.inTransaction((Runnable) () -> roleStore.mapUserToRole(user.getUserId(), "S2", "S2_ADMIN", "test"));
+
+        val users = database.inTransaction(
+                () -> store.sessionUsers(List.of("SS1", "SS2", "SS3", "SS4"), "S1"));
+        assertEquals(Set.of("SS1", "SS2"), users.keySet());
+        assertEquals("S1_ADMIN", users.get("SS1").getRole());
+        assertEquals("SS2", users.get("SS2").getSessionId());
+        assertEquals("TestUser", users.get("SS2").getUser().getName());
+        assertTrue(database.inTransaction(() -> store.sessionUsers(List.of(), "S1")).isEmpty());
+    }
+}
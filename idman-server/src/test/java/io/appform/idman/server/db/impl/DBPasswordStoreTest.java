@@ -14,16 +14,23 @@
 
 package io.appform.idman.server.db.impl;
 
+import com.codahale.metrics.MetricRegistry;
+import io.appform.idman.server.auth.hashing.Argon2idPasswordHasher;
+import io.appform.idman.server.auth.hashing.BCryptPasswordHasher;
+import io.appform.idman.server.auth.hashing.PasswordHashing;
 import io.appform.idman.server.db.PasswordStore;
 import io.appform.idman.server.db.model.StoredPassword;
 import io.dropwizard.testing.junit5.DAOTestExtension;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import lombok.val;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  *
@@ -38,7 +45,9 @@ class DBPasswordStoreTest {
 
     @BeforeEach
     void setup() {
-        passwordStore = new DBPasswordStore(database.getSessionFactory());
+        passwordStore = new DBPasswordStore(database.getSessionFactory(),
+                                            new PasswordHashing(new BCryptPasswordHasher(4)),
+                                            new MetricRegistry());
     }
 
     @Test
@@ -73,6 +82,40 @@ class DBPasswordStoreTest {
         assertFalse(database.inTransaction(() -> passwordStore.delete("TU2")));
     }
 
+    @Test
+    void testSetHashed() {
+        database.inTransaction(() -> passwordStore.set("TU1", "password"));
+        database.inTransaction(() -> passwordStore.delete("TU1"));
+        database.inTransaction(() -> passwordStore.setHashed(Map.of("TU1", passwordStore.hash("password1"),
+                                                                    "TU2", passwordStore.hash("password2"))));
+        assertTrue(database.inTransaction(() -> passwordStore.match("TU1", "password1")));
+        assertFalse(database.inTransaction(() -> passwordStore.match("TU1", "password")));
+        assertTrue(database.inTransaction(() -> passwordStore.match("TU2", "password2")));
+        database.inTransaction(() -> passwordStore.setHashed(Collections.emptyMap()));
+    }
+
+    @Test
+    void testRehashOnMatch() {
+        database.inTransaction(() -> passwordStore.set("TU1", "password"));
+        final PasswordStore upgradedStore = new DBPasswordStore(database.getSessionFactory(),
+                                                                new PasswordHashing(new Argon2idPasswordHasher(8_192, 1, 1)),
+                                                                new MetricRegistry());
+        final String oldHash = database.inTransaction(() -> upgradedStore.getHashed("TU1")).orElse(null);
+        assertNotNull(oldHash);
+        assertTrue(upgradedStore.needsRehash(oldHash));
+        assertFalse(database.inTransaction(() -> upgradedStore.match("TU1", "wrong")));
+        assertEquals(oldHash, database.inTransaction(() -> upgradedStore.getHashed("TU1")).orElse(null));
+        assertTrue(database.inTransaction(() -> upgradedStore.match("TU1", "password")));
+        val newHash = database.inTransaction(() -> upgradedStore.getHashed("TU1")).orElse(null);
+        assertNotNull(newHash);
+        assertFalse(upgradedStore.needsRehash(newHash));
+        assertTrue(database.inTransaction(() -> upgradedStore.match("TU1", "password")));
+
+        //Stale rehash does not overwrite a changed password
+        assertFalse(database.inTransaction(() -> upgradedStore.rehash("TU1", oldHash, upgradedStore.hash("x"))));
+        assertTrue(database.inTransaction(() -> upgradedStore.match("TU1", "password")));
+    }
+
 /*    @Test
     void testFailure() {
         passwordStore = spy(passwordStore);
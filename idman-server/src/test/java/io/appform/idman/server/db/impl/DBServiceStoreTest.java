@@ -24,6 +24,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -164,4 +166,27 @@ class DBServiceStoreTest {
                                .containsAll(expected));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testListPages() {
+        val created = IntStream.rangeClosed(1, 6)
+                .mapToObj(i -> serviceStore.create("Srv " + (7 - i), "Desc", "localhost:" + i))
+                .map(Optional::get)
+                .collect(Collectors.toList());
+        database.inTransaction(() -> serviceStore.delete(created.get(2).getServiceId()));
+
+        val listed = new ArrayList<StoredService>();
+        String pageToken = null;
+        do {
+            val token = pageToken;
+            val page = database.inTransaction(() -> serviceStore.list(false, token, 2));
+            assertTrue(page.getItems().size() <= 2);
+            listed.addAll(page.getItems());
+            pageToken = page.getNextPageToken();
+        } while (null != pageToken);
+        assertEquals(5, listed.size());
+        assertEquals(List.of("Srv 1", "Srv 2", "Srv 3", "Srv 5", "Srv 6"),
+                     listed.stream().map(StoredService::getName).collect(Collectors.toList()));
+        assertEquals(6, database.inTransaction(() -> serviceStore.list(true, null, 10)).getItems().size());
+    }
+}
@@ -0,0 +1,96 @@
+package io.appform.idman.server.db.impl;
+
+import io.appform.idman.server.db.RevocationKind;
+import io.appform.idman.server.db.SessionRevocationStore;
+import io.appform.idman.server.db.model.StoredSessionRevocation;
+import io.dropwizard.testing.junit5.DAOTestExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+class DBSessionRevocationStoreTest {
+    public DAOTestExtension database = DAOTestExtension.newBuilder()
+            .addEntityClass(StoredSessionRevocation.class)
+            .build();
+
+    private SessionRevocationStore store;
+
+    @BeforeEach
+    void setup() {
+        store = new DBSessionRevocationStore(database.getSessionFactory());
+    }
+
+    @Test
+    void testRevocations() {
+        assertEquals(0L, (long) database.inTransaction(() -> store.latestSequence()));
+        assertTrue(database.inTransaction(() -> store.since("S1", 0, 10)).isEmpty());
+        database.inTransaction(() -> {
+            store.add("SS1", "S1", RevocationKind.REVOKED);
+            store.add("SS2", "S2", RevocationKind.REVOKED);
+            store.add("SS3", "S1", RevocationKind.REVOKED);
+            store.add("SS4", "S1", RevocationKind.REVOKED);
+        });
+        val all = database.inTransaction(() -> store.since("S1", 0, 10));
+        assertEquals(List.of("SS1", "SS3", "SS4"), sessionIds(all));
+        val latest = database.inTransaction(() -> store.latestSequence());
+        assertEquals(all.get(2).getId(), (long) latest);
+
+        val firstPage = database.inTransaction(() -> store.since("S1", 0, 2));
+        assertEquals(List.of("SS1", "SS3"), sessionIds(firstPage));
+        val nextPage = database.inTransaction(() -> store.since("S1", firstPage.get(1).getId(), 2));
+        assertEquals(List.of("SS4"), sessionIds(nextPage));
+        assertTrue(database.inTransaction(() -> store.since("S1", latest, 2)).isEmpty());
+        assertEquals(List.of("SS2"), sessionIds(database.inTransaction(() -> store.since("S2", 0, 10))));
+    }
+
+    @Test
+    void testRecent() {
+        final Date start = new Date(System.currentTimeMillis() - 1_000);
+        database.inTransaction(() -> {
+            store.add("SS1", "S1", RevocationKind.REVOKED);
+            store.add("SS2", "S2", RevocationKind.REVOKED);
+            store.add("SS3", "S1", RevocationKind.REVOKED);
+        });
+        final long latest = database.inTransaction(() -> store.latestSequence());
+        assertEquals(List.of("SS1", "SS3"),
+                     sessionIds(database.inTransaction(() -> store.recent("S1", latest, start, 10))));
+        assertEquals(List.of("SS1", "SS2"),
+                     sessionIds(database.inTransaction(() -> store.recent(latest - 1, start, 10))));
+        final Date future = new Date(System.currentTimeMillis() + 60_000);
+        assertTrue(database.inTransaction(() -> store.recent("S1", latest, future, 10)).isEmpty());
+        assertTrue(database.inTransaction(() -> store.recent(latest, future, 10)).isEmpty());
+    }
+
+    @Test
+    void testChangedEntriesOnlyInGlobalLog() {
+        final Date start = new Date(System.currentTimeMillis() - 1_000);
+        database.inTransaction(() -> {
+            store.add("SS1", "S1", RevocationKind.CHANGED);
+            store.add("SS2", "S1", RevocationKind.REVOKED);
+        });
+        final long latest = database.inTransaction(() -> store.latestSequence());
+        assertEquals(List.of("SS2"), sessionIds(database.inTransaction(() -> store.since("S1", 0, 10))));
+        assertEquals(List.of("SS2"), sessionIds(database.inTransaction(() -> store.recent("S1", latest, start, 10))));
+        assertEquals(List.of("SS1", "SS2"), sessionIds(database.inTransaction(() -> store.since(0, 10))));
+        assertEquals(List.of("SS1", "SS2"), sessionIds(database.inTransaction(() -> store.recent(latest, start, 10))));
+    }
+
+    private static List<String> sessionIds(List<StoredSessionRevocation> revocations) {
+        return revocations.stream()
+                .map(StoredSessionRevocation::getSessionId)
+                .collect(Collectors.toList());
+    }
+}
@@ -15,8 +15,10 @@
 package io.appform.idman.server.db.impl;
 
 import io.appform.idman.server.db.SessionStoreForType;
+import io.appform.idman.model.AuthMode;
 import io.appform.idman.model.TokenType;
-import io.appform.idman.server.db.model.StoredStaticSession;
+import io.appform.idman.model.UserType;
+import io.appform.idman.server.db.model.*;
 import io.dropwizard.testing.junit5.DAOTestExtension;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
 import lombok.val;
@@ -25,6 +27,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import java.util.Date;
+import java.util.concurrent.Callable;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -35,6 +38,9 @@ import static org.junit.jupiter.api.Assertions.*;
 class DBStaticSessionStoreTest {
     public DAOTestExtension database = DAOTestExtension.newBuilder()
             .addEntityClass(StoredStaticSession.class)
+            .addEntityClass(StoredUser.class)
+            .addEntityClass(StoredUserAuthState.class)
+            .addEntityClass(StoredUserRole.class)
             .build();
 
     private SessionStoreForType store;
@@ -98,4 +104,38 @@ class DBStaticSessionStoreTest {
             assertEquals(IllegalArgumentException.class, e.getClass());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSessionUser() {
+        val userStore = new DBUserInfoStore(database.getSessionFactory());
+        val roleStore = new DBUserRoleStore(database.getSessionFactory());
+        val user = database.inTransaction(
+                () -> userStore.create("U1", "u@u.t", "TestUser", UserType.HUMAN, AuthMode.PASSWORD))
+                .orElse(null);
+        assertNotNull(user);
+        database.inTransaction(() -> store.create("SS1", "U1", "S1", null, null));
+        assertNull(database.inTransaction(() -> store.sessionUser("SS1", "S1")).orElse(null));
+
+        database.inTransaction((Runnable) () -> roleStore.mapUserToRole(user.getUserId(), "S1", "S1_ADMIN", "test"));
+        val sessionUser = database.inTransaction(() -> store.sessionUser("SS1", "S1")).orElse(null);
+        assertNotNull(sessionUser);
+        assertEquals("SS1", sessionUser.getSessionId());
+        assertEquals("S1", sessionUser.getServiceId());
+        assertEquals("S1_ADMIN", sessionUser.getRole());
+        assertEquals(user.getUserId(), sessionUser.getUser().getId());
+        assertEquals("TestUser", sessionUser.getUser().getName());
+        assertEquals(UserType.HUMAN, sessionUser.getUser().getUserType());
+        assertEquals(AuthMode.PASSWORD, sessionUser.getUser().getAuthMode());
+
+        assertNull(database.inTransaction(() -> store.sessionUser("SS1", "S2")).orElse(null));
+        assertNull(database.inTransaction(() -> store.sessionUser("SS2", "S1")).orElse(null));
+
+        database.inTransaction(() -> roleStore.unmapUserFromRole(user.getUserId(), "S1"));
+        assertNull(database.inTransaction(() -> store.sessionUser("SS1", "S1")).orElse(null));
+        database.inTransaction((Runnable) () -> roleStore.mapUserToRole(user.getUserId(), "S1", "S1_ADMIN", "test"));
+        assertNotNull(database.inTransaction(() -> store.sessionUser("SS1", "S1")).orElse(null));
+
+        assertTrue(database.inTransaction((Callable<Boolean>) () -> userStore.deleteUser(user.getUserId())));
+        assertNull(database.inTransaction(() -> store.sessionUser("SS1", "S1")).orElse(null));
+    }
+}
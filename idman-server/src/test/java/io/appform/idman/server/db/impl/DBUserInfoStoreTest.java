@@ -17,6 +17,7 @@ package io.appform.idman.server.db.impl;
 import io.appform.idman.model.AuthMode;
 import io.appform.idman.model.UserType;
 import io.appform.idman.server.db.AuthState;
+import io.appform.idman.server.db.NewUser;
 import io.appform.idman.server.db.UserInfoStore;
 import io.appform.idman.server.db.model.StoredUser;
 import io.appform.idman.server.db.model.StoredUserAuthState;
@@ -27,8 +28,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -127,6 +134,26 @@ class DBUserInfoStoreTest {
         assertEquals(AuthState.ACTIVE, updatedUser.getAuthState().getAuthState());
     }
 
+    @Test
+    void testUpdateAfterReadInSameSession() {
+        database.inTransaction(() -> userInfoStore.create("TU1",
+                                                          "test@test.com",
+                                                          "Test",
+                                                          UserType.HUMAN,
+                                                          AuthMode.PASSWORD));
+        database.getSessionFactory().getCurrentSession().clear();
+        database.inTransaction(() -> {
+            assertTrue(userInfoStore.get("TU1").isPresent());
+            userInfoStore.updateName("TU1", "Test 3");
+            userInfoStore.updateAuthState("TU1", state -> state.setAuthState(AuthState.ACTIVE));
+        });
+        database.getSessionFactory().getCurrentSession().clear();
+        val user = database.inTransaction(() -> userInfoStore.get("TU1")).orElse(null);
+        assertNotNull(user);
+        assertEquals("Test 3", user.getName());
+        assertEquals(AuthState.ACTIVE, user.getAuthState().getAuthState());
+    }
+
     @Test
     void multiTest() {
         val users = IntStream.rangeClosed(1, 10)
@@ -184,6 +211,56 @@ class DBUserInfoStoreTest {
                 .containsAll(deletedUsers));
     }
 
+    @Test
+    void testListPages() {
+        IntStream.rangeClosed(1, 7)
+                .forEach(i -> database.inTransaction(() -> userInfoStore.create("TU" + i,
+                                                                                "test" + i + "@test.com",
+                                                                                "Test " + i,
+                                                                                UserType.HUMAN,
+                                                                                AuthMode.PASSWORD)));
+        database.inTransaction(() -> userInfoStore.deleteUser("TU4"));
+
+        val listed = new ArrayList<String>();
+        String pageToken = null;
+        int pages = 0;
+        do {
+            val token = pageToken;
+            val page = database.inTransaction(() -> userInfoStore.list(false, token, 2));
+            assertTrue(page.getItems().size() <= 2);
+            page.getItems().forEach(user -> listed.add(user.getUserId()));
+            pageToken = page.getNextPageToken();
+            pages++;
+        } while (null != pageToken);
+        assertEquals(3, pages);
+        assertEquals(List.of("TU1", "TU2", "TU3", "TU5", "TU6", "TU7"), listed);
+
+        assertEquals(7, database.inTransaction(() -> userInfoStore.list(true, null, 10)).getItems().size());
+        assertEquals(6, database.inTransaction(() -> userInfoStore.list(false, "#$%", 10)).getItems().size());
+    }
+
+    @Test
+    void testListingFetchesAuthStateInSameQuery() {
+        val userIds = IntStream.rangeClosed(1, 20)
+                .mapToObj(i -> database.inTransaction(() -> userInfoStore.create("TU" + i,
+                                                                                 "test" + i + "@test.com",
+                                                                                 "Test " + i,
+                                                                                 UserType.HUMAN,
+                                                                                 AuthMode.PASSWORD)))
+                .map(user -> user.map(StoredUser::getUserId).orElse(null))
+                .collect(Collectors.toList());
+        val statistics = database.getSessionFactory().getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            assertListingStatements(1, () -> userInfoStore.list(false));
+            assertListingStatements(1, () -> userInfoStore.list(false, null, 50).getItems());
+            assertListingStatements(1, () -> userInfoStore.get(userIds));
+        }
+        finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
     @Test
     void testPasswordActive() {
         val createdUser = database.inTransaction(() -> userInfoStore.create("TU1",
@@ -206,4 +283,44 @@ class DBUserInfoStoreTest {
         assertEquals(0, authState.getFailedAuthCount());
         assertEquals(createdUser, authState.getUser());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBatchCreate() {
+        database.inTransaction(() -> userInfoStore.create("TU1",
+                                                          "tu1@test.com",
+                                                          "Old Name",
+                                                          UserType.HUMAN,
+                                                          AuthMode.PASSWORD));
+        database.inTransaction(() -> userInfoStore.deleteUser("TU1"));
+        val created = database.inTransaction(() -> userInfoStore.create(List.of(
+                new NewUser("TU1", "tu1@test.com", "TU1", UserType.HUMAN, AuthMode.PASSWORD, false),
+                new NewUser("TU2", "tu2@test.com", "TU2", UserType.HUMAN, AuthMode.PASSWORD, true),
+                new NewUser("TS1", "ts1@test.com", "TS1", UserType.SYSTEM, AuthMode.TOKEN, false))));
+        assertEquals(Set.of("TU2", "TS1"), created);
+        database.inTransaction(() -> {
+            database.getSessionFactory().getCurrentSession().clear();
+            val updated = userInfoStore.get("TU1").orElse(null);
+            assertNotNull(updated);
+            assertFalse(updated.isDeleted());
+            assertEquals("TU1", updated.getName());
+            assertEquals(AuthState.ACTIVE, updated.getAuthState().getAuthState());
+            assertEquals(AuthState.EXPIRED, userInfoStore.get("TU2").map(user -> user.getAuthState().getAuthState())
+                    .orElse(null));
+            assertEquals(AuthMode.TOKEN, userInfoStore.get("TS1").map(user -> user.getAuthState().getAuthMode())
+                    .orElse(null));
+        });
+        assertTrue(database.inTransaction(() -> userInfoStore.create(Collections.<NewUser>emptyList())).isEmpty());
+    }
+
+    private void assertListingStatements(int expected, Supplier<Collection<StoredUser>> listing) {
+        val statistics = database.getSessionFactory().getStatistics();
+        statistics.clear();
+        database.inTransaction(() -> {
+            database.getSessionFactory().getCurrentSession().clear();
+            val users = listing.get();
+            assertEquals(20, users.size());
+            users.forEach(user -> assertNotNull(user.getAuthState().getAuthMode()));
+        });
+        assertEquals(expected, statistics.getPrepareStatementCount());
+    }
+}
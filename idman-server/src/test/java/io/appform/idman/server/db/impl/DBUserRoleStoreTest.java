@@ -23,6 +23,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -97,6 +99,32 @@ class DBUserRoleStoreTest {
                                                 .collect(Collectors.toSet())));
     }
 
+    @Test
+    void testServiceMappingPages() {
+        IntStream.rangeClosed(1, 7)
+                .forEach(i -> database.inTransaction(
+                        () -> roleStore.mapUserToRole("U" + i, "S1", "S1_TEST", "TEST")));
+        database.inTransaction(() -> roleStore.mapUserToRole("U1", "S2", "S2_TEST", "TEST"));
+        database.inTransaction(() -> roleStore.unmapUserFromRole("U4", "S1"));
+
+        val listed = new ArrayList<String>();
+        String pageToken = null;
+        int pages = 0;
+        do {
+            val token = pageToken;
+            val page = database.inTransaction(() -> roleStore.getServiceRoleMappings("S1", token, 2));
+            assertTrue(page.getItems().size() <= 2);
+            page.getItems().forEach(mapping -> listed.add(mapping.getUserId()));
+            pageToken = page.getNextPageToken();
+            pages++;
+        } while (null != pageToken);
+        assertEquals(3, pages);
+        assertEquals(List.of("U1", "U2", "U3", "U5", "U6", "U7"), listed);
+        assertEquals(6, database.inTransaction(() -> roleStore.getServiceRoleMappings("S1", "#$%", 10))
+                .getItems()
+                .size());
+    }
+
     @Test
     void testMultiServiceForUser() {
         IntStream.rangeClosed(1, 10)
@@ -127,4 +155,33 @@ class DBUserRoleStoreTest {
                                                 .map(StoredUserRole::getUserId)
                                                 .collect(Collectors.toSet())));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBulkMap() {
+        database.inTransaction(() -> roleStore.mapUserToRole("U1", "S1", "S1_OLD", "TEST"));
+        database.inTransaction(() -> roleStore.mapUserToRole("U2", "S1", "S1_OLD", "TEST"));
+        database.inTransaction(() -> roleStore.unmapUserFromRole("U2", "S1"));
+        database.inTransaction(() -> roleStore.mapUserToRole("U1", "S2", "S2_OTHER", "TEST"));
+
+        val userIds = IntStream.rangeClosed(1, DBUserRoleStore.BULK_MAPPING_CHUNK_SIZE + 10)
+                .mapToObj(i -> "U" + i)
+                .collect(Collectors.toList());
+        assertEquals(userIds.size(),
+                     (int) database.inTransaction(() -> roleStore.mapUsersToRole(userIds, "S1", "S1_NEW", "ADMIN")));
+
+        database.getSessionFactory().getCurrentSession().clear();
+        val mappings = database.inTransaction(() -> roleStore.getServiceRoleMappings("S1"));
+        assertEquals(userIds.size(), mappings.size());
+        assertTrue(mappings.stream().allMatch(mapping -> mapping.getRoleId().equals("S1_NEW")
+                && mapping.getAssignedBy().equals("ADMIN")));
+        assertEquals("S2_OTHER",
+                     database.inTransaction(() -> roleStore.getUserServiceRole("U1", "S2"))
+                             .map(StoredUserRole::getRoleId)
+                             .orElse(null));
+        assertEquals("S1_NEW",
+                     database.inTransaction(() -> roleStore.getUserServiceRole("U2", "S1"))
+                             .map(StoredUserRole::getRoleId)
+                             .orElse(null));
+        assertEquals(0, (int) database.inTransaction(() -> roleStore.mapUsersToRole(List.of(), "S1", "S1_NEW", "A")));
+    }
+}
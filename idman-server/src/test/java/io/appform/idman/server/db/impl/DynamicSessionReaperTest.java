@@ -0,0 +1,159 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.impl;
+
+import com.codahale.metrics.MetricRegistry;
+import io.appform.idman.server.auth.configs.AuthenticationConfig;
+import io.appform.idman.server.db.RevocationKind;
+import io.appform.idman.server.db.SessionReaperConfig;
+import io.appform.idman.server.db.model.StoredDynamicSession;
+import io.appform.idman.server.db.model.StoredSessionRevocation;
+import io.appform.idman.server.utils.Utils;
+import io.dropwizard.testing.junit5.DAOTestExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.dropwizard.util.Duration;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+class DynamicSessionReaperTest {
+    public DAOTestExtension database = DAOTestExtension.newBuilder()
+            .addEntityClass(StoredDynamicSession.class)
+            .addEntityClass(StoredSessionRevocation.class)
+            .build();
+
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final SessionReaperConfig reaperConfig = new SessionReaperConfig();
+    private DynamicSessionReaper reaper;
+
+    @BeforeEach
+    void setup() {
+        val authConfig = new AuthenticationConfig();
+        authConfig.setSessionDuration(Duration.days(15));
+        reaper = new DynamicSessionReaper(database.getSessionFactory(), authConfig, reaperConfig, metrics);
+    }
+
+    @Test
+    void testReap() {
+        val now = Instant.now();
+        val current = Utils.weekOfYear(now);
+        val old = Utils.weekOfYear(now.minus(70, ChronoUnit.DAYS));
+        save("LIVE", current, now.plus(1, ChronoUnit.DAYS), false);
+        save("EXPIRED", current, now.minus(1, ChronoUnit.DAYS), false);
+        save("DELETED", current, now.plus(1, ChronoUnit.DAYS), true);
+        save("OLD_EXPIRED", old, now.minus(55, ChronoUnit.DAYS), false);
+        save("OLD_DELETED", old, now.minus(55, ChronoUnit.DAYS), true);
+
+        val result = reaper.reap();
+        assertEquals(0, result.getPartitionsTruncated());
+        assertEquals(4, result.getRowsDeleted());
+        assertEquals(List.of("LIVE"), sessionIds());
+        assertEquals(4, metrics.meter(MetricRegistry.name(DynamicSessionReaper.class, "rowsDeleted")).getCount());
+        assertEquals(1, metrics.timer(MetricRegistry.name(DynamicSessionReaper.class, "run")).getCount());
+
+        assertEquals(0, reaper.reap().getRowsDeleted());
+    }
+
+    @Test
+    void testUnexpiredSessionsInOldPartitionKept() {
+        val now = Instant.now();
+        val old = Utils.weekOfYear(now.minus(70, ChronoUnit.DAYS));
+        save("OLD_LIVE", old, now.plus(1, ChronoUnit.DAYS), false);
+        save("OLD_EXPIRED", old, now.minus(55, ChronoUnit.DAYS), false);
+
+        assertEquals(1, reaper.reap().getRowsDeleted());
+        assertEquals(List.of("OLD_LIVE"), sessionIds());
+    }
+
+    @Test
+    void testBatchesBounded() {
+        reaperConfig.setBatchSize(2);
+        reaperConfig.setMaxBatchesPerRun(2);
+        val now = Instant.now();
+        val current = Utils.weekOfYear(now);
+        for (int i = 0; i < 5; i++) {
+            save("EXPIRED" + i, current, now.minus(1, ChronoUnit.DAYS), false);
+        }
+        assertEquals(4, reaper.reap().getRowsDeleted());
+        assertEquals(1, sessionIds().size());
+        assertEquals(1, reaper.reap().getRowsDeleted());
+        assertTrue(sessionIds().isEmpty());
+    }
+
+    @Test
+    void testOldRevocationsDeleted() {
+        val now = Instant.now();
+        saveRevocation("OLD", now.minus(20, ChronoUnit.DAYS));
+        saveRevocation("RECENT", now.minus(1, ChronoUnit.DAYS));
+
+        assertEquals(1, reaper.reap().getRevocationsDeleted());
+        assertEquals(List.of("RECENT"), revokedSessionIds());
+        assertEquals(1, metrics.meter(MetricRegistry.name(DynamicSessionReaper.class, "revocationsDeleted"))
+                .getCount());
+        assertEquals(0, reaper.reap().getRevocationsDeleted());
+    }
+
+    private void saveRevocation(String sessionId, Instant created) {
+        val revocation = new StoredSessionRevocation(sessionId, "S1", RevocationKind.REVOKED);
+        revocation.setCreated(Date.from(created));
+        database.inTransaction(() -> database.getSessionFactory().getCurrentSession().save(revocation));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> revokedSessionIds() {
+        return database.inTransaction(
+                () -> ((List<StoredSessionRevocation>) database.getSessionFactory()
+                        .getCurrentSession()
+                        .createQuery("from StoredSessionRevocation")
+                        .getResultList())
+                        .stream()
+                        .map(StoredSessionRevocation::getSessionId)
+                        .sorted()
+                        .collect(Collectors.toList()));
+    }
+
+    private void save(String sessionId, int partition, Instant expiry, boolean deleted) {
+        val session = new StoredDynamicSession(sessionId, "U1", "S1", "CS1", Date.from(expiry));
+        session.setPartitionId(partition);
+        session.setDeleted(deleted);
+        database.inTransaction(() -> database.getSessionFactory().getCurrentSession().save(session));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> sessionIds() {
+        return database.inTransaction(
+                () -> ((List<StoredDynamicSession>) database.getSessionFactory()
+                        .getCurrentSession()
+                        .createQuery("from StoredDynamicSession")
+                        .getResultList())
+                        .stream()
+                        .map(StoredDynamicSession::getSessionId)
+                        .sorted()
+                        .collect(Collectors.toList()));
+    }
+}
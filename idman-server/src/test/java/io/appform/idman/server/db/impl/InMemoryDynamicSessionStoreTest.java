@@ -0,0 +1,218 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.db.impl;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.appform.idman.model.AuthMode;
+import io.appform.idman.model.UserType;
+import io.appform.idman.server.db.DynamicSessionStoreConfig;
+import io.appform.idman.server.db.RevocationKind;
+import io.appform.idman.server.db.SessionRevocationStore;
+import io.appform.idman.server.db.model.*;
+import io.dropwizard.testing.junit5.DAOTestExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.dropwizard.util.Duration;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+class InMemoryDynamicSessionStoreTest {
+    public DAOTestExtension database = DAOTestExtension.newBuilder()
+            .addEntityClass(StoredDynamicSession.class)
+            .addEntityClass(StoredUser.class)
+            .addEntityClass(StoredUserAuthState.class)
+            .addEntityClass(StoredUserRole.class)
+            .addEntityClass(StoredSessionRevocation.class)
+            .build();
+
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final DynamicSessionStoreConfig config = new DynamicSessionStoreConfig();
+    private DBDynamicSessionStore dbStore;
+    private SessionRevocationStore revocationStore;
+    private InMemoryDynamicSessionStore store;
+
+    @BeforeEach
+    void setup() {
+        dbStore = spy(new DBDynamicSessionStore(database.getSessionFactory()));
+        config.setType(DynamicSessionStoreConfig.StoreType.IN_MEMORY);
+        config.setFlushInterval(Duration.hours(1));
+        revocationStore = new DBSessionRevocationStore(database.getSessionFactory());
+        store = new InMemoryDynamicSessionStore(dbStore, revocationStore, database.getSessionFactory(), config, metrics);
+    }
+
+    @AfterEach
+    @SneakyThrows
+    void destroy() {
+        store.stop();
+    }
+
+    @Test
+    void testWriteBehind() {
+        val expiry = Date.from(Instant.now().plus(1, ChronoUnit.DAYS));
+        assertNotNull(store.create("SS1", "U1", "S1", "CS1", expiry).orElse(null));
+        assertThrows(IllegalArgumentException.class, () -> store.create("SS1", "U1", "S1", "CS1", expiry));
+        assertEquals("SS1", store.get("SS1").map(ClientSession::getSessionId).orElse(null));
+        assertFalse(database.inTransaction(() -> dbStore.get("SS1")).isPresent());
+
+        store.flush();
+        assertTrue(database.inTransaction(() -> dbStore.get("SS1")).isPresent());
+
+        assertTrue(store.delete("SS1"));
+        assertFalse(store.get("SS1").isPresent());
+        assertTrue(database.inTransaction(() -> dbStore.get("SS1")).isPresent());
+        store.flush();
+        assertFalse(database.inTransaction(() -> dbStore.get("SS1")).isPresent());
+        assertFalse(database.inTransaction(() -> store.get("SS1")).isPresent());
+    }
+
+    @Test
+    void testDeletedOnOtherNodeEvicted() {
+        val expiry = Date.from(Instant.now().plus(1, ChronoUnit.DAYS));
+        store.pollRevocations();
+        store.create("SS1", "U1", "S1", "CS1", expiry);
+        store.create("SS2", "U1", "S1", "CS2", expiry);
+        store.flush();
+
+        //Another node deletes SS1 and revokes it, and logs a change to SS2, which stays valid
+        database.inTransaction(() -> {
+            dbStore.delete("SS1");
+            revocationStore.add("SS1", "S1", RevocationKind.REVOKED);
+            revocationStore.add("SS2", "S1", RevocationKind.CHANGED);
+        });
+        assertTrue(store.get("SS1").isPresent());
+        store.pollRevocations();
+        assertFalse(database.inTransaction(() -> store.get("SS1")).isPresent());
+        assertTrue(database.inTransaction(() -> store.sessionUsers(List.of("SS1"), "S1")).isEmpty());
+        assertTrue(store.get("SS2").isPresent());
+        assertEquals(List.of("SS2"),
+                     database.inTransaction(() -> store.sessionsForUser("U1"))
+                             .stream()
+                             .map(ClientSession::getSessionId)
+                             .collect(Collectors.toList()));
+    }
+
+    @Test
+    void testCreateAndDeleteBeforeFlush() {
+        store.create("SS1", "U1", "S1", "CS1", Date.from(Instant.now().plus(1, ChronoUnit.DAYS)));
+        assertTrue(store.delete("SS1"));
+        store.flush();
+        assertFalse(database.inTransaction(() -> store.get("SS1")).isPresent());
+        assertFalse(database.inTransaction(() -> store.delete("SS2")));
+    }
+
+    @Test
+    @SneakyThrows
+    void testWarmup() {
+        val expiry = Date.from(Instant.now().plus(1, ChronoUnit.DAYS));
+        database.inTransaction(() -> dbStore.create("SS1", "U1", "S1", "CS1", expiry));
+        database.inTransaction(() -> dbStore.create("SS2", "U1", "S1", "CS2",
+                                                   Date.from(Instant.now().minus(1, ChronoUnit.DAYS))));
+        store.start();
+        database.inTransaction(() -> dbStore.delete("SS1"));
+        assertTrue(store.get("SS1").isPresent());
+        store.create("SS3", "U1", "S1", "CS3", expiry);
+        assertEquals(List.of("SS3", "SS1"),
+                     database.inTransaction(() -> store.sessionsForUser("U1"))
+                             .stream()
+                             .map(ClientSession::getSessionId)
+                             .collect(Collectors.toList()));
+    }
+
+    @Test
+    void testSessionUsers() {
+        val userStore = new DBUserInfoStore(database.getSessionFactory());
+        val roleStore = new DBUserRoleStore(database.getSessionFactory());
+        val user = database.inTransaction(
+                () -> userStore.create("U1", "u@u.t", "TestUser", UserType.HUMAN, AuthMode.PASSWORD))
+                .orElse(null);
+        assertNotNull(user);
+        database.inTransaction((Runnable) () -> roleStore.mapUserToRole(user.getUserId(), "S1", "S1_ADMIN", "test"));
+        store.create("SS1", "U1", "S1", "CS1", null);
+        store.create("SS2", "U1", "S2", "CS2", null);
+        database.inTransaction(() -> dbStore.create("SS3", "U1", "S1", "CS3", null));
+
+        val users = database.inTransaction(() -> store.sessionUsers(List.of("SS1", "SS2", "SS3", "SS4"), "S1"));
+        assertEquals(Set.of("SS1", "SS3"), users.keySet());
+        assertEquals("S1_ADMIN", users.get("SS1").getRole());
+        assertEquals("TestUser", users.get("SS1").getUser().getName());
+        assertEquals(AuthMode.PASSWORD, users.get("SS1").getUser().getAuthMode());
+
+        store.delete("SS1");
+        assertFalse(database.inTransaction(() -> store.sessionUser("SS1", "S1")).isPresent());
+    }
+
+    @Test
+    void testFailedWritesRetried() {
+        config.setRetryDelay(Duration.milliseconds(0));
+        val dbDown = new IllegalStateException("Database down");
+        doThrow(dbDown).doThrow(dbDown).doCallRealMethod()
+                .when(dbStore).create(anyString(), anyString(), anyString(), anyString(), any());
+        store.create("SS1", "U1", "S1", "CS1", Date.from(Instant.now().plus(1, ChronoUnit.DAYS)));
+        store.flush();
+        assertFalse(database.inTransaction(() -> dbStore.get("SS1")).isPresent());
+        assertEquals(1, retryBacklog());
+
+        assertTrue(store.delete("SS1"));
+        store.flush();
+        assertEquals(0, retryBacklog());
+        verify(dbStore, times(3)).create(anyString(), anyString(), anyString(), anyString(), any());
+        assertFalse(database.inTransaction(() -> store.get("SS1")).isPresent());
+        assertTrue(database.inTransaction(() -> dbStore.sessionsForUser("U1")).isEmpty());
+    }
+
+    @Test
+    void testWritesWaitForEarlierRetries() {
+        config.setRetryDelay(Duration.hours(1));
+        val dbDown = new IllegalStateException("Database down");
+        doThrow(dbDown).doThrow(dbDown).doCallRealMethod()
+                .when(dbStore).create(anyString(), anyString(), anyString(), anyString(), any());
+        val expiry = Date.from(Instant.now().plus(1, ChronoUnit.DAYS));
+        store.create("SS1", "U1", "S1", "CS1", expiry);
+        store.flush();
+        store.delete("SS1");
+        store.create("SS2", "U1", "S1", "CS2", expiry);
+        store.flush();
+        assertEquals(2, retryBacklog());
+        assertTrue(database.inTransaction(() -> dbStore.get("SS2")).isPresent());
+        verify(dbStore, never()).delete("SS1");
+    }
+
+    @SuppressWarnings("unchecked")
+    private int retryBacklog() {
+        return ((Gauge<Integer>) metrics.getGauges()
+                .get(MetricRegistry.name(InMemoryDynamicSessionStore.class, "retryBacklog")))
+                .getValue();
+    }
+}
@@ -0,0 +1,55 @@
+package io.appform.idman.server.db.replica;
+
+import io.appform.idman.server.db.model.StoredSessionRevocation;
+import io.dropwizard.hibernate.UnitOfWork;
+import io.dropwizard.testing.junit5.DAOTestExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import lombok.val;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+class ReplicaAwareProxyFactoryTest {
+    public DAOTestExtension database = DAOTestExtension.newBuilder()
+            .addEntityClass(StoredSessionRevocation.class)
+            .build();
+
+    public static class Probe {
+        @UnitOfWork(readOnly = true)
+        public boolean readOnlyWork() {
+            return ReplicaRouting.isReadOnly();
+        }
+
+        @UnitOfWork
+        public boolean readWriteWork() {
+            return ReplicaRouting.isReadOnly();
+        }
+    }
+
+    @Test
+    void testRoutingForOwnSession() {
+        val probe = new ReplicaAwareProxyFactory("default", database.getSessionFactory()).create(Probe.class);
+        val session = ManagedSessionContext.unbind(database.getSessionFactory());
+        try {
+            assertTrue(probe.readOnlyWork());
+            assertFalse(ReplicaRouting.isReadOnly());
+            assertFalse(probe.readWriteWork());
+        }
+        finally {
+            ManagedSessionContext.bind(session);
+        }
+    }
+
+    @Test
+    void testReadOnlyWorkJoinsReadWriteSession() {
+        val probe = new ReplicaAwareProxyFactory("default", database.getSessionFactory()).create(Probe.class);
+        assertFalse(probe.readOnlyWork());
+        assertFalse(ReplicaRouting.isReadOnly());
+    }
+}
@@ -0,0 +1,125 @@
+package io.appform.idman.server.db.replica;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ *
+ */
+class ReplicaLagMonitorTest {
+    private DataSource primary;
+    private DataSource replica;
+    private ReplicaLagMonitor monitor;
+
+    @BeforeEach
+    void setup() {
+        primary = dataSource("primary");
+        replica = dataSource("replica");
+        monitor = new ReplicaLagMonitor(primary, replica, 5_000);
+    }
+
+    @AfterEach
+    void destroy() {
+        execute(primary, "DROP TABLE replica_heartbeat");
+        execute(replica, "DROP TABLE replica_heartbeat");
+    }
+
+    @Test
+    void testLag() {
+        assertFalse(monitor.isReplicaUsable());
+        monitor.check(1_000);
+        assertTrue(monitor.isReplicaUsable());
+        assertEquals(0, monitor.lagMs());
+        assertEquals(1, beat(primary));
+
+        replicate();
+        monitor.check(2_000);
+        assertTrue(monitor.isReplicaUsable());
+        assertEquals(0, monitor.lagMs());
+
+        replicate();
+        monitor.check(3_000);
+        assertEquals(0, monitor.lagMs());
+        monitor.check(4_000);
+        assertEquals(1_000, monitor.lagMs());
+        monitor.check(9_000);
+        assertEquals(6_000, monitor.lagMs());
+        assertFalse(monitor.isReplicaUsable());
+
+        replicate();
+        monitor.check(10_000);
+        assertEquals(0, monitor.lagMs());
+        assertTrue(monitor.isReplicaUsable());
+    }
+
+    @Test
+    void testLagWithoutWrites() {
+        monitor.check(1_000);
+        monitor.check(2_000);
+        monitor.check(7_000);
+        assertEquals(6_000, monitor.lagMs());
+        assertFalse(monitor.isReplicaUsable());
+    }
+
+    @Test
+    void testMarkFailed() {
+        monitor.check(1_000);
+        assertTrue(monitor.isReplicaUsable());
+        monitor.markFailed();
+        assertFalse(monitor.isReplicaUsable());
+        monitor.check(2_000);
+        assertTrue(monitor.isReplicaUsable());
+    }
+
+    @Test
+    @SneakyThrows
+    void testCheckFailure() {
+        val brokenReplica = mock(DataSource.class);
+        when(brokenReplica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        monitor = new ReplicaLagMonitor(primary, brokenReplica, 5_000);
+        monitor.check(1_000);
+        assertFalse(monitor.isReplicaUsable());
+    }
+
+    private static DataSource dataSource(String name) {
+        val dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        execute(dataSource, "CREATE TABLE replica_heartbeat (id INT PRIMARY KEY, beat BIGINT NOT NULL)");
+        return dataSource;
+    }
+
+    /**
+     * Copies the primary heartbeat to the replica, the way replication would
+     */
+    private void replicate() {
+        execute(replica, "MERGE INTO replica_heartbeat KEY (id) VALUES (1, " + beat(primary) + ")");
+    }
+
+    @SneakyThrows
+    private static long beat(DataSource dataSource) {
+        try (val connection = dataSource.getConnection();
+             val statement = connection.createStatement();
+             val resultSet = statement.executeQuery("SELECT beat FROM replica_heartbeat WHERE id = 1")) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    @SneakyThrows
+    private static void execute(DataSource dataSource, String sql) {
+        try (val connection = dataSource.getConnection();
+             val statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
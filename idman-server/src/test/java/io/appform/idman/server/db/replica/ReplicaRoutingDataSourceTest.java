@@ -0,0 +1,87 @@
+package io.appform.idman.server.db.replica;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.db.ManagedDataSource;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ */
+class ReplicaRoutingDataSourceTest {
+    private final MetricRegistry metrics = new MetricRegistry();
+    private ManagedDataSource primary;
+    private ManagedDataSource replica;
+    private Connection primaryConnection;
+    private Connection replicaConnection;
+    private ReplicaRoutingDataSource dataSource;
+
+    @BeforeEach
+    @SneakyThrows
+    void setup() {
+        primary = mock(ManagedDataSource.class);
+        replica = mock(ManagedDataSource.class);
+        primaryConnection = connection();
+        replicaConnection = connection();
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        dataSource = new ReplicaRoutingDataSource(primary, replica, new ReadReplicaConfig(), metrics, "test");
+        dataSource.start();
+    }
+
+    @AfterEach
+    @SneakyThrows
+    void destroy() {
+        dataSource.stop();
+        ReplicaRouting.setReadOnly(false);
+    }
+
+    @Test
+    @SneakyThrows
+    void testRouting() {
+        assertSame(primaryConnection, dataSource.getConnection());
+        ReplicaRouting.setReadOnly(true);
+        assertSame(replicaConnection, dataSource.getConnection());
+        assertEquals(1, metrics.meter("io.appform.idman.server.db.replica.ReplicaRoutingDataSource.test.replicaConnections")
+                .getCount());
+        verify(primary).start();
+        verify(replica).start();
+    }
+
+    @Test
+    @SneakyThrows
+    void testFallbackOnReplicaFailure() {
+        ReplicaRouting.setReadOnly(true);
+        reset(replica);
+        when(replica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        assertSame(primaryConnection, dataSource.getConnection());
+        assertSame(primaryConnection, dataSource.getConnection());
+        verify(replica, times(1)).getConnection();
+        assertEquals(2, metrics.meter("io.appform.idman.server.db.replica.ReplicaRoutingDataSource.test.primaryFallbacks")
+                .getCount());
+    }
+
+    @SneakyThrows
+    private static Connection connection() {
+        val connection = mock(Connection.class);
+        val statement = mock(Statement.class);
+        val resultSet = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(1L);
+        return connection;
+    }
+}
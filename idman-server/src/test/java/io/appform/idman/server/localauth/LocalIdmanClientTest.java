@@ -14,27 +14,42 @@
 
 package io.appform.idman.server.localauth;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Strings;
+import io.appform.idman.client.IdManClient;
+import io.appform.idman.client.IdmanClientConfig;
 import io.appform.idman.model.AuthMode;
+import io.appform.idman.model.IdmanUser;
 import io.appform.idman.model.TokenInfo;
 import io.appform.idman.model.TokenType;
 import io.appform.idman.model.UserType;
+import io.appform.idman.server.auth.AuthenticationProvider;
+import io.appform.idman.server.auth.LoginFailureCounters;
+import io.appform.idman.server.auth.PasswordVerifier;
+import io.appform.idman.server.auth.RevocationFeed;
 import io.appform.idman.server.auth.TokenManager;
 import io.appform.idman.server.auth.configs.AuthenticationConfig;
+import io.appform.idman.server.auth.configs.PasswordVerificationConfig;
 import io.appform.idman.server.auth.impl.PasswordAuthInfo;
 import io.appform.idman.server.auth.impl.PasswordAuthenticationProvider;
+import io.appform.idman.server.auth.hashing.BCryptPasswordHasher;
+import io.appform.idman.server.auth.hashing.PasswordHashing;
 import io.appform.idman.server.db.*;
 import io.appform.idman.server.db.impl.*;
 import io.appform.idman.server.db.model.*;
+import io.appform.idman.server.engine.Engine;
+import io.appform.idman.server.engine.results.GeneralOpSuccess;
 import io.appform.idman.server.utils.ServerTestingUtils;
 import io.appform.idman.server.utils.Utils;
 import io.dropwizard.testing.junit5.DAOTestExtension;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.dropwizard.util.Duration;
 import lombok.val;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 
@@ -51,6 +66,7 @@ class LocalIdmanClientTest {
             .addEntityClass(StoredPassword.class)
             .addEntityClass(StoredDynamicSession.class)
             .addEntityClass(StoredStaticSession.class)
+            .addEntityClass(StoredSessionRevocation.class)
             .addEntityClass(StoredService.class)
             .addEntityClass(StoredRole.class)
             .addEntityClass(StoredUserRole.class)
@@ -62,6 +78,9 @@ class LocalIdmanClientTest {
     private UserRoleStore userRoleStore;
     private ServiceStore serviceStore;
     private PasswordStore passwordStore;
+    private PasswordVerifier passwordVerifier;
+    private LoginFailureCounters loginFailures;
+    private SessionRevocationStore revocationStore;
     private final AuthenticationConfig config = ServerTestingUtils.passwordauthConfig();
 
     private LocalIdmanClient client;
@@ -69,19 +88,34 @@ class LocalIdmanClientTest {
     @BeforeEach
     void setup() {
         userStore = new DBUserInfoStore(db.getSessionFactory());
+        revocationStore = new DBSessionRevocationStore(db.getSessionFactory());
         sessionStore = new CompositeSessionStore(new DBDynamicSessionStore(db.getSessionFactory()),
-                                                 new DBStaticSessionStore(db.getSessionFactory()));
+                                                 new DBStaticSessionStore(db.getSessionFactory()),
+                                                 revocationStore);
         roleStore = new DBRoleStore(db.getSessionFactory());
         userRoleStore = new DBUserRoleStore(db.getSessionFactory());
         serviceStore = new DBServiceStore(db.getSessionFactory());
-        passwordStore = new DBPasswordStore(db.getSessionFactory());
+        passwordStore = new DBPasswordStore(db.getSessionFactory(),
+                                            new PasswordHashing(new BCryptPasswordHasher(4)),
+                                            new MetricRegistry());
+        passwordVerifier = new PasswordVerifier(db.getSessionFactory(),
+                                                passwordStore,
+                                                new PasswordVerificationConfig(),
+                                                new MetricRegistry());
+        loginFailures = new LoginFailureCounters(db.getSessionFactory(),
+                                                 userStore,
+                                                 AuthenticationProvider.MAX_FAILURES,
+                                                 Duration.seconds(5));
         client = new LocalIdmanClient(
+                new IdmanClientConfig(),
                 config,
                 new TokenManager(userStore,
                                  serviceStore,
                                  sessionStore,
                                  userRoleStore,
-                                 config.getJwt()));
+                                 db.getSessionFactory(),
+                                 config.getJwt(),
+                                 new MetricRegistry()));
     }
 
     @Test
@@ -102,7 +136,9 @@ class LocalIdmanClientTest {
         val authProvider = new PasswordAuthenticationProvider(config,
                                                               () -> userStore,
                                                               () -> passwordStore,
-                                                              () -> sessionStore);
+                                                              () -> sessionStore,
+                                                              passwordVerifier,
+                                                              loginFailures);
         val session = db.inTransaction(() -> authProvider.login(
                 new PasswordAuthInfo("u@u.t", "PASSWORD", service.getServiceId(), "CS1"), "S1"))
                 .orElse(null);
@@ -139,7 +175,9 @@ class LocalIdmanClientTest {
         val authProvider = new PasswordAuthenticationProvider(config,
                                                               () -> userStore,
                                                               () -> passwordStore,
-                                                              () -> sessionStore);
+                                                              () -> sessionStore,
+                                                              passwordVerifier,
+                                                              loginFailures);
         val session = db.inTransaction(() -> authProvider.login(
                 new PasswordAuthInfo("u@u.t", "PASSWORD", service.getServiceId(), "CS1"), "S1"))
                 .orElse(null);
@@ -170,7 +208,9 @@ class LocalIdmanClientTest {
         val authProvider = new PasswordAuthenticationProvider(config,
                                                               () -> userStore,
                                                               () -> passwordStore,
-                                                              () -> sessionStore);
+                                                              () -> sessionStore,
+                                                              passwordVerifier,
+                                                              loginFailures);
         userRoleStore.mapUserToRole(user.getUserId(), service.getServiceId(), "S_USER", "test");
         val session = db.inTransaction(() -> authProvider.login(
                 new PasswordAuthInfo("u@u.t", "PASSWORD", service.getServiceId(), "CS1"), "S1"))
@@ -212,7 +252,9 @@ class LocalIdmanClientTest {
         val authProvider = new PasswordAuthenticationProvider(config,
                                                               () -> userStore,
                                                               () -> passwordStore,
-                                                              () -> sessionStore);
+                                                              () -> sessionStore,
+                                                              passwordVerifier,
+                                                              loginFailures);
         userRoleStore.mapUserToRole(user.getUserId(), service.getServiceId(), "S_USER", "test");
         val session = db.inTransaction(() -> authProvider.login(
                 new PasswordAuthInfo("u@u.t", "PASSWORD", service.getServiceId(), "CS1"), "S1"))
@@ -248,7 +290,9 @@ class LocalIdmanClientTest {
         val authProvider = new PasswordAuthenticationProvider(config,
                                                               () -> userStore,
                                                               () -> passwordStore,
-                                                              () -> sessionStore);
+                                                              () -> sessionStore,
+                                                              passwordVerifier,
+                                                              loginFailures);
         userRoleStore.mapUserToRole(user.getUserId(), service.getServiceId(), "S_USER", "test");
         val session = db.inTransaction((Callable<Optional<ClientSession>>) () -> authProvider.login(
                 new PasswordAuthInfo("u@u.t", "PASSWORD", service.getServiceId(), "CS1"), "S1"))
@@ -275,7 +319,9 @@ class LocalIdmanClientTest {
         val authProvider = new PasswordAuthenticationProvider(config,
                                                               () -> userStore,
                                                               () -> passwordStore,
-                                                              () -> sessionStore);
+                                                              () -> sessionStore,
+                                                              passwordVerifier,
+                                                              loginFailures);
         userRoleStore.mapUserToRole(user.getUserId(), service.getServiceId(), "S_USER", "test");
         val session = db.inTransaction(() -> authProvider.login(
                 new PasswordAuthInfo("u@u.t", "PASSWORD", service.getServiceId(), "CS1"), "S1"))
@@ -339,6 +385,115 @@ class LocalIdmanClientTest {
         assertEquals(user.getUserId(), idmanUser.getUser().getId());
     }
 
+    @Test
+    void testStaticSessionValidAfterRoleChangeOnSubscribedClient() {
+        val user = db.inTransaction(() -> userStore.create("SYS1",
+                                                           "u@u.t",
+                                                           "SystemUser",
+                                                           UserType.SYSTEM,
+                                                           AuthMode.TOKEN)
+                .orElse(null));
+        assertNotNull(user);
+        val service = db.inTransaction(() -> serviceStore.create("S1", "Test Service", "http://localhost:8080"))
+                .orElse(null);
+        assertNotNull(service);
+        val serviceId = service.getServiceId();
+        val userRole = db.inTransaction(() -> roleStore.create(serviceId, "User", "")).orElse(null);
+        val adminRole = db.inTransaction(() -> roleStore.create(serviceId, "Admin", "")).orElse(null);
+        assertNotNull(userRole);
+        assertNotNull(adminRole);
+        db.inTransaction((Runnable) () -> userRoleStore.mapUserToRole(user.getUserId(),
+                                                                      serviceId,
+                                                                      userRole.getRoleId(),
+                                                                      "TEST"));
+        val session = db.inTransaction(() -> sessionStore.create("SS1",
+                                                                 user.getUserId(),
+                                                                 serviceId,
+                                                                 "CS1",
+                                                                 TokenType.STATIC,
+                                                                 null))
+                .orElse(null);
+        assertNotNull(session);
+        val jwt = Utils.createAccessToken(session, config.getJwt());
+        val feed = new RevocationFeed(serviceStore, revocationStore, config, null);
+        val head = db.inTransaction(() -> feed.revocations(serviceId, service.getSecret(), -1))
+                .orElseThrow()
+                .getSequence();
+
+        //What Engine.mapUserToRole does
+        db.inTransaction(() -> {
+            userRoleStore.mapUserToRole(user.getUserId(), serviceId, adminRole.getRoleId(), "TEST");
+            sessionStore.invalidateStaticSessions(user.getUserId(), serviceId);
+        });
+        val changes = db.inTransaction(() -> revocationStore.since(0, 10));
+        assertEquals(1, changes.size());
+        assertEquals(RevocationKind.CHANGED, changes.get(0).getKind());
+
+        val revocations = db.inTransaction(() -> feed.revocations(serviceId, service.getSecret(), head))
+                .orElseThrow();
+        assertTrue(revocations.getSessionIds().isEmpty());
+        client.revokeSessions(revocations.getSessionIds());
+        client.revocationsSynced();
+        val tokenInfo = db.inTransaction(() -> client.validateToken(serviceId, jwt)).orElse(null);
+        assertNotNull(tokenInfo);
+        assertEquals(adminRole.getRoleId(), tokenInfo.getRole());
+    }
+
+    @Test
+    void testDeletedUserRejectedByLocallyVerifyingClient() {
+        val user = db.inTransaction(() -> userStore.create("U1", "u@u.t", "TestUser", UserType.HUMAN, AuthMode.PASSWORD)
+                .orElse(null));
+        assertNotNull(user);
+        db.inTransaction((Runnable) () -> passwordStore.set(user.getUserId(), "PASSWORD"));
+        val service = db.inTransaction(() -> serviceStore.create("S1", "Test Service", "http://localhost:8080"))
+                .orElse(null);
+        assertNotNull(service);
+        val serviceId = service.getServiceId();
+        val role = db.inTransaction(() -> roleStore.create(serviceId, "TestRole", "")).orElse(null);
+        assertNotNull(role);
+        db.inTransaction((Runnable) () -> userRoleStore.mapUserToRole(user.getUserId(),
+                                                                      serviceId,
+                                                                      role.getRoleId(),
+                                                                      "TEST"));
+        val authProvider = new PasswordAuthenticationProvider(config,
+                                                              () -> userStore,
+                                                              () -> passwordStore,
+                                                              () -> sessionStore,
+                                                              passwordVerifier,
+                                                              loginFailures);
+        val session = db.inTransaction(() -> authProvider.login(
+                new PasswordAuthInfo("u@u.t", "PASSWORD", serviceId, "CS1"), "S1"))
+                .orElse(null);
+        assertNotNull(session);
+        val jwt = db.inTransaction(() -> client.accessToken(serviceId, session.getSessionId()))
+                .map(TokenInfo::getAccessToken)
+                .orElse(null);
+        assertNotNull(jwt);
+
+        val feed = new RevocationFeed(serviceStore, revocationStore, config, null);
+        val head = db.inTransaction(() -> feed.revocations(serviceId, service.getSecret(), -1))
+                .orElseThrow()
+                .getSequence();
+        val verifier = new SignatureVerifyingClient(role.getRoleId());
+        verifier.revocationsSynced();
+        assertTrue(verifier.validateToken(serviceId, jwt).isPresent());
+
+        val engine = new Engine(() -> serviceStore,
+                                () -> roleStore,
+                                () -> userStore,
+                                () -> passwordStore,
+                                () -> userRoleStore,
+                                () -> sessionStore,
+                                () -> null);
+        assertEquals(GeneralOpSuccess.class,
+                     db.inTransaction(() -> engine.deleteUser(user.getUserId())).getClass());
+        val revocations = db.inTransaction(() -> feed.revocations(serviceId, service.getSecret(), head))
+                .orElseThrow();
+        assertEquals(List.of(session.getSessionId()), revocations.getSessionIds());
+        verifier.revokeSessions(revocations.getSessionIds());
+        assertFalse(verifier.validateToken(serviceId, jwt).isPresent());
+    }
+
     @Test
     void testDeleteTokenSuccess() {
         val user = db.inTransaction(() -> userStore.create("U1", "u@u.t", "TestUser", UserType.HUMAN, AuthMode.PASSWORD)
@@ -357,7 +512,9 @@ class LocalIdmanClientTest {
         val authProvider = new PasswordAuthenticationProvider(config,
                                                               () -> userStore,
                                                               () -> passwordStore,
-                                                              () -> sessionStore);
+                                                              () -> sessionStore,
+                                                              passwordVerifier,
+                                                              loginFailures);
         val session = db.inTransaction(() -> authProvider.login(
                 new PasswordAuthInfo("u@u.t", "PASSWORD", service.getServiceId(), "CS1"), "S1"))
                 .orElse(null);
@@ -372,6 +529,9 @@ class LocalIdmanClientTest {
                 return client.deleteToken(service.getServiceId(), jwt);
             }
         }));
+        val revocations = db.inTransaction(() -> revocationStore.since(service.getServiceId(), 0, 10));
+        assertEquals(1, revocations.size());
+        assertEquals(session.getSessionId(), revocations.get(0).getSessionId());
     }
 
     @Test
@@ -392,7 +552,9 @@ class LocalIdmanClientTest {
         val authProvider = new PasswordAuthenticationProvider(config,
                                                               () -> userStore,
                                                               () -> passwordStore,
-                                                              () -> sessionStore);
+                                                              () -> sessionStore,
+                                                              passwordVerifier,
+                                                              loginFailures);
         val session = db.inTransaction(() -> authProvider.login(
                 new PasswordAuthInfo("u@u.t", "PASSWORD", service.getServiceId(), "CS1"), "S1"))
                 .orElse(null);
@@ -428,7 +590,9 @@ class LocalIdmanClientTest {
         val authProvider = new PasswordAuthenticationProvider(config,
                                                               () -> userStore,
                                                               () -> passwordStore,
-                                                              () -> sessionStore);
+                                                              () -> sessionStore,
+                                                              passwordVerifier,
+                                                              loginFailures);
         val session = db.inTransaction(() -> authProvider.login(
                 new PasswordAuthInfo("u@u.t", "PASSWORD", serviceId, "CS1"), "S1"))
                 .orElse(null);
@@ -445,4 +609,37 @@ class LocalIdmanClientTest {
             }
         }));
     }
-}
\ No newline at end of file
+
+    /**
+     * Checks only the token signature, like clients that verify tokens locally
+     */
+    private final class SignatureVerifyingClient extends IdManClient {
+        private final String role;
+
+        private SignatureVerifyingClient(String role) {
+            super(new IdmanClientConfig());
+            this.role = role;
+        }
+
+        @Override
+        public Optional<TokenInfo> accessToken(String serviceId, String tokenId) {
+            return Optional.empty();
+        }
+
+        @Override
+        protected Optional<TokenInfo> validateTokenImpl(String serviceId, String token) {
+            return Utils.parseToken(token, Utils.buildConsumer(config, serviceId))
+                    .map(parsed -> new TokenInfo(token,
+                                                 token,
+                                                 60,
+                                                 "bearer",
+                                                 role,
+                                                 new IdmanUser(parsed.getSessionId(), serviceId, null, role)));
+        }
+
+        @Override
+        public boolean deleteToken(String serviceId, String jwt) {
+            return false;
+        }
+    }
+}
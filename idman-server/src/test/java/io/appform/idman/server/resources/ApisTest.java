@@ -16,8 +16,13 @@ package io.appform.idman.server.resources;
 
 import io.appform.idman.model.AuthMode;
 import io.appform.idman.model.IdmanUser;
+import io.appform.idman.model.SessionRevocations;
+import io.appform.idman.model.TokenValidationResult;
 import io.appform.idman.model.User;
 import io.appform.idman.model.UserType;
+import io.appform.idman.server.auth.RevocationFeed;
+import io.appform.idman.server.auth.TokenManager;
+import io.appform.idman.server.auth.configs.AuthenticationConfig;
 import io.appform.idman.server.db.ServiceStore;
 import io.appform.idman.server.db.model.StoredService;
 import io.appform.idman.server.localauth.LocalIdmanClient;
@@ -26,6 +31,7 @@ import io.dropwizard.testing.junit5.ResourceExtension;
 import lombok.SneakyThrows;
 import lombok.val;
 import org.apache.http.HttpStatus;
+import org.glassfish.jersey.test.grizzly.GrizzlyTestContainerFactory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -33,8 +39,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Form;
+import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.HttpHeaders;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static io.appform.idman.client.ClientTestingUtils.tokenInfo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -48,8 +60,16 @@ class ApisTest {
 
     private static final ServiceStore serviceStore = mock(ServiceStore.class);
     private static final LocalIdmanClient client = mock(LocalIdmanClient.class);
+    private static final TokenManager tokenManager = mock(TokenManager.class);
+    private static final RevocationFeed revocationFeed = mock(RevocationFeed.class);
+    private static final AuthenticationConfig authConfig = new AuthenticationConfig();
     private static final ResourceExtension EXT = ResourceExtension.builder()
-            .addResource(new Apis(() -> serviceStore, () -> client))
+            .addResource(new Apis(() -> serviceStore,
+                                  () -> client,
+                                  () -> tokenManager,
+                                  () -> revocationFeed,
+                                  authConfig))
+            .setTestContainerFactory(new GrizzlyTestContainerFactory())
             .build();
 
 
@@ -62,6 +82,8 @@ class ApisTest {
     void teardown() {
         reset(serviceStore);
         reset(client);
+        reset(tokenManager);
+        reset(revocationFeed);
     }
 
     @Test
@@ -186,4 +208,96 @@ class ApisTest {
                 .invoke();
         assertEquals(HttpStatus.SC_UNAUTHORIZED, response.getStatus());
     }
-}
\ No newline at end of file
+
+    @Test
+    @SneakyThrows
+    void testBatchValidation() {
+        val service = new StoredService("S1", "Test Service", "", "blah.com", "SECRET_TOKEN");
+        doReturn(Optional.of(service)).when(serviceStore).get("S1");
+        val idmanUser = new IdmanUser("SS1", service.getServiceId(), new User("U1", "TU", UserType.HUMAN, AuthMode.PASSWORD), "R");
+        doReturn(Map.of("T1", idmanUser))
+                .when(tokenManager)
+                .translateTokens("S1", List.of("T1", "T2"));
+        val response = EXT.target("/auth/check/v2/S1")
+                .request()
+                .header(HttpHeaders.AUTHORIZATION, "Bearer SECRET_TOKEN")
+                .buildPost(Entity.json(List.of("T1", "T2")))
+                .invoke();
+        assertEquals(HttpStatus.SC_OK, response.getStatus());
+        assertEquals(List.of(new TokenValidationResult("T1", true, idmanUser),
+                             new TokenValidationResult("T2", false, null)),
+                     response.readEntity(new GenericType<List<TokenValidationResult>>() {}));
+    }
+
+    @Test
+    @SneakyThrows
+    void testBatchValidationWrongSecret() {
+        val service = new StoredService("S1", "Test Service", "", "blah.com", "SECRET_TOKEN");
+        doReturn(Optional.of(service)).when(serviceStore).get("S1");
+        val response = EXT.target("/auth/check/v2/S1")
+                .request()
+                .header(HttpHeaders.AUTHORIZATION, "Bearer T")
+                .buildPost(Entity.json(List.of("T1")))
+                .invoke();
+        assertEquals(HttpStatus.SC_UNAUTHORIZED, response.getStatus());
+        verify(tokenManager, never()).translateTokens(anyString(), anyCollection());
+    }
+
+    @Test
+    @SneakyThrows
+    void testBatchValidationTooManyTokens() {
+        val service = new StoredService("S1", "Test Service", "", "blah.com", "SECRET_TOKEN");
+        doReturn(Optional.of(service)).when(serviceStore).get("S1");
+        val tokens = IntStream.rangeClosed(0, authConfig.getMaxTokensPerValidationBatch())
+                .mapToObj(i -> "T" + i)
+                .collect(Collectors.toList());
+        val response = EXT.target("/auth/check/v2/S1")
+                .request()
+                .header(HttpHeaders.AUTHORIZATION, "Bearer SECRET_TOKEN")
+                .buildPost(Entity.json(tokens))
+                .invoke();
+        assertEquals(HttpStatus.SC_BAD_REQUEST, response.getStatus());
+        verify(tokenManager, never()).translateTokens(anyString(), anyCollection());
+    }
+
+    @Test
+    @SneakyThrows
+    void testRevocations() {
+        val revocations = new SessionRevocations(10, List.of("SS1", "SS2"), false);
+        doReturn(CompletableFuture.completedFuture(Optional.of(revocations)))
+                .when(revocationFeed)
+                .poll("S1", "SECRET_TOKEN", 5, 1000);
+        val response = EXT.target("/auth/revocations/v1/S1")
+                .queryParam("after", 5)
+                .queryParam("waitMs", 1000)
+                .request()
+                .header(HttpHeaders.AUTHORIZATION, "Bearer SECRET_TOKEN")
+                .get();
+        assertEquals(HttpStatus.SC_OK, response.getStatus());
+        assertEquals(revocations, response.readEntity(SessionRevocations.class));
+    }
+
+    @Test
+    @SneakyThrows
+    void testRevocationsWrongSecret() {
+        doReturn(CompletableFuture.completedFuture(Optional.empty()))
+                .when(revocationFeed)
+                .poll("S1", "T", -1, 0);
+        val response = EXT.target("/auth/revocations/v1/S1")
+                .request()
+                .header(HttpHeaders.AUTHORIZATION, "Bearer T")
+                .get();
+        assertEquals(HttpStatus.SC_UNAUTHORIZED, response.getStatus());
+    }
+
+    @Test
+    @SneakyThrows
+    void testRevocationsMalformedAuth() {
+        val response = EXT.target("/auth/revocations/v1/S1")
+                .request()
+                .header(HttpHeaders.AUTHORIZATION, "Bearer")
+                .get();
+        assertEquals(HttpStatus.SC_UNAUTHORIZED, response.getStatus());
+        verify(revocationFeed, never()).poll(anyString(), anyString(), anyLong(), anyLong());
+    }
+}
@@ -20,6 +20,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import java.net.URI;
 import java.util.Date;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 import static io.appform.idman.server.utils.ServerTestingUtils.runInCtx;
 import static io.appform.idman.server.utils.ServerTestingUtils.testService;
@@ -115,4 +116,13 @@ class AuthTest {
         assertEquals(HttpStatus.SC_SEE_OTHER, r.getStatus());
         assertEquals("/", r.getLocation().getPath());
     }
+
+    @Test
+    void testPasswordLoginVerificationRejected() {
+        doReturn(Optional.of(testService())).when(serviceStore).get(anyString());
+        doThrow(new RejectedExecutionException())
+                .when(authenticationProvider).login(any(), anyString());
+        val r = auth.passwordLogin(URI.create("/"), "a@a.com", "xx", "/", "S", "CS1");
+        assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, r.getStatus());
+    }
 }
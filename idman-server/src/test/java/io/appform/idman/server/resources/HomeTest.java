@@ -14,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import ru.vyarus.guicey.gsp.views.template.TemplateView;
 
 import java.net.URI;
+import java.util.List;
 
 import static io.appform.idman.server.utils.ServerTestingUtils.runInCtx;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -39,8 +40,8 @@ class HomeTest {
     void home() {
         doReturn(new GeneralOpSuccess())
                 .when(engine)
-                .renderHome(any(), anyString());
-        val r = home.home(principal(), "");
+                .renderHome(any(), anyString(), any(), any());
+        val r = home.home(principal(), "", null, null);
         assertResponse(r);
     }
 
@@ -57,8 +58,8 @@ class HomeTest {
     void serviceDetails() {
         doReturn(new GeneralOpSuccess())
                 .when(engine)
-                .renderServiceDetails(any(), anyString());
-        val r = home.serviceDetails(principal(), "S");
+                .renderServiceDetails(any(), anyString(), any(), any());
+        val r = home.serviceDetails(principal(), "S", null, null);
         assertResponse(r);
     }
 
@@ -206,6 +207,15 @@ class HomeTest {
         assertResponse(r);
     }
 
+    @Test
+    void mapUsersToRole() {
+        doReturn(new GeneralOpSuccess())
+                .when(engine)
+                .mapUsersToRole(any(), anyString(), anyString(), anyCollection());
+        val r = home.mapUsersToRole(principal(), "A", "p", List.of("q"));
+        assertResponse(r);
+    }
+
     @Test
     void unmapUserFromRole() {
         doReturn(new GeneralOpSuccess())
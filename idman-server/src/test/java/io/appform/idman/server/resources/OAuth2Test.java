@@ -31,6 +31,7 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 /**
@@ -471,4 +472,16 @@ class OAuth2Test {
         assertEquals(errorCode, values.get("error").asText());
         assertEquals(errorDescription, values.get("error_description").asText());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testJwks() {
+        val response = EXT.target("/oauth2/jwks")
+                .request()
+                .get();
+        assertEquals(HttpStatus.SC_OK, response.getStatus());
+        assertTrue(response.getHeaderString("Cache-Control").contains("max-age=900"));
+        val keys = response.readEntity(JsonNode.class).get("keys");
+        assertTrue(keys.isArray());
+        assertEquals(0, keys.size());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2021. Santanu Sinha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.appform.idman.server.userimport;
+
+import com.codahale.metrics.MetricRegistry;
+import io.appform.idman.model.AuthMode;
+import io.appform.idman.model.UserType;
+import io.appform.idman.server.auth.IdmanRoles;
+import io.appform.idman.server.auth.hashing.BCryptPasswordHasher;
+import io.appform.idman.server.auth.hashing.PasswordHashing;
+import io.appform.idman.server.db.AuthState;
+import io.appform.idman.server.db.PasswordStore;
+import io.appform.idman.server.db.UserInfoStore;
+import io.appform.idman.server.db.UserRoleStore;
+import io.appform.idman.server.db.impl.DBPasswordStore;
+import io.appform.idman.server.db.impl.DBUserInfoStore;
+import io.appform.idman.server.db.impl.DBUserRoleStore;
+import io.appform.idman.server.db.model.StoredPassword;
+import io.appform.idman.server.db.model.StoredUser;
+import io.appform.idman.server.db.model.StoredUserAuthState;
+import io.appform.idman.server.db.model.StoredUserRole;
+import io.appform.idman.server.utils.Utils;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.validation.Validators;
+import io.dropwizard.testing.junit5.DAOTestExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+class UserImporterTest {
+    public DAOTestExtension database = DAOTestExtension.newBuilder()
+            .addEntityClass(StoredUser.class)
+            .addEntityClass(StoredUserAuthState.class)
+            .addEntityClass(StoredPassword.class)
+            .addEntityClass(StoredUserRole.class)
+            .build();
+
+    private UserInfoStore userInfoStore;
+    private PasswordStore passwordStore;
+    private UserRoleStore userRoleStore;
+    private UserImporter importer;
+
+    @BeforeEach
+    void setup() {
+        userInfoStore = new DBUserInfoStore(database.getSessionFactory());
+        passwordStore = new DBPasswordStore(database.getSessionFactory(),
+                                            new PasswordHashing(new BCryptPasswordHasher(4)),
+                                            new MetricRegistry());
+        userRoleStore = new DBUserRoleStore(database.getSessionFactory());
+        val config = new UserImportConfig();
+        config.setChunkSize(2);
+        config.setHashingThreads(2);
+        importer = new UserImporter(database.getSessionFactory(),
+                                    userInfoStore,
+                                    passwordStore,
+                                    userRoleStore,
+                                    Jackson.newObjectMapper(),
+                                    Validators.newValidator(),
+                                    config);
+    }
+
+    @Test
+    void testImport() throws Exception {
+        val input = String.join(
+                "\n",
+                "{\"email\":\"tu1@test.com\",\"name\":\"TU1\",\"password\":\"password1\"}",
+                "",
+                "{\"email\":\"tu2@test.com\",\"name\":\"TU2\",\"password\":\"password2\",\"forcePasswordChange\":false}",
+                "{\"email\":\"tu3@test.com\",\"name\":\"TU3\"}",
+                "{\"email\":\"owner@test.com\",\"name\":\"TS1\",\"userType\":\"SYSTEM\"}",
+                "not json");
+        val progress = new ArrayList<UserImportResult>();
+        val result = importer.importUsers(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                                          "TEST",
+                                          progress::add);
+        assertEquals(5, result.getRows());
+        assertEquals(3, result.getCreated());
+        assertEquals(0, result.getUpdated());
+        assertEquals(2, result.getFailed());
+        assertEquals(2, result.getErrors().size());
+        assertEquals(4, result.getErrors().get(0).getLine());
+        assertEquals(6, result.getErrors().get(1).getLine());
+        assertEquals(2, progress.size());
+
+        val tu1 = Utils.hashedId("tu1@test.com");
+        val tu2 = Utils.hashedId("tu2@test.com");
+        val ts1 = Utils.hashedId("TS1");
+        database.inTransaction(() -> {
+            assertEquals(AuthState.EXPIRED,
+                         userInfoStore.get(tu1).map(user -> user.getAuthState().getAuthState()).orElse(null));
+            assertEquals(AuthState.ACTIVE,
+                         userInfoStore.get(tu2).map(user -> user.getAuthState().getAuthState()).orElse(null));
+            assertEquals(AuthMode.TOKEN,
+                         userInfoStore.get(ts1).map(user -> user.getAuthState().getAuthMode()).orElse(null));
+            assertEquals(UserType.SYSTEM, userInfoStore.get(ts1).map(StoredUser::getUserType).orElse(null));
+            assertFalse(userInfoStore.get(Utils.hashedId("tu3@test.com")).isPresent());
+            assertTrue(passwordStore.match(tu1, "password1"));
+            assertTrue(passwordStore.match(tu2, "password2"));
+            assertEquals(IdmanRoles.USER, userRoleStore.getUserServiceRole(tu1, "IDMAN")
+                    .map(StoredUserRole::getRoleId)
+                    .orElse(null));
+            assertFalse(userRoleStore.getUserServiceRole(ts1, "IDMAN").isPresent());
+        });
+
+        //Importing again updates the same users
+        val reimported = importer.importUsers(
+                new ByteArrayInputStream("{\"email\":\"tu1@test.com\",\"name\":\"New Name\",\"password\":\"password3\"}"
+                                                 .getBytes(StandardCharsets.UTF_8)),
+                "TEST",
+                p -> {});
+        assertEquals(0, reimported.getCreated());
+        assertEquals(1, reimported.getUpdated());
+        database.inTransaction(() -> {
+            database.getSessionFactory().getCurrentSession().clear();
+            assertEquals("New Name", userInfoStore.get(tu1).map(StoredUser::getName).orElse(null));
+            assertTrue(passwordStore.match(tu1, "password3"));
+        });
+    }
+}
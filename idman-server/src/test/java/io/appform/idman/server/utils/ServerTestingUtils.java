@@ -22,14 +22,20 @@ import io.appform.idman.server.auth.configs.JwtConfig;
 import io.appform.idman.server.db.AuthState;
 import io.appform.idman.server.db.model.*;
 import io.dropwizard.util.Duration;
+import lombok.SneakyThrows;
 import lombok.experimental.UtilityClass;
 import lombok.val;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.jose4j.jwk.EcJwkGenerator;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.RsaJwkGenerator;
+import org.jose4j.keys.EllipticCurves;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import ru.vyarus.guicey.gsp.views.template.TemplateContext;
 
 import java.util.Date;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
@@ -54,6 +60,20 @@ public class ServerTestingUtils {
         return authenticationConfig;
     }
 
+    @SneakyThrows
+    public static Map<String, Object> ecSigningKey(String keyId) {
+        val jwk = EcJwkGenerator.generateJwk(EllipticCurves.P256);
+        jwk.setKeyId(keyId);
+        return jwk.toParams(JsonWebKey.OutputControlLevel.INCLUDE_PRIVATE);
+    }
+
+    @SneakyThrows
+    public static Map<String, Object> rsaSigningKey(String keyId) {
+        val jwk = RsaJwkGenerator.generateJwk(2048);
+        jwk.setKeyId(keyId);
+        return jwk.toParams(JsonWebKey.OutputControlLevel.INCLUDE_PRIVATE);
+    }
+
     public static StoredUser adminUser() {
         val storedUser = new StoredUser(Utils.hashedId("admin@a.com"), "admin@a.com", "Admin", UserType.HUMAN);
         storedUser.setAuthState(new StoredUserAuthState(AuthMode.PASSWORD, AuthState.ACTIVE, 0, storedUser));
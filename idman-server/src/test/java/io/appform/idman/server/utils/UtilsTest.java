@@ -15,18 +15,21 @@
 package io.appform.idman.server.utils;
 
 import com.google.common.base.Strings;
-import io.appform.idman.model.AuthMode;
+import io.appform.idman.model.*;
 import io.appform.idman.server.auth.configs.AuthenticationConfig;
 import io.appform.idman.server.db.model.ClientSession;
-import io.appform.idman.model.TokenType;
+import lombok.SneakyThrows;
 import lombok.val;
 import org.awaitility.Awaitility;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
 import org.jose4j.jwt.consumer.InvalidJwtException;
 import org.jose4j.jwt.consumer.InvalidJwtSignatureException;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.util.Date;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -193,6 +196,61 @@ class UtilsTest {
         }
     }
 
+    @Test
+    @SneakyThrows
+    void testAsymmetricJWT() {
+        val config = ServerTestingUtils.passwordauthConfig();
+        config.getJwt().setSigningKeys(List.of(ServerTestingUtils.ecSigningKey("K1"),
+                                               ServerTestingUtils.rsaSigningKey("K2")));
+        val session = new ClientSession("SS1", "U1", "S1", "CS1", TokenType.DYNAMIC,
+                                        Utils.futureTime(io.dropwizard.util.Duration.minutes(5)),
+                                        false,
+                                        new Date(),
+                                        new Date());
+        val user = new IdmanUser("SS1", "S1", new User("U1", "U", UserType.HUMAN, AuthMode.PASSWORD), "S_USER");
+        val jwt = Utils.createAccessToken(session, user, config.getJwt());
+        val jws = (JsonWebSignature) JsonWebSignature.fromCompactSerialization(jwt);
+        assertEquals(AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256, jws.getAlgorithmHeaderValue());
+        assertEquals("K1", jws.getKeyIdHeaderValue());
+
+        val claims = Utils.buildConsumer(config, "S1").process(jwt).getJwtClaims();
+        assertEquals("SS1", claims.getJwtId());
+        assertEquals("U", claims.getStringClaimValue(TokenClaims.USER_NAME));
+        assertEquals("HUMAN", claims.getStringClaimValue(TokenClaims.USER_TYPE));
+        assertEquals("PASSWORD", claims.getStringClaimValue(TokenClaims.AUTH_MODE));
+        assertEquals("S_USER", claims.getStringClaimValue(TokenClaims.ROLE));
+        assertTrue(Utils.parseToken(jwt, Utils.buildConsumer(config, "S1")).isPresent());
+        assertFalse(Utils.parseToken(jwt, Utils.buildConsumer(config, "S2")).isPresent());
+    }
+
+    @Test
+    void testJWTKeyRotation() {
+        val config = ServerTestingUtils.passwordauthConfig();
+        val session = new ClientSession("SS1", "U1", "S1", "CS1", TokenType.DYNAMIC,
+                                        null,
+                                        false,
+                                        new Date(),
+                                        new Date());
+        val hmacToken = Utils.createAccessToken(session, config.getJwt());
+        val oldKey = ServerTestingUtils.ecSigningKey("K1");
+        val newKey = ServerTestingUtils.rsaSigningKey("K2");
+
+        val oldConfig = ServerTestingUtils.passwordauthConfig();
+        oldConfig.getJwt().setSigningKeys(List.of(oldKey));
+        val oldToken = Utils.createAccessToken(session, oldConfig.getJwt());
+
+        val rotatedConfig = ServerTestingUtils.passwordauthConfig();
+        rotatedConfig.getJwt().setSigningKeys(List.of(oldKey, newKey));
+        rotatedConfig.getJwt().setActiveKeyId("K2");
+        val newToken = Utils.createAccessToken(session, rotatedConfig.getJwt());
+
+        val consumer = Utils.buildConsumer(rotatedConfig, "S1");
+        assertTrue(Utils.parseToken(hmacToken, consumer).isPresent());
+        assertTrue(Utils.parseToken(oldToken, consumer).isPresent());
+        assertTrue(Utils.parseToken(newToken, consumer).isPresent());
+        assertFalse(Utils.parseToken(newToken, Utils.buildConsumer(oldConfig, "S1")).isPresent());
+    }
+
     @Test
     void sessionDuration() {
         val config = new AuthenticationConfig();
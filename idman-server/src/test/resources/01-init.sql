@@ -118,6 +118,22 @@ CREATE TABLE `passwords` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_bin;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `replica_heartbeat`
+--
+
+DROP TABLE IF EXISTS `replica_heartbeat`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `replica_heartbeat` (
+  `id` int(11) NOT NULL,
+  `beat` bigint(20) NOT NULL DEFAULT 0,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_bin;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+INSERT INTO `replica_heartbeat` VALUES (1,0);
+
 --
 -- Table structure for table `roles`
 --
@@ -158,7 +174,28 @@ CREATE TABLE `services` (
   `created` datetime(3) DEFAULT current_timestamp(3),
   `updated` datetime(3) DEFAULT current_timestamp(3) ON UPDATE current_timestamp(3),
   PRIMARY KEY (`id`),
-  UNIQUE KEY `uk_service_id` (`service_id`)
+  UNIQUE KEY `uk_service_id` (`service_id`),
+  KEY `idx_service_name` (`name`,`service_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_bin;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `session_revocations`
+--
+
+DROP TABLE IF EXISTS `session_revocations`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `session_revocations` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `session_id` varchar(45) COLLATE utf8mb4_bin NOT NULL,
+  `service_id` varchar(255) COLLATE utf8mb4_bin NOT NULL,
+  `kind` varchar(45) COLLATE utf8mb4_bin NOT NULL DEFAULT 'REVOKED',
+  `created` datetime(3) NOT NULL DEFAULT current_timestamp(3),
+  PRIMARY KEY (`id`),
+  KEY `idx_sr_service_id` (`service_id`,`kind`,`id`),
+  KEY `idx_sr_service_created` (`service_id`,`created`),
+  KEY `idx_sr_created` (`created`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_bin;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -220,7 +257,8 @@ CREATE TABLE `user_roles` (
   `updated` datetime(3) DEFAULT current_timestamp(3) ON UPDATE current_timestamp(3),
   PRIMARY KEY (`id`),
   UNIQUE KEY `uk_service_user` (`user_id`,`service_id`),
-  KEY `idx_service_id` (`service_id`)
+  KEY `idx_service_id` (`service_id`),
+  KEY `idx_service_user` (`service_id`,`user_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_bin;
 /*!40101 SET character_set_client = @saved_cs_client */;
 